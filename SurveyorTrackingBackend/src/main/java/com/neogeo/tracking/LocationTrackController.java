@@ -8,16 +8,26 @@ import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.neogeo.tracking.dto.LiveLocationMessage;
+import com.neogeo.tracking.dto.SurveyorLocationSummary;
+import com.neogeo.tracking.dto.TrackPage;
+import com.neogeo.tracking.dto.TrackSummary;
 import com.neogeo.tracking.model.LocationTrack;
 import com.neogeo.tracking.model.Surveyor;
 import com.neogeo.tracking.repository.LocationTrackRepository;
 import com.neogeo.tracking.service.*;
+import com.neogeo.tracking.track.InterpolationSettings;
+import com.neogeo.tracking.track.InterpolationStrategy;
+import com.neogeo.tracking.track.SimplifyingTrackWriter;
+import com.neogeo.tracking.track.TrackFormat;
+import com.neogeo.tracking.track.TrackWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -37,18 +47,24 @@ public class LocationTrackController {
     private final TracingService tracingService;
     private final ObjectMapper objectMapper;
     private final LocationTrackService locationTrackService;
+    private final TrackAnalyticsService trackAnalyticsService;
+    private final LocationIngestService locationIngestService;
 
     @Autowired
     public LocationTrackController(SimpMessagingTemplate messagingTemplate,
                                  LocationTrackRepository repository,
                                  SurveyorService surveyorService,
                                  TracingService tracingService,
-                                 LocationTrackService locationTrackService) {
+                                 LocationTrackService locationTrackService,
+                                 TrackAnalyticsService trackAnalyticsService,
+                                 LocationIngestService locationIngestService) {
         this.messagingTemplate = messagingTemplate;
         this.repository = repository;
         this.surveyorService = surveyorService;
         this.tracingService = tracingService;
         this.locationTrackService = locationTrackService;
+        this.trackAnalyticsService = trackAnalyticsService;
+        this.locationIngestService = locationIngestService;
         this.objectMapper = new ObjectMapper()
             .registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule())
             .configure(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
@@ -56,17 +72,42 @@ public class LocationTrackController {
 
     @Operation(summary = "Filter surveyors")
     @GetMapping("/surveyors/filter")
-    public List<Surveyor> filterSurveyors(
+    public ResponseEntity<List<Surveyor>> filterSurveyors(
             @Parameter(description = "City to filter by") @RequestParam(required = false) String city,
             @Parameter(description = "Project to filter by") @RequestParam(required = false) String project,
-            @Parameter(description = "Online status to filter by") @RequestParam(required = false) String status) {
-        return locationTrackService.filterSurveyorsExcludingAdmin(city, project, status);
+            @Parameter(description = "Online, Offline, Moving or Stationary") @RequestParam(required = false) String status) {
+        try {
+            return ResponseEntity.ok(locationTrackService.filterSurveyorsExcludingAdmin(city, project, status));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Filter surveyors (paginated, compact)",
+               description = "City/project/status filter returning compact rows with latest location. " +
+                             "Status is one of Online, Offline, Moving, Stationary.")
+    @GetMapping("/surveyors/filter/page")
+    public ResponseEntity<Page<SurveyorLocationSummary>> filterSurveyorsPaged(
+            @Parameter(description = "City to filter by") @RequestParam(required = false) String city,
+            @Parameter(description = "Project to filter by") @RequestParam(required = false) String project,
+            @Parameter(description = "Status to filter by") @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        if (page < 0 || size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(locationTrackService.filterSurveyorSummaries(city, project, status,
+                PageRequest.of(page, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @Operation(summary = "Get all surveyors with latest locations")
     @GetMapping("/surveyors/with-locations")
-    public ResponseEntity<List<Map<String, Object>>> getAllSurveyorsWithLatestLocations() {
-        List<Map<String, Object>> surveyorsWithLocations = locationTrackService.getAllSurveyorsWithLatestLocations();
+    public ResponseEntity<List<SurveyorLocationSummary>> getAllSurveyorsWithLatestLocations() {
+        List<SurveyorLocationSummary> surveyorsWithLocations = locationTrackService.getAllSurveyorsWithLatestLocations();
         return ResponseEntity.ok(surveyorsWithLocations);
     }
 
@@ -100,42 +141,145 @@ public class LocationTrackController {
         }
     }
 
-    @Operation(summary = "Get location history")
+    @Operation(summary = "Get location history",
+               description = "Paged LocationTrack list by default. With format=polyline|columnar (or any export format) " +
+                             "the whole range is streamed in that encoding instead and paging is ignored.")
     @GetMapping("/location/{surveyorId}/track")
-    public ResponseEntity<Page<LocationTrack>> getTrackHistory(
+    public ResponseEntity<?> getTrackHistory(
             @PathVariable String surveyorId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "1000") int size) {
+            @RequestParam(defaultValue = "1000") int size,
+            @Parameter(description = "polyline, columnar, ndjson, geojson or geojson-line") @RequestParam(required = false) String format,
+            @Parameter(description = "Also return fixes rejected by the ingest filter (qualityFlag 2), for auditing; " +
+                                     "not supported together with format")
+            @RequestParam(defaultValue = "false") boolean includeRejected) {
 
         if (start.isAfter(end)) {
             return ResponseEntity.badRequest().build();
         }
+        if (format != null) {
+            // Streamed formats have no qualityFlag, so rejected fixes could not be told apart
+            if (includeRejected) {
+                return ResponseEntity.badRequest().build();
+            }
+            return exportTrackHistory(surveyorId, start, end, format, null, null);
+        }
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<LocationTrack> tracks = locationTrackService.getTrackHistoryPaged(surveyorId, start, end, pageable);
+        Page<LocationTrack> tracks = locationTrackService.getTrackHistoryPaged(surveyorId, start, end, pageable,
+            includeRejected);
         
         // Ensure we capture the final GPS point before logout/stop tracking
         // This is handled by the mobile app sending a final location update
         return tracks.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(tracks);
     }
 
+    @Operation(summary = "Get location history with cursor pagination",
+               description = "Keyset pagination over (timestamp, id). Pass the returned nextCursor to get the next page; " +
+                             "every page costs the same. The total count is only computed when includeTotal=true.")
+    @GetMapping("/location/{surveyorId}/track/seek")
+    public ResponseEntity<TrackPage> getTrackHistorySeek(
+            @PathVariable String surveyorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "1000") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @Parameter(description = "Also return fixes rejected by the ingest filter (qualityFlag 2), for auditing")
+            @RequestParam(defaultValue = "false") boolean includeRejected) {
+
+        if (start.isAfter(end) || size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            TrackPage page = locationTrackService.getTrackHistoryAfter(surveyorId, start, end, cursor, size,
+                includeTotal, includeRejected);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Export location history as a stream",
+               description = "Streams the range through a database cursor as NDJSON (one point per line), " +
+                             "GeoJSON FeatureCollection of points (geojson), a GeoJSON LineString (geojson-line), " +
+                             "Google encoded polyline with delta timestamps (polyline) or columnar delta arrays (columnar). " +
+                             "Memory use does not grow with the size of the range. Pass tolerance (meters) or zoom " +
+                             "to simplify the track with Douglas-Peucker; first and last points are always kept.")
+    @GetMapping("/location/{surveyorId}/track/export")
+    public ResponseEntity<StreamingResponseBody> exportTrackHistory(
+            @PathVariable String surveyorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @Parameter(description = "ndjson, geojson, geojson-line, polyline or columnar") @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "Simplification tolerance in meters") @RequestParam(required = false) Double tolerance,
+            @Parameter(description = "Map zoom level used to derive the tolerance") @RequestParam(required = false) Integer zoom) {
+
+        if (start.isAfter(end) || (tolerance != null && tolerance < 0) || (zoom != null && (zoom < 0 || zoom > 24))) {
+            return ResponseEntity.badRequest().build();
+        }
+        TrackFormat trackFormat;
+        try {
+            trackFormat = TrackFormat.fromParam(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            TrackWriter writer = trackFormat.newWriter(out, surveyorId);
+            if (tolerance != null) {
+                writer = SimplifyingTrackWriter.withTolerance(writer, tolerance);
+            } else if (zoom != null) {
+                writer = SimplifyingTrackWriter.forZoom(writer, zoom);
+            }
+            long count = locationTrackService.exportTrack(surveyorId, start, end, writer);
+            System.out.printf("Streamed %d points for surveyor %s as %s%n", count, surveyorId, trackFormat.getParam());
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(trackFormat.getContentType()))
+            .body(body);
+    }
+
     @Operation(summary = "Get enhanced location history with interpolated points")
     @GetMapping("/location/{surveyorId}/enhanced-track")
-    public ResponseEntity<List<LocationTrack>> getEnhancedTrackHistory(
+    public ResponseEntity<StreamingResponseBody> getEnhancedTrackHistory(
             @PathVariable String surveyorId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @Parameter(description = "json, ndjson, geojson, geojson-line, polyline or columnar") @RequestParam(defaultValue = "json") String format,
+            @Parameter(description = "linear, great-circle or resample") @RequestParam(required = false) String strategy,
+            @Parameter(description = "Interpolation step in seconds") @RequestParam(required = false) Long interval) {
 
-        if (start.isAfter(end)) {
+        if (start.isAfter(end) || (interval != null && interval <= 0)) {
             return ResponseEntity.badRequest().build();
         }
+        TrackFormat trackFormat;
+        InterpolationSettings settings = locationTrackService.getInterpolationSettings();
+        try {
+            trackFormat = TrackFormat.fromParam(format);
+            if (strategy != null) {
+                settings = settings.withStrategy(InterpolationStrategy.fromParam(strategy));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (interval != null) {
+            settings = settings.withStepSeconds(interval);
+        }
 
-        List<LocationTrack> tracks = locationTrackService.getEnhancedTrackHistory(surveyorId, start, end);
-        return tracks.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(tracks);
+        InterpolationSettings effectiveSettings = settings;
+        StreamingResponseBody body = out -> {
+            TrackWriter writer = trackFormat.newWriter(out, surveyorId);
+            long count = locationTrackService.exportEnhancedTrack(surveyorId, start, end, effectiveSettings, writer);
+            System.out.printf("Streamed enhanced track (%d recorded points) for surveyor %s%n", count, surveyorId);
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(trackFormat.getContentType()))
+            .body(body);
     }
-    
+
     @Operation(summary = "Get projects by city for cascading filters")
     @GetMapping("/filters/cities/{city}/projects")
     public ResponseEntity<List<String>> getProjectsByCity(@PathVariable String city) {
@@ -167,6 +311,35 @@ public class LocationTrackController {
         }
     }
 
+    @Operation(summary = "Get track summary for a time window",
+               description = "Point count, distance, duration, active time and bounding box computed in the database")
+    @GetMapping("/location/{surveyorId}/summary")
+    public ResponseEntity<TrackSummary> getTrackSummary(
+            @PathVariable String surveyorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end) {
+
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(trackAnalyticsService.summarize(surveyorId, start, end));
+    }
+
+    @Operation(summary = "Get track summaries for all surveyors of a city/project",
+               description = "One summary per non-admin surveyor; surveyors are summarized concurrently")
+    @GetMapping("/surveyors/summary")
+    public ResponseEntity<List<TrackSummary>> getSurveyorSummaries(
+            @Parameter(description = "City to filter by") @RequestParam(required = false) String city,
+            @Parameter(description = "Project to filter by") @RequestParam(required = false) String project,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end) {
+
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(trackAnalyticsService.summarizeSurveyors(city, project, start, end));
+    }
+
     @Operation(summary = "Update live location")
     @PostMapping("/live/location")
     public ResponseEntity<String> publishLiveLocation(
@@ -188,11 +361,16 @@ public class LocationTrackController {
                 }
 
                 // Always save location first - NEVER drop any GPS points
-                saveLocation(message);
+                boolean stored = locationIngestService.accept(message, false);
 
                 // Then broadcast to live tracking
                 broadcastLocation(message);
 
+                if (!stored) {
+                    // Durable in the write-ahead log; stored once the database is reachable again
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).body("Location accepted and queued");
+                }
+
                 // Update surveyor activity timestamp on location update
                 surveyorService.updateSurveyorActivity(message.getSurveyorId());
 
@@ -243,13 +421,17 @@ public class LocationTrackController {
             }
 
             try {
-                // Force immediate save with final flag in log
-                saveLocation(message);
+                // Force immediate save, releasing any fix the compressor still holds
+                boolean stored = locationIngestService.accept(message, true);
 
                 // Log as final position
                 System.out.printf("🏁 FINAL GPS POSITION: Surveyor %s at (%.6f, %.6f) - SESSION END%n",
                     message.getSurveyorId(), message.getLatitude(), message.getLongitude());
 
+                if (!stored) {
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).body("Final location accepted and queued");
+                }
+
                 // Update surveyor activity timestamp for final logout
                 surveyorService.updateSurveyorActivity(message.getSurveyorId());
 
@@ -283,14 +465,18 @@ public class LocationTrackController {
             try {
                 int successCount = 0;
                 int failCount = 0;
+                int queuedCount = 0;
 
                 String surveyorId = null;
                 StringBuilder errorMessages = new StringBuilder();
 
                 for (LiveLocationMessage message : messages) {
                     try {
-                        saveLocation(message);
-                        successCount++;
+                        if (locationIngestService.accept(message, false)) {
+                            successCount++;
+                        } else {
+                            queuedCount++;
+                        }
                         if (surveyorId == null) {
                             surveyorId = message.getSurveyorId();
                         }
@@ -304,19 +490,25 @@ public class LocationTrackController {
                 }
 
                 // Update surveyor activity timestamp after batch
-                if (surveyorId != null) {
+                if (surveyorId != null && queuedCount == 0) {
                     surveyorService.updateSurveyorActivity(surveyorId);
                 }
 
-                System.out.printf("📦 BATCH GPS SAVED: %d successful, %d failed for surveyor %s%n",
-                        successCount, failCount, surveyorId);
+                System.out.printf("📦 BATCH GPS SAVED: %d successful, %d queued, %d failed for surveyor %s%n",
+                        successCount, queuedCount, failCount, surveyorId);
 
                 String responseMsg = String.format("Batch processed: %d successful, %d failed",
                         successCount, failCount);
+                if (queuedCount > 0) {
+                    responseMsg += String.format(", %d queued", queuedCount);
+                }
                 if (failCount > 0) {
                     responseMsg += ". Errors: " + errorMessages.toString();
                 }
 
+                if (queuedCount > 0) {
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).body(responseMsg);
+                }
                 return ResponseEntity.ok(responseMsg);
             } catch (Exception e) {
                 System.err.println("Unexpected error during batch location update: " + e.getMessage());
@@ -342,100 +534,4 @@ public class LocationTrackController {
         String json = objectMapper.writeValueAsString(message);
         messagingTemplate.convertAndSend("/topic/location/" + message.getSurveyorId(), json);
     }
-
-    private void saveLocation(LiveLocationMessage message) {
-        try {
-            // Validate input data
-            if (message.getSurveyorId() == null || message.getSurveyorId().trim().isEmpty()) {
-                System.err.println("Invalid surveyor ID - cannot save location");
-                return;
-            }
-
-            // Validate coordinates
-            if (message.getLatitude() < -90 || message.getLatitude() > 90 ||
-                message.getLongitude() < -180 || message.getLongitude() > 180) {
-                System.err.printf("Invalid coordinates for surveyor %s: lat=%.6f, lon=%.6f%n",
-                    message.getSurveyorId(), message.getLatitude(), message.getLongitude());
-                return;
-            }
-
-            Instant timestamp;
-            if (message.getTimestamp() != null) {
-                timestamp = message.getTimestamp();
-            } else {
-                timestamp = Instant.now();
-                System.out.printf("No timestamp provided for surveyor %s, using current time%n",
-                    message.getSurveyorId());
-            }
-
-            // Check if this is a duplicate or very close to the previous location
-            LocationTrack previousLocation = locationTrackService.getLatestLocation(message.getSurveyorId());
-            boolean shouldSave = true;
-
-            if (previousLocation != null) {
-                // Calculate time difference in minutes
-                long timeDiffMinutes = java.time.Duration.between(previousLocation.getTimestamp(), timestamp).toMinutes();
-
-                // Calculate distance in meters
-                double distance = calculateDistance(
-                    previousLocation.getLatitude(), previousLocation.getLongitude(),
-                    message.getLatitude(), message.getLongitude()
-                ) * 1000; // Convert km to meters
-
-                // Only skip if both time and distance are very small
-                // This ensures we capture all meaningful movements
-                if (timeDiffMinutes < 1 && distance < 10) {
-                    // Less than 1 minute and less than 10 meters - consider as duplicate
-                    shouldSave = false;
-                    System.out.printf("ℹ️ Skipping duplicate location for surveyor %s: time diff=%d min, distance=%.2f m%n",
-                        message.getSurveyorId(), timeDiffMinutes, distance);
-                }
-            }
-
-            if (shouldSave) {
-                LocationTrack locationTrack = new LocationTrack(
-                    message.getSurveyorId(),
-                    message.getLatitude(),
-                    message.getLongitude(),
-                    timestamp,
-                    null
-                );
-
-                LocationTrack saved = repository.save(locationTrack);
-                System.out.printf("✅ Successfully saved location ID=%d for surveyor %s at %s (%.6f, %.6f)%n",
-                    saved.getId(), message.getSurveyorId(), timestamp.toString(),
-                    message.getLatitude(), message.getLongitude());
-
-                // Log GPS capture statistics
-                long totalPoints = locationTrackService.getLocationCount(message.getSurveyorId());
-                if (totalPoints % 5 == 0) {
-                    System.out.printf("📊 GPS STATS: Surveyor %s has reached %d total GPS points%n",
-                        message.getSurveyorId(), totalPoints);
-                }
-            }
-
-            // Always update last activity timestamp, even if we skipped saving the location
-            surveyorService.updateSurveyorActivity(message.getSurveyorId());
-
-        } catch (Exception e) {
-            System.err.printf("❌ Failed to save location for surveyor %s: %s%n",
-                message.getSurveyorId(), e.getMessage());
-            e.printStackTrace();
-            throw e;
-        }
-    }
-
-    /**
-     * Calculates distance between two points in kilometers
-     */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371; // Earth radius in kilometers
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat/2) * Math.sin(dLat/2) +
-                  Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                  Math.sin(dLon/2) * Math.sin(dLon/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-        return R * c;
-    }
-}
\ No newline at end of file
+}
@@ -1,41 +1,73 @@
 
 package com.neogeo.tracking;
 
+import java.io.IOException;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import com.neogeo.tracking.dto.SurveyorLocationSummary;
+import com.neogeo.tracking.dto.TrackPage;
 import com.neogeo.tracking.model.LocationTrack;
 import com.neogeo.tracking.model.Surveyor;
 import com.neogeo.tracking.repository.LocationTrackRepository;
+import com.neogeo.tracking.repository.SurveyorLocationRepository;
 import com.neogeo.tracking.repository.SurveyorRepository;
+import com.neogeo.tracking.service.DistanceService;
+import com.neogeo.tracking.service.LatestLocationService;
+import com.neogeo.tracking.service.PresenceService;
 import com.neogeo.tracking.service.SurveyorService;
+import com.neogeo.tracking.service.TrackArchiveService;
+import com.neogeo.tracking.store.TrackStore;
+import com.neogeo.tracking.track.InterpolatingTrackWriter;
+import com.neogeo.tracking.track.InterpolationSettings;
+import com.neogeo.tracking.track.TrackCursor;
+import com.neogeo.tracking.track.TrackPointHandler;
+import com.neogeo.tracking.track.TrackWriter;
 
 @Service
 public class LocationTrackService {
 
-    private static final int OFFLINE_THRESHOLD_MINUTES = 12; // 12 minutes as per requirements
-
     private final LocationTrackRepository locationTrackRepository;
     private final SurveyorRepository surveyorRepository;
     private final SurveyorService surveyorService;
+    private final SurveyorLocationRepository surveyorLocationRepository;
+    private final PresenceService presenceService;
+    private final LatestLocationService latestLocationService;
+    private final TrackStore trackStore;
+    private final InterpolationSettings interpolationSettings;
+    private final DistanceService distanceService;
+    private final TrackArchiveService trackArchiveService;
 
     @Autowired
     public LocationTrackService(LocationTrackRepository locationTrackRepository,
                               SurveyorRepository surveyorRepository,
-                              SurveyorService surveyorService) {
+                              SurveyorService surveyorService,
+                              SurveyorLocationRepository surveyorLocationRepository,
+                              PresenceService presenceService,
+                              LatestLocationService latestLocationService,
+                              TrackStore trackStore,
+                              InterpolationSettings interpolationSettings,
+                              DistanceService distanceService,
+                              TrackArchiveService trackArchiveService) {
         this.locationTrackRepository = locationTrackRepository;
         this.surveyorRepository = surveyorRepository;
         this.surveyorService = surveyorService;
+        this.surveyorLocationRepository = surveyorLocationRepository;
+        this.presenceService = presenceService;
+        this.latestLocationService = latestLocationService;
+        this.trackStore = trackStore;
+        this.interpolationSettings = interpolationSettings;
+        this.distanceService = distanceService;
+        this.trackArchiveService = trackArchiveService;
     }
 
     public List<Surveyor> getAllSurveyorsExcludingAdmin() {
@@ -45,61 +77,64 @@ public class LocationTrackService {
     }
 
     public Map<String, String> getSurveyorStatusesExcludingAdmin() {
-        Instant now = Instant.now();
-        Instant threshold = now.minus(OFFLINE_THRESHOLD_MINUTES, ChronoUnit.MINUTES);
-        
         return getAllSurveyorsExcludingAdmin().stream()
             .collect(Collectors.toMap(
                 Surveyor::getId,
-                surveyor -> determineStatus(surveyor.getId(), threshold)
+                surveyor -> presenceService.getStatus(surveyor.getId())
             ));
     }
 
+    /**
+     * Filters surveyors by city/project in the database and by status against the in-memory presence index
+     * @param status Online, Offline, Moving or Stationary (null for any)
+     * @throws IllegalArgumentException if status is not one of those values
+     */
     public List<Surveyor> filterSurveyorsExcludingAdmin(String city, String project, String status) {
+        PresenceService.StatusFilter statusFilter = PresenceService.StatusFilter.fromParam(status);
         List<Surveyor> surveyors = findSurveyorsByFilters(city, project);
         return surveyors.stream()
             .filter(this::isValidSurveyor)
+            .filter(surveyor -> presenceService.matchesStatus(surveyor.getId(), statusFilter))
+            .peek(surveyor -> surveyor.setOnline(presenceService.isOnline(surveyor.getId())))
             .peek(this::logSurveyorDetails)
             .collect(Collectors.toList());
     }
 
     /**
-     * Gets all surveyors with their latest location data
-     * @return List of surveyors with their latest location information
+     * Paginated, compact variant of filterSurveyorsExcludingAdmin: one query for the city/project
+     * filter joined with latest locations, status evaluated in memory, then sliced to the page.
      */
-    public List<Map<String, Object>> getAllSurveyorsWithLatestLocations() {
-        List<Surveyor> surveyors = getAllSurveyorsExcludingAdmin();
-        List<Map<String, Object>> result = new ArrayList<>();
-        
-        for (Surveyor surveyor : surveyors) {
-            Map<String, Object> surveyorData = new HashMap<>();
-            surveyorData.put("surveyor", surveyor);
-            
-            // Get latest location for this surveyor
-            LocationTrack latestLocation = getLatestLocation(surveyor.getId());
-            if (latestLocation != null) {
-                Map<String, Object> locationData = new HashMap<>();
-                locationData.put("latitude", latestLocation.getLatitude());
-                locationData.put("longitude", latestLocation.getLongitude());
-                locationData.put("timestamp", latestLocation.getTimestamp());
-                surveyorData.put("latestLocation", locationData);
-            }
-            
-            // Get online status based on latest GPS timestamp
-            boolean isOnline = surveyorService.isSurveyorOnline(surveyor.getId());
-            surveyorData.put("online", isOnline);
-            
-            result.add(surveyorData);
+    public Page<SurveyorLocationSummary> filterSurveyorSummaries(String city, String project, String status,
+                                                                 Pageable pageable) {
+        PresenceService.StatusFilter statusFilter = PresenceService.StatusFilter.fromParam(status);
+        List<SurveyorLocationSummary> matches = surveyorLocationRepository.findWithLatestLocation(city, project)
+            .stream()
+            .filter(summary -> presenceService.matchesStatus(summary.getId(), statusFilter))
+            .collect(Collectors.toList());
+
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        List<SurveyorLocationSummary> content = matches.subList(from, to);
+        content.forEach(summary -> summary.setOnline(presenceService.isOnline(summary.getId())));
+        return new PageImpl<>(content, pageable, matches.size());
+    }
+
+    /**
+     * Gets all surveyors with their latest location data in a single query.
+     * Online status comes from the in-memory presence index, so no per-surveyor lookups are made.
+     * @return List of compact surveyor rows with their latest location information
+     */
+    public List<SurveyorLocationSummary> getAllSurveyorsWithLatestLocations() {
+        List<SurveyorLocationSummary> result = surveyorLocationRepository.findAllWithLatestLocation();
+        for (SurveyorLocationSummary summary : result) {
+            summary.setOnline(presenceService.isOnline(summary.getId()));
         }
-        
         return result;
     }
 
     public LocationTrack getLatestLocation(String surveyorId) {
         try {
-            return locationTrackRepository
-                .findTopBySurveyorIdOrderByTimestampDesc(surveyorId)
-                .orElse(null);
+            return latestLocationService.getLatest(surveyorId);
         } catch (Exception e) {
             System.err.println("Error fetching latest location for surveyor " + surveyorId + ": " + e.getMessage());
             return null;
@@ -107,16 +142,85 @@ public class LocationTrackService {
     }
 
     public List<LocationTrack> getTrackHistory(String surveyorId, Instant start, Instant end) {
+        return getTrackHistory(surveyorId, start, end, false);
+    }
+
+    /**
+     * @param includeRejected Also return fixes the ingest filter rejected (quality flag 2), for auditing
+     */
+    public List<LocationTrack> getTrackHistory(String surveyorId, Instant start, Instant end, boolean includeRejected) {
         validateTimeRange(start, end);
         
-        List<LocationTrack> results = fetchLocationTracks(surveyorId, start, end);
+        List<LocationTrack> results = fetchLocationTracks(surveyorId, start, end, includeRejected);
         logResults(results);
         return results;
     }
 
-    public Page<LocationTrack> getTrackHistoryPaged(String surveyorId, Instant start, Instant end, Pageable pageable) {
+    /**
+     * @param includeRejected Also return fixes the ingest filter rejected (quality flag 2), for auditing
+     */
+    public Page<LocationTrack> getTrackHistoryPaged(String surveyorId, Instant start, Instant end, Pageable pageable,
+                                                    boolean includeRejected) {
         validateTimeRange(start, end);
-        return locationTrackRepository.findBySurveyorIdAndTimestampBetweenOrderByTimestampAsc(surveyorId, start, end, pageable);
+        if (trackArchiveService.overlapsArchive(surveyorId, start, end)) {
+            return trackArchiveService.readPage(surveyorId, start, end, pageable, includeRejected);
+        }
+        return locationTrackRepository.findHistoryPage(surveyorId, start, end, includeRejected, pageable);
+    }
+
+    /**
+     * Streams a time range straight into a writer through a database cursor,
+     * without building a List of entities
+     * @return Number of points written
+     */
+    public long exportTrack(String surveyorId, Instant start, Instant end, TrackWriter writer) throws IOException {
+        validateTimeRange(start, end);
+        writer.begin();
+        long count = trackArchiveService.overlapsArchive(surveyorId, start, end) ?
+            trackArchiveService.streamRange(surveyorId, start, end, writer) :
+            trackStore.scan(surveyorId, start, end, writer);
+        writer.end();
+        return count;
+    }
+
+    /**
+     * Keyset (seek) pagination over (timestamp, id). Page N costs the same as page 1 because
+     * there is no OFFSET, and no COUNT query is run unless includeTotal is set.
+     * @param cursor Token from the previous page's nextCursor, or null for the first page
+     * @param includeRejected Also return fixes the ingest filter rejected (quality flag 2), for auditing
+     * @throws IllegalArgumentException for an invalid range or cursor
+     */
+    public TrackPage getTrackHistoryAfter(String surveyorId, Instant start, Instant end, String cursor,
+                                          int size, boolean includeTotal, boolean includeRejected) {
+        validateTimeRange(start, end);
+        // id 0 on the first page makes the start timestamp inclusive
+        TrackCursor after = cursor != null ? TrackCursor.decode(cursor) : new TrackCursor(start, 0);
+        if (after.getTimestamp().isBefore(start)) {
+            after = new TrackCursor(start, 0);
+        }
+
+        // Fetch one extra row to learn whether another page exists
+        boolean archived = trackArchiveService.overlapsArchive(surveyorId, after.getTimestamp(), end);
+        List<LocationTrack> rows = archived ?
+            trackArchiveService.readAfter(surveyorId, after.getTimestamp(), after.getId(), end, size + 1,
+                includeRejected) :
+            locationTrackRepository.findPageAfter(surveyorId,
+                after.getTimestamp(), after.getId(), end, includeRejected, PageRequest.of(0, size + 1));
+        boolean hasMore = rows.size() > size;
+        List<LocationTrack> content = hasMore ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            LocationTrack last = content.get(content.size() - 1);
+            nextCursor = new TrackCursor(last.getTimestamp(), last.getId()).encode();
+        }
+        TrackPage page = new TrackPage(content, nextCursor, hasMore);
+        if (includeTotal) {
+            page.setTotalElements(trackArchiveService.overlapsArchive(surveyorId, start, end) ?
+                trackArchiveService.count(surveyorId, start, end, includeRejected) :
+                locationTrackRepository.countHistory(surveyorId, start, end, includeRejected));
+        }
+        return page;
     }
 
     private boolean isValidSurveyor(Surveyor surveyor) {
@@ -126,11 +230,17 @@ public class LocationTrackService {
     }
 
     /**
-     * Get enhanced track history with interpolated points for large gaps
+     * Streams enhanced track history: recorded points plus interpolated points for large gaps,
+     * generated lazily as the cursor advances
+     * @return Number of recorded points read
      */
-    public List<LocationTrack> getEnhancedTrackHistory(String surveyorId, Instant start, Instant end) {
-        List<LocationTrack> originalTracks = fetchLocationTracks(surveyorId, start, end);
-        return ensureCompleteRoute(originalTracks);
+    public long exportEnhancedTrack(String surveyorId, Instant start, Instant end,
+                                    InterpolationSettings settings, TrackWriter writer) throws IOException {
+        return exportTrack(surveyorId, start, end, new InterpolatingTrackWriter(writer, settings));
+    }
+
+    public InterpolationSettings getInterpolationSettings() {
+        return interpolationSettings;
     }
 
     /**
@@ -139,19 +249,41 @@ public class LocationTrackService {
      * @return Enhanced list with interpolated points for large gaps
      */
     public List<LocationTrack> ensureCompleteRoutePublic(List<LocationTrack> tracks) {
-        return ensureCompleteRoute(tracks);
-    }
+        if (tracks == null || tracks.isEmpty()) {
+            return tracks;
+        }
+        String surveyorId = tracks.get(0).getSurveyorId();
+        Map<Long, LocationTrack> recorded = new java.util.HashMap<>();
+        tracks.forEach(track -> recorded.put(track.getId(), track));
 
-    private String determineStatus(String surveyorId, Instant threshold) {
-        // Check latest GPS timestamp from location_track table
-        LocationTrack lastLocation = getLatestLocation(surveyorId);
-        boolean isLocationActive = lastLocation != null && 
-                                 lastLocation.getTimestamp().isAfter(threshold);
-        
-        // Use the surveyor service method which prioritizes GPS timestamp
-        boolean isActiveFromStatus = surveyorService.isSurveyorOnline(surveyorId);
-        
-        return (isLocationActive || isActiveFromStatus) ? "Online" : "Offline";
+        List<LocationTrack> enhancedTracks = new java.util.ArrayList<>();
+        TrackWriter collector = new TrackWriter() {
+            @Override
+            public void begin() {
+            }
+
+            @Override
+            public void onPoint(long id, double latitude, double longitude, long epochMillis) {
+                LocationTrack original = id != SYNTHETIC_ID ? recorded.get(id) : null;
+                enhancedTracks.add(original != null ? original : new LocationTrack(
+                    surveyorId, latitude, longitude, Instant.ofEpochMilli(epochMillis), null));
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+        try {
+            TrackWriter engine = new InterpolatingTrackWriter(collector, interpolationSettings);
+            for (LocationTrack track : tracks) {
+                engine.onPoint(track.getId() != null ? track.getId() : TrackPointHandler.SYNTHETIC_ID,
+                    track.getLatitude(), track.getLongitude(), track.getTimestamp().toEpochMilli());
+            }
+            engine.end();
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        return enhancedTracks;
     }
 
     private List<Surveyor> findSurveyorsByFilters(String city, String project) {
@@ -176,18 +308,14 @@ public class LocationTrackService {
         }
     }
 
-    private List<LocationTrack> fetchLocationTracks(String surveyorId, Instant start, Instant end) {
-        if (start != null && end != null) {
-            return locationTrackRepository.findBySurveyorIdAndTimestampBetweenOrderByTimestampAsc(
-                surveyorId, start, end);
-        } else if (start != null) {
-            return locationTrackRepository.findBySurveyorIdAndTimestampAfterOrderByTimestampAsc(
-                surveyorId, start);
-        } else if (end != null) {
-            return locationTrackRepository.findBySurveyorIdAndTimestampBeforeOrderByTimestampAsc(
-                surveyorId, end);
+    private List<LocationTrack> fetchLocationTracks(String surveyorId, Instant start, Instant end,
+                                                    boolean includeRejected) {
+        Instant from = start != null ? start : TrackArchiveService.OPEN_START;
+        Instant to = end != null ? end : TrackArchiveService.OPEN_END;
+        if (trackArchiveService.overlapsArchive(surveyorId, from, to)) {
+            return trackArchiveService.readRange(surveyorId, from, to, includeRejected);
         }
-        return locationTrackRepository.findBySurveyorIdOrderByTimestampAsc(surveyorId);
+        return locationTrackRepository.findHistory(surveyorId, from, to, includeRejected);
     }
 
     private void logResults(List<LocationTrack> results) {
@@ -199,99 +327,13 @@ public class LocationTrackService {
         );
     }
     
-    /**
-     * Ensures complete route data by filling in large gaps between location points
-     * @param tracks Original list of location tracks
-     * @return Enhanced list with interpolated points for large gaps
-     */
-    private List<LocationTrack> ensureCompleteRoute(List<LocationTrack> tracks) {
-        if (tracks == null || tracks.isEmpty()) {
-            return tracks;
-        }
-        
-        List<LocationTrack> enhancedTracks = new java.util.ArrayList<>();
-        enhancedTracks.add(tracks.get(0)); // Add the first point
-        
-        // Check for gaps between consecutive points
-        for (int i = 1; i < tracks.size(); i++) {
-            LocationTrack prev = tracks.get(i-1);
-            LocationTrack curr = tracks.get(i);
-            
-            // Calculate time difference in minutes
-            long timeDiffMinutes = java.time.Duration.between(prev.getTimestamp(), curr.getTimestamp()).toMinutes();
-            
-            // If gap is more than 1 minute, add interpolated points (more granular)
-            if (timeDiffMinutes > 1) {
-                // Calculate distance between points
-                double distance = calculateDistance(prev.getLatitude(), prev.getLongitude(), 
-                                                 curr.getLatitude(), curr.getLongitude());
-                
-                // If distance is significant, add intermediate points (reduced threshold for better coverage)
-                if (distance > 0.02) { // More than 20 meters
-                    int pointsToAdd = Math.min((int)(timeDiffMinutes / 1), 20); // Add points every 1 minute, max 20 points
-                    
-                    for (int j = 1; j <= pointsToAdd; j++) {
-                        // Calculate interpolation factor
-                        double factor = (double)j / (pointsToAdd + 1);
-                        
-                        // Interpolate coordinates
-                        double interpLat = prev.getLatitude() + factor * (curr.getLatitude() - prev.getLatitude());
-                        double interpLon = prev.getLongitude() + factor * (curr.getLongitude() - prev.getLongitude());
-                        
-                        // Calculate intermediate timestamp
-                        Instant interpTime = prev.getTimestamp().plusMillis(
-                            (long)(factor * java.time.Duration.between(prev.getTimestamp(), curr.getTimestamp()).toMillis())
-                        );
-                        
-                        // Create and add interpolated point
-                        LocationTrack interpPoint = new LocationTrack(
-                            prev.getSurveyorId(),
-                            interpLat,
-                            interpLon,
-                            interpTime,
-                            null // No geometry for interpolated points
-                        );
-                        enhancedTracks.add(interpPoint);
-                    }
-                }
-            }
-            enhancedTracks.add(curr);
-        }
-        return enhancedTracks;
-    }
-
-    /**
-     * Calculates distance between two points in kilometers
-     */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371; // Earth radius in kilometers
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat/2) * Math.sin(dLat/2) +
-                  Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                  Math.sin(dLon/2) * Math.sin(dLon/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-        return R * c;
-    }
-
     /**
      * Calculates total distance travelled by a surveyor in kilometers
      * @param surveyorId The surveyor ID
      * @return Total distance in kilometers
      */
     public double getTotalDistance(String surveyorId) {
-        List<LocationTrack> tracks = locationTrackRepository.findBySurveyorIdOrderByTimestampAsc(surveyorId);
-        if (tracks == null || tracks.size() < 2) {
-            return 0.0;
-        }
-        double totalDistance = 0.0;
-        for (int i = 1; i < tracks.size(); i++) {
-            LocationTrack prev = tracks.get(i - 1);
-            LocationTrack curr = tracks.get(i);
-            totalDistance += calculateDistance(prev.getLatitude(), prev.getLongitude(),
-                                               curr.getLatitude(), curr.getLongitude());
-        }
-        return totalDistance;
+        return distanceService.getTotalKm(surveyorId);
     }
     
     /**
@@ -301,7 +343,7 @@ public class LocationTrackService {
      */
     public long getLocationCount(String surveyorId) {
         try {
-            return locationTrackRepository.countBySurveyorId(surveyorId);
+            return trackStore.count(surveyorId);
         } catch (Exception e) {
             System.err.printf("Error getting location count for surveyor %s: %s%n", surveyorId, e.getMessage());
             return 0;
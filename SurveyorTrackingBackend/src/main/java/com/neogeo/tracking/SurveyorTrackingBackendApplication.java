@@ -5,8 +5,10 @@ package com.neogeo.tracking;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SurveyorTrackingBackendApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,34 @@
+package com.neogeo.tracking.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.neogeo.tracking.track.InterpolationSettings;
+import com.neogeo.tracking.track.InterpolationStrategy;
+
+@Configuration
+public class InterpolationConfig {
+
+    @Value("${tracking.interpolation.strategy:linear}")
+    private String strategy;
+
+    @Value("${tracking.interpolation.min-gap-seconds:120}")
+    private long minGapSeconds;
+
+    @Value("${tracking.interpolation.min-distance-meters:20}")
+    private double minDistanceMeters;
+
+    @Value("${tracking.interpolation.step-seconds:60}")
+    private long stepSeconds;
+
+    @Value("${tracking.interpolation.max-points-per-gap:20}")
+    private int maxPointsPerGap;
+
+    // Default settings for enhanced tracks; individual requests may override strategy and step
+    @Bean
+    public InterpolationSettings interpolationSettings() {
+        return new InterpolationSettings(InterpolationStrategy.fromParam(strategy),
+            minGapSeconds, minDistanceMeters, stepSeconds, maxPointsPerGap);
+    }
+}
@@ -0,0 +1,35 @@
+package com.neogeo.tracking.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.neogeo.tracking.repository.LocationTrackRepository;
+import com.neogeo.tracking.repository.LocationTrackStreamRepository;
+import com.neogeo.tracking.store.InMemoryTrackStore;
+import com.neogeo.tracking.store.JdbcTrackStore;
+import com.neogeo.tracking.store.JpaTrackStore;
+import com.neogeo.tracking.store.TrackStore;
+import com.neogeo.tracking.store.TrackStoreEngine;
+
+@Configuration
+public class TrackStoreConfig {
+
+    @Value("${tracking.store.engine:jpa}")
+    private String engine;
+
+    // Storage engine behind ingest, latest-fix fallback, point counts and range scans
+    @Bean
+    public TrackStore trackStore(LocationTrackRepository repository, LocationTrackStreamRepository streamRepository,
+                                 DataSource dataSource) {
+        TrackStore store = switch (TrackStoreEngine.fromParam(engine)) {
+            case JPA -> new JpaTrackStore(repository, streamRepository);
+            case JDBC -> new JdbcTrackStore(dataSource, streamRepository);
+            case MEMORY -> new InMemoryTrackStore();
+        };
+        System.out.printf("Track store engine: %s%n", store.getEngine());
+        return store;
+    }
+}
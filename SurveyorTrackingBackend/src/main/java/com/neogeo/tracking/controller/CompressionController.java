@@ -0,0 +1,77 @@
+package com.neogeo.tracking.controller;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.neogeo.tracking.dto.CompressionSettings;
+import com.neogeo.tracking.service.CompressionService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/compression")
+@Tag(name = "Track Compression", description = "Per-project ingest compression and replay evaluation")
+public class CompressionController {
+
+    private final CompressionService compressionService;
+
+    public CompressionController(CompressionService compressionService) {
+        this.compressionService = compressionService;
+    }
+
+    @Operation(summary = "List project compression settings",
+              description = "Projects without settings use the configured default mode and tolerance")
+    @GetMapping("/projects")
+    public ResponseEntity<List<CompressionSettings>> listSettings() {
+        return ResponseEntity.ok(compressionService.listSettings());
+    }
+
+    @Operation(summary = "Default compression settings")
+    @GetMapping("/default")
+    public ResponseEntity<CompressionSettings> getDefaults() {
+        return ResponseEntity.ok(compressionService.getDefaults());
+    }
+
+    @Operation(summary = "Set a project's compression",
+              description = "mode is NONE, LEGACY (1 minute/10 m duplicate rule) or DEAD_RECKONING; " +
+                            "toleranceMeters is the allowed deviation from the predicted position. " +
+                            "Applies to the next fix of each surveyor in the project.")
+    @PutMapping("/projects/{project}")
+    public ResponseEntity<CompressionSettings> saveSettings(@PathVariable String project,
+                                                            @RequestBody CompressionSettings settings) {
+        try {
+            return ResponseEntity.ok(compressionService.saveSettings(project, settings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Reset a project to the default compression")
+    @DeleteMapping("/projects/{project}")
+    public ResponseEntity<Void> deleteSettings(@PathVariable String project) {
+        return compressionService.deleteSettings(project) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    @Operation(summary = "Replay a stored track through each compression mode",
+              description = "Reports stored points, savings and mean/p95/max reconstruction error per mode " +
+                            "(DEAD_RECKONING once per tolerance). Window of at most 7 days.")
+    @GetMapping("/evaluate")
+    public ResponseEntity<Map<String, Object>> evaluate(
+            @RequestParam String surveyorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @Parameter(description = "DEAD_RECKONING tolerances in meters") @RequestParam(defaultValue = "5,10,20,50") List<Double> tolerance) {
+        try {
+            return ResponseEntity.ok(compressionService.evaluate(surveyorId, start, end, tolerance));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
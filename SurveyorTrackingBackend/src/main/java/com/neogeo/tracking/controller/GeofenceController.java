@@ -0,0 +1,98 @@
+package com.neogeo.tracking.controller;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.neogeo.tracking.dto.Geofence;
+import com.neogeo.tracking.dto.GeofenceEvent;
+import com.neogeo.tracking.service.GeofenceService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/geofences")
+@Tag(name = "Geofences", description = "Polygon and circle fences with ENTER/EXIT/DWELL events")
+public class GeofenceController {
+
+    private final GeofenceService geofenceService;
+
+    public GeofenceController(GeofenceService geofenceService) {
+        this.geofenceService = geofenceService;
+    }
+
+    @Operation(summary = "List geofences")
+    @GetMapping
+    public ResponseEntity<List<Geofence>> listGeofences(
+            @RequestParam(required = false) String project,
+            @Parameter(description = "Include deactivated fences") @RequestParam(defaultValue = "false") boolean includeInactive) {
+        return ResponseEntity.ok(geofenceService.list(project, includeInactive));
+    }
+
+    @Operation(summary = "Get a geofence")
+    @GetMapping("/{id}")
+    public ResponseEntity<Geofence> getGeofence(@PathVariable long id) {
+        return geofenceService.get(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Create a geofence",
+              description = "POLYGON fences take coordinates as [longitude, latitude] vertices; CIRCLE fences take " +
+                            "centerLatitude, centerLongitude and radiusMeters. Takes effect immediately.")
+    @PostMapping
+    public ResponseEntity<Geofence> createGeofence(@RequestBody Geofence fence) {
+        try {
+            return ResponseEntity.ok(geofenceService.create(fence));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Replace a geofence")
+    @PutMapping("/{id}")
+    public ResponseEntity<Geofence> updateGeofence(@PathVariable long id, @RequestBody Geofence fence) {
+        try {
+            return geofenceService.update(id, fence).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Delete a geofence", description = "Past events of the fence are kept")
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteGeofence(@PathVariable long id) {
+        return geofenceService.delete(id) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    @Operation(summary = "Surveyors inside a geofence", description = "Current state of the evaluation engine")
+    @GetMapping("/{id}/inside")
+    public ResponseEntity<List<String>> getSurveyorsInside(@PathVariable long id) {
+        return ResponseEntity.ok(geofenceService.getSurveyorsInside(id));
+    }
+
+    @Operation(summary = "Geofence events", description = "ENTER/EXIT/DWELL events in a time window, newest first")
+    @GetMapping("/events")
+    public ResponseEntity<List<GeofenceEvent>> getEvents(
+            @RequestParam(required = false) Long geofenceId,
+            @RequestParam(required = false) String surveyorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @Parameter(description = "Maximum events returned (max 10000)") @RequestParam(defaultValue = "1000") int limit) {
+        try {
+            return ResponseEntity.ok(geofenceService.getEvents(geofenceId, surveyorId, start, end, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Evaluation statistics", description = "Active fences and average per-point evaluation cost")
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(geofenceService.getStats());
+    }
+}
@@ -0,0 +1,208 @@
+package com.neogeo.tracking.controller;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.neogeo.tracking.service.DailyRollupService;
+import com.neogeo.tracking.service.DistanceService;
+import com.neogeo.tracking.service.LatestLocationService;
+import com.neogeo.tracking.service.PartitionMaintenanceService;
+import com.neogeo.tracking.service.SegmentationService;
+import com.neogeo.tracking.service.TrackArchiveService;
+import com.neogeo.tracking.service.WriteAheadLogService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/maintenance")
+@Tag(name = "Maintenance", description = "Operational commands for derived tables")
+public class MaintenanceController {
+
+    private final LatestLocationService latestLocationService;
+    private final DistanceService distanceService;
+    private final DailyRollupService dailyRollupService;
+    private final PartitionMaintenanceService partitionMaintenanceService;
+    private final SegmentationService segmentationService;
+    private final TrackArchiveService trackArchiveService;
+    private final WriteAheadLogService writeAheadLogService;
+
+    public MaintenanceController(LatestLocationService latestLocationService, DistanceService distanceService,
+                                 DailyRollupService dailyRollupService,
+                                 PartitionMaintenanceService partitionMaintenanceService,
+                                 SegmentationService segmentationService,
+                                 TrackArchiveService trackArchiveService,
+                                 WriteAheadLogService writeAheadLogService) {
+        this.latestLocationService = latestLocationService;
+        this.distanceService = distanceService;
+        this.dailyRollupService = dailyRollupService;
+        this.partitionMaintenanceService = partitionMaintenanceService;
+        this.segmentationService = segmentationService;
+        this.trackArchiveService = trackArchiveService;
+        this.writeAheadLogService = writeAheadLogService;
+    }
+
+    @Operation(summary = "Rebuild latest locations",
+              description = "Regenerates surveyor_latest_location from location_track history in parallel chunks")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Rebuild completed"),
+        @ApiResponse(responseCode = "500", description = "Rebuild failed")
+    })
+    @PostMapping("/latest-locations/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildLatestLocations(
+            @Parameter(description = "Number of chunks rebuilt concurrently")
+            @RequestParam(defaultValue = "4") int parallelism) {
+        try {
+            return ResponseEntity.ok(latestLocationService.rebuild(parallelism));
+        } catch (Exception e) {
+            System.err.println("Error rebuilding latest locations: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Verify all-time distances",
+              description = "Recomputes every surveyor's distance from location_track in parallel and reports drift against surveyor_distance")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Verification completed"),
+        @ApiResponse(responseCode = "500", description = "Verification failed")
+    })
+    @PostMapping("/distances/verify")
+    public ResponseEntity<Map<String, Object>> verifyDistances(
+            @Parameter(description = "Number of surveyors recomputed concurrently")
+            @RequestParam(defaultValue = "4") int parallelism,
+            @Parameter(description = "Overwrite drifted totals with the recomputed value")
+            @RequestParam(defaultValue = "false") boolean repair) {
+        try {
+            return ResponseEntity.ok(distanceService.verify(parallelism, repair));
+        } catch (Exception e) {
+            System.err.println("Error verifying distances: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Run the daily rollup now",
+              description = "Folds location_track rows above the watermark into surveyor_daily_summary")
+    @PostMapping("/rollups/daily/run")
+    public ResponseEntity<Map<String, Object>> runDailyRollup() {
+        try {
+            return ResponseEntity.ok(dailyRollupService.runIncremental());
+        } catch (Exception e) {
+            System.err.println("Error running daily rollup: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Backfill the daily rollup",
+              description = "Recomputes surveyor_daily_summary for every surveyor on the given days")
+    @PostMapping("/rollups/daily/backfill")
+    public ResponseEntity<Map<String, Object>> backfillDailyRollup(
+            @Parameter(description = "First day (inclusive)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day (inclusive)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(dailyRollupService.backfill(from, to));
+        } catch (Exception e) {
+            System.err.println("Error backfilling daily rollup: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Run stay-point segmentation now",
+              description = "Stores the stops and trips completed by location_track rows above the watermark")
+    @PostMapping("/segments/run")
+    public ResponseEntity<Map<String, Object>> runSegmentation() {
+        try {
+            return ResponseEntity.ok(segmentationService.runIncremental());
+        } catch (Exception e) {
+            System.err.println("Error running stay-point segmentation: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Rebuild a surveyor's stops and trips",
+              description = "Deletes the surveyor's segments from the last stop that ended before 'from' " +
+                            "(everything when omitted) and segments the history again, e.g. after a late upload")
+    @PostMapping("/segments/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSegments(
+            @RequestParam String surveyorId,
+            @Parameter(description = "Earliest changed time (ISO instant)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from) {
+        try {
+            return ResponseEntity.ok(segmentationService.rebuild(surveyorId, from));
+        } catch (Exception e) {
+            System.err.println("Error rebuilding segments for " + surveyorId + ": " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "List location_track partitions",
+              description = "Monthly partitions currently attached to location_track, oldest first")
+    @GetMapping("/partitions")
+    public ResponseEntity<List<String>> listPartitions() {
+        try {
+            return ResponseEntity.ok(partitionMaintenanceService.listPartitions());
+        } catch (Exception e) {
+            System.err.println("Error listing partitions: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Run partition maintenance",
+              description = "Creates upcoming monthly partitions and applies partition retention")
+    @PostMapping("/partitions/maintain")
+    public ResponseEntity<Map<String, Object>> maintainPartitions() {
+        try {
+            return ResponseEntity.ok(partitionMaintenanceService.maintain());
+        } catch (Exception e) {
+            System.err.println("Error maintaining partitions: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Archive old tracks now",
+              description = "Packs surveyor-days older than tracking.archive.after-days into compressed blocks " +
+                            "in location_track_archive and deletes their location_track rows. Runs even when " +
+                            "the nightly archiver is disabled.")
+    @PostMapping("/archive/run")
+    public ResponseEntity<Map<String, Object>> runArchive() {
+        try {
+            return ResponseEntity.ok(trackArchiveService.archive());
+        } catch (Exception e) {
+            System.err.println("Error archiving tracks: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Track archive statistics",
+              description = "Archived surveyor-days, points and compressed bytes")
+    @GetMapping("/archive")
+    public ResponseEntity<Map<String, Object>> getArchiveStats() {
+        try {
+            return ResponseEntity.ok(trackArchiveService.getStats());
+        } catch (Exception e) {
+            System.err.println("Error reading track archive statistics: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @Operation(summary = "Write-ahead log status",
+              description = "Last logged and last committed sequence, segment count and whether fixes are " +
+                            "queued for replay after a database outage")
+    @GetMapping("/wal")
+    public ResponseEntity<Map<String, Object>> getWalStats() {
+        return ResponseEntity.ok(writeAheadLogService.getStats());
+    }
+}
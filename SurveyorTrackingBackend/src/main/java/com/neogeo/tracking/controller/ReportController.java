@@ -0,0 +1,120 @@
+package com.neogeo.tracking.controller;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.neogeo.tracking.dto.DailySummary;
+import com.neogeo.tracking.dto.HeatmapCell;
+import com.neogeo.tracking.service.DailyRollupService;
+import com.neogeo.tracking.service.HeatmapService;
+import com.neogeo.tracking.service.SegmentationService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/reports")
+@Tag(name = "Reports", description = "Per-surveyor reports served from the daily rollup")
+public class ReportController {
+
+    // Upper bound on a report range, so a typo cannot request decades of rows
+    private static final long MAX_REPORT_DAYS = 366;
+
+    private final DailyRollupService dailyRollupService;
+    private final HeatmapService heatmapService;
+    private final SegmentationService segmentationService;
+
+    public ReportController(DailyRollupService dailyRollupService, HeatmapService heatmapService,
+                            SegmentationService segmentationService) {
+        this.dailyRollupService = dailyRollupService;
+        this.heatmapService = heatmapService;
+        this.segmentationService = segmentationService;
+    }
+
+    @Operation(summary = "Daily summaries",
+              description = "One row per surveyor and day: distance, first/last fix, active minutes and point count")
+    @GetMapping("/daily")
+    public ResponseEntity<List<DailySummary>> getDailySummaries(
+            @Parameter(description = "First day (inclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day (inclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String surveyorId,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String project) {
+
+        if (!isValidRange(from, to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(dailyRollupService.getDaily(from, to, surveyorId, city, project));
+    }
+
+    @Operation(summary = "Totals per surveyor",
+              description = "Daily rows summed per surveyor over the range")
+    @GetMapping("/daily/totals")
+    public ResponseEntity<List<DailySummary>> getSurveyorTotals(
+            @Parameter(description = "First day (inclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day (inclusive)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String surveyorId,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String project) {
+
+        if (!isValidRange(from, to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(dailyRollupService.getTotals(from, to, surveyorId, city, project));
+    }
+
+    @Operation(summary = "Work heatmap",
+              description = "Fixes aggregated into geohash cells with point count, surveyor count and dwell minutes, " +
+                            "busiest cells first. Results for past ranges are cached.")
+    @GetMapping("/heatmap")
+    public ResponseEntity<List<HeatmapCell>> getHeatmap(
+            @Parameter(description = "Range start (ISO instant)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @Parameter(description = "Range end (ISO instant), at most 93 days after start") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @Parameter(description = "Geohash length 4-8 (7 is about 150 m)") @RequestParam(defaultValue = "7") int precision,
+            @RequestParam(required = false) String project,
+            @RequestParam(required = false) String surveyorId,
+            @Parameter(description = "Optional viewport: minLat,minLon,maxLat,maxLon") @RequestParam(required = false) double[] bbox,
+            @Parameter(description = "Maximum cells returned (max 50000)") @RequestParam(defaultValue = "10000") int limit) {
+        if (bbox != null && bbox.length != 4) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            List<HeatmapCell> cells = heatmapService.getHeatmap(start, end, precision, project, surveyorId, bbox, limit);
+            CacheControl cacheControl = heatmapService.isClosed(end)
+                ? CacheControl.maxAge(Duration.ofHours(1)).cachePublic()
+                : CacheControl.noCache();
+            return ResponseEntity.ok().cacheControl(cacheControl).body(cells);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Stops and trips",
+              description = "Places where the surveyor stayed (stop radius and minimum duration are configured) and the " +
+                            "trips between them. Stored segments come from the scheduled segmentation; the part after " +
+                            "the last stored stop is computed on request and may be marked open.")
+    @GetMapping("/segments")
+    public ResponseEntity<Map<String, Object>> getSegments(
+            @RequestParam String surveyorId,
+            @Parameter(description = "Range start (ISO instant)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @Parameter(description = "Range end (ISO instant), at most 31 days after start") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end) {
+        try {
+            return ResponseEntity.ok(segmentationService.getSegments(surveyorId, start, end));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static boolean isValidRange(LocalDate from, LocalDate to) {
+        return !from.isAfter(to) && !from.plusDays(MAX_REPORT_DAYS).isBefore(to);
+    }
+}
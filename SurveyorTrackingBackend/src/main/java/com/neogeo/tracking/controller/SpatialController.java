@@ -0,0 +1,174 @@
+package com.neogeo.tracking.controller;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.neogeo.tracking.dto.NearbySurveyor;
+import com.neogeo.tracking.dto.SurveyorSpatialMatch;
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.service.LiveLocationIndexService;
+import com.neogeo.tracking.service.SpatialQueryService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/spatial")
+@Tag(name = "Spatial", description = "Radius, bounding-box and nearest-surveyor searches over history (PostGIS) and live positions (in memory)")
+public class SpatialController {
+
+    private final SpatialQueryService spatialQueryService;
+    private final LiveLocationIndexService liveLocationIndexService;
+
+    public SpatialController(SpatialQueryService spatialQueryService,
+                             LiveLocationIndexService liveLocationIndexService) {
+        this.spatialQueryService = spatialQueryService;
+        this.liveLocationIndexService = liveLocationIndexService;
+    }
+
+    @Operation(summary = "Points within a radius",
+              description = "Location points within radiusMeters of a center during the window, oldest first")
+    @GetMapping("/points/within-radius")
+    public ResponseEntity<List<LocationTrack>> getPointsWithinRadius(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @Parameter(description = "Radius in meters (max 100000)") @RequestParam double radiusMeters,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @Parameter(description = "Restrict to one surveyor") @RequestParam(required = false) String surveyorId,
+            @Parameter(description = "Maximum points returned (max 10000)") @RequestParam(defaultValue = "1000") int limit) {
+        try {
+            return ResponseEntity.ok(spatialQueryService.findPointsWithinRadius(lat, lon, radiusMeters,
+                start, end, surveyorId, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Points within a bounding box",
+              description = "Location points inside the box during the window, oldest first")
+    @GetMapping("/points/within-bbox")
+    public ResponseEntity<List<LocationTrack>> getPointsWithinBbox(
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @Parameter(description = "Restrict to one surveyor") @RequestParam(required = false) String surveyorId,
+            @Parameter(description = "Maximum points returned (max 10000)") @RequestParam(defaultValue = "1000") int limit) {
+        try {
+            return ResponseEntity.ok(spatialQueryService.findPointsWithinBbox(minLat, minLon, maxLat, maxLon,
+                start, end, surveyorId, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Surveyors who visited a radius",
+              description = "Surveyors with at least one point within radiusMeters during the window, closest first")
+    @GetMapping("/surveyors/within-radius")
+    public ResponseEntity<List<SurveyorSpatialMatch>> getSurveyorsWithinRadius(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @Parameter(description = "Radius in meters (max 100000)") @RequestParam double radiusMeters,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end) {
+        try {
+            return ResponseEntity.ok(spatialQueryService.findSurveyorsWithinRadius(lat, lon, radiusMeters, start, end));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Surveyors who visited a bounding box",
+              description = "Surveyors with at least one point inside the box during the window")
+    @GetMapping("/surveyors/within-bbox")
+    public ResponseEntity<List<SurveyorSpatialMatch>> getSurveyorsWithinBbox(
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end) {
+        try {
+            return ResponseEntity.ok(spatialQueryService.findSurveyorsWithinBbox(minLat, minLon, maxLat, maxLon,
+                start, end));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Nearest surveyors",
+              description = "Closest surveyors to a point by their latest known position")
+    @GetMapping("/surveyors/nearest")
+    public ResponseEntity<List<NearbySurveyor>> getNearestSurveyors(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @Parameter(description = "Number of surveyors (max 100)") @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String project,
+            @Parameter(description = "Ignore surveyors whose latest fix is older than this")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since) {
+        try {
+            return ResponseEntity.ok(spatialQueryService.findNearestSurveyors(lat, lon, limit, city, project, since));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Nearest live surveyors",
+              description = "Closest surveyors by current position, answered from the in-memory live index")
+    @GetMapping("/live/nearest")
+    public ResponseEntity<List<NearbySurveyor>> getLiveNearest(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @Parameter(description = "Number of surveyors (max 100)") @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String project,
+            @Parameter(description = "Online, Offline, Moving or Stationary") @RequestParam(required = false) String status) {
+        try {
+            return ResponseEntity.ok(liveLocationIndexService.findNearest(lat, lon, limit, city, project, status));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Live surveyors within a radius",
+              description = "Surveyors currently within radiusMeters of a point, closest first")
+    @GetMapping("/live/within-radius")
+    public ResponseEntity<List<NearbySurveyor>> getLiveWithinRadius(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @Parameter(description = "Radius in meters (max 100000)") @RequestParam double radiusMeters,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String project,
+            @Parameter(description = "Online, Offline, Moving or Stationary") @RequestParam(required = false) String status) {
+        try {
+            return ResponseEntity.ok(liveLocationIndexService.findWithinRadius(lat, lon, radiusMeters,
+                city, project, status));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Live surveyors within a polygon",
+              description = "Surveyors currently inside the polygon; body is a list of [longitude, latitude] vertices")
+    @PostMapping("/live/within-polygon")
+    public ResponseEntity<List<NearbySurveyor>> getLiveWithinPolygon(
+            @RequestBody List<double[]> vertices,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String project,
+            @Parameter(description = "Online, Offline, Moving or Stationary") @RequestParam(required = false) String status) {
+        try {
+            return ResponseEntity.ok(liveLocationIndexService.findWithinPolygon(vertices, city, project, status));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
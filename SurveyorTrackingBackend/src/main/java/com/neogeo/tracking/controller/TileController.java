@@ -0,0 +1,66 @@
+package com.neogeo.tracking.controller;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.neogeo.tracking.service.TileService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/tiles")
+@Tag(name = "Tiles", description = "Mapbox Vector Tiles of historical tracks and coverage")
+public class TileController {
+
+    public static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private final TileService tileService;
+
+    public TileController(TileService tileService) {
+        this.tileService = tileService;
+    }
+
+    @Operation(summary = "Vector tile",
+              description = "XYZ tile with a coverage layer at low zooms, tracks from tracking.tiles.track-min-zoom " +
+                            "and points from tracking.tiles.point-min-zoom. Tiles of closed windows are cached.")
+    @GetMapping("/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getTile(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @Parameter(description = "Window start (ISO instant)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @Parameter(description = "Window end (ISO instant), at most 31 days after start") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @RequestParam(required = false) String project,
+            @RequestParam(required = false) String surveyorId) {
+        byte[] tile;
+        try {
+            tile = tileService.getTile(z, x, y, start, end, project, surveyorId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Closed windows only change through late uploads, so browsers may keep them for a while
+        CacheControl cacheControl = tileService.isClosed(end)
+            ? CacheControl.maxAge(Duration.ofHours(1)).cachePublic()
+            : CacheControl.noCache();
+        if (tile.length == 0) {
+            return ResponseEntity.noContent().cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().contentType(MVT).cacheControl(cacheControl).body(tile);
+    }
+
+    @Operation(summary = "Tile cache statistics")
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(tileService.getCacheStats());
+    }
+}
@@ -0,0 +1,57 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+
+import com.neogeo.tracking.track.CompressionMode;
+
+/**
+ * Ingest compression for a project. toleranceMeters only applies to DEAD_RECKONING.
+ */
+public class CompressionSettings {
+    private String projectName;
+    private CompressionMode mode;
+    private double toleranceMeters;
+    private Instant updatedAt;
+
+    public CompressionSettings() {
+    }
+
+    public CompressionSettings(String projectName, CompressionMode mode, double toleranceMeters) {
+        this.projectName = projectName;
+        this.mode = mode;
+        this.toleranceMeters = toleranceMeters;
+    }
+
+    // Getters and Setters
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    public CompressionMode getMode() {
+        return mode;
+    }
+
+    public void setMode(CompressionMode mode) {
+        this.mode = mode;
+    }
+
+    public double getToleranceMeters() {
+        return toleranceMeters;
+    }
+
+    public void setToleranceMeters(double toleranceMeters) {
+        this.toleranceMeters = toleranceMeters;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
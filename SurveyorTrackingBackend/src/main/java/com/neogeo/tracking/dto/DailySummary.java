@@ -0,0 +1,105 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One row of surveyor_daily_summary, or the totals of several days for one surveyor
+ * (then day is null, firstFix/lastFix span the range and days counts the rows).
+ */
+public class DailySummary {
+    private String surveyorId;
+    private LocalDate day;
+    private String city;
+    private String projectName;
+    private long pointCount;
+    private double distanceKm;
+    private Instant firstFix;
+    private Instant lastFix;
+    private double activeMinutes;
+    private Integer days;
+
+    public DailySummary() {
+    }
+
+    // Getters and Setters
+    public String getSurveyorId() {
+        return surveyorId;
+    }
+
+    public void setSurveyorId(String surveyorId) {
+        this.surveyorId = surveyorId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    public long getPointCount() {
+        return pointCount;
+    }
+
+    public void setPointCount(long pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+
+    public Instant getFirstFix() {
+        return firstFix;
+    }
+
+    public void setFirstFix(Instant firstFix) {
+        this.firstFix = firstFix;
+    }
+
+    public Instant getLastFix() {
+        return lastFix;
+    }
+
+    public void setLastFix(Instant lastFix) {
+        this.lastFix = lastFix;
+    }
+
+    public double getActiveMinutes() {
+        return activeMinutes;
+    }
+
+    public void setActiveMinutes(double activeMinutes) {
+        this.activeMinutes = activeMinutes;
+    }
+
+    public Integer getDays() {
+        return days;
+    }
+
+    public void setDays(Integer days) {
+        this.days = days;
+    }
+}
@@ -0,0 +1,127 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A polygon or circle fence. Polygons use coordinates as [longitude, latitude] vertices
+ * (GeoJSON order); circles use the center and radiusMeters. A null projectName applies
+ * the fence to every project, a null dwellSeconds disables DWELL events.
+ */
+public class Geofence {
+    public static final String POLYGON = "POLYGON";
+    public static final String CIRCLE = "CIRCLE";
+
+    private Long id;
+    private String name;
+    private String projectName;
+    private String type;
+    private List<double[]> coordinates;
+    private Double centerLatitude;
+    private Double centerLongitude;
+    private Double radiusMeters;
+    private Integer dwellSeconds;
+    private boolean active = true;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    public Geofence() {
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public List<double[]> getCoordinates() {
+        return coordinates;
+    }
+
+    public void setCoordinates(List<double[]> coordinates) {
+        this.coordinates = coordinates;
+    }
+
+    public Double getCenterLatitude() {
+        return centerLatitude;
+    }
+
+    public void setCenterLatitude(Double centerLatitude) {
+        this.centerLatitude = centerLatitude;
+    }
+
+    public Double getCenterLongitude() {
+        return centerLongitude;
+    }
+
+    public void setCenterLongitude(Double centerLongitude) {
+        this.centerLongitude = centerLongitude;
+    }
+
+    public Double getRadiusMeters() {
+        return radiusMeters;
+    }
+
+    public void setRadiusMeters(Double radiusMeters) {
+        this.radiusMeters = radiusMeters;
+    }
+
+    public Integer getDwellSeconds() {
+        return dwellSeconds;
+    }
+
+    public void setDwellSeconds(Integer dwellSeconds) {
+        this.dwellSeconds = dwellSeconds;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
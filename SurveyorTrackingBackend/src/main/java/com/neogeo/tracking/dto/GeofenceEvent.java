@@ -0,0 +1,92 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+
+/**
+ * ENTER/EXIT/DWELL transition of a surveyor for one geofence, pushed to /topic/geofences
+ * (and /topic/geofences/{geofenceId}) and appended to the geofence_event table.
+ */
+public class GeofenceEvent {
+    public static final String ENTER = "ENTER";
+    public static final String EXIT = "EXIT";
+    public static final String DWELL = "DWELL";
+
+    private long geofenceId;
+    private String geofenceName;
+    private String surveyorId;
+    private String eventType;
+    private Instant eventTime;
+    private double latitude;
+    private double longitude;
+
+    public GeofenceEvent() {
+    }
+
+    public GeofenceEvent(long geofenceId, String geofenceName, String surveyorId, String eventType,
+                         Instant eventTime, double latitude, double longitude) {
+        this.geofenceId = geofenceId;
+        this.geofenceName = geofenceName;
+        this.surveyorId = surveyorId;
+        this.eventType = eventType;
+        this.eventTime = eventTime;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    // Getters and Setters
+    public long getGeofenceId() {
+        return geofenceId;
+    }
+
+    public void setGeofenceId(long geofenceId) {
+        this.geofenceId = geofenceId;
+    }
+
+    public String getGeofenceName() {
+        return geofenceName;
+    }
+
+    public void setGeofenceName(String geofenceName) {
+        this.geofenceName = geofenceName;
+    }
+
+    public String getSurveyorId() {
+        return surveyorId;
+    }
+
+    public void setSurveyorId(String surveyorId) {
+        this.surveyorId = surveyorId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public Instant getEventTime() {
+        return eventTime;
+    }
+
+    public void setEventTime(Instant eventTime) {
+        this.eventTime = eventTime;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+}
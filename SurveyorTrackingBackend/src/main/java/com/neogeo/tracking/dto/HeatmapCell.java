@@ -0,0 +1,103 @@
+package com.neogeo.tracking.dto;
+
+/**
+ * One geohash cell of a heatmap: its center and bounds, how many fixes fell in it, from
+ * how many surveyors, and the time spent there (each fix counts until the next one,
+ * gaps longer than the active-gap limit excluded).
+ */
+public class HeatmapCell {
+    private String geohash;
+    private double latitude;
+    private double longitude;
+    private double minLatitude;
+    private double minLongitude;
+    private double maxLatitude;
+    private double maxLongitude;
+    private long pointCount;
+    private int surveyorCount;
+    private double dwellMinutes;
+
+    public HeatmapCell() {
+    }
+
+    // Getters and Setters
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public void setMinLatitude(double minLatitude) {
+        this.minLatitude = minLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public void setMinLongitude(double minLongitude) {
+        this.minLongitude = minLongitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public void setMaxLatitude(double maxLatitude) {
+        this.maxLatitude = maxLatitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public void setMaxLongitude(double maxLongitude) {
+        this.maxLongitude = maxLongitude;
+    }
+
+    public long getPointCount() {
+        return pointCount;
+    }
+
+    public void setPointCount(long pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    public int getSurveyorCount() {
+        return surveyorCount;
+    }
+
+    public void setSurveyorCount(int surveyorCount) {
+        this.surveyorCount = surveyorCount;
+    }
+
+    public double getDwellMinutes() {
+        return dwellMinutes;
+    }
+
+    public void setDwellMinutes(double dwellMinutes) {
+        this.dwellMinutes = dwellMinutes;
+    }
+}
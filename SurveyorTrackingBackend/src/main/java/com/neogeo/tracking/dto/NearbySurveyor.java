@@ -0,0 +1,106 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+
+/**
+ * A surveyor's latest position and its distance from a search point.
+ */
+public class NearbySurveyor {
+    private String surveyorId;
+    private String name;
+    private String city;
+    private String projectName;
+    private double latitude;
+    private double longitude;
+    private Instant timestamp;
+    private double distanceMeters;
+    private boolean online;
+
+    public NearbySurveyor() {
+    }
+
+    public NearbySurveyor(String surveyorId, String name, String city, String projectName,
+                          double latitude, double longitude, Instant timestamp, double distanceMeters) {
+        this.surveyorId = surveyorId;
+        this.name = name;
+        this.city = city;
+        this.projectName = projectName;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+        this.distanceMeters = distanceMeters;
+    }
+
+    // Getters and Setters
+    public String getSurveyorId() {
+        return surveyorId;
+    }
+
+    public void setSurveyorId(String surveyorId) {
+        this.surveyorId = surveyorId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    public void setDistanceMeters(double distanceMeters) {
+        this.distanceMeters = distanceMeters;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public void setOnline(boolean online) {
+        this.online = online;
+    }
+}
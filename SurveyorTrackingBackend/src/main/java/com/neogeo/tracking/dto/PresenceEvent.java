@@ -0,0 +1,100 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Online/Offline transition for a surveyor, pushed to /topic/presence
+ * and appended to the surveyor_presence_history table.
+ */
+public class PresenceEvent {
+    public static final String ONLINE = "Online";
+    public static final String OFFLINE = "Offline";
+
+    private String surveyorId;
+    private String status;
+    private String previousStatus;
+    private Instant transitionTime;
+    private Instant lastSeen;
+
+    public PresenceEvent() {
+    }
+
+    public PresenceEvent(String surveyorId, String status, String previousStatus,
+                         Instant transitionTime, Instant lastSeen) {
+        this.surveyorId = surveyorId;
+        this.status = status;
+        this.previousStatus = previousStatus;
+        this.transitionTime = transitionTime;
+        this.lastSeen = lastSeen;
+    }
+
+    // Getters and Setters
+    public String getSurveyorId() {
+        return surveyorId;
+    }
+
+    public void setSurveyorId(String surveyorId) {
+        this.surveyorId = surveyorId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getPreviousStatus() {
+        return previousStatus;
+    }
+
+    public void setPreviousStatus(String previousStatus) {
+        this.previousStatus = previousStatus;
+    }
+
+    public Instant getTransitionTime() {
+        return transitionTime;
+    }
+
+    public void setTransitionTime(Instant transitionTime) {
+        this.transitionTime = transitionTime;
+    }
+
+    public Instant getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(Instant lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+
+    @Override
+    public String toString() {
+        return "PresenceEvent{" +
+                "surveyorId='" + surveyorId + '\'' +
+                ", status='" + status + '\'' +
+                ", previousStatus='" + previousStatus + '\'' +
+                ", transitionTime=" + transitionTime +
+                ", lastSeen=" + lastSeen +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PresenceEvent that = (PresenceEvent) o;
+        return Objects.equals(surveyorId, that.surveyorId) &&
+                Objects.equals(status, that.status) &&
+                Objects.equals(previousStatus, that.previousStatus) &&
+                Objects.equals(transitionTime, that.transitionTime) &&
+                Objects.equals(lastSeen, that.lastSeen);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(surveyorId, status, previousStatus, transitionTime, lastSeen);
+    }
+}
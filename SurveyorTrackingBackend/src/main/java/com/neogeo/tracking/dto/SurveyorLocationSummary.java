@@ -0,0 +1,127 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Compact row for /api/surveyors/with-locations: surveyor identity plus its
+ * latest fix. Location fields are null for surveyors that never reported.
+ */
+public class SurveyorLocationSummary {
+    private String id;
+    private String name;
+    private String city;
+    private String projectName;
+    private Double latitude;
+    private Double longitude;
+    private Instant timestamp;
+    private boolean online;
+
+    public SurveyorLocationSummary() {
+    }
+
+    public SurveyorLocationSummary(String id, String name, String city, String projectName,
+                                   Double latitude, Double longitude, Instant timestamp) {
+        this.id = id;
+        this.name = name;
+        this.city = city;
+        this.projectName = projectName;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    @Override
+    public String toString() {
+        return "SurveyorLocationSummary{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
+                ", timestamp=" + timestamp +
+                ", online=" + online +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SurveyorLocationSummary that = (SurveyorLocationSummary) o;
+        return online == that.online &&
+                Objects.equals(id, that.id) &&
+                Objects.equals(latitude, that.latitude) &&
+                Objects.equals(longitude, that.longitude) &&
+                Objects.equals(timestamp, that.timestamp);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, latitude, longitude, timestamp, online);
+    }
+}
@@ -0,0 +1,68 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+
+/**
+ * A surveyor with points inside a search area during a time window.
+ * closestMeters is only set for radius searches.
+ */
+public class SurveyorSpatialMatch {
+    private String surveyorId;
+    private long pointCount;
+    private Instant firstSeen;
+    private Instant lastSeen;
+    private Double closestMeters;
+
+    public SurveyorSpatialMatch() {
+    }
+
+    public SurveyorSpatialMatch(String surveyorId, long pointCount, Instant firstSeen, Instant lastSeen,
+                                Double closestMeters) {
+        this.surveyorId = surveyorId;
+        this.pointCount = pointCount;
+        this.firstSeen = firstSeen;
+        this.lastSeen = lastSeen;
+        this.closestMeters = closestMeters;
+    }
+
+    // Getters and Setters
+    public String getSurveyorId() {
+        return surveyorId;
+    }
+
+    public void setSurveyorId(String surveyorId) {
+        this.surveyorId = surveyorId;
+    }
+
+    public long getPointCount() {
+        return pointCount;
+    }
+
+    public void setPointCount(long pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    public Instant getFirstSeen() {
+        return firstSeen;
+    }
+
+    public void setFirstSeen(Instant firstSeen) {
+        this.firstSeen = firstSeen;
+    }
+
+    public Instant getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(Instant lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+
+    public Double getClosestMeters() {
+        return closestMeters;
+    }
+
+    public void setClosestMeters(Double closestMeters) {
+        this.closestMeters = closestMeters;
+    }
+}
@@ -0,0 +1,96 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+
+/**
+ * A place where a surveyor stayed within the stop radius for at least the minimum stop
+ * duration. latitude/longitude are the centroid of its fixes. open marks a stop that is
+ * still in progress (computed on the fly, not stored yet).
+ */
+public class SurveyorStop {
+    private Long id;
+    private String surveyorId;
+    private Instant arrivalTime;
+    private Instant departureTime;
+    private double latitude;
+    private double longitude;
+    private int pointCount;
+    private double durationMinutes;
+    private boolean open;
+
+    public SurveyorStop() {
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSurveyorId() {
+        return surveyorId;
+    }
+
+    public void setSurveyorId(String surveyorId) {
+        this.surveyorId = surveyorId;
+    }
+
+    public Instant getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public void setArrivalTime(Instant arrivalTime) {
+        this.arrivalTime = arrivalTime;
+    }
+
+    public Instant getDepartureTime() {
+        return departureTime;
+    }
+
+    public void setDepartureTime(Instant departureTime) {
+        this.departureTime = departureTime;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public void setPointCount(int pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    public double getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(double durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void setOpen(boolean open) {
+        this.open = open;
+    }
+}
@@ -0,0 +1,140 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+
+/**
+ * Movement between two stops: from the departure fix of fromStop (null at the start of
+ * the history) to the arrival fix of toStop. An open trip has no destination stop yet.
+ */
+public class SurveyorTrip {
+    private Long id;
+    private String surveyorId;
+    private Long fromStopId;
+    private Long toStopId;
+    private Instant startTime;
+    private Instant endTime;
+    private double startLatitude;
+    private double startLongitude;
+    private double endLatitude;
+    private double endLongitude;
+    private double distanceKm;
+    private int pointCount;
+    private double durationMinutes;
+    private boolean open;
+
+    public SurveyorTrip() {
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSurveyorId() {
+        return surveyorId;
+    }
+
+    public void setSurveyorId(String surveyorId) {
+        this.surveyorId = surveyorId;
+    }
+
+    public Long getFromStopId() {
+        return fromStopId;
+    }
+
+    public void setFromStopId(Long fromStopId) {
+        this.fromStopId = fromStopId;
+    }
+
+    public Long getToStopId() {
+        return toStopId;
+    }
+
+    public void setToStopId(Long toStopId) {
+        this.toStopId = toStopId;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Instant startTime) {
+        this.startTime = startTime;
+    }
+
+    public Instant getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Instant endTime) {
+        this.endTime = endTime;
+    }
+
+    public double getStartLatitude() {
+        return startLatitude;
+    }
+
+    public void setStartLatitude(double startLatitude) {
+        this.startLatitude = startLatitude;
+    }
+
+    public double getStartLongitude() {
+        return startLongitude;
+    }
+
+    public void setStartLongitude(double startLongitude) {
+        this.startLongitude = startLongitude;
+    }
+
+    public double getEndLatitude() {
+        return endLatitude;
+    }
+
+    public void setEndLatitude(double endLatitude) {
+        this.endLatitude = endLatitude;
+    }
+
+    public double getEndLongitude() {
+        return endLongitude;
+    }
+
+    public void setEndLongitude(double endLongitude) {
+        this.endLongitude = endLongitude;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public void setPointCount(int pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    public double getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(double durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void setOpen(boolean open) {
+        this.open = open;
+    }
+}
@@ -0,0 +1,58 @@
+package com.neogeo.tracking.dto;
+
+import java.util.List;
+
+import com.neogeo.tracking.model.LocationTrack;
+
+/**
+ * One keyset page of location history. nextCursor is null on the last page;
+ * totalElements is only filled when the caller asks for it.
+ */
+public class TrackPage {
+    private List<LocationTrack> content;
+    private String nextCursor;
+    private boolean hasMore;
+    private Long totalElements;
+
+    public TrackPage() {
+    }
+
+    public TrackPage(List<LocationTrack> content, String nextCursor, boolean hasMore) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public List<LocationTrack> getContent() {
+        return content;
+    }
+
+    public void setContent(List<LocationTrack> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+
+    public void setTotalElements(Long totalElements) {
+        this.totalElements = totalElements;
+    }
+}
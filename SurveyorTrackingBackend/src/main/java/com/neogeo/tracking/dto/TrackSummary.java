@@ -0,0 +1,158 @@
+package com.neogeo.tracking.dto;
+
+import java.time.Instant;
+
+/**
+ * Aggregates for one surveyor over a time window, computed in the database.
+ * Fix times and bounding box are null when the window has no points.
+ */
+public class TrackSummary {
+    private String surveyorId;
+    private String name;
+    private String city;
+    private String projectName;
+    private Instant start;
+    private Instant end;
+    private long pointCount;
+    private double distanceKm;
+    private long durationSeconds;
+    private long activeSeconds;
+    private Instant firstFix;
+    private Instant lastFix;
+    private Double minLatitude;
+    private Double minLongitude;
+    private Double maxLatitude;
+    private Double maxLongitude;
+
+    public TrackSummary() {
+    }
+
+    // Getters and Setters
+    public String getSurveyorId() {
+        return surveyorId;
+    }
+
+    public void setSurveyorId(String surveyorId) {
+        this.surveyorId = surveyorId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    public Instant getStart() {
+        return start;
+    }
+
+    public void setStart(Instant start) {
+        this.start = start;
+    }
+
+    public Instant getEnd() {
+        return end;
+    }
+
+    public void setEnd(Instant end) {
+        this.end = end;
+    }
+
+    public long getPointCount() {
+        return pointCount;
+    }
+
+    public void setPointCount(long pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(long durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public long getActiveSeconds() {
+        return activeSeconds;
+    }
+
+    public void setActiveSeconds(long activeSeconds) {
+        this.activeSeconds = activeSeconds;
+    }
+
+    public Instant getFirstFix() {
+        return firstFix;
+    }
+
+    public void setFirstFix(Instant firstFix) {
+        this.firstFix = firstFix;
+    }
+
+    public Instant getLastFix() {
+        return lastFix;
+    }
+
+    public void setLastFix(Instant lastFix) {
+        this.lastFix = lastFix;
+    }
+
+    public Double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public void setMinLatitude(Double minLatitude) {
+        this.minLatitude = minLatitude;
+    }
+
+    public Double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public void setMinLongitude(Double minLongitude) {
+        this.minLongitude = minLongitude;
+    }
+
+    public Double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public void setMaxLatitude(Double maxLatitude) {
+        this.maxLatitude = maxLatitude;
+    }
+
+    public Double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public void setMaxLongitude(Double maxLongitude) {
+        this.maxLongitude = maxLongitude;
+    }
+}
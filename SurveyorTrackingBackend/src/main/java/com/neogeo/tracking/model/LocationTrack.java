@@ -8,6 +8,11 @@ import java.time.Instant;
 @Table(name = "location_track", schema = "public") 
 public class LocationTrack {
 
+    // quality_flag values written by the ingest filter
+    public static final short QUALITY_RAW = 0;
+    public static final short QUALITY_SMOOTHED = 1;
+    public static final short QUALITY_REJECTED = 2;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -24,9 +29,22 @@ public class LocationTrack {
     @Column(nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
     private Instant timestamp;
 
-    @Column(columnDefinition = "geometry(Point, 4326)")
+    // geom is a generated column filled by the database from latitude/longitude (V9).
+    // It is not mapped, so entity reads never materialize JTS points; spatial queries
+    // go through SpatialQueryRepository instead.
+    @Transient
     private Point geom;
 
+    @Column(name = "quality_flag", nullable = false)
+    private short qualityFlag = QUALITY_RAW;
+
+    // Reported fix when latitude/longitude hold a smoothed position
+    @Column(name = "raw_latitude")
+    private Double rawLatitude;
+
+    @Column(name = "raw_longitude")
+    private Double rawLongitude;
+
     // Constructors
     public LocationTrack() {}
 
@@ -43,6 +61,10 @@ public class LocationTrack {
         return id;
     }
 
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     public String getSurveyorId() {
         return surveyorId;
     }
@@ -82,6 +104,30 @@ public class LocationTrack {
     public void setGeom(Point geom) {
         this.geom = geom;
     }
+
+    public short getQualityFlag() {
+        return qualityFlag;
+    }
+
+    public void setQualityFlag(short qualityFlag) {
+        this.qualityFlag = qualityFlag;
+    }
+
+    public Double getRawLatitude() {
+        return rawLatitude;
+    }
+
+    public void setRawLatitude(Double rawLatitude) {
+        this.rawLatitude = rawLatitude;
+    }
+
+    public Double getRawLongitude() {
+        return rawLongitude;
+    }
+
+    public void setRawLongitude(Double rawLongitude) {
+        this.rawLongitude = rawLongitude;
+    }
 }
 
 
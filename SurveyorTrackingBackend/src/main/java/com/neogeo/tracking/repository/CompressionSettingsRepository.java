@@ -0,0 +1,43 @@
+package com.neogeo.tracking.repository;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.dto.CompressionSettings;
+import com.neogeo.tracking.track.CompressionMode;
+
+/**
+ * project_compression: per-project overrides of the default ingest compression.
+ */
+@Repository
+public class CompressionSettingsRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CompressionSettingsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<CompressionSettings> findAll() {
+        return jdbcTemplate.query("SELECT project_name, mode, tolerance_meters, updated_at FROM project_compression " +
+            "ORDER BY project_name", (rs, rowNum) -> {
+                CompressionSettings settings = new CompressionSettings(rs.getString("project_name"),
+                    CompressionMode.valueOf(rs.getString("mode")), rs.getDouble("tolerance_meters"));
+                settings.setUpdatedAt(rs.getTimestamp("updated_at").toInstant());
+                return settings;
+            });
+    }
+
+    public void upsert(CompressionSettings settings) {
+        jdbcTemplate.update("INSERT INTO project_compression (project_name, mode, tolerance_meters, updated_at) " +
+            "VALUES (?, ?, ?, now()) ON CONFLICT (project_name) DO UPDATE SET mode = EXCLUDED.mode, " +
+            "tolerance_meters = EXCLUDED.tolerance_meters, updated_at = now()",
+            settings.getProjectName(), settings.getMode().name(), settings.getToleranceMeters());
+    }
+
+    public boolean delete(String projectName) {
+        return jdbcTemplate.update("DELETE FROM project_compression WHERE project_name = ?", projectName) > 0;
+    }
+}
@@ -0,0 +1,228 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.dto.DailySummary;
+import com.neogeo.tracking.repository.TrackArchiveRepository.SurveyorDay;
+
+/**
+ * surveyor_daily_summary and its rollup_watermark. A rollup statement finds the
+ * (surveyor, day) pairs touched by a set of location_track rows and recomputes
+ * those days from raw points, so late or out-of-order points simply rewrite their day.
+ * Days that overlap an archived block are left to the caller, which recomputes them
+ * from the merged archive read and stores the result with upsertDay.
+ */
+@Repository
+public class DailySummaryRepository {
+
+    // A (surveyor_id, day) candidate c whose zone day overlaps an archived UTC day: location_track
+    // alone no longer holds all of its points. Parameters: zone, zone.
+    private static final String ARCHIVED_CONDITION =
+        "EXISTS (SELECT 1 FROM location_track_archive a WHERE a.surveyor_id = c.surveyor_id " +
+        "AND a.day BETWEEN c.day - 1 AND c.day + 1 " +
+        "AND a.first_time < ((c.day + 1)::timestamp AT TIME ZONE ?) AND a.last_time >= (c.day::timestamp AT TIME ZONE ?))";
+
+    // Recomputes every (surveyor_id, day) in the "dirty" CTE; day boundaries are midnight in the given zone
+    private static final String ROLLUP_SQL =
+        "WITH candidates AS (%s), " +
+        "dirty AS (SELECT c.surveyor_id, c.day FROM candidates c WHERE NOT " + ARCHIVED_CONDITION + "), " +
+        "steps AS (" +
+        "SELECT lt.surveyor_id, d.day, lt.latitude, lt.longitude, lt.timestamp, " +
+        "LAG(lt.latitude) OVER w AS prev_lat, LAG(lt.longitude) OVER w AS prev_lon, " +
+        "EXTRACT(EPOCH FROM lt.timestamp - LAG(lt.timestamp) OVER w) AS gap_seconds " +
+        "FROM dirty d JOIN location_track lt ON lt.surveyor_id = d.surveyor_id " +
+        "AND lt.timestamp >= (d.day::timestamp AT TIME ZONE ?) " +
+        "AND lt.timestamp < ((d.day + 1)::timestamp AT TIME ZONE ?) " +
+        "AND " + SqlFragments.notRejected("lt.") + " " +
+        "WINDOW w AS (PARTITION BY lt.surveyor_id, d.day ORDER BY lt.timestamp, lt.id)) " +
+        "INSERT INTO surveyor_daily_summary (surveyor_id, day, city, project_name, point_count, distance_km, " +
+        "first_fix, last_fix, active_seconds, updated_at) " +
+        "SELECT st.surveyor_id, st.day, s.city, s.project_name, COUNT(*), " +
+        "COALESCE(SUM(" + SqlFragments.haversineKm("st.prev_lat", "st.prev_lon", "st.latitude", "st.longitude") + "), 0), " +
+        "MIN(st.timestamp), MAX(st.timestamp), " +
+        "COALESCE(SUM(st.gap_seconds) FILTER (WHERE st.gap_seconds <= ?), 0), now() " +
+        "FROM steps st LEFT JOIN surveyor s ON s.id = st.surveyor_id " +
+        "GROUP BY st.surveyor_id, st.day, s.city, s.project_name " +
+        "ON CONFLICT (surveyor_id, day) DO UPDATE SET city = EXCLUDED.city, project_name = EXCLUDED.project_name, " +
+        "point_count = EXCLUDED.point_count, distance_km = EXCLUDED.distance_km, first_fix = EXCLUDED.first_fix, " +
+        "last_fix = EXCLUDED.last_fix, active_seconds = EXCLUDED.active_seconds, updated_at = now()";
+
+    private static final String ARCHIVED_DIRTY_SQL =
+        "WITH candidates AS (%s) SELECT c.surveyor_id, c.day FROM candidates c WHERE " + ARCHIVED_CONDITION + " " +
+        "ORDER BY c.surveyor_id, c.day";
+
+    private static final String UPSERT_DAY_SQL =
+        "INSERT INTO surveyor_daily_summary (surveyor_id, day, city, project_name, point_count, distance_km, " +
+        "first_fix, last_fix, active_seconds, updated_at) " +
+        "SELECT ?, ?, s.city, s.project_name, ?, ?, ?, ?, ?, now() " +
+        "FROM (SELECT 1) one LEFT JOIN surveyor s ON s.id = ? " +
+        "ON CONFLICT (surveyor_id, day) DO UPDATE SET city = EXCLUDED.city, project_name = EXCLUDED.project_name, " +
+        "point_count = EXCLUDED.point_count, distance_km = EXCLUDED.distance_km, first_fix = EXCLUDED.first_fix, " +
+        "last_fix = EXCLUDED.last_fix, active_seconds = EXCLUDED.active_seconds, updated_at = now()";
+
+    private static final String DIRTY_BY_ID_RANGE =
+        "SELECT DISTINCT surveyor_id, (timestamp AT TIME ZONE ?)::date AS day " +
+        "FROM location_track WHERE id > ? AND id <= ?";
+
+    private static final String DIRTY_BY_TIME_RANGE =
+        "SELECT DISTINCT surveyor_id, (timestamp AT TIME ZONE ?)::date AS day " +
+        "FROM location_track WHERE timestamp >= ? AND timestamp < ?";
+
+    private static final String SELECT_COLUMNS =
+        "SELECT surveyor_id, day, city, project_name, point_count, distance_km, first_fix, last_fix, active_seconds " +
+        "FROM surveyor_daily_summary ";
+
+    private static final String TOTALS_COLUMNS =
+        "SELECT surveyor_id, MAX(city) AS city, MAX(project_name) AS project_name, " +
+        "SUM(point_count) AS point_count, SUM(distance_km) AS distance_km, MIN(first_fix) AS first_fix, " +
+        "MAX(last_fix) AS last_fix, SUM(active_seconds) AS active_seconds, COUNT(*) AS days " +
+        "FROM surveyor_daily_summary ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DailySummaryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Rebuilds the days touched by location_track rows with fromId < id <= toId, except archived ones.
+     * @return Number of (surveyor, day) rows written
+     */
+    public int rollupIdRange(long fromId, long toId, String zone, long maxActiveGapSeconds) {
+        return jdbcTemplate.update(String.format(ROLLUP_SQL, DIRTY_BY_ID_RANGE),
+            zone, fromId, toId, zone, zone, zone, zone, maxActiveGapSeconds);
+    }
+
+    /**
+     * Rebuilds the days that have points in [start, end), except archived ones.
+     * @return Number of (surveyor, day) rows written
+     */
+    public int rollupTimeRange(Instant start, Instant end, String zone, long maxActiveGapSeconds) {
+        return jdbcTemplate.update(String.format(ROLLUP_SQL, DIRTY_BY_TIME_RANGE),
+            zone, Timestamp.from(start), Timestamp.from(end), zone, zone, zone, zone, maxActiveGapSeconds);
+    }
+
+    /**
+     * Days touched by location_track rows with fromId < id <= toId that overlap an archived block.
+     */
+    public List<SurveyorDay> findArchivedIdRange(long fromId, long toId, String zone) {
+        return jdbcTemplate.query(String.format(ARCHIVED_DIRTY_SQL, DIRTY_BY_ID_RANGE),
+            (rs, rowNum) -> new SurveyorDay(rs.getString(1), rs.getObject(2, LocalDate.class)),
+            zone, fromId, toId, zone, zone);
+    }
+
+    /**
+     * Days with points in [start, end) that overlap an archived block.
+     */
+    public List<SurveyorDay> findArchivedTimeRange(Instant start, Instant end, String zone) {
+        return jdbcTemplate.query(String.format(ARCHIVED_DIRTY_SQL, DIRTY_BY_TIME_RANGE),
+            (rs, rowNum) -> new SurveyorDay(rs.getString(1), rs.getObject(2, LocalDate.class)),
+            zone, Timestamp.from(start), Timestamp.from(end), zone, zone);
+    }
+
+    /**
+     * Writes one day computed outside the database, taking city and project from the surveyor.
+     */
+    public void upsertDay(String surveyorId, LocalDate day, long pointCount, double distanceKm,
+                          Instant firstFix, Instant lastFix, double activeSeconds) {
+        jdbcTemplate.update(UPSERT_DAY_SQL, surveyorId, Date.valueOf(day), pointCount, distanceKm,
+            Timestamp.from(firstFix), Timestamp.from(lastFix), activeSeconds, surveyorId);
+    }
+
+    public long findMaxLocationTrackId() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM location_track", Long.class);
+        return max != null ? max : 0;
+    }
+
+    /**
+     * Locks the job's watermark for the current transaction. Empty if another
+     * instance holds it, so concurrent runs skip instead of queueing.
+     */
+    public Optional<Long> lockWatermark(String jobName) {
+        jdbcTemplate.update("INSERT INTO rollup_watermark (job_name) VALUES (?) ON CONFLICT (job_name) DO NOTHING",
+            jobName);
+        List<Long> rows = jdbcTemplate.queryForList("SELECT last_location_track_id FROM rollup_watermark " +
+            "WHERE job_name = ? FOR UPDATE SKIP LOCKED", Long.class, jobName);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    public void updateWatermark(String jobName, long lastLocationTrackId) {
+        jdbcTemplate.update("UPDATE rollup_watermark SET last_location_track_id = ?, updated_at = now() " +
+            "WHERE job_name = ?", lastLocationTrackId, jobName);
+    }
+
+    /**
+     * Daily rows between two days inclusive; null filters are ignored.
+     */
+    public List<DailySummary> findDaily(LocalDate from, LocalDate to, String surveyorId, String city, String project) {
+        List<Object> params = new ArrayList<>();
+        String where = buildWhere(from, to, surveyorId, city, project, params);
+        return jdbcTemplate.query(SELECT_COLUMNS + where + "ORDER BY surveyor_id, day",
+            (rs, rowNum) -> mapRow(rs, true), params.toArray());
+    }
+
+    /**
+     * One row per surveyor summing its days between two days inclusive.
+     */
+    public List<DailySummary> findTotals(LocalDate from, LocalDate to, String surveyorId, String city, String project) {
+        List<Object> params = new ArrayList<>();
+        String where = buildWhere(from, to, surveyorId, city, project, params);
+        return jdbcTemplate.query(TOTALS_COLUMNS + where + "GROUP BY surveyor_id ORDER BY surveyor_id",
+            (rs, rowNum) -> {
+                DailySummary summary = mapRow(rs, false);
+                summary.setDays(rs.getInt("days"));
+                return summary;
+            }, params.toArray());
+    }
+
+    public void deleteBySurveyorId(String surveyorId) {
+        jdbcTemplate.update("DELETE FROM surveyor_daily_summary WHERE surveyor_id = ?", surveyorId);
+    }
+
+    private static String buildWhere(LocalDate from, LocalDate to, String surveyorId, String city, String project,
+                                     List<Object> params) {
+        StringBuilder where = new StringBuilder("WHERE day BETWEEN ? AND ? ");
+        params.add(Date.valueOf(from));
+        params.add(Date.valueOf(to));
+        if (surveyorId != null) {
+            where.append("AND surveyor_id = ? ");
+            params.add(surveyorId);
+        }
+        if (city != null) {
+            where.append("AND city = ? ");
+            params.add(city);
+        }
+        if (project != null) {
+            where.append("AND project_name = ? ");
+            params.add(project);
+        }
+        return where.toString();
+    }
+
+    private static DailySummary mapRow(ResultSet rs, boolean daily) throws SQLException {
+        DailySummary summary = new DailySummary();
+        summary.setSurveyorId(rs.getString("surveyor_id"));
+        if (daily) {
+            summary.setDay(rs.getDate("day").toLocalDate());
+        }
+        summary.setCity(rs.getString("city"));
+        summary.setProjectName(rs.getString("project_name"));
+        summary.setPointCount(rs.getLong("point_count"));
+        summary.setDistanceKm(rs.getDouble("distance_km"));
+        summary.setFirstFix(rs.getTimestamp("first_fix").toInstant());
+        summary.setLastFix(rs.getTimestamp("last_fix").toInstant());
+        summary.setActiveMinutes(rs.getDouble("active_seconds") / 60.0);
+        return summary;
+    }
+}
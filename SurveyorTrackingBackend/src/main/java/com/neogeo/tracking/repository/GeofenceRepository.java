@@ -0,0 +1,182 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.dto.Geofence;
+import com.neogeo.tracking.dto.GeofenceEvent;
+import com.neogeo.tracking.spatial.GeoPolygons;
+
+/**
+ * geofence definitions and the append-only geofence_event log. Polygons travel as WKT
+ * so no spatial type mapping is needed on the JVM side.
+ */
+@Repository
+public class GeofenceRepository {
+
+    private static final String SELECT_COLUMNS =
+        "SELECT id, name, project_name, fence_type, ST_AsText(geom) AS wkt, center_latitude, center_longitude, " +
+        "radius_meters, dwell_seconds, active, created_at, updated_at FROM geofence ";
+
+    private static final String INSERT_EVENT_SQL =
+        "INSERT INTO geofence_event (geofence_id, surveyor_id, event_type, event_time, latitude, longitude) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Last event per (surveyor, fence); surveyors are still inside when it is not an EXIT
+    private static final String OPEN_MEMBERSHIPS_SQL =
+        "SELECT * FROM (SELECT DISTINCT ON (surveyor_id, geofence_id) geofence_id, surveyor_id, event_type, " +
+        "event_time, latitude, longitude FROM geofence_event " +
+        "ORDER BY surveyor_id, geofence_id, event_time DESC, id DESC) last_event " +
+        "WHERE event_type <> 'EXIT'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GeofenceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Fences ordered by id; a null project returns every project.
+     */
+    public List<Geofence> findAll(boolean activeOnly, String projectName) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append("WHERE 1 = 1 ");
+        List<Object> params = new ArrayList<>();
+        if (activeOnly) {
+            sql.append("AND active ");
+        }
+        if (projectName != null) {
+            sql.append("AND project_name = ? ");
+            params.add(projectName);
+        }
+        sql.append("ORDER BY id");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapFence(rs), params.toArray());
+    }
+
+    public Optional<Geofence> findById(long id) {
+        List<Geofence> rows = jdbcTemplate.query(SELECT_COLUMNS + "WHERE id = ?", (rs, rowNum) -> mapFence(rs), id);
+        return rows.stream().findFirst();
+    }
+
+    public long insert(Geofence fence) {
+        Long id = jdbcTemplate.queryForObject(
+            "INSERT INTO geofence (name, project_name, fence_type, geom, center_latitude, center_longitude, " +
+            "radius_meters, dwell_seconds, active) " +
+            "VALUES (?, ?, ?, ST_GeomFromText(?, 4326), ?, ?, ?, ?, ?) RETURNING id",
+            Long.class, fence.getName(), fence.getProjectName(), fence.getType(), toWkt(fence),
+            fence.getCenterLatitude(), fence.getCenterLongitude(), fence.getRadiusMeters(),
+            fence.getDwellSeconds(), fence.isActive());
+        return id;
+    }
+
+    /**
+     * @return false if the fence does not exist
+     */
+    public boolean update(Geofence fence) {
+        return jdbcTemplate.update(
+            "UPDATE geofence SET name = ?, project_name = ?, fence_type = ?, geom = ST_GeomFromText(?, 4326), " +
+            "center_latitude = ?, center_longitude = ?, radius_meters = ?, dwell_seconds = ?, active = ?, " +
+            "updated_at = now() WHERE id = ?",
+            fence.getName(), fence.getProjectName(), fence.getType(), toWkt(fence),
+            fence.getCenterLatitude(), fence.getCenterLongitude(), fence.getRadiusMeters(),
+            fence.getDwellSeconds(), fence.isActive(), fence.getId()) > 0;
+    }
+
+    /**
+     * Deletes the fence; its events are kept for history.
+     */
+    public boolean delete(long id) {
+        return jdbcTemplate.update("DELETE FROM geofence WHERE id = ?", id) > 0;
+    }
+
+    public void saveEvents(List<GeofenceEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, events, events.size(), (ps, event) -> {
+            ps.setLong(1, event.getGeofenceId());
+            ps.setString(2, event.getSurveyorId());
+            ps.setString(3, event.getEventType());
+            ps.setTimestamp(4, Timestamp.from(event.getEventTime()));
+            ps.setDouble(5, event.getLatitude());
+            ps.setDouble(6, event.getLongitude());
+        });
+    }
+
+    /**
+     * Events in [start, end], newest first; null geofence/surveyor filters are ignored.
+     */
+    public List<GeofenceEvent> findEvents(Long geofenceId, String surveyorId, Instant start, Instant end, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT e.geofence_id, g.name, e.surveyor_id, e.event_type, " +
+            "e.event_time, e.latitude, e.longitude FROM geofence_event e LEFT JOIN geofence g ON g.id = e.geofence_id " +
+            "WHERE e.event_time BETWEEN ? AND ? ");
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.from(start));
+        params.add(Timestamp.from(end));
+        if (geofenceId != null) {
+            sql.append("AND e.geofence_id = ? ");
+            params.add(geofenceId);
+        }
+        if (surveyorId != null) {
+            sql.append("AND e.surveyor_id = ? ");
+            params.add(surveyorId);
+        }
+        sql.append("ORDER BY e.event_time DESC, e.id DESC LIMIT ?");
+        params.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapEvent(rs, rs.getString("name")), params.toArray());
+    }
+
+    /**
+     * Last ENTER or DWELL event of every (surveyor, fence) pair that has not been followed by an EXIT.
+     */
+    public List<GeofenceEvent> findOpenMemberships() {
+        return jdbcTemplate.query(OPEN_MEMBERSHIPS_SQL, (rs, rowNum) -> mapEvent(rs, null));
+    }
+
+    private static String toWkt(Geofence fence) {
+        if (Geofence.CIRCLE.equals(fence.getType())) {
+            return null;
+        }
+        return GeoPolygons.fromVertices(fence.getCoordinates()).toText();
+    }
+
+    private static Geofence mapFence(ResultSet rs) throws SQLException {
+        Geofence fence = new Geofence();
+        fence.setId(rs.getLong("id"));
+        fence.setName(rs.getString("name"));
+        fence.setProjectName(rs.getString("project_name"));
+        fence.setType(rs.getString("fence_type"));
+        String wkt = rs.getString("wkt");
+        if (wkt != null) {
+            try {
+                fence.setCoordinates(GeoPolygons.toVertices((Polygon) new WKTReader().read(wkt)));
+            } catch (ParseException e) {
+                throw new SQLException("Invalid geometry for geofence " + fence.getId(), e);
+            }
+        }
+        fence.setCenterLatitude((Double) rs.getObject("center_latitude"));
+        fence.setCenterLongitude((Double) rs.getObject("center_longitude"));
+        fence.setRadiusMeters((Double) rs.getObject("radius_meters"));
+        fence.setDwellSeconds((Integer) rs.getObject("dwell_seconds"));
+        fence.setActive(rs.getBoolean("active"));
+        fence.setCreatedAt(rs.getTimestamp("created_at").toInstant());
+        fence.setUpdatedAt(rs.getTimestamp("updated_at").toInstant());
+        return fence;
+    }
+
+    private static GeofenceEvent mapEvent(ResultSet rs, String geofenceName) throws SQLException {
+        return new GeofenceEvent(rs.getLong("geofence_id"), geofenceName, rs.getString("surveyor_id"),
+            rs.getString("event_type"), rs.getTimestamp("event_time").toInstant(),
+            rs.getDouble("latitude"), rs.getDouble("longitude"));
+    }
+}
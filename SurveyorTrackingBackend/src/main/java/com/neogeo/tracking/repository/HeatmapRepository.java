@@ -0,0 +1,85 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.dto.HeatmapCell;
+
+/**
+ * Point density per geohash cell, aggregated in PostgreSQL so only one row per
+ * occupied cell leaves the database. Dwell is the gap from each fix to the surveyor's
+ * next fix (LEAD), attributed to the cell of the earlier fix.
+ */
+@Repository
+public class HeatmapRepository {
+
+    private static final String CELL_COLUMNS =
+        "SELECT cell, ST_Y(ST_PointFromGeoHash(cell)) AS latitude, ST_X(ST_PointFromGeoHash(cell)) AS longitude, " +
+        "ST_YMin(ST_Box2dFromGeoHash(cell)) AS min_lat, ST_XMin(ST_Box2dFromGeoHash(cell)) AS min_lon, " +
+        "ST_YMax(ST_Box2dFromGeoHash(cell)) AS max_lat, ST_XMax(ST_Box2dFromGeoHash(cell)) AS max_lon, " +
+        "point_count, surveyor_count, dwell_seconds FROM cells ORDER BY point_count DESC, cell LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HeatmapRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Busiest cells first. project, surveyorId and the bounding box are optional (null = no filter).
+     */
+    public List<HeatmapCell> aggregate(Instant start, Instant end, int precision, String project, String surveyorId,
+                                       double[] bbox, long maxActiveGapSeconds, int limit) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("WITH pts AS (SELECT lt.surveyor_id, lt.geom, " +
+            "EXTRACT(EPOCH FROM LEAD(lt.timestamp) OVER w - lt.timestamp) AS gap_seconds " +
+            "FROM location_track lt ");
+        if (project != null) {
+            sql.append("JOIN surveyor s ON s.id = lt.surveyor_id AND s.project_name = ? ");
+            params.add(project);
+        }
+        sql.append("WHERE lt.timestamp BETWEEN ? AND ? AND ").append(SqlFragments.notRejected("lt.")).append(" ");
+        params.add(Timestamp.from(start));
+        params.add(Timestamp.from(end));
+        if (surveyorId != null) {
+            sql.append("AND lt.surveyor_id = ? ");
+            params.add(surveyorId);
+        }
+        if (bbox != null) {
+            sql.append("AND lt.geom && ST_MakeEnvelope(?, ?, ?, ?, 4326) ");
+            params.add(bbox[1]);
+            params.add(bbox[0]);
+            params.add(bbox[3]);
+            params.add(bbox[2]);
+        }
+        sql.append("WINDOW w AS (PARTITION BY lt.surveyor_id ORDER BY lt.timestamp, lt.id)), ");
+        sql.append("cells AS (SELECT ST_GeoHash(geom, ?) AS cell, COUNT(*) AS point_count, ");
+        params.add(precision);
+        sql.append("COUNT(DISTINCT surveyor_id) AS surveyor_count, ");
+        sql.append("COALESCE(SUM(gap_seconds) FILTER (WHERE gap_seconds <= ?), 0) AS dwell_seconds ");
+        params.add(maxActiveGapSeconds);
+        sql.append("FROM pts GROUP BY 1) ");
+        sql.append(CELL_COLUMNS);
+        params.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            HeatmapCell cell = new HeatmapCell();
+            cell.setGeohash(rs.getString("cell"));
+            cell.setLatitude(rs.getDouble("latitude"));
+            cell.setLongitude(rs.getDouble("longitude"));
+            cell.setMinLatitude(rs.getDouble("min_lat"));
+            cell.setMinLongitude(rs.getDouble("min_lon"));
+            cell.setMaxLatitude(rs.getDouble("max_lat"));
+            cell.setMaxLongitude(rs.getDouble("max_lon"));
+            cell.setPointCount(rs.getLong("point_count"));
+            cell.setSurveyorCount(rs.getInt("surveyor_count"));
+            cell.setDwellMinutes(rs.getDouble("dwell_seconds") / 60.0);
+            return cell;
+        }, params.toArray());
+    }
+}
@@ -0,0 +1,98 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.model.LocationTrack;
+
+/**
+ * surveyor_latest_location holds one row per surveyor with its newest accepted fix,
+ * so latest-position reads never have to probe location_track.
+ */
+@Repository
+public class LatestLocationRepository {
+
+    // Only move forward: an older point from a batch upload never replaces a newer one.
+    // (timestamp, location_track_id) breaks ties between fixes with the same timestamp.
+    private static final String UPSERT_SQL =
+        "INSERT INTO surveyor_latest_location " +
+        "(surveyor_id, location_track_id, latitude, longitude, timestamp, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, now()) " +
+        "ON CONFLICT (surveyor_id) DO UPDATE SET " +
+        "location_track_id = EXCLUDED.location_track_id, latitude = EXCLUDED.latitude, " +
+        "longitude = EXCLUDED.longitude, timestamp = EXCLUDED.timestamp, updated_at = now() " +
+        "WHERE (surveyor_latest_location.timestamp, COALESCE(surveyor_latest_location.location_track_id, 0)) " +
+        "< (EXCLUDED.timestamp, COALESCE(EXCLUDED.location_track_id, 0))";
+
+    // Regenerates rows for a set of surveyors from history. Same forward-only guard as the
+    // upsert, so a rebuild racing with ingest never rolls a row back to an older fix.
+    private static final String REBUILD_SQL =
+        "INSERT INTO surveyor_latest_location " +
+        "(surveyor_id, location_track_id, latitude, longitude, timestamp, updated_at) " +
+        "SELECT DISTINCT ON (lt.surveyor_id) lt.surveyor_id, lt.id, lt.latitude, lt.longitude, lt.timestamp, now() " +
+        "FROM location_track lt WHERE lt.surveyor_id = ANY (?) AND " + SqlFragments.notRejected("lt.") + " " +
+        "ORDER BY lt.surveyor_id, lt.timestamp DESC, lt.id DESC " +
+        "ON CONFLICT (surveyor_id) DO UPDATE SET " +
+        "location_track_id = EXCLUDED.location_track_id, latitude = EXCLUDED.latitude, " +
+        "longitude = EXCLUDED.longitude, timestamp = EXCLUDED.timestamp, updated_at = now() " +
+        "WHERE (surveyor_latest_location.timestamp, COALESCE(surveyor_latest_location.location_track_id, 0)) " +
+        "< (EXCLUDED.timestamp, COALESCE(EXCLUDED.location_track_id, 0))";
+
+    private static final String SELECT_COLUMNS =
+        "SELECT surveyor_id, location_track_id, latitude, longitude, timestamp FROM surveyor_latest_location";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LatestLocationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return true if the row was inserted or moved forward
+     */
+    public boolean upsert(String surveyorId, Long locationTrackId, double latitude, double longitude, Instant timestamp) {
+        return jdbcTemplate.update(UPSERT_SQL, surveyorId, locationTrackId, latitude, longitude,
+            Timestamp.from(timestamp)) > 0;
+    }
+
+    public Optional<LocationTrack> findBySurveyorId(String surveyorId) {
+        List<LocationTrack> rows = jdbcTemplate.query(SELECT_COLUMNS + " WHERE surveyor_id = ?",
+            LatestLocationRepository::mapRow, surveyorId);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    public List<LocationTrack> findAll() {
+        return jdbcTemplate.query(SELECT_COLUMNS, LatestLocationRepository::mapRow);
+    }
+
+    public int rebuild(List<String> surveyorIds) {
+        return jdbcTemplate.update(con -> {
+            var ps = con.prepareStatement(REBUILD_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", surveyorIds.toArray()));
+            return ps;
+        });
+    }
+
+    public void deleteBySurveyorId(String surveyorId) {
+        jdbcTemplate.update("DELETE FROM surveyor_latest_location WHERE surveyor_id = ?", surveyorId);
+    }
+
+    private static LocationTrack mapRow(ResultSet rs, int rowNum) throws SQLException {
+        LocationTrack track = new LocationTrack(
+            rs.getString("surveyor_id"),
+            rs.getDouble("latitude"),
+            rs.getDouble("longitude"),
+            rs.getTimestamp("timestamp").toInstant(),
+            null
+        );
+        track.setId(rs.getObject("location_track_id", Long.class));
+        return track;
+    }
+}
@@ -0,0 +1,86 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Monthly partitions of location_track (see V7__Partition_Location_Track.sql).
+ * Partitions are named location_track_pYYYYMM and cover one UTC month.
+ */
+@Repository
+public class LocationTrackPartitionRepository {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("location_track_p(\\d{6})");
+    private static final DateTimeFormatter NAME_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String ATTACHED_PARTITIONS_SQL =
+        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+        "WHERE i.inhparent = 'location_track'::regclass ORDER BY c.relname";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LocationTrackPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Creates the month's partition if missing, moving any of its rows out of the default partition.
+     * @return Partition name
+     */
+    public String createPartition(YearMonth month) {
+        return jdbcTemplate.queryForObject("SELECT create_location_track_partition(?)", String.class,
+            Date.valueOf(month.atDay(1)));
+    }
+
+    /**
+     * Months that currently have an attached partition, oldest first (the default partition is not included).
+     */
+    public List<YearMonth> findAttachedMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(ATTACHED_PARTITIONS_SQL, String.class)) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                months.add(YearMonth.parse(matcher.group(1), NAME_MONTH));
+            }
+        }
+        return months;
+    }
+
+    public long countDefaultPartitionRows() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM location_track_default", Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Deletes rows of the default partition older than cutoff (retention in drop mode).
+     * @return Number of rows deleted
+     */
+    public int deleteDefaultRowsBefore(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM location_track_default WHERE timestamp < ?", Timestamp.from(cutoff));
+    }
+
+    /**
+     * Detaches the month's partition: its rows disappear from location_track but the table is kept.
+     */
+    public void detachPartition(YearMonth month) {
+        jdbcTemplate.execute("ALTER TABLE location_track DETACH PARTITION " + partitionName(month));
+    }
+
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+    }
+
+    public static String partitionName(YearMonth month) {
+        return "location_track_p" + month.format(NAME_MONTH);
+    }
+}
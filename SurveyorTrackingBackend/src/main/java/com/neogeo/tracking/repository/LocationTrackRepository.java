@@ -20,6 +20,13 @@ public interface LocationTrackRepository extends JpaRepository<LocationTrack, Lo
     
     // Find latest location for a surveyor
     Optional<LocationTrack> findTopBySurveyorIdOrderByTimestampDesc(String surveyorId);
+
+    // Latest fix that is not flagged with the given quality (TrackStore.latest skips rejected fixes)
+    Optional<LocationTrack> findTopBySurveyorIdAndQualityFlagNotOrderByTimestampDescIdDesc(
+        String surveyorId, short qualityFlag);
+
+    // Whether a fix is already stored; WAL replay uses it to skip records that were committed
+    boolean existsBySurveyorIdAndTimestamp(String surveyorId, Instant timestamp);
     
     // Find all locations for a surveyor ordered by timestamp
     List<LocationTrack> findBySurveyorIdOrderByTimestampAsc(String surveyorId);
@@ -58,6 +65,61 @@ public interface LocationTrackRepository extends JpaRepository<LocationTrack, Lo
     Page<LocationTrack> findBySurveyorIdAndTimestampBetweenOrderByTimestampAsc(
         String surveyorId, Instant start, Instant end, Pageable pageable);
 
+    // History reads: points in [start, end], leaving out fixes the ingest filter rejected
+    // (quality_flag = 2, LocationTrack.QUALITY_REJECTED) unless includeRejected is set for auditing
+    @Query("SELECT lt FROM LocationTrack lt WHERE lt.surveyorId = :surveyorId " +
+           "AND lt.timestamp >= :start AND lt.timestamp <= :end " +
+           "AND (:includeRejected = true OR lt.qualityFlag <> 2) " +
+           "ORDER BY lt.timestamp ASC, lt.id ASC")
+    List<LocationTrack> findHistory(
+        @Param("surveyorId") String surveyorId,
+        @Param("start") Instant start,
+        @Param("end") Instant end,
+        @Param("includeRejected") boolean includeRejected);
+
+    @Query(value = "SELECT lt FROM LocationTrack lt WHERE lt.surveyorId = :surveyorId " +
+                   "AND lt.timestamp >= :start AND lt.timestamp <= :end " +
+                   "AND (:includeRejected = true OR lt.qualityFlag <> 2) " +
+                   "ORDER BY lt.timestamp ASC, lt.id ASC",
+           countQuery = "SELECT COUNT(lt) FROM LocationTrack lt WHERE lt.surveyorId = :surveyorId " +
+                        "AND lt.timestamp >= :start AND lt.timestamp <= :end " +
+                        "AND (:includeRejected = true OR lt.qualityFlag <> 2)")
+    Page<LocationTrack> findHistoryPage(
+        @Param("surveyorId") String surveyorId,
+        @Param("start") Instant start,
+        @Param("end") Instant end,
+        @Param("includeRejected") boolean includeRejected,
+        Pageable pageable);
+
+    // Keyset page: rows strictly after (afterTimestamp, afterId) up to end, limited by the Pageable size.
+    // The OR alone gives the planner no lower bound; "timestamp >= :afterTimestamp" makes the
+    // (surveyor_id, timestamp, id) index start its range scan at the cursor, so the cost does
+    // not depend on how deep the page is.
+    @Query("SELECT lt FROM LocationTrack lt WHERE lt.surveyorId = :surveyorId " +
+           "AND lt.timestamp >= :afterTimestamp AND lt.timestamp <= :end " +
+           "AND (lt.timestamp > :afterTimestamp OR (lt.timestamp = :afterTimestamp AND lt.id > :afterId)) " +
+           "AND (:includeRejected = true OR lt.qualityFlag <> 2) " +
+           "ORDER BY lt.timestamp ASC, lt.id ASC")
+    List<LocationTrack> findPageAfter(
+        @Param("surveyorId") String surveyorId,
+        @Param("afterTimestamp") Instant afterTimestamp,
+        @Param("afterId") long afterId,
+        @Param("end") Instant end,
+        @Param("includeRejected") boolean includeRejected,
+        Pageable limit);
+
+    // Count locations within a date range (only used when a total is explicitly requested)
+    long countBySurveyorIdAndTimestampBetween(String surveyorId, Instant start, Instant end);
+
+    @Query("SELECT COUNT(lt) FROM LocationTrack lt WHERE lt.surveyorId = :surveyorId " +
+           "AND lt.timestamp >= :start AND lt.timestamp <= :end " +
+           "AND (:includeRejected = true OR lt.qualityFlag <> 2)")
+    long countHistory(
+        @Param("surveyorId") String surveyorId,
+        @Param("start") Instant start,
+        @Param("end") Instant end,
+        @Param("includeRejected") boolean includeRejected);
+
     // Delete all location tracks for a surveyor
     void deleteBySurveyorId(String surveyorId);
 }
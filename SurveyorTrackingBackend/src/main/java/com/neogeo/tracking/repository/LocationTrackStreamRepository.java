@@ -0,0 +1,64 @@
+package com.neogeo.tracking.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.neogeo.tracking.track.TrackPointHandler;
+
+/**
+ * Forward-only reads of location_track for large time ranges. Rows are pulled
+ * through a server-side cursor (PostgreSQL only uses one when autocommit is off,
+ * hence the read-only transaction) in fetch-size chunks and handed to a
+ * TrackPointHandler as primitives, so memory stays flat regardless of range size.
+ */
+@Repository
+public class LocationTrackStreamRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String RANGE_SQL =
+        "SELECT id, latitude, longitude, timestamp FROM location_track " +
+        "WHERE surveyor_id = ? AND timestamp BETWEEN ? AND ? AND " + SqlFragments.notRejected("") + " " +
+        "ORDER BY timestamp ASC, id ASC";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public LocationTrackStreamRepository(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Streams a surveyor's points in [start, end] in time order.
+     * @return Number of points handed to the handler
+     * @throws UncheckedIOException if the handler fails to write
+     */
+    public long streamRange(String surveyorId, Instant start, Instant end, TrackPointHandler handler) {
+        Long count = readOnlyTransaction.execute(status -> {
+            long[] rows = new long[1];
+            jdbcTemplate.query(RANGE_SQL, rs -> {
+                try {
+                    handler.onPoint(rs.getLong(1), rs.getDouble(2), rs.getDouble(3),
+                        rs.getTimestamp(4).getTime());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }, surveyorId, Timestamp.from(start), Timestamp.from(end));
+            return rows[0];
+        });
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.dto.PresenceEvent;
+
+/**
+ * Append-only store for presence transitions. Written with JDBC batches
+ * because events are flushed in groups and never read back as entities.
+ */
+@Repository
+public class PresenceHistoryRepository {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO surveyor_presence_history " +
+        "(surveyor_id, status, previous_status, transition_time, last_seen) " +
+        "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PresenceHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void saveAll(List<PresenceEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getSurveyorId());
+            ps.setString(2, event.getStatus());
+            ps.setString(3, event.getPreviousStatus());
+            ps.setTimestamp(4, Timestamp.from(event.getTransitionTime()));
+            ps.setTimestamp(5, event.getLastSeen() != null ? Timestamp.from(event.getLastSeen()) : null);
+        });
+    }
+}
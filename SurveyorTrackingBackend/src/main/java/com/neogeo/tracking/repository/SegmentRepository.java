@@ -0,0 +1,232 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.dto.SurveyorStop;
+import com.neogeo.tracking.dto.SurveyorTrip;
+
+/**
+ * surveyor_stop, surveyor_trip and the per-surveyor surveyor_segmentation_state row.
+ * Trips reference both of their stops with ON DELETE CASCADE, so deleting stops from
+ * some point on also removes the trips into and out of them.
+ */
+@Repository
+public class SegmentRepository {
+
+    private static final String STOP_COLUMNS =
+        "SELECT id, surveyor_id, arrival_time, departure_time, latitude, longitude, point_count FROM surveyor_stop ";
+
+    private static final String TRIP_COLUMNS =
+        "SELECT id, surveyor_id, from_stop_id, to_stop_id, start_time, end_time, start_latitude, start_longitude, " +
+        "end_latitude, end_longitude, distance_km, point_count FROM surveyor_trip ";
+
+    private static final String DEPARTURE_COLUMNS =
+        "SELECT id, departure_track_id, departure_latitude, departure_longitude, departure_time FROM surveyor_stop ";
+
+    /**
+     * Last fix of a stored stop, where the next trip starts.
+     */
+    public static class Departure {
+        private final long stopId;
+        private final long trackId;
+        private final double latitude;
+        private final double longitude;
+        private final Instant time;
+
+        public Departure(long stopId, long trackId, double latitude, double longitude, Instant time) {
+            this.stopId = stopId;
+            this.trackId = trackId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.time = time;
+        }
+
+        public long getStopId() {
+            return stopId;
+        }
+
+        public long getTrackId() {
+            return trackId;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public Instant getTime() {
+            return time;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SegmentRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Earliest timestamp per surveyor among location_track rows with fromId < id <= toId.
+     */
+    public Map<String, Instant> findEarliestByIdRange(long fromId, long toId) {
+        Map<String, Instant> earliest = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT surveyor_id, MIN(timestamp) AS earliest FROM location_track " +
+            "WHERE id > ? AND id <= ? GROUP BY surveyor_id ORDER BY surveyor_id",
+            rs -> {
+                earliest.put(rs.getString("surveyor_id"), rs.getTimestamp("earliest").toInstant());
+            }, fromId, toId);
+        return earliest;
+    }
+
+    /**
+     * Locks the surveyor's state row for the current transaction, creating it if needed.
+     * @return Id of the last stored stop, empty if none
+     */
+    public Optional<Long> lockState(String surveyorId) {
+        jdbcTemplate.update("INSERT INTO surveyor_segmentation_state (surveyor_id) VALUES (?) " +
+            "ON CONFLICT (surveyor_id) DO NOTHING", surveyorId);
+        List<Long> rows = jdbcTemplate.query("SELECT last_stop_id FROM surveyor_segmentation_state " +
+            "WHERE surveyor_id = ? FOR UPDATE", (rs, rowNum) -> (Long) rs.getObject("last_stop_id"), surveyorId);
+        return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+    }
+
+    public void updateState(String surveyorId, Long lastStopId) {
+        jdbcTemplate.update("UPDATE surveyor_segmentation_state SET last_stop_id = ?, updated_at = now() " +
+            "WHERE surveyor_id = ?", lastStopId, surveyorId);
+    }
+
+    public Optional<Departure> findDeparture(long stopId) {
+        List<Departure> rows = jdbcTemplate.query(DEPARTURE_COLUMNS + "WHERE id = ?",
+            (rs, rowNum) -> mapDeparture(rs), stopId);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * The surveyor's latest stop, without taking the state lock.
+     */
+    public Optional<Departure> findLastDeparture(String surveyorId) {
+        List<Departure> rows = jdbcTemplate.query(DEPARTURE_COLUMNS +
+            "WHERE surveyor_id = ? ORDER BY arrival_time DESC, id DESC LIMIT 1",
+            (rs, rowNum) -> mapDeparture(rs), surveyorId);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * The latest stop that ended before the given time, i.e. the last one a point at that time cannot change.
+     */
+    public Optional<Departure> findLastDepartureBefore(String surveyorId, Instant time) {
+        List<Departure> rows = jdbcTemplate.query(DEPARTURE_COLUMNS +
+            "WHERE surveyor_id = ? AND departure_time < ? ORDER BY arrival_time DESC, id DESC LIMIT 1",
+            (rs, rowNum) -> mapDeparture(rs), surveyorId, Timestamp.from(time));
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Deletes the stops that arrived after the given time (all of them when null), and through
+     * the cascade every trip touching them.
+     * @return Number of stops deleted
+     */
+    public int deleteStopsAfter(String surveyorId, Instant after) {
+        if (after == null) {
+            return jdbcTemplate.update("DELETE FROM surveyor_stop WHERE surveyor_id = ?", surveyorId);
+        }
+        return jdbcTemplate.update("DELETE FROM surveyor_stop WHERE surveyor_id = ? AND arrival_time > ?",
+            surveyorId, Timestamp.from(after));
+    }
+
+    /**
+     * @return Generated stop id
+     */
+    public long insertStop(SurveyorStop stop, long departureTrackId, double departureLatitude, double departureLongitude) {
+        Long id = jdbcTemplate.queryForObject("INSERT INTO surveyor_stop (surveyor_id, arrival_time, departure_time, " +
+            "latitude, longitude, point_count, departure_track_id, departure_latitude, departure_longitude) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING id", Long.class,
+            stop.getSurveyorId(), Timestamp.from(stop.getArrivalTime()), Timestamp.from(stop.getDepartureTime()),
+            stop.getLatitude(), stop.getLongitude(), stop.getPointCount(),
+            departureTrackId, departureLatitude, departureLongitude);
+        return id;
+    }
+
+    public long insertTrip(SurveyorTrip trip) {
+        Long id = jdbcTemplate.queryForObject("INSERT INTO surveyor_trip (surveyor_id, from_stop_id, to_stop_id, " +
+            "start_time, end_time, start_latitude, start_longitude, end_latitude, end_longitude, distance_km, point_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING id", Long.class,
+            trip.getSurveyorId(), trip.getFromStopId(), trip.getToStopId(),
+            Timestamp.from(trip.getStartTime()), Timestamp.from(trip.getEndTime()),
+            trip.getStartLatitude(), trip.getStartLongitude(), trip.getEndLatitude(), trip.getEndLongitude(),
+            trip.getDistanceKm(), trip.getPointCount());
+        return id;
+    }
+
+    /**
+     * Stops overlapping [start, end], in time order.
+     */
+    public List<SurveyorStop> findStops(String surveyorId, Instant start, Instant end) {
+        return jdbcTemplate.query(STOP_COLUMNS +
+            "WHERE surveyor_id = ? AND arrival_time <= ? AND departure_time >= ? ORDER BY arrival_time, id",
+            (rs, rowNum) -> mapStop(rs), surveyorId, Timestamp.from(end), Timestamp.from(start));
+    }
+
+    /**
+     * Trips overlapping [start, end], in time order.
+     */
+    public List<SurveyorTrip> findTrips(String surveyorId, Instant start, Instant end) {
+        return jdbcTemplate.query(TRIP_COLUMNS +
+            "WHERE surveyor_id = ? AND start_time <= ? AND end_time >= ? ORDER BY start_time, id",
+            (rs, rowNum) -> mapTrip(rs), surveyorId, Timestamp.from(end), Timestamp.from(start));
+    }
+
+    public void deleteBySurveyorId(String surveyorId) {
+        jdbcTemplate.update("DELETE FROM surveyor_stop WHERE surveyor_id = ?", surveyorId);
+        jdbcTemplate.update("DELETE FROM surveyor_segmentation_state WHERE surveyor_id = ?", surveyorId);
+    }
+
+    private static Departure mapDeparture(ResultSet rs) throws SQLException {
+        return new Departure(rs.getLong("id"), rs.getLong("departure_track_id"), rs.getDouble("departure_latitude"),
+            rs.getDouble("departure_longitude"), rs.getTimestamp("departure_time").toInstant());
+    }
+
+    private static SurveyorStop mapStop(ResultSet rs) throws SQLException {
+        SurveyorStop stop = new SurveyorStop();
+        stop.setId(rs.getLong("id"));
+        stop.setSurveyorId(rs.getString("surveyor_id"));
+        stop.setArrivalTime(rs.getTimestamp("arrival_time").toInstant());
+        stop.setDepartureTime(rs.getTimestamp("departure_time").toInstant());
+        stop.setLatitude(rs.getDouble("latitude"));
+        stop.setLongitude(rs.getDouble("longitude"));
+        stop.setPointCount(rs.getInt("point_count"));
+        stop.setDurationMinutes((stop.getDepartureTime().toEpochMilli() - stop.getArrivalTime().toEpochMilli()) / 60000.0);
+        return stop;
+    }
+
+    private static SurveyorTrip mapTrip(ResultSet rs) throws SQLException {
+        SurveyorTrip trip = new SurveyorTrip();
+        trip.setId(rs.getLong("id"));
+        trip.setSurveyorId(rs.getString("surveyor_id"));
+        trip.setFromStopId(rs.getLong("from_stop_id"));
+        trip.setToStopId(rs.getLong("to_stop_id"));
+        trip.setStartTime(rs.getTimestamp("start_time").toInstant());
+        trip.setEndTime(rs.getTimestamp("end_time").toInstant());
+        trip.setStartLatitude(rs.getDouble("start_latitude"));
+        trip.setStartLongitude(rs.getDouble("start_longitude"));
+        trip.setEndLatitude(rs.getDouble("end_latitude"));
+        trip.setEndLongitude(rs.getDouble("end_longitude"));
+        trip.setDistanceKm(rs.getDouble("distance_km"));
+        trip.setPointCount(rs.getInt("point_count"));
+        trip.setDurationMinutes((trip.getEndTime().toEpochMilli() - trip.getStartTime().toEpochMilli()) / 60000.0);
+        return trip;
+    }
+}
@@ -0,0 +1,185 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.dto.NearbySurveyor;
+import com.neogeo.tracking.dto.SurveyorSpatialMatch;
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * PostGIS searches over the generated geometry columns (V9). Radius searches prefilter
+ * with the GiST index (geom && expanded point) and then check the exact distance on the
+ * spheroid with ST_DWithin over geography; distances are in meters.
+ */
+@Repository
+public class SpatialQueryRepository {
+
+    private static final String CENTER = "ST_SetSRID(ST_MakePoint(?, ?), 4326)";
+
+    private static final String RADIUS_FILTER =
+        "timestamp BETWEEN ? AND ? AND " + SqlFragments.notRejected("") + " " +
+        "AND geom && ST_Expand(" + CENTER + ", ?) " +
+        "AND ST_DWithin(geom::geography, " + CENTER + "::geography, ?) ";
+
+    private static final String BBOX_FILTER =
+        "timestamp BETWEEN ? AND ? AND " + SqlFragments.notRejected("") + " " +
+        "AND geom && ST_MakeEnvelope(?, ?, ?, ?, 4326) ";
+
+    private static final String POINT_COLUMNS =
+        "SELECT id, surveyor_id, latitude, longitude, timestamp FROM location_track WHERE ";
+
+    private static final String MATCH_COLUMNS =
+        "SELECT surveyor_id, COUNT(*) AS point_count, MIN(timestamp) AS first_seen, MAX(timestamp) AS last_seen";
+
+    private static final String NEAREST_SQL =
+        "SELECT l.surveyor_id, s.name, s.city, s.project_name, l.latitude, l.longitude, l.timestamp, " +
+        "ST_Distance(l.geog, " + CENTER + "::geography) AS distance_m " +
+        "FROM surveyor_latest_location l JOIN surveyor s ON s.id = l.surveyor_id " +
+        "WHERE LOWER(s.id) NOT LIKE '%admin%' " +
+        "AND (s.username IS NULL OR LOWER(s.username) NOT LIKE '%admin%') ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SpatialQueryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<LocationTrack> findPointsWithinRadius(double latitude, double longitude, double radiusMeters,
+                                                      Instant start, Instant end, String surveyorId, int limit) {
+        List<Object> params = radiusParams(latitude, longitude, radiusMeters, start, end);
+        return queryPoints(RADIUS_FILTER, params, surveyorId, limit);
+    }
+
+    public List<LocationTrack> findPointsWithinBbox(double minLatitude, double minLongitude, double maxLatitude,
+                                                    double maxLongitude, Instant start, Instant end,
+                                                    String surveyorId, int limit) {
+        List<Object> params = bboxParams(minLatitude, minLongitude, maxLatitude, maxLongitude, start, end);
+        return queryPoints(BBOX_FILTER, params, surveyorId, limit);
+    }
+
+    /**
+     * Surveyors with at least one point within the radius during the window, closest first.
+     */
+    public List<SurveyorSpatialMatch> findSurveyorsWithinRadius(double latitude, double longitude,
+                                                                double radiusMeters, Instant start, Instant end) {
+        List<Object> params = new ArrayList<>();
+        params.add(longitude);
+        params.add(latitude);
+        params.addAll(radiusParams(latitude, longitude, radiusMeters, start, end));
+        String sql = MATCH_COLUMNS + ", MIN(ST_Distance(geom::geography, " + CENTER + "::geography)) AS closest_m " +
+            "FROM location_track WHERE " + RADIUS_FILTER +
+            "GROUP BY surveyor_id ORDER BY closest_m";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> mapMatch(rs, rs.getDouble("closest_m")), params.toArray());
+    }
+
+    /**
+     * Surveyors with at least one point inside the box during the window.
+     */
+    public List<SurveyorSpatialMatch> findSurveyorsWithinBbox(double minLatitude, double minLongitude,
+                                                              double maxLatitude, double maxLongitude,
+                                                              Instant start, Instant end) {
+        List<Object> params = bboxParams(minLatitude, minLongitude, maxLatitude, maxLongitude, start, end);
+        String sql = MATCH_COLUMNS + " FROM location_track WHERE " + BBOX_FILTER +
+            "GROUP BY surveyor_id ORDER BY surveyor_id";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> mapMatch(rs, null), params.toArray());
+    }
+
+    /**
+     * Nearest non-admin surveyors by latest position (KNN over the geography index).
+     * Null filters are ignored; since drops surveyors whose latest fix is older.
+     */
+    public List<NearbySurveyor> findNearestSurveyors(double latitude, double longitude, int limit,
+                                                     String city, String project, Instant since) {
+        StringBuilder sql = new StringBuilder(NEAREST_SQL);
+        List<Object> params = new ArrayList<>();
+        params.add(longitude);
+        params.add(latitude);
+        if (city != null) {
+            sql.append("AND s.city = ? ");
+            params.add(city);
+        }
+        if (project != null) {
+            sql.append("AND s.project_name = ? ");
+            params.add(project);
+        }
+        if (since != null) {
+            sql.append("AND l.timestamp >= ? ");
+            params.add(Timestamp.from(since));
+        }
+        sql.append("ORDER BY l.geog <-> ").append(CENTER).append("::geography LIMIT ?");
+        params.add(longitude);
+        params.add(latitude);
+        params.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new NearbySurveyor(
+            rs.getString("surveyor_id"),
+            rs.getString("name"),
+            rs.getString("city"),
+            rs.getString("project_name"),
+            rs.getDouble("latitude"),
+            rs.getDouble("longitude"),
+            rs.getTimestamp("timestamp").toInstant(),
+            rs.getDouble("distance_m")
+        ), params.toArray());
+    }
+
+    private List<LocationTrack> queryPoints(String filter, List<Object> params, String surveyorId, int limit) {
+        StringBuilder sql = new StringBuilder(POINT_COLUMNS).append(filter);
+        if (surveyorId != null) {
+            sql.append("AND surveyor_id = ? ");
+            params.add(surveyorId);
+        }
+        sql.append("ORDER BY timestamp ASC, id ASC LIMIT ?");
+        params.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            LocationTrack track = new LocationTrack(rs.getString("surveyor_id"), rs.getDouble("latitude"),
+                rs.getDouble("longitude"), rs.getTimestamp("timestamp").toInstant(), null);
+            track.setId(rs.getLong("id"));
+            return track;
+        }, params.toArray());
+    }
+
+    private static List<Object> radiusParams(double latitude, double longitude, double radiusMeters,
+                                             Instant start, Instant end) {
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.from(start));
+        params.add(Timestamp.from(end));
+        params.add(longitude);
+        params.add(latitude);
+        params.add(GeoUtils.boundingDegrees(latitude, radiusMeters));
+        params.add(longitude);
+        params.add(latitude);
+        params.add(radiusMeters);
+        return params;
+    }
+
+    private static List<Object> bboxParams(double minLatitude, double minLongitude, double maxLatitude,
+                                           double maxLongitude, Instant start, Instant end) {
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.from(start));
+        params.add(Timestamp.from(end));
+        params.add(minLongitude);
+        params.add(minLatitude);
+        params.add(maxLongitude);
+        params.add(maxLatitude);
+        return params;
+    }
+
+    private static SurveyorSpatialMatch mapMatch(ResultSet rs, Double closestMeters) throws SQLException {
+        return new SurveyorSpatialMatch(
+            rs.getString("surveyor_id"),
+            rs.getLong("point_count"),
+            rs.getTimestamp("first_seen").toInstant(),
+            rs.getTimestamp("last_seen").toInstant(),
+            closestMeters
+        );
+    }
+}
@@ -0,0 +1,30 @@
+package com.neogeo.tracking.repository;
+
+import com.neogeo.tracking.model.LocationTrack;
+
+/**
+ * SQL snippets shared by the JdbcTemplate repositories.
+ */
+final class SqlFragments {
+
+    private SqlFragments() {
+    }
+
+    /**
+     * Haversine distance in kilometers between two coordinate expressions, matching GeoUtils.distanceKm.
+     */
+    static String haversineKm(String lat1, String lon1, String lat2, String lon2) {
+        return "(2 * 6371 * ASIN(LEAST(1, SQRT(" +
+            "POWER(SIN(RADIANS(" + lat2 + " - " + lat1 + ") / 2), 2) + " +
+            "COS(RADIANS(" + lat1 + ")) * COS(RADIANS(" + lat2 + ")) * " +
+            "POWER(SIN(RADIANS(" + lon2 + " - " + lon1 + ") / 2), 2)))))";
+    }
+
+    /**
+     * Condition leaving out location_track rows the ingest filter rejected; qualifier is a
+     * table alias with its dot, or empty.
+     */
+    static String notRejected(String qualifier) {
+        return qualifier + "quality_flag <> " + LocationTrack.QUALITY_REJECTED;
+    }
+}
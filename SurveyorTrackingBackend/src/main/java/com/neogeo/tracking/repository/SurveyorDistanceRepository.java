@@ -0,0 +1,260 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.model.LocationTrack;
+
+/**
+ * surveyor_distance holds each surveyor's all-time distance together with the newest
+ * point it accounts for. Rows are locked with SELECT ... FOR UPDATE while a point is
+ * applied, so concurrent fixes for one surveyor are accounted one at a time.
+ */
+@Repository
+public class SurveyorDistanceRepository {
+
+    // Haversine over consecutive points of one surveyor, in kilometers
+    private static final String HISTORY_DISTANCE_SQL =
+        "SELECT COALESCE(SUM(" + SqlFragments.haversineKm("prev_lat", "prev_lon", "latitude", "longitude") + "), 0) " +
+        "FROM (SELECT latitude, longitude, " +
+        "LAG(latitude) OVER w AS prev_lat, LAG(longitude) OVER w AS prev_lon " +
+        "FROM location_track WHERE surveyor_id = ? AND " + SqlFragments.notRejected("") + " " +
+        "WINDOW w AS (ORDER BY timestamp, id)) steps";
+
+    // Surveyors with points before a cutoff whose distance is not retired through it yet
+    private static final String TO_RETIRE_SQL =
+        "SELECT h.surveyor_id FROM (" +
+        "SELECT DISTINCT surveyor_id FROM location_track WHERE timestamp < ? " +
+        "UNION SELECT surveyor_id FROM location_track_archive WHERE first_time < ?) h " +
+        "LEFT JOIN surveyor_distance d ON d.surveyor_id = h.surveyor_id " +
+        "WHERE d.retired_before IS NULL OR d.retired_before < ?";
+
+    // Builds a row from history; inserts nothing for a surveyor without points
+    private static final String SEED_SQL =
+        "INSERT INTO surveyor_distance (surveyor_id, total_km, last_location_track_id, " +
+        "last_latitude, last_longitude, last_timestamp, updated_at) " +
+        "SELECT ?, (" + HISTORY_DISTANCE_SQL + "), l.id, l.latitude, l.longitude, l.timestamp, now() " +
+        "FROM (SELECT id, latitude, longitude, timestamp FROM location_track WHERE surveyor_id = ? " +
+        "AND " + SqlFragments.notRejected("") + " ORDER BY timestamp DESC, id DESC LIMIT 1) l " +
+        "ON CONFLICT (surveyor_id) DO NOTHING";
+
+    private static final String SELECT_COLUMNS =
+        "SELECT surveyor_id, total_km, last_location_track_id, last_latitude, last_longitude, last_timestamp " +
+        "FROM surveyor_distance";
+
+    private static final String NEIGHBOUR_COLUMNS =
+        "SELECT id, latitude, longitude, timestamp FROM location_track WHERE surveyor_id = ? " +
+        "AND " + SqlFragments.notRejected("") + " ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SurveyorDistanceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Stored state of one surveyor. lastTimestamp is null until the first point is accounted.
+     */
+    public static class DistanceState {
+        private final String surveyorId;
+        private final double totalKm;
+        private final double lastLatitude;
+        private final double lastLongitude;
+        private final Long lastId;
+        private final Instant lastTimestamp;
+
+        DistanceState(String surveyorId, double totalKm, Long lastId,
+                      double lastLatitude, double lastLongitude, Instant lastTimestamp) {
+            this.surveyorId = surveyorId;
+            this.totalKm = totalKm;
+            this.lastId = lastId;
+            this.lastLatitude = lastLatitude;
+            this.lastLongitude = lastLongitude;
+            this.lastTimestamp = lastTimestamp;
+        }
+
+        public String getSurveyorId() { return surveyorId; }
+        public double getTotalKm() { return totalKm; }
+        public Long getLastId() { return lastId; }
+        public double getLastLatitude() { return lastLatitude; }
+        public double getLastLongitude() { return lastLongitude; }
+        public Instant getLastTimestamp() { return lastTimestamp; }
+    }
+
+    /**
+     * History removed by retention: the distance between its points and the last of them.
+     */
+    public static class RetiredHistory {
+        private final double km;
+        private final Instant before;
+        private final Double lastLatitude;
+        private final Double lastLongitude;
+
+        RetiredHistory(double km, Instant before, Double lastLatitude, Double lastLongitude) {
+            this.km = km;
+            this.before = before;
+            this.lastLatitude = lastLatitude;
+            this.lastLongitude = lastLongitude;
+        }
+
+        public double getKm() { return km; }
+        public Instant getBefore() { return before; }
+        public Double getLastLatitude() { return lastLatitude; }
+        public Double getLastLongitude() { return lastLongitude; }
+    }
+
+    public Optional<DistanceState> findBySurveyorId(String surveyorId) {
+        return queryOne(SELECT_COLUMNS + " WHERE surveyor_id = ?", surveyorId);
+    }
+
+    /**
+     * Locks the surveyor's row for the rest of the current transaction.
+     */
+    public Optional<DistanceState> lockBySurveyorId(String surveyorId) {
+        return queryOne(SELECT_COLUMNS + " WHERE surveyor_id = ? FOR UPDATE", surveyorId);
+    }
+
+    public List<DistanceState> findAll() {
+        return jdbcTemplate.query(SELECT_COLUMNS, (rs, rowNum) -> mapRow(rs));
+    }
+
+    /**
+     * Creates the row from the surveyor's location_track history if it is missing.
+     * @return true if a row was inserted
+     */
+    public boolean seedFromHistory(String surveyorId) {
+        return jdbcTemplate.update(SEED_SQL, surveyorId, surveyorId, surveyorId) > 0;
+    }
+
+    /**
+     * Creates the row with a total computed elsewhere (history spanning archived days) if it
+     * is missing.
+     * @return true if a row was inserted
+     */
+    public boolean insertSeed(String surveyorId, double totalKm, LocationTrack last) {
+        return jdbcTemplate.update("INSERT INTO surveyor_distance (surveyor_id, total_km, last_location_track_id, " +
+            "last_latitude, last_longitude, last_timestamp, updated_at) VALUES (?, ?, ?, ?, ?, ?, now()) " +
+            "ON CONFLICT (surveyor_id) DO NOTHING",
+            surveyorId, totalKm, last.getId(), last.getLatitude(), last.getLongitude(),
+            Timestamp.from(last.getTimestamp())) > 0;
+    }
+
+    /**
+     * Creates an empty row if it is missing, for a surveyor's first point.
+     */
+    public void insertEmpty(String surveyorId) {
+        jdbcTemplate.update("INSERT INTO surveyor_distance (surveyor_id, total_km, updated_at) " +
+            "VALUES (?, 0, now()) ON CONFLICT (surveyor_id) DO NOTHING", surveyorId);
+    }
+
+    /**
+     * Distance over the surveyor's full history, computed in the database.
+     */
+    public double computeFromHistory(String surveyorId) {
+        Double total = jdbcTemplate.queryForObject(HISTORY_DISTANCE_SQL, Double.class, surveyorId);
+        return total != null ? total : 0.0;
+    }
+
+    /**
+     * Retired history of a surveyor, if retention has removed any.
+     */
+    public Optional<RetiredHistory> findRetired(String surveyorId) {
+        List<RetiredHistory> rows = jdbcTemplate.query(
+            "SELECT retired_km, retired_before, retired_latitude, retired_longitude FROM surveyor_distance " +
+            "WHERE surveyor_id = ? AND retired_before IS NOT NULL",
+            (rs, rowNum) -> new RetiredHistory(rs.getDouble(1), rs.getTimestamp(2).toInstant(),
+                rs.getObject(3, Double.class), rs.getObject(4, Double.class)),
+            surveyorId);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    /**
+     * Records the retired history through before; totalKm covers all of it.
+     */
+    public void retire(String surveyorId, double totalKm, Instant before, Double lastLatitude, Double lastLongitude) {
+        jdbcTemplate.update("UPDATE surveyor_distance SET retired_km = ?, retired_before = ?, " +
+            "retired_latitude = ?, retired_longitude = ?, updated_at = now() WHERE surveyor_id = ?",
+            totalKm, Timestamp.from(before), lastLatitude, lastLongitude, surveyorId);
+    }
+
+    /**
+     * Surveyors with points before cutoff (in location_track or archived) that are not
+     * retired through cutoff yet.
+     */
+    public List<String> findSurveyorsToRetire(Instant cutoff) {
+        Timestamp before = Timestamp.from(cutoff);
+        return jdbcTemplate.queryForList(TO_RETIRE_SQL, String.class, before, before, before);
+    }
+
+    public void addDistance(String surveyorId, double deltaKm) {
+        jdbcTemplate.update("UPDATE surveyor_distance SET total_km = total_km + ?, updated_at = now() " +
+            "WHERE surveyor_id = ?", deltaKm, surveyorId);
+    }
+
+    public void advance(String surveyorId, double deltaKm, LocationTrack last) {
+        jdbcTemplate.update("UPDATE surveyor_distance SET total_km = total_km + ?, " +
+            "last_location_track_id = ?, last_latitude = ?, last_longitude = ?, last_timestamp = ?, " +
+            "updated_at = now() WHERE surveyor_id = ?",
+            deltaKm, last.getId(), last.getLatitude(), last.getLongitude(),
+            Timestamp.from(last.getTimestamp()), surveyorId);
+    }
+
+    public void setTotal(String surveyorId, double totalKm) {
+        jdbcTemplate.update("UPDATE surveyor_distance SET total_km = ?, updated_at = now() WHERE surveyor_id = ?",
+            totalKm, surveyorId);
+    }
+
+    /**
+     * Nearest point strictly before (timestamp, id) in the surveyor's history.
+     */
+    public Optional<LocationTrack> findPrevious(String surveyorId, Instant timestamp, long id) {
+        return queryNeighbour(NEIGHBOUR_COLUMNS + "AND (timestamp, id) < (?, ?) " +
+            "ORDER BY timestamp DESC, id DESC LIMIT 1", surveyorId, timestamp, id);
+    }
+
+    /**
+     * Nearest point strictly after (timestamp, id) in the surveyor's history.
+     */
+    public Optional<LocationTrack> findNext(String surveyorId, Instant timestamp, long id) {
+        return queryNeighbour(NEIGHBOUR_COLUMNS + "AND (timestamp, id) > (?, ?) " +
+            "ORDER BY timestamp ASC, id ASC LIMIT 1", surveyorId, timestamp, id);
+    }
+
+    public void deleteBySurveyorId(String surveyorId) {
+        jdbcTemplate.update("DELETE FROM surveyor_distance WHERE surveyor_id = ?", surveyorId);
+    }
+
+    private Optional<DistanceState> queryOne(String sql, String surveyorId) {
+        List<DistanceState> rows = jdbcTemplate.query(sql, (rs, rowNum) -> mapRow(rs), surveyorId);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    private Optional<LocationTrack> queryNeighbour(String sql, String surveyorId, Instant timestamp, long id) {
+        List<LocationTrack> rows = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            LocationTrack track = new LocationTrack(surveyorId, rs.getDouble("latitude"), rs.getDouble("longitude"),
+                rs.getTimestamp("timestamp").toInstant(), null);
+            track.setId(rs.getLong("id"));
+            return track;
+        }, surveyorId, Timestamp.from(timestamp), id);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    private static DistanceState mapRow(ResultSet rs) throws SQLException {
+        Timestamp lastTimestamp = rs.getTimestamp("last_timestamp");
+        return new DistanceState(
+            rs.getString("surveyor_id"),
+            rs.getDouble("total_km"),
+            rs.getObject("last_location_track_id", Long.class),
+            rs.getDouble("last_latitude"),
+            rs.getDouble("last_longitude"),
+            lastTimestamp != null ? lastTimestamp.toInstant() : null
+        );
+    }
+}
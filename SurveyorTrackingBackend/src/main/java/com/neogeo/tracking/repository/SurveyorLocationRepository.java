@@ -0,0 +1,70 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.dto.SurveyorLocationSummary;
+
+/**
+ * Set-based "surveyor + latest fix" reads. One round trip replaces the
+ * per-surveyor findTopBySurveyorIdOrderByTimestampDesc loop, joining the
+ * one-row-per-surveyor surveyor_latest_location table.
+ */
+@Repository
+public class SurveyorLocationRepository {
+
+    private static final String WITH_LATEST_LOCATION_SQL =
+        "SELECT s.id, s.name, s.city, s.project_name, l.latitude, l.longitude, l.timestamp " +
+        "FROM surveyor s " +
+        "LEFT JOIN surveyor_latest_location l ON l.surveyor_id = s.id " +
+        "WHERE LOWER(s.id) NOT LIKE '%admin%' " +
+        "AND (s.username IS NULL OR LOWER(s.username) NOT LIKE '%admin%') ";
+
+    private static final String ORDER_BY = "ORDER BY s.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SurveyorLocationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // All non-admin surveyors with their latest location (nulls if none)
+    public List<SurveyorLocationSummary> findAllWithLatestLocation() {
+        return jdbcTemplate.query(WITH_LATEST_LOCATION_SQL + ORDER_BY, SurveyorLocationRepository::mapRow);
+    }
+
+    // Non-admin surveyors matching exact city/project (null means no filter) with their latest location
+    public List<SurveyorLocationSummary> findWithLatestLocation(String city, String project) {
+        StringBuilder sql = new StringBuilder(WITH_LATEST_LOCATION_SQL);
+        List<Object> params = new ArrayList<>();
+        if (city != null) {
+            sql.append("AND s.city = ? ");
+            params.add(city);
+        }
+        if (project != null) {
+            sql.append("AND s.project_name = ? ");
+            params.add(project);
+        }
+        sql.append(ORDER_BY);
+        return jdbcTemplate.query(sql.toString(), SurveyorLocationRepository::mapRow, params.toArray());
+    }
+
+    private static SurveyorLocationSummary mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp("timestamp");
+        return new SurveyorLocationSummary(
+            rs.getString("id"),
+            rs.getString("name"),
+            rs.getString("city"),
+            rs.getString("project_name"),
+            rs.getObject("latitude", Double.class),
+            rs.getObject("longitude", Double.class),
+            timestamp != null ? timestamp.toInstant() : null
+        );
+    }
+}
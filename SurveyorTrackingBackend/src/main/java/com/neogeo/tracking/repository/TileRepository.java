@@ -0,0 +1,123 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Builds Mapbox Vector Tiles from location_track with ST_AsMVT. Points are selected with
+ * the GiST index on geom (tile envelope transformed to 4326) plus the time window, then
+ * projected to Web Mercator and clipped/quantized to the tile by ST_AsMVTGeom.
+ * Layers:
+ * - coverage: points snapped to a 64x64 grid per tile with a point_count (low zooms)
+ * - tracks: one simplified line per surveyor and continuous segment (from trackMinZoom)
+ * - points: individual fixes (from pointMinZoom)
+ */
+@Repository
+public class TileRepository {
+
+    // Web Mercator world width in meters
+    private static final double WORLD_METERS = 40075016.68557849;
+    private static final int EXTENT = 4096;
+    private static final int COVERAGE_CELLS_PER_TILE = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TileRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Point counts per grid cell.
+     */
+    public byte[] coverageTile(int z, int x, int y, Instant start, Instant end, String project, String surveyorId) {
+        double cellMeters = tileMeters(z) / COVERAGE_CELLS_PER_TILE;
+        List<Object> params = new ArrayList<>();
+        String sql = "WITH " + pointsCte(z, x, y, 0, start, end, project, surveyorId, params) + ", " +
+            "cells AS (SELECT ST_SnapToGrid(g, " + number(cellMeters) + ") AS g, COUNT(*) AS point_count " +
+            "FROM pts GROUP BY 1) " +
+            "SELECT ST_AsMVT(tile, 'coverage', " + EXTENT + ", 'geom') FROM (" +
+            "SELECT point_count, ST_AsMVTGeom(g, " + envelope(z, x, y) + ", " + EXTENT + ", 0, true) AS geom " +
+            "FROM cells) tile WHERE geom IS NOT NULL";
+        return query(sql, params);
+    }
+
+    /**
+     * Track lines, split wherever consecutive fixes in the tile are more than maxGapSeconds
+     * apart (the surveyor left the tile or stopped reporting), simplified to one pixel.
+     * With points set, the points layer is appended to the same tile.
+     */
+    public byte[] trackTile(int z, int x, int y, Instant start, Instant end, String project, String surveyorId,
+                            long maxGapSeconds, boolean points) {
+        double tileMeters = tileMeters(z);
+        List<Object> params = new ArrayList<>();
+        // A quarter tile of margin keeps lines continuous across tile edges
+        String sql = "WITH " + pointsCte(z, x, y, tileMeters / 4, start, end, project, surveyorId, params) + ", " +
+            "steps AS (SELECT surveyor_id, id, timestamp, g, " +
+            "CASE WHEN EXTRACT(EPOCH FROM timestamp - LAG(timestamp) OVER w) > " + maxGapSeconds + " THEN 1 ELSE 0 END AS brk " +
+            "FROM pts WINDOW w AS (PARTITION BY surveyor_id ORDER BY timestamp, id)), " +
+            "segments AS (SELECT surveyor_id, id, timestamp, g, " +
+            "SUM(brk) OVER (PARTITION BY surveyor_id ORDER BY timestamp, id) AS segment FROM steps), " +
+            "lines AS (SELECT surveyor_id, MIN(timestamp) AS start_time, MAX(timestamp) AS end_time, " +
+            "COUNT(*) AS point_count, ST_Simplify(ST_MakeLine(g ORDER BY timestamp, id), " + number(tileMeters / EXTENT) + ") AS g " +
+            "FROM segments GROUP BY surveyor_id, segment HAVING COUNT(*) > 1) " +
+            "SELECT COALESCE((SELECT ST_AsMVT(tile, 'tracks', " + EXTENT + ", 'geom') FROM (" +
+            "SELECT surveyor_id, EXTRACT(EPOCH FROM start_time)::bigint AS start_time, " +
+            "EXTRACT(EPOCH FROM end_time)::bigint AS end_time, point_count, " +
+            "ST_AsMVTGeom(g, " + envelope(z, x, y) + ", " + EXTENT + ", 64, true) AS geom " +
+            "FROM lines) tile WHERE geom IS NOT NULL), ''::bytea)";
+        if (points) {
+            sql += " || COALESCE((SELECT ST_AsMVT(tile, 'points', " + EXTENT + ", 'geom') FROM (" +
+                "SELECT surveyor_id, EXTRACT(EPOCH FROM timestamp)::bigint AS timestamp, " +
+                "ST_AsMVTGeom(g, " + envelope(z, x, y) + ", " + EXTENT + ", 0, true) AS geom " +
+                "FROM pts) tile WHERE geom IS NOT NULL), ''::bytea)";
+        }
+        return query(sql, params);
+    }
+
+    public static double tileMeters(int z) {
+        return WORLD_METERS / (1L << z);
+    }
+
+    /**
+     * Points of the window inside the tile expanded by bufferMeters, in Web Mercator.
+     * Tile coordinates and numbers are validated integers/doubles and inlined; user values are bound.
+     */
+    private static String pointsCte(int z, int x, int y, double bufferMeters, Instant start, Instant end,
+                                    String project, String surveyorId, List<Object> params) {
+        StringBuilder sql = new StringBuilder("pts AS (SELECT lt.surveyor_id, lt.id, lt.timestamp, " +
+            "ST_Transform(lt.geom, 3857) AS g FROM location_track lt ");
+        if (project != null) {
+            sql.append("JOIN surveyor s ON s.id = lt.surveyor_id AND s.project_name = ? ");
+            params.add(project);
+        }
+        sql.append("WHERE lt.timestamp BETWEEN ? AND ? AND ").append(SqlFragments.notRejected("lt.")).append(" ");
+        params.add(Timestamp.from(start));
+        params.add(Timestamp.from(end));
+        sql.append("AND lt.geom && ST_Transform(ST_Expand(").append(envelope(z, x, y)).append(", ")
+            .append(number(bufferMeters)).append("), 4326) ");
+        if (surveyorId != null) {
+            sql.append("AND lt.surveyor_id = ? ");
+            params.add(surveyorId);
+        }
+        return sql.append(")").toString();
+    }
+
+    private byte[] query(String sql, List<Object> params) {
+        byte[] tile = jdbcTemplate.queryForObject(sql, byte[].class, params.toArray());
+        return tile != null ? tile : new byte[0];
+    }
+
+    private static String envelope(int z, int x, int y) {
+        return String.format(Locale.ROOT, "ST_TileEnvelope(%d, %d, %d)", z, x, y);
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
@@ -0,0 +1,65 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.dto.TrackSummary;
+
+/**
+ * Range aggregates computed in PostgreSQL over the (surveyor_id, timestamp) index.
+ * Consecutive points are paired with LAG and measured with the same haversine as
+ * the Java side, so totals agree with surveyor_distance and the daily rollup.
+ */
+@Repository
+public class TrackAnalyticsRepository {
+
+    private static final String SUMMARY_SQL =
+        "SELECT COUNT(*) AS point_count, MIN(timestamp) AS first_fix, MAX(timestamp) AS last_fix, " +
+        "MIN(latitude) AS min_lat, MIN(longitude) AS min_lon, MAX(latitude) AS max_lat, MAX(longitude) AS max_lon, " +
+        "COALESCE(SUM(" + SqlFragments.haversineKm("prev_lat", "prev_lon", "latitude", "longitude") + "), 0) AS distance_km, " +
+        "COALESCE(SUM(gap_seconds) FILTER (WHERE gap_seconds <= ?), 0) AS active_seconds " +
+        "FROM (SELECT latitude, longitude, timestamp, " +
+        "LAG(latitude) OVER w AS prev_lat, LAG(longitude) OVER w AS prev_lon, " +
+        "EXTRACT(EPOCH FROM timestamp - LAG(timestamp) OVER w) AS gap_seconds " +
+        "FROM location_track WHERE surveyor_id = ? AND timestamp BETWEEN ? AND ? " +
+        "AND " + SqlFragments.notRejected("") + " " +
+        "WINDOW w AS (ORDER BY timestamp, id)) steps";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TrackAnalyticsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param maxActiveGapSeconds Gaps between fixes up to this long count as active time
+     * @return One summary row; counts are zero and bounds null for an empty window
+     */
+    public TrackSummary summarize(String surveyorId, Instant start, Instant end, long maxActiveGapSeconds) {
+        return jdbcTemplate.queryForObject(SUMMARY_SQL, (rs, rowNum) -> {
+            TrackSummary summary = new TrackSummary();
+            summary.setSurveyorId(surveyorId);
+            summary.setStart(start);
+            summary.setEnd(end);
+            summary.setPointCount(rs.getLong("point_count"));
+            summary.setDistanceKm(rs.getDouble("distance_km"));
+            summary.setActiveSeconds(Math.round(rs.getDouble("active_seconds")));
+
+            Timestamp firstFix = rs.getTimestamp("first_fix");
+            Timestamp lastFix = rs.getTimestamp("last_fix");
+            if (firstFix != null && lastFix != null) {
+                summary.setFirstFix(firstFix.toInstant());
+                summary.setLastFix(lastFix.toInstant());
+                summary.setDurationSeconds((lastFix.getTime() - firstFix.getTime()) / 1000);
+                summary.setMinLatitude(rs.getDouble("min_lat"));
+                summary.setMinLongitude(rs.getDouble("min_lon"));
+                summary.setMaxLatitude(rs.getDouble("max_lat"));
+                summary.setMaxLongitude(rs.getDouble("max_lon"));
+            }
+            return summary;
+        }, maxActiveGapSeconds, surveyorId, Timestamp.from(start), Timestamp.from(end));
+    }
+}
@@ -0,0 +1,220 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.neogeo.tracking.track.TrackBlock;
+
+/**
+ * location_track_archive blocks, plus the location_track reads and deletes that move a
+ * surveyor-day into the archive.
+ */
+@Repository
+public class TrackArchiveRepository {
+
+    private static final String BLOCK_COLUMNS =
+        "SELECT day, point_count, first_time, last_time, block FROM location_track_archive ";
+
+    private static final RowMapper<ArchivedBlock> BLOCK_MAPPER = (rs, rowNum) ->
+        new ArchivedBlock(rs.getObject(1, LocalDate.class), rs.getInt(2),
+            rs.getTimestamp(3).toInstant(), rs.getTimestamp(4).toInstant(), rs.getBytes(5));
+
+    /**
+     * A surveyor and UTC day with rows old enough to archive.
+     */
+    public static class SurveyorDay {
+        private final String surveyorId;
+        private final LocalDate day;
+
+        public SurveyorDay(String surveyorId, LocalDate day) {
+            this.surveyorId = surveyorId;
+            this.day = day;
+        }
+
+        public String getSurveyorId() {
+            return surveyorId;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+    }
+
+    /**
+     * One stored block, still encoded.
+     */
+    public static class ArchivedBlock {
+        private final LocalDate day;
+        private final int pointCount;
+        private final Instant firstTime;
+        private final Instant lastTime;
+        private final byte[] data;
+
+        public ArchivedBlock(LocalDate day, int pointCount, Instant firstTime, Instant lastTime, byte[] data) {
+            this.day = day;
+            this.pointCount = pointCount;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+            this.data = data;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public int getPointCount() {
+            return pointCount;
+        }
+
+        public Instant getFirstTime() {
+            return firstTime;
+        }
+
+        public Instant getLastTime() {
+            return lastTime;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TrackArchiveRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Surveyor-days with location_track rows before cutoff, oldest first.
+     */
+    public List<SurveyorDay> findArchivableDays(Instant cutoff, int limit) {
+        return jdbcTemplate.query(
+            "SELECT surveyor_id, (timestamp AT TIME ZONE 'UTC')::date AS day FROM location_track " +
+            "WHERE timestamp < ? GROUP BY 1, 2 ORDER BY 2, 1 LIMIT ?",
+            (rs, rowNum) -> new SurveyorDay(rs.getString(1), rs.getObject(2, LocalDate.class)),
+            Timestamp.from(cutoff), limit);
+    }
+
+    /**
+     * Every location_track row of a surveyor in [from, to), rejected ones included.
+     */
+    public TrackBlock loadRows(String surveyorId, Instant from, Instant to) {
+        TrackBlock block = new TrackBlock();
+        jdbcTemplate.query(
+            "SELECT id, timestamp, latitude, longitude, quality_flag, raw_latitude, raw_longitude " +
+            "FROM location_track WHERE surveyor_id = ? AND timestamp >= ? AND timestamp < ? " +
+            "ORDER BY timestamp ASC, id ASC",
+            rs -> {
+                double rawLatitude = rs.getDouble(6);
+                boolean hasRaw = !rs.wasNull();
+                double rawLongitude = rs.getDouble(7);
+                block.add(rs.getLong(1), rs.getTimestamp(2).getTime(), rs.getDouble(3), rs.getDouble(4),
+                    rs.getShort(5), hasRaw ? rawLatitude : Double.NaN, hasRaw ? rawLongitude : Double.NaN);
+            },
+            surveyorId, Timestamp.from(from), Timestamp.from(to));
+        return block;
+    }
+
+    /**
+     * Deletes archived rows by id; the time bounds only let PostgreSQL prune partitions.
+     */
+    public int deleteRows(String surveyorId, Instant from, Instant to, long[] ids) {
+        return jdbcTemplate.update(connection -> {
+            Long[] boxed = new Long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                boxed[i] = ids[i];
+            }
+            Array idArray = connection.createArrayOf("bigint", boxed);
+            PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM location_track WHERE surveyor_id = ? AND timestamp >= ? AND timestamp < ? " +
+                "AND id = ANY(?)");
+            statement.setString(1, surveyorId);
+            statement.setTimestamp(2, Timestamp.from(from));
+            statement.setTimestamp(3, Timestamp.from(to));
+            statement.setArray(4, idArray);
+            return statement;
+        });
+    }
+
+    /**
+     * The stored block of a surveyor-day, locked until the transaction ends, or null.
+     */
+    public byte[] lockBlock(String surveyorId, LocalDate day) {
+        List<byte[]> blocks = jdbcTemplate.query(
+            "SELECT block FROM location_track_archive WHERE surveyor_id = ? AND day = ? FOR UPDATE",
+            (rs, rowNum) -> rs.getBytes(1), surveyorId, Date.valueOf(day));
+        return blocks.isEmpty() ? null : blocks.get(0);
+    }
+
+    public void upsertBlock(String surveyorId, LocalDate day, TrackBlock block, byte[] data) {
+        jdbcTemplate.update(
+            "INSERT INTO location_track_archive (surveyor_id, day, point_count, first_time, last_time, block) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (surveyor_id, day) DO UPDATE SET point_count = EXCLUDED.point_count, " +
+            "first_time = EXCLUDED.first_time, last_time = EXCLUDED.last_time, block = EXCLUDED.block, " +
+            "archived_at = now()",
+            surveyorId, Date.valueOf(day), block.size(),
+            new Timestamp(block.time(0)), new Timestamp(block.time(block.size() - 1)), data);
+    }
+
+    /**
+     * Blocks with points in [start, end], by day.
+     */
+    public List<ArchivedBlock> findBlocks(String surveyorId, Instant start, Instant end) {
+        return jdbcTemplate.query(
+            BLOCK_COLUMNS + "WHERE surveyor_id = ? AND last_time >= ? AND first_time <= ? ORDER BY day",
+            BLOCK_MAPPER, surveyorId, Timestamp.from(start), Timestamp.from(end));
+    }
+
+    /**
+     * Up to limit blocks of days before beforeDay that start at or before timestamp, newest first.
+     */
+    public List<ArchivedBlock> findBlocksBefore(String surveyorId, Instant timestamp, LocalDate beforeDay, int limit) {
+        return jdbcTemplate.query(
+            BLOCK_COLUMNS + "WHERE surveyor_id = ? AND day < ? AND first_time <= ? ORDER BY day DESC LIMIT ?",
+            BLOCK_MAPPER, surveyorId, Date.valueOf(beforeDay), Timestamp.from(timestamp), limit);
+    }
+
+    /**
+     * Up to limit blocks of days after afterDay that end at or after timestamp, oldest first.
+     */
+    public List<ArchivedBlock> findBlocksAfter(String surveyorId, Instant timestamp, LocalDate afterDay, int limit) {
+        return jdbcTemplate.query(
+            BLOCK_COLUMNS + "WHERE surveyor_id = ? AND day > ? AND last_time >= ? ORDER BY day ASC LIMIT ?",
+            BLOCK_MAPPER, surveyorId, Date.valueOf(afterDay), Timestamp.from(timestamp), limit);
+    }
+
+    public boolean hasBlocks(String surveyorId, Instant start, Instant end) {
+        Boolean exists = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM location_track_archive " +
+            "WHERE surveyor_id = ? AND last_time >= ? AND first_time <= ?)",
+            Boolean.class, surveyorId, Timestamp.from(start), Timestamp.from(end));
+        return Boolean.TRUE.equals(exists);
+    }
+
+    public Map<String, Object> summarize() {
+        return jdbcTemplate.queryForMap(
+            "SELECT COUNT(*) AS blocks, COALESCE(SUM(point_count), 0) AS points, " +
+            "COALESCE(SUM(octet_length(block)), 0) AS bytes, MIN(day) AS first_day, MAX(day) AS last_day " +
+            "FROM location_track_archive");
+    }
+
+    public int deleteBefore(LocalDate day) {
+        return jdbcTemplate.update("DELETE FROM location_track_archive WHERE day < ?", Date.valueOf(day));
+    }
+
+    public void deleteBySurveyorId(String surveyorId) {
+        jdbcTemplate.update("DELETE FROM location_track_archive WHERE surveyor_id = ?", surveyorId);
+    }
+}
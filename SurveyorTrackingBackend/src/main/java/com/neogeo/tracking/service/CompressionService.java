@@ -0,0 +1,370 @@
+package com.neogeo.tracking.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.dto.CompressionSettings;
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.repository.CompressionSettingsRepository;
+import com.neogeo.tracking.store.TrackStore;
+import com.neogeo.tracking.track.CompressionMode;
+import com.neogeo.tracking.track.CompressionReplay;
+import com.neogeo.tracking.track.TrackBuffer;
+import com.neogeo.tracking.track.TrackCompressor;
+import com.neogeo.tracking.track.TrackPointHandler;
+
+/**
+ * Decides which incoming fixes are stored, per project: every fix (NONE), the original
+ * one-minute/10-meter rule (LEGACY, applied by the ingest path against the stored latest
+ * fix) or DEAD_RECKONING, which keeps one compressor per surveyor in memory.
+ *
+ * A compressor may hold a surveyor's latest fix back; it is stored when the next fix
+ * shows where the run or dwell ended, on a final location update, or once the surveyor
+ * has been quiet for idle-flush-seconds. The WAL record of a held fix stays held in the
+ * write-ahead log until the fix is stored, so a restart replays it.
+ */
+@Service
+public class CompressionService {
+
+    private static final Duration MAX_REPLAY_WINDOW = Duration.ofDays(7);
+    private static final int MAX_REPLAY_TOLERANCES = 10;
+
+    private final CompressionSettingsRepository settingsRepository;
+    private final LiveLocationIndexService liveLocationIndexService;
+    private final TrackStore trackStore;
+    private final WriteAheadLogService writeAheadLogService;
+    private final CompressionSettings defaults;
+    private final Duration idleFlush;
+    private volatile Map<String, CompressionSettings> projectSettings = Map.of();
+    private final Map<String, SurveyorCompressor> compressors = new ConcurrentHashMap<>();
+    // Released held fixes -> their WAL records, until the caller reports them stored
+    private final Map<LocationTrack, Long> releasing = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public CompressionService(CompressionSettingsRepository settingsRepository,
+                              LiveLocationIndexService liveLocationIndexService,
+                              TrackStore trackStore,
+                              WriteAheadLogService writeAheadLogService,
+                              @Value("${tracking.compression.default-mode:LEGACY}") CompressionMode defaultMode,
+                              @Value("${tracking.compression.default-tolerance-meters:10}") double defaultTolerance,
+                              @Value("${tracking.compression.idle-flush-seconds:300}") long idleFlushSeconds) {
+        this.settingsRepository = settingsRepository;
+        this.liveLocationIndexService = liveLocationIndexService;
+        this.trackStore = trackStore;
+        this.writeAheadLogService = writeAheadLogService;
+        this.defaults = new CompressionSettings(null, defaultMode, defaultTolerance);
+        this.idleFlush = Duration.ofSeconds(idleFlushSeconds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            reload();
+            System.out.printf("Compression settings loaded for %d projects (default %s)%n",
+                projectSettings.size(), defaults.getMode());
+        } catch (Exception e) {
+            System.err.println("Error loading compression settings: " + e.getMessage());
+        }
+    }
+
+    public void reload() {
+        Map<String, CompressionSettings> loaded = new ConcurrentHashMap<>();
+        settingsRepository.findAll().forEach(settings -> loaded.put(settings.getProjectName(), settings));
+        projectSettings = loaded;
+    }
+
+    /**
+     * Picks up settings changed through other instances.
+     */
+    @Scheduled(initialDelayString = "${tracking.compression.reload-interval-ms:60000}",
+               fixedDelayString = "${tracking.compression.reload-interval-ms:60000}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            System.err.println("Scheduled compression settings reload failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Settings for the surveyor's project, or the defaults.
+     */
+    public CompressionSettings settingsFor(String surveyorId) {
+        String project = liveLocationIndexService.getProjectName(surveyorId);
+        CompressionSettings settings = project != null ? projectSettings.get(project) : null;
+        return settings != null ? settings : defaults;
+    }
+
+    /**
+     * Runs an accepted fix through the surveyor's compressor. Report the returned fixes
+     * through stored once they are saved.
+     * @param walSequence The fix's WAL record, or 0 when it was not logged
+     * @param finalFix Tracking stops after this fix, so nothing may stay held
+     * @return Fixes to store now, in time order; may include an earlier held fix and may
+     *         leave out this one
+     */
+    public List<LocationTrack> compress(LocationTrack point, long walSequence, boolean finalFix) {
+        CompressionSettings settings = settingsFor(point.getSurveyorId());
+        List<LocationTrack> toStore = new ArrayList<>(2);
+        if (settings.getMode() != CompressionMode.DEAD_RECKONING) {
+            // Leaving DEAD_RECKONING releases whatever the old compressor held
+            SurveyorCompressor previous = compressors.remove(point.getSurveyorId());
+            if (previous != null) {
+                previous.flush(toStore);
+            }
+            toStore.add(point);
+            return toStore;
+        }
+
+        SurveyorCompressor compressor = compressors.computeIfAbsent(point.getSurveyorId(),
+            id -> new SurveyorCompressor(settings));
+        if (!compressor.matches(settings)) {
+            compressor.flush(toStore);
+            compressor = new SurveyorCompressor(settings);
+            compressors.put(point.getSurveyorId(), compressor);
+        }
+        compressor.offer(point, walSequence, finalFix, toStore);
+        return toStore;
+    }
+
+    /**
+     * Releases the WAL records of held fixes among the ones just saved.
+     */
+    public void stored(List<LocationTrack> points) {
+        for (LocationTrack point : points) {
+            Long sequence = releasing.remove(point);
+            if (sequence != null) {
+                writeAheadLogService.release(sequence);
+            }
+        }
+    }
+
+    /**
+     * Hands fixes still held for surveyors that stopped reporting to store, so the end of
+     * their last dwell or run is not left only in memory. A fix stays held when store
+     * throws and is offered again on the next call; other surveyors are not affected.
+     * @return Fixes stored
+     */
+    public int flushIdle(Consumer<LocationTrack> store) {
+        Instant cutoff = Instant.now().minus(idleFlush);
+        int stored = 0;
+        for (Map.Entry<String, SurveyorCompressor> entry : compressors.entrySet()) {
+            try {
+                if (entry.getValue().flushIfIdle(cutoff, store)) {
+                    stored++;
+                }
+            } catch (Exception e) {
+                System.err.printf("Storing the held fix of surveyor %s failed, keeping it held: %s%n",
+                    entry.getKey(), e.getMessage());
+            }
+        }
+        return stored;
+    }
+
+    public void forget(String surveyorId) {
+        SurveyorCompressor compressor = compressors.remove(surveyorId);
+        if (compressor != null) {
+            compressor.discard();
+        }
+    }
+
+    public List<CompressionSettings> listSettings() {
+        return settingsRepository.findAll();
+    }
+
+    public CompressionSettings getDefaults() {
+        return defaults;
+    }
+
+    /**
+     * @throws IllegalArgumentException for a missing mode or a non-positive tolerance
+     */
+    public CompressionSettings saveSettings(String projectName, CompressionSettings settings) {
+        if (settings.getMode() == null || !(settings.getToleranceMeters() > 0)) {
+            throw new IllegalArgumentException("mode and a positive toleranceMeters are required");
+        }
+        settings.setProjectName(projectName);
+        settingsRepository.upsert(settings);
+        reload();
+        return projectSettings.get(projectName);
+    }
+
+    public boolean deleteSettings(String projectName) {
+        boolean deleted = settingsRepository.delete(projectName);
+        reload();
+        return deleted;
+    }
+
+    /**
+     * Replays a stored track through every mode (DEAD_RECKONING once per tolerance) and
+     * reports points stored against reconstruction error. The stored track is already
+     * thinned by whatever mode was active when it was recorded.
+     * @throws IllegalArgumentException for an invalid window or tolerances
+     */
+    public Map<String, Object> evaluate(String surveyorId, Instant start, Instant end, List<Double> tolerances) {
+        if (start.isAfter(end) || Duration.between(start, end).compareTo(MAX_REPLAY_WINDOW) > 0) {
+            throw new IllegalArgumentException("Time window must be ordered and at most " +
+                MAX_REPLAY_WINDOW.toDays() + " days");
+        }
+        if (tolerances.isEmpty() || tolerances.size() > MAX_REPLAY_TOLERANCES ||
+            tolerances.stream().anyMatch(tolerance -> !(tolerance > 0))) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_REPLAY_TOLERANCES + " positive tolerances are required");
+        }
+
+        long startTime = System.currentTimeMillis();
+        TrackBuffer original = new TrackBuffer();
+        trackStore.scan(surveyorId, start, end, original);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        results.add(replay(original, CompressionMode.NONE, null));
+        results.add(replay(original, CompressionMode.LEGACY, null));
+        for (Double tolerance : tolerances) {
+            results.add(replay(original, CompressionMode.DEAD_RECKONING, tolerance));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("surveyorId", surveyorId);
+        report.put("start", start);
+        report.put("end", end);
+        report.put("points", original.size());
+        report.put("results", results);
+        report.put("durationMs", System.currentTimeMillis() - startTime);
+        return report;
+    }
+
+    private static Map<String, Object> replay(TrackBuffer original, CompressionMode mode, Double tolerance) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", mode);
+        result.put("toleranceMeters", tolerance);
+        result.putAll(CompressionReplay.run(original, mode.newCompressor(tolerance != null ? tolerance : 0)));
+        return result;
+    }
+
+    /**
+     * One surveyor's compressor. Fixes are offered under a sequence number, which is how
+     * the held fix is found again when the compressor releases it. The held fix's WAL
+     * record is held in the log; once the fix is released it waits in releasing until
+     * stored, and a fix replaced by a later one is released at once.
+     */
+    private final class SurveyorCompressor {
+        final CompressionMode mode;
+        final double toleranceMeters;
+        final TrackCompressor compressor;
+        long sequence;
+        LocationTrack held;
+        long heldSequence = TrackCompressor.NONE;
+        long heldWalSequence;
+        volatile Instant lastOffer = Instant.now();
+
+        SurveyorCompressor(CompressionSettings settings) {
+            this.mode = settings.getMode();
+            this.toleranceMeters = settings.getToleranceMeters();
+            this.compressor = mode.newCompressor(toleranceMeters);
+        }
+
+        boolean matches(CompressionSettings settings) {
+            return mode == settings.getMode() && toleranceMeters == settings.getToleranceMeters();
+        }
+
+        synchronized void offer(LocationTrack point, long walSequence, boolean finalFix, List<LocationTrack> toStore) {
+            long current = ++sequence;
+            LocationTrack previous = held;
+            long previousSequence = heldSequence;
+            long previousWalSequence = heldWalSequence;
+            TrackPointHandler collect = (id, latitude, longitude, epochMillis) ->
+                toStore.add(id == current ? point : previous);
+            try {
+                compressor.offer(current, point.getLatitude(), point.getLongitude(),
+                    point.getTimestamp().toEpochMilli(), collect);
+                if (finalFix) {
+                    compressor.flush(collect);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            heldSequence = compressor.heldId();
+            held = heldSequence == current ? point : heldSequence == previousSequence ? previous : null;
+            lastOffer = Instant.now();
+            if (held == point) {
+                heldWalSequence = walSequence;
+                writeAheadLogService.hold(walSequence);
+            }
+            if (previous != null && held != previous) {
+                if (toStore.contains(previous)) {
+                    releasing(previous, previousWalSequence);
+                } else {
+                    writeAheadLogService.release(previousWalSequence);
+                }
+            }
+            if (held == null) {
+                heldWalSequence = 0;
+            }
+        }
+
+        synchronized void flush(List<LocationTrack> toStore) {
+            try {
+                compressor.flush((id, latitude, longitude, epochMillis) -> toStore.add(held));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (held != null) {
+                releasing(held, heldWalSequence);
+            }
+            held = null;
+            heldSequence = TrackCompressor.NONE;
+            heldWalSequence = 0;
+        }
+
+        /**
+         * Stores the held fix once the surveyor has been quiet since cutoff. The fix is only
+         * released after store returns.
+         */
+        synchronized boolean flushIfIdle(Instant cutoff, Consumer<LocationTrack> store) {
+            if (held == null || !lastOffer.isBefore(cutoff)) {
+                return false;
+            }
+            LocationTrack point = held;
+            long walSequence = heldWalSequence;
+            store.accept(point);
+            try {
+                compressor.flush((id, latitude, longitude, epochMillis) -> { });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            held = null;
+            heldSequence = TrackCompressor.NONE;
+            heldWalSequence = 0;
+            writeAheadLogService.release(walSequence);
+            return true;
+        }
+
+        synchronized void discard() {
+            if (held != null) {
+                writeAheadLogService.release(heldWalSequence);
+            }
+            held = null;
+            heldWalSequence = 0;
+        }
+
+        private void releasing(LocationTrack point, long walSequence) {
+            if (walSequence > 0) {
+                releasing.put(point, walSequence);
+            }
+        }
+    }
+}
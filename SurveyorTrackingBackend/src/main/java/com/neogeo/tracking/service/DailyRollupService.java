@@ -0,0 +1,219 @@
+package com.neogeo.tracking.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.neogeo.tracking.dto.DailySummary;
+import com.neogeo.tracking.repository.DailySummaryRepository;
+import com.neogeo.tracking.repository.TrackArchiveRepository.SurveyorDay;
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Maintains surveyor_daily_summary. The scheduled run only looks at location_track rows
+ * above its id watermark and recomputes the (surveyor, day) pairs they touch; backfill
+ * recomputes whole calendar days. Reports read the rollup instead of raw points.
+ * Days that overlap archived blocks are recomputed from TrackArchiveService's merged read,
+ * so late rows in an archived day do not replace the day with a summary of those rows alone.
+ */
+@Service
+public class DailyRollupService {
+
+    private static final String JOB_NAME = "surveyor_daily_summary";
+
+    // Identity ids are assigned at insert but become visible at commit, so a slow transaction
+    // can surface an id just below the watermark. Each run re-scans this many ids behind it;
+    // recomputing a day is idempotent, so the overlap only costs a little extra work.
+    private static final long ID_OVERLAP = 1000;
+
+    private final DailySummaryRepository dailySummaryRepository;
+    private final TrackArchiveService trackArchiveService;
+    private final TransactionTemplate transactionTemplate;
+    private final ZoneId zone;
+    private final long batchSize;
+    private final long maxActiveGapSeconds;
+
+    public DailyRollupService(DailySummaryRepository dailySummaryRepository,
+                              TrackArchiveService trackArchiveService,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${tracking.rollup.zone:UTC}") String zone,
+                              @Value("${tracking.rollup.batch-size:50000}") long batchSize,
+                              @Value("${tracking.analytics.max-active-gap-seconds:300}") long maxActiveGapSeconds) {
+        this.dailySummaryRepository = dailySummaryRepository;
+        this.trackArchiveService = trackArchiveService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.zone = ZoneId.of(zone);
+        this.batchSize = batchSize;
+        this.maxActiveGapSeconds = maxActiveGapSeconds;
+    }
+
+    /**
+     * Folds rows added since the last run into the rollup, one id batch per transaction.
+     * Another instance holding the watermark makes this run a no-op.
+     * @return Summary with batches, rows written, the new watermark and elapsed time
+     */
+    public Map<String, Object> runIncremental() {
+        long startTime = System.currentTimeMillis();
+        int batches = 0;
+        int rows = 0;
+        long watermark = -1;
+        boolean skipped = false;
+
+        while (true) {
+            long[] result = transactionTemplate.execute(status -> rollupNextBatch());
+            if (result == null) {
+                skipped = true;
+                break;
+            }
+            watermark = result[0];
+            if (result[1] < 0) {
+                break;
+            }
+            batches++;
+            rows += result[1];
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("skipped", skipped);
+        summary.put("batches", batches);
+        summary.put("rowsWritten", rows);
+        summary.put("watermark", watermark);
+        summary.put("durationMs", System.currentTimeMillis() - startTime);
+        if (batches > 0) {
+            System.out.printf("Daily rollup: %s%n", summary);
+        }
+        return summary;
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.rollup.interval-ms:300000}")
+    public void scheduledRun() {
+        try {
+            runIncremental();
+        } catch (Exception e) {
+            System.err.println("Scheduled daily rollup failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes every surveyor's rows for the calendar days from..to (inclusive), one day per statement.
+     */
+    public Map<String, Object> backfill(LocalDate from, LocalDate to) {
+        long startTime = System.currentTimeMillis();
+        int rows = 0;
+        int days = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            Instant dayStart = day.atStartOfDay(zone).toInstant();
+            Instant dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant();
+            rows += dailySummaryRepository.rollupTimeRange(dayStart, dayEnd, zone.getId(), maxActiveGapSeconds);
+            rows += rollupArchived(dailySummaryRepository.findArchivedTimeRange(dayStart, dayEnd, zone.getId()));
+            days++;
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("from", from.toString());
+        summary.put("to", to.toString());
+        summary.put("days", days);
+        summary.put("rowsWritten", rows);
+        summary.put("durationMs", System.currentTimeMillis() - startTime);
+        System.out.printf("Daily rollup backfill: %s%n", summary);
+        return summary;
+    }
+
+    public List<DailySummary> getDaily(LocalDate from, LocalDate to, String surveyorId, String city, String project) {
+        return dailySummaryRepository.findDaily(from, to, surveyorId, city, project);
+    }
+
+    public List<DailySummary> getTotals(LocalDate from, LocalDate to, String surveyorId, String city, String project) {
+        return dailySummaryRepository.findTotals(from, to, surveyorId, city, project);
+    }
+
+    public void delete(String surveyorId) {
+        dailySummaryRepository.deleteBySurveyorId(surveyorId);
+    }
+
+    /**
+     * @return null if the watermark is locked elsewhere, otherwise {watermark, rows written}
+     *         with rows = -1 once caught up
+     */
+    private long[] rollupNextBatch() {
+        Optional<Long> locked = dailySummaryRepository.lockWatermark(JOB_NAME);
+        if (locked.isEmpty()) {
+            return null;
+        }
+        long watermark = locked.get();
+        long maxId = dailySummaryRepository.findMaxLocationTrackId();
+        if (maxId <= watermark) {
+            return new long[] { watermark, -1 };
+        }
+        long toId = Math.min(watermark + batchSize, maxId);
+        long fromId = Math.max(0, watermark - ID_OVERLAP);
+        int rows = dailySummaryRepository.rollupIdRange(fromId, toId, zone.getId(), maxActiveGapSeconds);
+        rows += rollupArchived(dailySummaryRepository.findArchivedIdRange(fromId, toId, zone.getId()));
+        dailySummaryRepository.updateWatermark(JOB_NAME, toId);
+        return new long[] { toId, rows };
+    }
+
+    /**
+     * Recomputes days that overlap archived blocks from the merged archive and location_track
+     * points, with the same rules as the rollup statement.
+     * @return Number of (surveyor, day) rows written
+     */
+    private int rollupArchived(List<SurveyorDay> days) {
+        int rows = 0;
+        for (SurveyorDay surveyorDay : days) {
+            Instant dayStart = surveyorDay.getDay().atStartOfDay(zone).toInstant();
+            // streamRange includes its end; stop just before the next midnight
+            Instant dayEnd = surveyorDay.getDay().plusDays(1).atStartOfDay(zone).toInstant().minusNanos(1000);
+            DayAccumulator day = new DayAccumulator(maxActiveGapSeconds);
+            trackArchiveService.streamRange(surveyorDay.getSurveyorId(), dayStart, dayEnd, day::add);
+            if (day.pointCount > 0) {
+                dailySummaryRepository.upsertDay(surveyorDay.getSurveyorId(), surveyorDay.getDay(), day.pointCount,
+                    day.distanceKm, Instant.ofEpochMilli(day.firstMillis), Instant.ofEpochMilli(day.lastMillis),
+                    day.activeSeconds);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static final class DayAccumulator {
+        private final long maxActiveGapSeconds;
+        private long pointCount;
+        private double distanceKm;
+        private double activeSeconds;
+        private long firstMillis;
+        private long lastMillis;
+        private double lastLatitude;
+        private double lastLongitude;
+
+        DayAccumulator(long maxActiveGapSeconds) {
+            this.maxActiveGapSeconds = maxActiveGapSeconds;
+        }
+
+        void add(long id, double latitude, double longitude, long epochMillis) {
+            if (pointCount == 0) {
+                firstMillis = epochMillis;
+            } else {
+                distanceKm += GeoUtils.distanceKm(lastLatitude, lastLongitude, latitude, longitude);
+                double gapSeconds = (epochMillis - lastMillis) / 1000.0;
+                if (gapSeconds <= maxActiveGapSeconds) {
+                    activeSeconds += gapSeconds;
+                }
+            }
+            pointCount++;
+            lastMillis = epochMillis;
+            lastLatitude = latitude;
+            lastLongitude = longitude;
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.neogeo.tracking.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.repository.LocationTrackRepository;
+import com.neogeo.tracking.repository.SurveyorDistanceRepository;
+import com.neogeo.tracking.repository.SurveyorDistanceRepository.DistanceState;
+import com.neogeo.tracking.repository.SurveyorDistanceRepository.RetiredHistory;
+import com.neogeo.tracking.store.TrackStore;
+import com.neogeo.tracking.track.TrackPointHandler;
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Keeps each surveyor's all-time distance in surveyor_distance as points are accepted,
+ * so reading it is a primary-key lookup instead of a scan of the whole history.
+ *
+ * A point newer than the last accounted one adds the hop from that point. An older point
+ * (batch upload, reconnect) splices itself between its neighbours in history:
+ * d(prev, p) + d(p, next) - d(prev, next). Neighbours and seeded totals include archived
+ * days, which are no longer in location_track.
+ *
+ * Before retention removes old months, retireBefore folds their distance into retired_km,
+ * and verification recomputes from there on, so stored totals stay checkable.
+ */
+@Service
+public class DistanceService {
+
+    // Stored and recomputed totals closer than this are not reported as drift
+    private static final double DRIFT_TOLERANCE_KM = 0.001;
+    private static final int MAX_REPORTED_DRIFTS = 100;
+
+    private final SurveyorDistanceRepository distanceRepository;
+    private final LocationTrackRepository locationTrackRepository;
+    private final TrackStore trackStore;
+    private final TrackArchiveService trackArchiveService;
+    private final TransactionTemplate transactionTemplate;
+
+    public DistanceService(SurveyorDistanceRepository distanceRepository,
+                           LocationTrackRepository locationTrackRepository,
+                           TrackStore trackStore,
+                           TrackArchiveService trackArchiveService,
+                           PlatformTransactionManager transactionManager) {
+        this.distanceRepository = distanceRepository;
+        this.locationTrackRepository = locationTrackRepository;
+        this.trackStore = trackStore;
+        this.trackArchiveService = trackArchiveService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Stores a point and applies it to the surveyor's distance in one transaction.
+     * The distance row is locked before the insert, so concurrent points for the same
+     * surveyor are accounted one after another and always see each other. Points flagged
+     * as rejected by the ingest filter are stored without touching the distance.
+     */
+    public LocationTrack saveAndRecord(LocationTrack track) {
+        if (track.getQualityFlag() == LocationTrack.QUALITY_REJECTED) {
+            return trackStore.append(track);
+        }
+        return transactionTemplate.execute(status -> {
+            DistanceState state = lockOrCreate(track.getSurveyorId());
+            LocationTrack saved = trackStore.append(track);
+            apply(state, saved);
+            return saved;
+        });
+    }
+
+    /**
+     * Stores several points of one surveyor, in order, in one transaction. When they extend
+     * the track (each newer than the last accounted point) they are inserted as one batch
+     * and their hops are added with a single update; otherwise they are stored one by one
+     * as in saveAndRecord.
+     */
+    public List<LocationTrack> saveAndRecordAll(List<LocationTrack> tracks) {
+        if (tracks.size() == 1) {
+            return List.of(saveAndRecord(tracks.get(0)));
+        }
+        if (tracks.isEmpty()) {
+            return tracks;
+        }
+        String surveyorId = tracks.get(0).getSurveyorId();
+        if (tracks.stream().anyMatch(track -> !surveyorId.equals(track.getSurveyorId()))) {
+            throw new IllegalArgumentException("saveAndRecordAll takes points of a single surveyor");
+        }
+        return transactionTemplate.execute(status -> {
+            DistanceState state = lockOrCreate(surveyorId);
+            if (!extendsTrack(state, tracks)) {
+                List<LocationTrack> saved = new ArrayList<>(tracks.size());
+                for (LocationTrack track : tracks) {
+                    saved.add(trackStore.append(track));
+                    if (track.getQualityFlag() != LocationTrack.QUALITY_REJECTED) {
+                        // Re-read: the previous point moved the last accounted position
+                        apply(lockOrCreate(surveyorId), track);
+                    }
+                }
+                return saved;
+            }
+
+            List<LocationTrack> saved = trackStore.appendBatch(tracks);
+            double totalKm = 0.0;
+            LocationTrack previous = null;
+            if (state.getLastTimestamp() != null) {
+                previous = new LocationTrack(surveyorId, state.getLastLatitude(), state.getLastLongitude(),
+                    state.getLastTimestamp(), null);
+            }
+            for (LocationTrack point : saved) {
+                totalKm += hop(previous, point);
+                previous = point;
+            }
+            distanceRepository.advance(surveyorId, totalKm, previous);
+            return saved;
+        });
+    }
+
+    /**
+     * All-time distance in kilometers. Surveyors without a row yet (history recorded before
+     * surveyor_distance existed) are seeded from history once.
+     */
+    public double getTotalKm(String surveyorId) {
+        Optional<DistanceState> state = distanceRepository.findBySurveyorId(surveyorId);
+        if (state.isEmpty() && seedFromHistory(surveyorId)) {
+            System.out.printf("Seeded surveyor_distance for %s from history%n", surveyorId);
+            state = distanceRepository.findBySurveyorId(surveyorId);
+        }
+        return state.map(DistanceState::getTotalKm).orElse(0.0);
+    }
+
+    /**
+     * Records the distance of every surveyor's history before cutoff as retired, so
+     * partitions and archive blocks before it can be removed without verify or repair
+     * seeing the removed hops as drift. Each surveyor is retired under its row lock and
+     * only once per cutoff.
+     * @return Number of surveyors retired
+     */
+    public int retireBefore(Instant cutoff) {
+        int retired = 0;
+        for (String surveyorId : distanceRepository.findSurveyorsToRetire(cutoff)) {
+            Boolean done = transactionTemplate.execute(status -> {
+                lockOrCreate(surveyorId);
+                RetiredHistory previous = distanceRepository.findRetired(surveyorId).orElse(null);
+                Instant from = previous != null ? previous.getBefore() : TrackArchiveService.OPEN_START;
+                if (!from.isBefore(cutoff)) {
+                    return false;
+                }
+                HistoryWalk walk = new HistoryWalk(surveyorId, previous);
+                // Ranges are inclusive; stored timestamps have microsecond precision
+                trackArchiveService.scan(surveyorId, from, cutoff.minusNanos(1000), walk);
+                distanceRepository.retire(surveyorId, walk.totalKm, cutoff,
+                    walk.hasLast ? walk.lastLatitude : null, walk.hasLast ? walk.lastLongitude : null);
+                return true;
+            });
+            if (Boolean.TRUE.equals(done)) {
+                retired++;
+            }
+        }
+        if (retired > 0) {
+            System.out.printf("Retired the distance before %s of %d surveyors%n", cutoff, retired);
+        }
+        return retired;
+    }
+
+    public void delete(String surveyorId) {
+        distanceRepository.deleteBySurveyorId(surveyorId);
+    }
+
+    /**
+     * Recomputes every surveyor's distance from its history, several surveyors at a time,
+     * and compares it with the stored total. Surveyors with archived days are recomputed
+     * from the merged archive read, the others in the database.
+     * @param parallelism Number of surveyors recomputed at the same time
+     * @param repair Overwrite stored totals that drifted (and create missing rows)
+     * @return Summary with counts, the largest drift and the drifted surveyors
+     */
+    public Map<String, Object> verify(int parallelism, boolean repair) {
+        long startTime = System.currentTimeMillis();
+
+        Set<String> surveyorIds = new LinkedHashSet<>(locationTrackRepository.findAllSurveyorIds());
+        distanceRepository.findAll().forEach(state -> surveyorIds.add(state.getSurveyorId()));
+
+        List<Map<String, Object>> drifts = new ArrayList<>();
+        int driftCount = 0;
+        int repaired = 0;
+        double maxDrift = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+            for (String surveyorId : surveyorIds) {
+                futures.add(executor.submit(() -> verifySurveyor(surveyorId, repair)));
+            }
+            for (Future<Map<String, Object>> future : futures) {
+                Map<String, Object> drift = future.get();
+                if (drift == null) {
+                    continue;
+                }
+                driftCount++;
+                maxDrift = Math.max(maxDrift, (Double) drift.get("driftKm"));
+                if (Boolean.TRUE.equals(drift.get("repaired"))) {
+                    repaired++;
+                }
+                if (drifts.size() < MAX_REPORTED_DRIFTS) {
+                    drifts.add(drift);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Distance verification interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Distance verification failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("surveyors", surveyorIds.size());
+        summary.put("drifted", driftCount);
+        summary.put("repaired", repaired);
+        summary.put("maxDriftKm", maxDrift);
+        summary.put("durationMs", System.currentTimeMillis() - startTime);
+        summary.put("drifts", drifts);
+        System.out.printf("Verified surveyor_distance: %d surveyors, %d drifted, %d repaired, max drift %.6f km%n",
+            surveyorIds.size(), driftCount, repaired, maxDrift);
+        return summary;
+    }
+
+    /**
+     * Nightly consistency check; only reports, repairs are requested explicitly.
+     */
+    @Scheduled(cron = "${tracking.distance.verify-cron:0 30 3 * * *}")
+    public void scheduledVerify() {
+        try {
+            verify(2, false);
+        } catch (Exception e) {
+            System.err.println("Scheduled distance verification failed: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> verifySurveyor(String surveyorId, boolean repair) {
+        Optional<DistanceState> stored = distanceRepository.findBySurveyorId(surveyorId);
+        double recomputed = recomputeKm(surveyorId);
+        double storedKm = stored.map(DistanceState::getTotalKm).orElse(0.0);
+        double drift = Math.abs(storedKm - recomputed);
+        if (stored.isPresent() && drift <= DRIFT_TOLERANCE_KM) {
+            return null;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("surveyorId", surveyorId);
+        result.put("storedKm", stored.isPresent() ? storedKm : null);
+        result.put("recomputedKm", recomputed);
+        result.put("driftKm", drift);
+        if (repair) {
+            // Recompute under the row lock so points arriving meanwhile are not lost
+            transactionTemplate.executeWithoutResult(status -> {
+                lockOrCreate(surveyorId);
+                distanceRepository.setTotal(surveyorId, recomputeKm(surveyorId));
+            });
+            result.put("repaired", true);
+        }
+        return result;
+    }
+
+    /**
+     * All-time distance from history. location_track alone misses archived days, so those
+     * surveyors are summed over the merged stream in (timestamp, id) order instead. History
+     * removed by retention counts with its retired distance plus the hop to the first kept point.
+     */
+    private double recomputeKm(String surveyorId) {
+        Optional<RetiredHistory> retired = distanceRepository.findRetired(surveyorId);
+        if (retired.isPresent()) {
+            HistoryWalk walk = new HistoryWalk(surveyorId, retired.get());
+            trackArchiveService.scan(surveyorId, retired.get().getBefore(), TrackArchiveService.OPEN_END, walk);
+            return walk.totalKm;
+        }
+        if (!hasArchivedDays(surveyorId)) {
+            return distanceRepository.computeFromHistory(surveyorId);
+        }
+        return walkArchivedHistory(surveyorId).totalKm;
+    }
+
+    /**
+     * Creates the missing surveyor_distance row from history, archived days included.
+     * @return true if a row was inserted
+     */
+    private boolean seedFromHistory(String surveyorId) {
+        if (!hasArchivedDays(surveyorId)) {
+            return distanceRepository.seedFromHistory(surveyorId);
+        }
+        HistoryWalk walk = walkArchivedHistory(surveyorId);
+        LocationTrack last = walk.last();
+        return last != null && distanceRepository.insertSeed(surveyorId, walk.totalKm, last);
+    }
+
+    private boolean hasArchivedDays(String surveyorId) {
+        return trackArchiveService.overlapsArchive(surveyorId, TrackArchiveService.OPEN_START, TrackArchiveService.OPEN_END);
+    }
+
+    private HistoryWalk walkArchivedHistory(String surveyorId) {
+        HistoryWalk walk = new HistoryWalk(surveyorId, null);
+        trackArchiveService.streamRange(surveyorId, TrackArchiveService.OPEN_START, TrackArchiveService.OPEN_END, walk);
+        return walk;
+    }
+
+    private DistanceState lockOrCreate(String surveyorId) {
+        Optional<DistanceState> state = distanceRepository.lockBySurveyorId(surveyorId);
+        if (state.isPresent()) {
+            return state.get();
+        }
+        if (!seedFromHistory(surveyorId)) {
+            distanceRepository.insertEmpty(surveyorId);
+        }
+        return distanceRepository.lockBySurveyorId(surveyorId)
+            .orElseThrow(() -> new IllegalStateException("surveyor_distance row missing for " + surveyorId));
+    }
+
+    private void apply(DistanceState state, LocationTrack saved) {
+        String surveyorId = saved.getSurveyorId();
+        if (state.getLastTimestamp() == null) {
+            distanceRepository.advance(surveyorId, 0.0, saved);
+            return;
+        }
+        if (isAfterLast(state, saved)) {
+            double hop = GeoUtils.distanceKm(state.getLastLatitude(), state.getLastLongitude(),
+                saved.getLatitude(), saved.getLongitude());
+            distanceRepository.advance(surveyorId, hop, saved);
+            return;
+        }
+
+        // Out-of-order point: replace the prev -> next hop with prev -> point -> next. Late
+        // uploads into archived days have their neighbours in the archive.
+        Instant timestamp = saved.getTimestamp();
+        long id = saved.getId();
+        LocationTrack previous = later(distanceRepository.findPrevious(surveyorId, timestamp, id).orElse(null),
+            trackArchiveService.findArchivedBefore(surveyorId, timestamp, id).orElse(null));
+        LocationTrack next = earlier(distanceRepository.findNext(surveyorId, timestamp, id).orElse(null),
+            trackArchiveService.findArchivedAfter(surveyorId, timestamp, id).orElse(null));
+        double delta = hop(previous, saved) + hop(saved, next) - hop(previous, next);
+        distanceRepository.addDistance(surveyorId, delta);
+    }
+
+    private static LocationTrack later(LocationTrack a, LocationTrack b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return isBefore(a, b) ? b : a;
+    }
+
+    private static LocationTrack earlier(LocationTrack a, LocationTrack b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return isBefore(a, b) ? a : b;
+    }
+
+    private static boolean isBefore(LocationTrack a, LocationTrack b) {
+        int cmp = a.getTimestamp().compareTo(b.getTimestamp());
+        return cmp < 0 || (cmp == 0 && a.getId() < b.getId());
+    }
+
+    private static boolean extendsTrack(DistanceState state, List<LocationTrack> tracks) {
+        Instant last = state.getLastTimestamp();
+        for (LocationTrack track : tracks) {
+            if (track.getQualityFlag() == LocationTrack.QUALITY_REJECTED ||
+                (last != null && !track.getTimestamp().isAfter(last))) {
+                return false;
+            }
+            last = track.getTimestamp();
+        }
+        return true;
+    }
+
+    private static boolean isAfterLast(DistanceState state, LocationTrack point) {
+        int cmp = point.getTimestamp().compareTo(state.getLastTimestamp());
+        return cmp > 0 || (cmp == 0 && (state.getLastId() == null || point.getId() > state.getLastId()));
+    }
+
+    private static double hop(LocationTrack from, LocationTrack to) {
+        if (from == null || to == null) {
+            return 0.0;
+        }
+        return GeoUtils.distanceKm(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+    }
+
+    /**
+     * Sums hops over a streamed track and remembers its last point. Started from retired
+     * history, it continues from the retired distance and last retired position.
+     */
+    private static final class HistoryWalk implements TrackPointHandler {
+        private final String surveyorId;
+        private double totalKm;
+        private long points;
+        private boolean hasLast;
+        private long lastId;
+        private double lastLatitude;
+        private double lastLongitude;
+        private long lastMillis;
+
+        HistoryWalk(String surveyorId, RetiredHistory retired) {
+            this.surveyorId = surveyorId;
+            if (retired != null) {
+                totalKm = retired.getKm();
+                if (retired.getLastLatitude() != null && retired.getLastLongitude() != null) {
+                    hasLast = true;
+                    lastLatitude = retired.getLastLatitude();
+                    lastLongitude = retired.getLastLongitude();
+                }
+            }
+        }
+
+        @Override
+        public void onPoint(long id, double latitude, double longitude, long epochMillis) {
+            if (hasLast) {
+                totalKm += GeoUtils.distanceKm(lastLatitude, lastLongitude, latitude, longitude);
+            }
+            points++;
+            hasLast = true;
+            lastId = id;
+            lastLatitude = latitude;
+            lastLongitude = longitude;
+            lastMillis = epochMillis;
+        }
+
+        LocationTrack last() {
+            if (points == 0) {
+                return null;
+            }
+            LocationTrack last = new LocationTrack(surveyorId, lastLatitude, lastLongitude,
+                Instant.ofEpochMilli(lastMillis), null);
+            last.setId(lastId);
+            return last;
+        }
+    }
+}
@@ -105,7 +105,7 @@ public class DynamicConfigService {
         Map<String, Boolean> features = new HashMap<>();
         features.put("realTimeTracking", true);
         features.put("historicalRoutes", true);
-        features.put("geofencing", false);
+        features.put("geofencing", true);
         features.put("notifications", false);
         features.put("offlineMode", false);
         features.put("analytics", false);
@@ -0,0 +1,248 @@
+package com.neogeo.tracking.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.dto.Geofence;
+import com.neogeo.tracking.dto.GeofenceEvent;
+import com.neogeo.tracking.repository.GeofenceRepository;
+import com.neogeo.tracking.spatial.GeoPolygons;
+import com.neogeo.tracking.spatial.GeofenceIndex;
+import com.neogeo.tracking.spatial.GeofenceTracker;
+
+/**
+ * Geofence definitions and their evaluation on the ingest path. Active fences live in an
+ * in-memory GeofenceIndex that is swapped whenever fences change; every accepted point
+ * runs through the per-surveyor GeofenceTracker, and the resulting ENTER/EXIT/DWELL
+ * events are pushed over WebSocket and appended to geofence_event in batches.
+ */
+@Service
+public class GeofenceService {
+
+    public static final String GEOFENCE_TOPIC = "/topic/geofences";
+
+    private static final double MAX_RADIUS_METERS = 50_000;
+    private static final int MAX_EVENTS = 10_000;
+
+    private final GeofenceRepository geofenceRepository;
+    private final WebSocketService webSocketService;
+    private final LiveLocationIndexService liveLocationIndexService;
+    private final GeofenceTracker tracker = new GeofenceTracker();
+    private final Queue<GeofenceEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder evaluatedPoints = new LongAdder();
+    private final LongAdder evaluationNanos = new LongAdder();
+    private final LongAdder emittedEvents = new LongAdder();
+
+    private volatile GeofenceIndex index = GeofenceIndex.empty();
+
+    public GeofenceService(GeofenceRepository geofenceRepository,
+                           WebSocketService webSocketService,
+                           LiveLocationIndexService liveLocationIndexService) {
+        this.geofenceRepository = geofenceRepository;
+        this.webSocketService = webSocketService;
+        this.liveLocationIndexService = liveLocationIndexService;
+    }
+
+    /**
+     * Loads fences and restores who is inside which fence from the event log, without
+     * emitting events, so a restart does not replay ENTERs.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            reload();
+            int restored = 0;
+            for (GeofenceEvent last : geofenceRepository.findOpenMemberships()) {
+                if (index.get(last.getGeofenceId()) != null) {
+                    tracker.restore(last.getSurveyorId(), last.getGeofenceId(), last.getEventTime(),
+                        GeofenceEvent.DWELL.equals(last.getEventType()));
+                    restored++;
+                }
+            }
+            System.out.printf("Geofence index initialized with %d fences, %d surveyors inside%n",
+                index.size(), restored);
+        } catch (Exception e) {
+            System.err.println("Error initializing geofence index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the in-memory index from the active fences.
+     */
+    public void reload() {
+        index = new GeofenceIndex(geofenceRepository.findAll(true, null));
+    }
+
+    /**
+     * Picks up fence edits made through other instances.
+     */
+    @Scheduled(initialDelayString = "${tracking.geofence.reload-interval-ms:60000}",
+               fixedDelayString = "${tracking.geofence.reload-interval-ms:60000}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            System.err.println("Scheduled geofence reload failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Evaluates an accepted point. Never throws, so fence problems cannot reject a location.
+     */
+    public void evaluate(String surveyorId, double latitude, double longitude, Instant timestamp) {
+        try {
+            long startTime = System.nanoTime();
+            List<GeofenceEvent> events = tracker.evaluate(index, surveyorId,
+                liveLocationIndexService.getProjectName(surveyorId), latitude, longitude, timestamp);
+            evaluationNanos.add(System.nanoTime() - startTime);
+            evaluatedPoints.increment();
+            events.forEach(this::publish);
+        } catch (Exception e) {
+            System.err.printf("Error evaluating geofences for surveyor %s: %s%n", surveyorId, e.getMessage());
+        }
+    }
+
+    public List<Geofence> list(String projectName, boolean includeInactive) {
+        return geofenceRepository.findAll(!includeInactive, projectName);
+    }
+
+    public Optional<Geofence> get(long id) {
+        return geofenceRepository.findById(id);
+    }
+
+    public Geofence create(Geofence fence) {
+        validate(fence);
+        long id = geofenceRepository.insert(fence);
+        reload();
+        return geofenceRepository.findById(id).orElseThrow();
+    }
+
+    /**
+     * @return empty if the fence does not exist
+     */
+    public Optional<Geofence> update(long id, Geofence fence) {
+        validate(fence);
+        fence.setId(id);
+        if (!geofenceRepository.update(fence)) {
+            return Optional.empty();
+        }
+        reload();
+        return geofenceRepository.findById(id);
+    }
+
+    public boolean delete(long id) {
+        boolean deleted = geofenceRepository.delete(id);
+        if (deleted) {
+            reload();
+        }
+        return deleted;
+    }
+
+    public List<String> getSurveyorsInside(long geofenceId) {
+        return tracker.surveyorsInside(geofenceId);
+    }
+
+    public List<GeofenceEvent> getEvents(Long geofenceId, String surveyorId, Instant start, Instant end, int limit) {
+        if (start.isAfter(end) || limit < 1 || limit > MAX_EVENTS) {
+            throw new IllegalArgumentException("start must not be after end and limit must be between 1 and " + MAX_EVENTS);
+        }
+        return geofenceRepository.findEvents(geofenceId, surveyorId, start, end, limit);
+    }
+
+    /**
+     * @return Fence count and per-point evaluation cost since startup
+     */
+    public Map<String, Object> getStats() {
+        long points = evaluatedPoints.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeFences", index.size());
+        stats.put("evaluatedPoints", points);
+        stats.put("emittedEvents", emittedEvents.sum());
+        stats.put("avgEvaluationMicros", points == 0 ? 0.0 : evaluationNanos.sum() / 1000.0 / points);
+        stats.put("pendingEvents", pendingEvents.size());
+        return stats;
+    }
+
+    public void removeSurveyor(String surveyorId) {
+        tracker.removeSurveyor(surveyorId);
+    }
+
+    /**
+     * Appends queued events to geofence_event in one batch.
+     */
+    @Scheduled(fixedDelayString = "${tracking.geofence.event-flush-interval-ms:5000}")
+    public void flushEvents() {
+        List<GeofenceEvent> batch = new ArrayList<>();
+        GeofenceEvent event;
+        while ((event = pendingEvents.poll()) != null) {
+            batch.add(event);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            geofenceRepository.saveEvents(batch);
+        } catch (Exception e) {
+            System.err.printf("Error writing %d geofence events, will retry: %s%n", batch.size(), e.getMessage());
+            pendingEvents.addAll(batch);
+        }
+    }
+
+    private void publish(GeofenceEvent event) {
+        pendingEvents.add(event);
+        emittedEvents.increment();
+        try {
+            webSocketService.sendMessage(GEOFENCE_TOPIC, event);
+            webSocketService.sendMessage(GEOFENCE_TOPIC + "/" + event.getGeofenceId(), event);
+        } catch (Exception e) {
+            System.err.println("Error publishing geofence event: " + e.getMessage());
+        }
+        System.out.printf("Geofence: surveyor %s %s fence %d (%s)%n",
+            event.getSurveyorId(), event.getEventType(), event.getGeofenceId(), event.getGeofenceName());
+    }
+
+    private static void validate(Geofence fence) {
+        if (fence.getName() == null || fence.getName().isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (fence.getType() == null) {
+            throw new IllegalArgumentException("type must be POLYGON or CIRCLE");
+        }
+        fence.setType(fence.getType().trim().toUpperCase());
+        if (Geofence.CIRCLE.equals(fence.getType())) {
+            Double lat = fence.getCenterLatitude();
+            Double lon = fence.getCenterLongitude();
+            Double radius = fence.getRadiusMeters();
+            if (lat == null || lon == null || lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+                throw new IllegalArgumentException("Circle needs a valid centerLatitude and centerLongitude");
+            }
+            if (radius == null || !(radius > 0) || radius > MAX_RADIUS_METERS) {
+                throw new IllegalArgumentException("radiusMeters must be between 0 and " + (long) MAX_RADIUS_METERS);
+            }
+            fence.setCoordinates(null);
+        } else if (Geofence.POLYGON.equals(fence.getType())) {
+            fence.setCoordinates(GeoPolygons.toVertices(GeoPolygons.fromVertices(fence.getCoordinates())));
+            fence.setCenterLatitude(null);
+            fence.setCenterLongitude(null);
+            fence.setRadiusMeters(null);
+        } else {
+            throw new IllegalArgumentException("type must be POLYGON or CIRCLE");
+        }
+        if (fence.getDwellSeconds() != null && fence.getDwellSeconds() <= 0) {
+            throw new IllegalArgumentException("dwellSeconds must be positive");
+        }
+    }
+}
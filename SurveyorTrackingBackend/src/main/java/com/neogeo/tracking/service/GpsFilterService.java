@@ -0,0 +1,90 @@
+package com.neogeo.tracking.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.track.GpsPointFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Runs every incoming fix through a per-surveyor GpsPointFilter before it is stored.
+ * Filter state lives only in memory; after a restart each surveyor's first fix is taken
+ * as reported. Outcomes are counted in the tracking.gps.filter.points meter, tagged
+ * result=raw|smoothed|rejected, so filter rates show up in /actuator/metrics;
+ * tracking.gps.filter.surveyors is the number of surveyors with filter state.
+ */
+@Service
+public class GpsFilterService {
+
+    private final GpsPointFilter filter;
+    private final boolean enabled;
+    private final Map<String, GpsPointFilter.State> states = new ConcurrentHashMap<>();
+    private final Counter rawPoints;
+    private final Counter smoothedPoints;
+    private final Counter rejectedPoints;
+
+    public GpsFilterService(MeterRegistry meterRegistry,
+                            @Value("${tracking.gps-filter.enabled:true}") boolean enabled,
+                            @Value("${tracking.gps-filter.max-speed-mps:70}") double maxSpeedMps,
+                            @Value("${tracking.gps-filter.max-consecutive-rejects:3}") int maxConsecutiveRejects,
+                            @Value("${tracking.gps-filter.smoothing.enabled:false}") boolean smoothing,
+                            @Value("${tracking.gps-filter.smoothing.measurement-noise-meters:15}") double measurementNoiseMeters,
+                            @Value("${tracking.gps-filter.smoothing.process-noise-mps:3}") double processNoiseMps) {
+        this.enabled = enabled;
+        this.filter = new GpsPointFilter(maxSpeedMps, maxConsecutiveRejects, smoothing,
+            measurementNoiseMeters, processNoiseMps);
+        this.rawPoints = counter(meterRegistry, "raw");
+        this.smoothedPoints = counter(meterRegistry, "smoothed");
+        this.rejectedPoints = counter(meterRegistry, "rejected");
+        meterRegistry.gaugeMapSize("tracking.gps.filter.surveyors", Tags.empty(), states);
+    }
+
+    /**
+     * Filters a fix and applies the outcome to the point about to be stored: smoothed
+     * points get the estimate as latitude/longitude and keep the report in raw_*,
+     * rejected points keep their coordinates and are only flagged.
+     */
+    public void apply(LocationTrack point) {
+        if (!enabled) {
+            return;
+        }
+        GpsPointFilter.State state = states.computeIfAbsent(point.getSurveyorId(), id -> new GpsPointFilter.State());
+        GpsPointFilter.Result result;
+        synchronized (state) {
+            result = filter.apply(state, point.getLatitude(), point.getLongitude(), point.getTimestamp().toEpochMilli());
+        }
+
+        point.setQualityFlag(result.getQualityFlag());
+        if (result.getQualityFlag() == LocationTrack.QUALITY_SMOOTHED) {
+            point.setRawLatitude(point.getLatitude());
+            point.setRawLongitude(point.getLongitude());
+            point.setLatitude(result.getLatitude());
+            point.setLongitude(result.getLongitude());
+            smoothedPoints.increment();
+        } else if (result.getQualityFlag() == LocationTrack.QUALITY_REJECTED) {
+            rejectedPoints.increment();
+            System.out.printf("Rejected implausible fix for surveyor %s at %s (%.6f, %.6f)%n",
+                point.getSurveyorId(), point.getTimestamp(), point.getLatitude(), point.getLongitude());
+        } else {
+            rawPoints.increment();
+        }
+    }
+
+    public void forget(String surveyorId) {
+        states.remove(surveyorId);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("tracking.gps.filter.points")
+            .description("Incoming GPS fixes by ingest filter outcome")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
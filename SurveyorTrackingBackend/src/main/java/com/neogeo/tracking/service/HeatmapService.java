@@ -0,0 +1,103 @@
+package com.neogeo.tracking.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.dto.HeatmapCell;
+import com.neogeo.tracking.repository.HeatmapRepository;
+import com.neogeo.tracking.util.TimeWindowCache;
+
+/**
+ * Geohash heatmaps of where surveyors worked. Ranges that ended more than closedAfter
+ * ago are immutable apart from late uploads, so their results are cached (bounded by
+ * total cell count) and dropped when a late point lands in the range.
+ */
+@Service
+public class HeatmapService {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 8;
+
+    private static final Duration MAX_WINDOW = Duration.ofDays(93);
+    private static final int MAX_CELLS = 50_000;
+
+    private final HeatmapRepository heatmapRepository;
+    private final Duration closedAfter;
+    private final long maxActiveGapSeconds;
+    private final TimeWindowCache<String, List<HeatmapCell>> cache;
+
+    public HeatmapService(HeatmapRepository heatmapRepository,
+                          @Value("${tracking.heatmap.closed-after-seconds:3600}") long closedAfterSeconds,
+                          @Value("${tracking.heatmap.cache-max-cells:2000000}") long cacheMaxCells,
+                          @Value("${tracking.analytics.max-active-gap-seconds:300}") long maxActiveGapSeconds) {
+        this.heatmapRepository = heatmapRepository;
+        this.closedAfter = Duration.ofSeconds(closedAfterSeconds);
+        this.maxActiveGapSeconds = maxActiveGapSeconds;
+        this.cache = new TimeWindowCache<>(cacheMaxCells, List::size);
+    }
+
+    /**
+     * @param bbox Optional {minLatitude, minLongitude, maxLatitude, maxLongitude}
+     * @throws IllegalArgumentException for an invalid window, precision, box or limit
+     */
+    public List<HeatmapCell> getHeatmap(Instant start, Instant end, int precision, String project, String surveyorId,
+                                        double[] bbox, int limit) {
+        if (start.isAfter(end) || Duration.between(start, end).compareTo(MAX_WINDOW) > 0) {
+            throw new IllegalArgumentException("Time window must be ordered and at most " + MAX_WINDOW.toDays() + " days");
+        }
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        if (limit < 1 || limit > MAX_CELLS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_CELLS);
+        }
+        if (bbox != null && (bbox[0] > bbox[2] || bbox[1] > bbox[3] ||
+                             bbox[0] < -90 || bbox[2] > 90 || bbox[1] < -180 || bbox[3] > 180)) {
+            throw new IllegalArgumentException("Invalid bounding box");
+        }
+
+        boolean cacheable = isClosed(end);
+        String key = String.join("|", start.toString(), end.toString(), String.valueOf(precision),
+            String.valueOf(project), String.valueOf(surveyorId),
+            bbox == null ? "-" : bbox[0] + "," + bbox[1] + "," + bbox[2] + "," + bbox[3], String.valueOf(limit));
+        long generation = cache.generation();
+        if (cacheable) {
+            List<HeatmapCell> cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<HeatmapCell> cells = heatmapRepository.aggregate(start, end, precision, project, surveyorId, bbox,
+            maxActiveGapSeconds, limit);
+        System.out.printf("Heatmap %s - %s (precision=%d, project=%s, surveyor=%s): %d cells in %d ms%n",
+            start, end, precision, project, surveyorId, cells.size(), System.currentTimeMillis() - startTime);
+        if (cacheable) {
+            cache.put(key, start, end, List.copyOf(cells), generation);
+        }
+        return cells;
+    }
+
+    public boolean isClosed(Instant end) {
+        return end.isBefore(Instant.now().minus(closedAfter));
+    }
+
+    /**
+     * Drops cached heatmaps whose range contains a late point.
+     */
+    public void onPointStored(Instant timestamp) {
+        if (isClosed(timestamp)) {
+            cache.invalidate(timestamp);
+        }
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return cache.stats();
+    }
+}
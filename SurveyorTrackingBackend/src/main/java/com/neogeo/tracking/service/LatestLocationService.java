@@ -0,0 +1,115 @@
+package com.neogeo.tracking.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.repository.LatestLocationRepository;
+import com.neogeo.tracking.repository.LocationTrackRepository;
+import com.neogeo.tracking.repository.SurveyorRepository;
+import com.neogeo.tracking.store.TrackStore;
+
+/**
+ * Maintains the surveyor_latest_location table on ingest and can rebuild it from history.
+ */
+@Service
+public class LatestLocationService {
+
+    private static final int REBUILD_CHUNK_SIZE = 200;
+
+    private final LatestLocationRepository latestLocationRepository;
+    private final LocationTrackRepository locationTrackRepository;
+    private final SurveyorRepository surveyorRepository;
+    private final TrackStore trackStore;
+
+    public LatestLocationService(LatestLocationRepository latestLocationRepository,
+                                 LocationTrackRepository locationTrackRepository,
+                                 SurveyorRepository surveyorRepository,
+                                 TrackStore trackStore) {
+        this.latestLocationRepository = latestLocationRepository;
+        this.locationTrackRepository = locationTrackRepository;
+        this.surveyorRepository = surveyorRepository;
+        this.trackStore = trackStore;
+    }
+
+    /**
+     * Records a point that was just stored in location_track. Out-of-order points are ignored by the upsert.
+     */
+    public void record(LocationTrack saved) {
+        latestLocationRepository.upsert(saved.getSurveyorId(), saved.getId(),
+            saved.getLatitude(), saved.getLongitude(), saved.getTimestamp());
+    }
+
+    /**
+     * Latest fix from the materialized table, falling back to the track store for surveyors
+     * whose row has not been built yet.
+     */
+    public LocationTrack getLatest(String surveyorId) {
+        return latestLocationRepository.findBySurveyorId(surveyorId)
+            .or(() -> trackStore.latest(surveyorId))
+            .orElse(null);
+    }
+
+    public List<LocationTrack> getAll() {
+        return latestLocationRepository.findAll();
+    }
+
+    public void delete(String surveyorId) {
+        latestLocationRepository.deleteBySurveyorId(surveyorId);
+    }
+
+    /**
+     * Regenerates surveyor_latest_location from location_track. Surveyors are split into
+     * chunks that are rebuilt concurrently, each chunk being one DISTINCT ON statement.
+     * @param parallelism Number of chunks rebuilt at the same time
+     * @return Summary with surveyor, chunk and row counts and the elapsed time
+     */
+    public Map<String, Object> rebuild(int parallelism) {
+        long startTime = System.currentTimeMillis();
+
+        Set<String> surveyorIds = new LinkedHashSet<>(locationTrackRepository.findAllSurveyorIds());
+        surveyorRepository.findAll().forEach(surveyor -> surveyorIds.add(surveyor.getId()));
+        List<String> ids = new ArrayList<>(surveyorIds);
+
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += REBUILD_CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(i + REBUILD_CHUNK_SIZE, ids.size())));
+        }
+
+        int rows = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (List<String> chunk : chunks) {
+                futures.add(executor.submit(() -> latestLocationRepository.rebuild(chunk)));
+            }
+            for (Future<Integer> future : futures) {
+                rows += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Latest location rebuild interrupted", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IllegalStateException("Latest location rebuild failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("surveyors", ids.size());
+        summary.put("chunks", chunks.size());
+        summary.put("rowsWritten", rows);
+        summary.put("durationMs", System.currentTimeMillis() - startTime);
+        System.out.printf("Rebuilt surveyor_latest_location: %s%n", summary);
+        return summary;
+    }
+}
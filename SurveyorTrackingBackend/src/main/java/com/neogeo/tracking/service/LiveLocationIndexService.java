@@ -0,0 +1,202 @@
+package com.neogeo.tracking.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.dto.NearbySurveyor;
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.model.Surveyor;
+import com.neogeo.tracking.repository.SurveyorRepository;
+import com.neogeo.tracking.spatial.GeoPolygons;
+import com.neogeo.tracking.spatial.LiveSpatialGrid;
+
+/**
+ * Latest position of every surveyor in an in-memory grid, fed by ingest, for dispatch
+ * queries (nearest, radius, polygon) that never touch the database. Seeded from
+ * surveyor_latest_location at startup and re-synced periodically so positions written
+ * by other instances and surveyor edits are picked up.
+ */
+@Service
+public class LiveLocationIndexService {
+
+    private static final double MAX_RADIUS_METERS = 100_000;
+    private static final int MAX_NEAREST = 100;
+
+    private final LatestLocationService latestLocationService;
+    private final SurveyorRepository surveyorRepository;
+    private final PresenceService presenceService;
+    private final LiveSpatialGrid grid;
+
+    private final Map<String, Surveyor> surveyors = new ConcurrentHashMap<>();
+
+    public LiveLocationIndexService(LatestLocationService latestLocationService,
+                                    SurveyorRepository surveyorRepository,
+                                    PresenceService presenceService,
+                                    @Value("${tracking.live-index.cell-degrees:0.01}") double cellDegrees) {
+        this.latestLocationService = latestLocationService;
+        this.surveyorRepository = surveyorRepository;
+        this.presenceService = presenceService;
+        this.grid = new LiveSpatialGrid(cellDegrees);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        refresh();
+    }
+
+    /**
+     * Reloads surveyor details and merges in latest positions; older positions never
+     * replace newer ones already received through ingest.
+     */
+    @Scheduled(initialDelayString = "${tracking.live-index.refresh-interval-ms:300000}",
+               fixedDelayString = "${tracking.live-index.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            long startTime = System.currentTimeMillis();
+            for (Surveyor surveyor : surveyorRepository.findAll()) {
+                surveyors.put(surveyor.getId(), surveyor);
+            }
+            int positions = 0;
+            for (LocationTrack latest : latestLocationService.getAll()) {
+                if (grid.update(latest.getSurveyorId(), latest.getLatitude(), latest.getLongitude(),
+                        latest.getTimestamp().toEpochMilli())) {
+                    positions++;
+                }
+            }
+            System.out.printf("Live location index refreshed: %d surveyors, %d positions applied in %d ms%n",
+                grid.size(), positions, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            System.err.println("Error refreshing live location index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records a point that was just accepted by ingest.
+     */
+    public void record(String surveyorId, double latitude, double longitude, Instant timestamp) {
+        grid.update(surveyorId, latitude, longitude, timestamp.toEpochMilli());
+    }
+
+    /**
+     * Picks up a created or edited surveyor (city, project, name) without waiting for the refresh.
+     */
+    public void updateSurveyor(Surveyor surveyor) {
+        if (surveyor != null && surveyor.getId() != null) {
+            surveyors.put(surveyor.getId(), surveyor);
+        }
+    }
+
+    /**
+     * Project of a surveyor from the cached surveyor details, or null if unknown.
+     */
+    public String getProjectName(String surveyorId) {
+        Surveyor surveyor = surveyors.get(surveyorId);
+        return surveyor != null ? surveyor.getProjectName() : null;
+    }
+
+    public void remove(String surveyorId) {
+        grid.remove(surveyorId);
+        surveyors.remove(surveyorId);
+    }
+
+    /**
+     * Closest surveyors to a point. city/project/status are optional; status takes the
+     * values of PresenceService.StatusFilter (Online, Offline, Moving, Stationary).
+     */
+    public List<NearbySurveyor> findNearest(double latitude, double longitude, int limit,
+                                            String city, String project, String status) {
+        validatePoint(latitude, longitude);
+        if (limit < 1 || limit > MAX_NEAREST) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_NEAREST);
+        }
+        return toResults(grid.nearest(latitude, longitude, limit, filter(city, project, status)));
+    }
+
+    /**
+     * Surveyors within radiusMeters of a point, closest first.
+     */
+    public List<NearbySurveyor> findWithinRadius(double latitude, double longitude, double radiusMeters,
+                                                 String city, String project, String status) {
+        validatePoint(latitude, longitude);
+        if (!(radiusMeters > 0) || radiusMeters > MAX_RADIUS_METERS) {
+            throw new IllegalArgumentException("radiusMeters must be between 0 and " + (long) MAX_RADIUS_METERS);
+        }
+        return toResults(grid.withinRadius(latitude, longitude, radiusMeters, filter(city, project, status)));
+    }
+
+    /**
+     * Surveyors inside a polygon given as [longitude, latitude] vertices (GeoJSON order; the
+     * ring is closed automatically). Distances are measured from the polygon's centroid.
+     */
+    public List<NearbySurveyor> findWithinPolygon(List<double[]> vertices, String city, String project, String status) {
+        PreparedGeometry polygon = PreparedGeometryFactory.prepare(GeoPolygons.fromVertices(vertices));
+        Envelope envelope = polygon.getGeometry().getEnvelopeInternal();
+        Point centroid = polygon.getGeometry().getCentroid();
+
+        Predicate<String> filter = filter(city, project, status);
+        List<LiveSpatialGrid.Neighbor> inside = new ArrayList<>();
+        for (LiveSpatialGrid.Neighbor candidate : grid.withinBox(envelope.getMinY(), envelope.getMinX(),
+                envelope.getMaxY(), envelope.getMaxX(), centroid.getY(), centroid.getX(), filter)) {
+            Point point = GeoPolygons.factory().createPoint(new Coordinate(candidate.getLongitude(), candidate.getLatitude()));
+            if (polygon.covers(point)) {
+                inside.add(candidate);
+            }
+        }
+        return toResults(inside);
+    }
+
+    public int size() {
+        return grid.size();
+    }
+
+    private Predicate<String> filter(String city, String project, String status) {
+        PresenceService.StatusFilter statusFilter = PresenceService.StatusFilter.fromParam(status);
+        return surveyorId -> {
+            Surveyor surveyor = surveyors.get(surveyorId);
+            if (surveyor == null || surveyor.isAdmin()) {
+                return false;
+            }
+            return (city == null || Objects.equals(city, surveyor.getCity())) &&
+                   (project == null || Objects.equals(project, surveyor.getProjectName())) &&
+                   presenceService.matchesStatus(surveyorId, statusFilter);
+        };
+    }
+
+    private List<NearbySurveyor> toResults(List<LiveSpatialGrid.Neighbor> neighbors) {
+        List<NearbySurveyor> results = new ArrayList<>(neighbors.size());
+        for (LiveSpatialGrid.Neighbor neighbor : neighbors) {
+            Surveyor surveyor = surveyors.get(neighbor.getId());
+            NearbySurveyor result = new NearbySurveyor(neighbor.getId(),
+                surveyor != null ? surveyor.getName() : null,
+                surveyor != null ? surveyor.getCity() : null,
+                surveyor != null ? surveyor.getProjectName() : null,
+                neighbor.getLatitude(), neighbor.getLongitude(),
+                Instant.ofEpochMilli(neighbor.getEpochMillis()), neighbor.getDistanceMeters());
+            result.setOnline(presenceService.isOnline(neighbor.getId()));
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static void validatePoint(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Coordinates out of range");
+        }
+    }
+}
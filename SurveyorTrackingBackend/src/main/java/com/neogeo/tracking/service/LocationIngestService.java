@@ -0,0 +1,295 @@
+package com.neogeo.tracking.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import com.neogeo.tracking.LocationTrackService;
+import com.neogeo.tracking.dto.LiveLocationMessage;
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.repository.LocationTrackRepository;
+import com.neogeo.tracking.track.CompressionMode;
+import com.neogeo.tracking.util.GeoUtils;
+import com.neogeo.tracking.wal.WalRecord;
+
+/**
+ * Stores accepted fixes: duplicate check, GPS filter, compression, location_track insert and
+ * the derived state fed by each stored fix (latest location, distance, presence, live
+ * index, geofences, tile and heatmap invalidation).
+ *
+ * With the write-ahead log enabled every valid fix is logged first. When the database is
+ * unavailable the fix stays queued in the log and is replayed, in order, once inserts
+ * succeed again; fixes found in location_track already are skipped.
+ */
+@Service
+public class LocationIngestService {
+
+    private final LocationTrackService locationTrackService;
+    private final LocationTrackRepository locationTrackRepository;
+    private final SurveyorService surveyorService;
+    private final PresenceService presenceService;
+    private final LatestLocationService latestLocationService;
+    private final DistanceService distanceService;
+    private final LiveLocationIndexService liveLocationIndexService;
+    private final GeofenceService geofenceService;
+    private final TileService tileService;
+    private final HeatmapService heatmapService;
+    private final GpsFilterService gpsFilterService;
+    private final CompressionService compressionService;
+    private final WriteAheadLogService writeAheadLogService;
+
+    public LocationIngestService(LocationTrackService locationTrackService,
+                                 LocationTrackRepository locationTrackRepository,
+                                 SurveyorService surveyorService,
+                                 PresenceService presenceService,
+                                 LatestLocationService latestLocationService,
+                                 DistanceService distanceService,
+                                 LiveLocationIndexService liveLocationIndexService,
+                                 GeofenceService geofenceService,
+                                 TileService tileService,
+                                 HeatmapService heatmapService,
+                                 GpsFilterService gpsFilterService,
+                                 CompressionService compressionService,
+                                 WriteAheadLogService writeAheadLogService) {
+        this.locationTrackService = locationTrackService;
+        this.locationTrackRepository = locationTrackRepository;
+        this.surveyorService = surveyorService;
+        this.presenceService = presenceService;
+        this.latestLocationService = latestLocationService;
+        this.distanceService = distanceService;
+        this.liveLocationIndexService = liveLocationIndexService;
+        this.geofenceService = geofenceService;
+        this.tileService = tileService;
+        this.heatmapService = heatmapService;
+        this.gpsFilterService = gpsFilterService;
+        this.compressionService = compressionService;
+        this.writeAheadLogService = writeAheadLogService;
+    }
+
+    /**
+     * Stores one incoming fix; invalid fixes are logged and ignored.
+     * @param finalFix Tracking stops after this fix, so nothing may stay held
+     * @return false if the fix was queued in the write-ahead log instead of stored
+     */
+    public boolean accept(LiveLocationMessage message, boolean finalFix) {
+        try {
+            // Validate input data
+            if (message.getSurveyorId() == null || message.getSurveyorId().trim().isEmpty()) {
+                System.err.println("Invalid surveyor ID - cannot save location");
+                return true;
+            }
+
+            // Validate coordinates
+            if (message.getLatitude() < -90 || message.getLatitude() > 90 ||
+                message.getLongitude() < -180 || message.getLongitude() > 180) {
+                System.err.printf("Invalid coordinates for surveyor %s: lat=%.6f, lon=%.6f%n",
+                    message.getSurveyorId(), message.getLatitude(), message.getLongitude());
+                return true;
+            }
+
+            Instant timestamp;
+            if (message.getTimestamp() != null) {
+                timestamp = message.getTimestamp();
+            } else {
+                timestamp = Instant.now();
+                System.out.printf("No timestamp provided for surveyor %s, using current time%n",
+                    message.getSurveyorId());
+            }
+
+            if (!writeAheadLogService.isEnabled()) {
+                ingest(message.getSurveyorId(), message.getLatitude(), message.getLongitude(), timestamp, 0, finalFix);
+            } else {
+                WriteAheadLogService.Ticket ticket = writeAheadLogService.append(message.getSurveyorId(),
+                    message.getLatitude(), message.getLongitude(), timestamp, finalFix);
+                if (!ticket.isDirect()) {
+                    System.out.printf("⏳ Queued location #%d for surveyor %s in the WAL backlog%n",
+                        ticket.getSequence(), message.getSurveyorId());
+                    return false;
+                }
+                try {
+                    ingest(message.getSurveyorId(), message.getLatitude(), message.getLongitude(), timestamp,
+                        ticket.getSequence(), finalFix);
+                    writeAheadLogService.committed(ticket.getSequence());
+                } catch (DataAccessException | TransactionException e) {
+                    // Durable in the log; replay stores it once the database is back
+                    writeAheadLogService.failed(ticket.getSequence());
+                    System.err.printf("⏳ Database unavailable, queued location #%d for surveyor %s: %s%n",
+                        ticket.getSequence(), message.getSurveyorId(), e.getMessage());
+                    return false;
+                } catch (RuntimeException e) {
+                    // Replaying would fail the same way
+                    writeAheadLogService.committed(ticket.getSequence());
+                    throw e;
+                }
+            }
+
+            // Always update last activity timestamp, even if we skipped saving the location
+            surveyorService.updateSurveyorActivity(message.getSurveyorId());
+            return true;
+
+        } catch (Exception e) {
+            System.err.printf("❌ Failed to save location for surveyor %s: %s%n",
+                message.getSurveyorId(), e.getMessage());
+            e.printStackTrace();
+            throw e;
+        }
+    }
+
+    /**
+     * Stores fixes that compressors still hold for surveyors that stopped reporting, with
+     * the same follow-up as any stored fix.
+     */
+    @Scheduled(fixedDelayString = "${tracking.compression.idle-check-interval-ms:60000}")
+    public void flushIdleCompressors() {
+        int stored = compressionService.flushIdle(held -> afterStore(distanceService.saveAndRecord(held)));
+        if (stored > 0) {
+            System.out.printf("Stored %d held fixes of idle surveyors%n", stored);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayOnStartup() {
+        if (writeAheadLogService.isBacklogged()) {
+            replayBacklog();
+        }
+    }
+
+    /**
+     * Retries the WAL backlog after a database outage.
+     */
+    @Scheduled(initialDelayString = "${tracking.wal.replay-interval-ms:5000}",
+               fixedDelayString = "${tracking.wal.replay-interval-ms:5000}")
+    public void scheduledReplay() {
+        if (writeAheadLogService.isBacklogged()) {
+            replayBacklog();
+        }
+    }
+
+    /**
+     * Stores queued WAL records in order until the backlog is drained or the database
+     * fails again.
+     * @return Records replayed
+     */
+    public synchronized long replayBacklog() {
+        try {
+            long replayed = writeAheadLogService.replay(this::replay);
+            if (replayed > 0) {
+                System.out.printf("WAL replay stored %d queued locations%n", replayed);
+            }
+            return replayed;
+        } catch (Exception e) {
+            System.err.println("WAL replay failed: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private boolean replay(WalRecord record) {
+        try {
+            if (!locationTrackRepository.existsBySurveyorIdAndTimestamp(record.getSurveyorId(), record.getTimestamp())) {
+                ingest(record.getSurveyorId(), record.getLatitude(), record.getLongitude(), record.getTimestamp(),
+                    record.getSequence(), record.isFinalFix());
+            }
+            return true;
+        } catch (DataAccessException | TransactionException e) {
+            System.err.printf("WAL replay paused at #%d: %s%n", record.getSequence(), e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            System.err.printf("WAL replay dropped #%d for surveyor %s: %s%n",
+                record.getSequence(), record.getSurveyorId(), e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * @param walSequence The fix's WAL record, or 0 without the write-ahead log
+     */
+    private void ingest(String surveyorId, double latitude, double longitude, Instant timestamp, long walSequence,
+                        boolean finalFix) {
+        // Projects on LEGACY compression drop fixes very close to the previous location
+        boolean legacyCompression = compressionService.settingsFor(surveyorId).getMode() == CompressionMode.LEGACY;
+        LocationTrack previousLocation = legacyCompression ?
+            locationTrackService.getLatestLocation(surveyorId) : null;
+
+        if (previousLocation != null) {
+            // Calculate time difference in minutes
+            long timeDiffMinutes = Duration.between(previousLocation.getTimestamp(), timestamp).toMinutes();
+
+            // Calculate distance in meters
+            double distance = GeoUtils.distanceKm(
+                previousLocation.getLatitude(), previousLocation.getLongitude(), latitude, longitude) * 1000;
+
+            // Only skip if both time and distance are very small
+            // This ensures we capture all meaningful movements
+            if (timeDiffMinutes < 1 && distance < 10) {
+                // Less than 1 minute and less than 10 meters - consider as duplicate
+                System.out.printf("ℹ️ Skipping duplicate location for surveyor %s: time diff=%d min, distance=%.2f m%n",
+                    surveyorId, timeDiffMinutes, distance);
+                return;
+            }
+        }
+
+        LocationTrack locationTrack = new LocationTrack(surveyorId, latitude, longitude, timestamp, null);
+
+        // Speed-plausibility check and optional smoothing; implausible fixes are stored flagged
+        gpsFilterService.apply(locationTrack);
+
+        // Rejected fixes are kept for audit only and never move the surveyor
+        boolean rejected = locationTrack.getQualityFlag() == LocationTrack.QUALITY_REJECTED;
+
+        // The compressor may hold this fix back and release an earlier held one
+        List<LocationTrack> toStore = rejected ?
+            List.of(locationTrack) : compressionService.compress(locationTrack, walSequence, finalFix);
+        for (LocationTrack saved : distanceService.saveAndRecordAll(toStore)) {
+            afterStore(saved);
+        }
+        // A held fix released with this one is stored now, so its WAL record can be truncated
+        compressionService.stored(toStore);
+
+        if (!rejected) {
+            if (!toStore.contains(locationTrack)) {
+                // Held fixes still count as the surveyor's latest position
+                latestLocationService.record(locationTrack);
+            }
+
+            // Feed the presence index so Online/Offline transitions are pushed immediately
+            presenceService.recordGpsFix(surveyorId, locationTrack.getLatitude(), locationTrack.getLongitude(), timestamp);
+
+            // Move the surveyor in the live spatial index used by dispatch queries
+            liveLocationIndexService.record(surveyorId, locationTrack.getLatitude(), locationTrack.getLongitude(), timestamp);
+
+            // ENTER/EXIT/DWELL events for the fences this point falls in
+            geofenceService.evaluate(surveyorId, locationTrack.getLatitude(), locationTrack.getLongitude(), timestamp);
+        }
+
+        // Log GPS capture statistics
+        long totalPoints = locationTrackService.getLocationCount(surveyorId);
+        if (totalPoints % 5 == 0) {
+            System.out.printf("📊 GPS STATS: Surveyor %s has reached %d total GPS points%n", surveyorId, totalPoints);
+        }
+    }
+
+    /**
+     * Updates the state derived from a fix that was just stored
+     */
+    private void afterStore(LocationTrack saved) {
+        System.out.printf("✅ Successfully saved location ID=%d for surveyor %s at %s (%.6f, %.6f)%n",
+            saved.getId(), saved.getSurveyorId(), saved.getTimestamp().toString(),
+            saved.getLatitude(), saved.getLongitude());
+
+        if (saved.getQualityFlag() != LocationTrack.QUALITY_REJECTED) {
+            // Keep surveyor_latest_location current (older batch points never regress it)
+            latestLocationService.record(saved);
+
+            // Late uploads invalidate cached tiles and heatmaps of the windows they fall in
+            tileService.onPointStored(saved.getTimestamp());
+            heatmapService.onPointStored(saved.getTimestamp());
+        }
+    }
+}
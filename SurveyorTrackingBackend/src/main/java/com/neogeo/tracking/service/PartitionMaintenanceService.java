@@ -0,0 +1,140 @@
+package com.neogeo.tracking.service;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.repository.LocationTrackPartitionRepository;
+
+/**
+ * Keeps location_track partitions ahead of the clock and applies retention by
+ * removing whole monthly partitions. Retention is off unless retention-months is set.
+ *
+ * The distance of removed history is retired first (DistanceService.retireBefore), so
+ * all-time distances keep it and verification still matches. Rows older than the cutoff
+ * in location_track_default are deleted in drop mode; in detach mode they stay, excluded
+ * from retention, and are only reported.
+ */
+@Service
+public class PartitionMaintenanceService {
+
+    private final LocationTrackPartitionRepository partitionRepository;
+    private final TrackArchiveService trackArchiveService;
+    private final DistanceService distanceService;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean dropOnRetention;
+
+    public PartitionMaintenanceService(LocationTrackPartitionRepository partitionRepository,
+                                       TrackArchiveService trackArchiveService,
+                                       DistanceService distanceService,
+                                       @Value("${tracking.partitions.months-ahead:3}") int monthsAhead,
+                                       @Value("${tracking.partitions.retention-months:0}") int retentionMonths,
+                                       @Value("${tracking.partitions.retention-action:detach}") String retentionAction) {
+        if (!"detach".equals(retentionAction) && !"drop".equals(retentionAction)) {
+            throw new IllegalArgumentException("tracking.partitions.retention-action must be detach or drop");
+        }
+        this.partitionRepository = partitionRepository;
+        this.trackArchiveService = trackArchiveService;
+        this.distanceService = distanceService;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.dropOnRetention = "drop".equals(retentionAction);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            maintain();
+        } catch (Exception e) {
+            System.err.println("Partition maintenance at startup failed: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${tracking.partitions.maintenance-cron:0 0 2 * * *}")
+    public void scheduledMaintain() {
+        try {
+            maintain();
+        } catch (Exception e) {
+            System.err.println("Scheduled partition maintenance failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates partitions from the current month through monthsAhead, then removes
+     * partitions that ended before the retention cutoff.
+     * @return Summary with created and removed partitions
+     */
+    public Map<String, Object> maintain() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        List<YearMonth> attached = partitionRepository.findAttachedMonths();
+
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (!attached.contains(month)) {
+                created.add(partitionRepository.createPartition(month));
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        if (retentionMonths > 0) {
+            // Keep the current month plus retentionMonths full months before it
+            YearMonth cutoff = current.minusMonths(retentionMonths);
+            Instant cutoffStart = cutoff.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            List<YearMonth> expired = attached.stream().filter(month -> month.isBefore(cutoff)).toList();
+            if (!expired.isEmpty() || dropOnRetention) {
+                distanceService.retireBefore(cutoffStart);
+            }
+            for (YearMonth month : expired) {
+                partitionRepository.detachPartition(month);
+                if (dropOnRetention) {
+                    partitionRepository.dropPartition(month);
+                }
+                removed.add(LocationTrackPartitionRepository.partitionName(month));
+            }
+            if (dropOnRetention) {
+                // Archived days and stray default-partition rows of dropped months go too
+                int blocks = trackArchiveService.deleteBefore(cutoff.atDay(1));
+                if (blocks > 0) {
+                    System.out.printf("Dropped %d archived surveyor-days before %s%n", blocks, cutoff);
+                }
+                int defaultDeleted = partitionRepository.deleteDefaultRowsBefore(cutoffStart);
+                if (defaultDeleted > 0) {
+                    System.out.printf("Deleted %d location_track_default rows before %s%n", defaultDeleted, cutoff);
+                }
+            }
+        }
+
+        long defaultRows = partitionRepository.countDefaultPartitionRows();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("created", created);
+        summary.put(dropOnRetention ? "dropped" : "detached", removed);
+        summary.put("defaultPartitionRows", defaultRows);
+        if (!created.isEmpty() || !removed.isEmpty()) {
+            System.out.printf("Partition maintenance: %s%n", summary);
+        }
+        if (defaultRows > 0) {
+            System.out.printf("⚠️ %d location_track rows are outside every monthly partition (location_track_default)%n",
+                defaultRows);
+        }
+        return summary;
+    }
+
+    public List<String> listPartitions() {
+        List<String> names = new ArrayList<>();
+        partitionRepository.findAttachedMonths()
+            .forEach(month -> names.add(LocationTrackPartitionRepository.partitionName(month)));
+        return names;
+    }
+}
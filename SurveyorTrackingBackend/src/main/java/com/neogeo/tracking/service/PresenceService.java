@@ -0,0 +1,278 @@
+package com.neogeo.tracking.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.dto.PresenceEvent;
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.model.Surveyor;
+import com.neogeo.tracking.repository.LatestLocationRepository;
+import com.neogeo.tracking.repository.PresenceHistoryRepository;
+import com.neogeo.tracking.repository.SurveyorRepository;
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * In-memory presence index. Detects Online/Offline transitions as GPS fixes
+ * arrive (and via a periodic sweep for surveyors that go quiet), pushes them
+ * to /topic/presence and appends them to the presence history table in batches.
+ */
+@Service
+public class PresenceService {
+
+    public static final String PRESENCE_TOPIC = "/topic/presence";
+
+    // Same 12 minute rule as SurveyorService.isSurveyorOnline
+    private static final long ONLINE_TIMEOUT_SECONDS = 720;
+
+    // Speed over the last segment above which an online surveyor counts as moving (~1.8 km/h)
+    private static final double MOVING_SPEED_MPS = 0.5;
+
+    private final LatestLocationRepository latestLocationRepository;
+    private final SurveyorRepository surveyorRepository;
+    private final PresenceHistoryRepository presenceHistoryRepository;
+    private final WebSocketService webSocketService;
+
+    private final Map<String, PresenceState> states = new ConcurrentHashMap<>();
+    private final Queue<PresenceEvent> pendingHistory = new ConcurrentLinkedQueue<>();
+
+    public PresenceService(LatestLocationRepository latestLocationRepository,
+                           SurveyorRepository surveyorRepository,
+                           PresenceHistoryRepository presenceHistoryRepository,
+                           WebSocketService webSocketService) {
+        this.latestLocationRepository = latestLocationRepository;
+        this.surveyorRepository = surveyorRepository;
+        this.presenceHistoryRepository = presenceHistoryRepository;
+        this.webSocketService = webSocketService;
+    }
+
+    /**
+     * Seeds the index from the database without emitting events, so a restart
+     * does not replay transitions that were already recorded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            for (LocationTrack latest : latestLocationRepository.findAll()) {
+                PresenceState state = states.computeIfAbsent(latest.getSurveyorId(), id -> new PresenceState());
+                state.lastGps = latest.getTimestamp();
+                state.lastLatitude = latest.getLatitude();
+                state.lastLongitude = latest.getLongitude();
+            }
+            for (Surveyor surveyor : surveyorRepository.findAll()) {
+                if (surveyor.getLastActivityTimestamp() != null) {
+                    states.computeIfAbsent(surveyor.getId(), id -> new PresenceState())
+                        .lastActivity = surveyor.getLastActivityTimestamp();
+                }
+            }
+            Instant now = Instant.now();
+            states.values().forEach(state -> state.online = state.isOnlineAt(now));
+            System.out.printf("Presence index initialized with %d surveyors%n", states.size());
+        } catch (Exception e) {
+            System.err.println("Error initializing presence index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records an accepted GPS fix. Older fixes from batch uploads never move lastGps backwards.
+     */
+    public void recordGpsFix(String surveyorId, double latitude, double longitude, Instant timestamp) {
+        update(surveyorId, state -> {
+            if (state.lastGps == null || timestamp.isAfter(state.lastGps)) {
+                if (state.lastGps != null) {
+                    double seconds = (timestamp.toEpochMilli() - state.lastGps.toEpochMilli()) / 1000.0;
+                    state.speedMps = GeoUtils.distanceMeters(state.lastLatitude, state.lastLongitude,
+                        latitude, longitude) / seconds;
+                }
+                state.lastGps = timestamp;
+                state.lastLatitude = latitude;
+                state.lastLongitude = longitude;
+            }
+        });
+    }
+
+    /**
+     * Records non-GPS activity such as a mobile login.
+     */
+    public void recordActivity(String surveyorId, Instant timestamp) {
+        update(surveyorId, state -> {
+            if (state.lastActivity == null || timestamp.isAfter(state.lastActivity)) {
+                state.lastActivity = timestamp;
+            }
+        });
+    }
+
+    public boolean isOnline(String surveyorId) {
+        PresenceState state = states.get(surveyorId);
+        return state != null && state.isOnlineAt(Instant.now());
+    }
+
+    /**
+     * @return "Online" or "Offline"
+     */
+    public String getStatus(String surveyorId) {
+        return isOnline(surveyorId) ? PresenceEvent.ONLINE : PresenceEvent.OFFLINE;
+    }
+
+    /**
+     * Checks a surveyor against a status filter without touching the database.
+     * A null filter matches everyone.
+     */
+    public boolean matchesStatus(String surveyorId, StatusFilter filter) {
+        if (filter == null) {
+            return true;
+        }
+        PresenceState state = states.get(surveyorId);
+        boolean online = state != null && state.isOnlineAt(Instant.now());
+        switch (filter) {
+            case ONLINE:
+                return online;
+            case OFFLINE:
+                return !online;
+            case MOVING:
+                return online && state.speedMps > MOVING_SPEED_MPS;
+            case STATIONARY:
+                return online && state.speedMps <= MOVING_SPEED_MPS;
+            default:
+                throw new IllegalArgumentException("Unsupported status: " + filter);
+        }
+    }
+
+    public Instant getLastSeen(String surveyorId) {
+        PresenceState state = states.get(surveyorId);
+        return state != null ? state.lastSeen() : null;
+    }
+
+    /**
+     * Moves surveyors whose last fix has aged past the timeout to Offline.
+     */
+    @Scheduled(fixedDelayString = "${tracking.presence.sweep-interval-ms:30000}")
+    public void sweep() {
+        Instant now = Instant.now();
+        for (String surveyorId : states.keySet()) {
+            PresenceEvent[] event = new PresenceEvent[1];
+            states.computeIfPresent(surveyorId, (id, state) -> {
+                if (state.online && !state.isOnlineAt(now)) {
+                    state.online = false;
+                    Instant lastSeen = state.lastSeen();
+                    event[0] = new PresenceEvent(id, PresenceEvent.OFFLINE, PresenceEvent.ONLINE,
+                        lastSeen.plusSeconds(ONLINE_TIMEOUT_SECONDS), lastSeen);
+                }
+                return state;
+            });
+            if (event[0] != null) {
+                publish(event[0]);
+            }
+        }
+    }
+
+    /**
+     * Appends queued transitions to surveyor_presence_history in one batch.
+     */
+    @Scheduled(fixedDelayString = "${tracking.presence.history-flush-interval-ms:5000}")
+    public void flushHistory() {
+        List<PresenceEvent> batch = new ArrayList<>();
+        PresenceEvent event;
+        while ((event = pendingHistory.poll()) != null) {
+            batch.add(event);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            presenceHistoryRepository.saveAll(batch);
+        } catch (Exception e) {
+            System.err.printf("Error writing %d presence events, will retry: %s%n", batch.size(), e.getMessage());
+            pendingHistory.addAll(batch);
+        }
+    }
+
+    private void update(String surveyorId, java.util.function.Consumer<PresenceState> mutation) {
+        Instant now = Instant.now();
+        PresenceEvent[] event = new PresenceEvent[1];
+        states.compute(surveyorId, (id, state) -> {
+            if (state == null) {
+                state = new PresenceState();
+            }
+            mutation.accept(state);
+            boolean online = state.isOnlineAt(now);
+            if (online && !state.online) {
+                Instant lastSeen = state.lastSeen();
+                event[0] = new PresenceEvent(id, PresenceEvent.ONLINE, PresenceEvent.OFFLINE,
+                    lastSeen.isAfter(now) ? now : lastSeen, lastSeen);
+            }
+            state.online = online;
+            return state;
+        });
+        if (event[0] != null) {
+            publish(event[0]);
+        }
+    }
+
+    private void publish(PresenceEvent event) {
+        pendingHistory.add(event);
+        try {
+            webSocketService.sendMessage(PRESENCE_TOPIC, event);
+        } catch (Exception e) {
+            System.err.println("Error publishing presence event: " + e.getMessage());
+        }
+        System.out.printf("Presence: surveyor %s %s -> %s%n",
+            event.getSurveyorId(), event.getPreviousStatus(), event.getStatus());
+    }
+
+    /**
+     * Values of the status request parameter on the surveyor filters and live searches.
+     */
+    public enum StatusFilter {
+        ONLINE, OFFLINE, MOVING, STATIONARY;
+
+        /**
+         * Resolves a status parameter (case-insensitive: Online, Offline, Moving, Stationary)
+         * @return null for a null or blank value, which matches every surveyor
+         * @throws IllegalArgumentException if the value is not a known status
+         */
+        public static StatusFilter fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            for (StatusFilter filter : values()) {
+                if (filter.name().equalsIgnoreCase(value.trim())) {
+                    return filter;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported status: " + value);
+        }
+    }
+
+    /**
+     * Mirrors SurveyorService.isSurveyorOnline: the GPS timestamp wins when present,
+     * otherwise fall back to the last login/activity time.
+     */
+    private static final class PresenceState {
+        Instant lastGps;
+        Instant lastActivity;
+        double lastLatitude;
+        double lastLongitude;
+        double speedMps;
+        boolean online;
+
+        Instant lastSeen() {
+            return lastGps != null ? lastGps : lastActivity;
+        }
+
+        boolean isOnlineAt(Instant now) {
+            Instant lastSeen = lastSeen();
+            return lastSeen != null &&
+                   now.getEpochSecond() - lastSeen.getEpochSecond() <= ONLINE_TIMEOUT_SECONDS;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.neogeo.tracking.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.neogeo.tracking.dto.SurveyorStop;
+import com.neogeo.tracking.dto.SurveyorTrip;
+import com.neogeo.tracking.repository.DailySummaryRepository;
+import com.neogeo.tracking.repository.SegmentRepository;
+import com.neogeo.tracking.repository.SegmentRepository.Departure;
+import com.neogeo.tracking.track.StayPointDetector;
+
+/**
+ * Splits each surveyor's history into stops and trips. The scheduled run takes the
+ * location_track rows above its id watermark, and for every surveyor they touch streams
+ * the points after the last stored stop through a StayPointDetector, storing the stops
+ * (and trips into them) that have ended. The part after the last stored stop is only
+ * computed when read. A point older than the last stored stop makes its surveyor
+ * re-segment from the last stop that ended before it. Points are read through
+ * TrackArchiveService.scan, so re-segmenting into archived days sees their blocks too.
+ */
+@Service
+public class SegmentationService {
+
+    private static final String JOB_NAME = "stay_point_segmentation";
+
+    // Same reasoning as the daily rollup: ids become visible at commit, so re-scan a little
+    // behind the watermark. Points that were already segmented can look late here and cause
+    // their last stop to be rebuilt, which gives the same rows again.
+    private static final long ID_OVERLAP = 1000;
+
+    private static final Duration MAX_WINDOW = Duration.ofDays(31);
+
+    // Upper bound for streaming a surveyor's tail; covers devices whose clock runs slightly ahead
+    private static final Duration FUTURE_TOLERANCE = Duration.ofDays(1);
+
+    private final SegmentRepository segmentRepository;
+    private final DailySummaryRepository dailySummaryRepository;
+    private final TrackArchiveService trackArchiveService;
+    private final TransactionTemplate transactionTemplate;
+    private final double stopRadiusMeters;
+    private final long minStopMillis;
+    private final long batchSize;
+
+    public SegmentationService(SegmentRepository segmentRepository,
+                               DailySummaryRepository dailySummaryRepository,
+                               TrackArchiveService trackArchiveService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${tracking.segmentation.stop-radius-meters:100}") double stopRadiusMeters,
+                               @Value("${tracking.segmentation.min-stop-seconds:300}") long minStopSeconds,
+                               @Value("${tracking.segmentation.batch-size:50000}") long batchSize) {
+        this.segmentRepository = segmentRepository;
+        this.dailySummaryRepository = dailySummaryRepository;
+        this.trackArchiveService = trackArchiveService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stopRadiusMeters = stopRadiusMeters;
+        this.minStopMillis = minStopSeconds * 1000;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Segments the surveyors touched by rows added since the last run, one id batch per
+     * transaction. Another instance holding the watermark makes this run a no-op.
+     * @return Summary with batches, surveyors, stops stored, the new watermark and elapsed time
+     */
+    public Map<String, Object> runIncremental() {
+        long startTime = System.currentTimeMillis();
+        int batches = 0;
+        int surveyors = 0;
+        int stops = 0;
+        long watermark = -1;
+        boolean skipped = false;
+
+        while (true) {
+            long[] result = transactionTemplate.execute(status -> segmentNextBatch());
+            if (result == null) {
+                skipped = true;
+                break;
+            }
+            watermark = result[0];
+            if (result[1] < 0) {
+                break;
+            }
+            batches++;
+            surveyors += result[1];
+            stops += result[2];
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("skipped", skipped);
+        summary.put("batches", batches);
+        summary.put("surveyors", surveyors);
+        summary.put("stopsStored", stops);
+        summary.put("watermark", watermark);
+        summary.put("durationMs", System.currentTimeMillis() - startTime);
+        if (batches > 0) {
+            System.out.printf("Stay-point segmentation: %s%n", summary);
+        }
+        return summary;
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.segmentation.interval-ms:300000}")
+    public void scheduledRun() {
+        try {
+            runIncremental();
+        } catch (Exception e) {
+            System.err.println("Scheduled stay-point segmentation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops a surveyor's stops and trips from the last stop that ended before from (all of
+     * them when from is null) and segments the history again.
+     * @return Summary with stops deleted and stored
+     */
+    public Map<String, Object> rebuild(String surveyorId, Instant from) {
+        long startTime = System.currentTimeMillis();
+        int[] counts = transactionTemplate.execute(status -> segmentSurveyor(surveyorId, from != null ? from : Instant.EPOCH));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("surveyorId", surveyorId);
+        summary.put("stopsDeleted", counts[0]);
+        summary.put("stopsStored", counts[1]);
+        summary.put("durationMs", System.currentTimeMillis() - startTime);
+        System.out.printf("Stay-point segmentation rebuild: %s%n", summary);
+        return summary;
+    }
+
+    /**
+     * Stops and trips overlapping [start, end]. Stored rows are read as-is; when the range
+     * reaches past the last stored stop, the rest is segmented from raw points and returned
+     * without ids, with open set on a stop or trip that is still in progress.
+     * @return Map with surveyorId, stops and trips, each in time order
+     * @throws IllegalArgumentException for an unordered or too long window
+     */
+    public Map<String, Object> getSegments(String surveyorId, Instant start, Instant end) {
+        if (start.isAfter(end) || Duration.between(start, end).compareTo(MAX_WINDOW) > 0) {
+            throw new IllegalArgumentException("Time window must be ordered and at most " + MAX_WINDOW.toDays() + " days");
+        }
+        List<SurveyorStop> stops = segmentRepository.findStops(surveyorId, start, end);
+        List<SurveyorTrip> trips = segmentRepository.findTrips(surveyorId, start, end);
+
+        Optional<Departure> last = segmentRepository.findLastDeparture(surveyorId);
+        if (last.isEmpty() || !end.isBefore(last.get().getTime())) {
+            List<SurveyorStop> tailStops = new ArrayList<>();
+            List<SurveyorTrip> tailTrips = new ArrayList<>();
+            StayPointDetector detector = newDetector(surveyorId, (stop, tripBefore, departureId, lat, lon) -> {
+                tailStops.add(stop);
+                if (tripBefore != null) {
+                    tailTrips.add(tripBefore);
+                }
+            });
+            Instant tailStart;
+            if (last.isPresent()) {
+                Departure departure = last.get();
+                detector.resumeAfter(departure.getTrackId(), departure.getLatitude(), departure.getLongitude(),
+                    departure.getTime().toEpochMilli());
+                tailStart = departure.getTime();
+            } else {
+                tailStart = start;
+            }
+            trackArchiveService.scan(surveyorId, tailStart, end, detector);
+            addIfPresent(tailStops, detector.openStop());
+            addIfPresent(tailTrips, detector.openTrip());
+
+            tailStops.stream().filter(stop -> !stop.getDepartureTime().isBefore(start)).forEach(stops::add);
+            tailTrips.stream().filter(trip -> !trip.getEndTime().isBefore(start)).forEach(trips::add);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("surveyorId", surveyorId);
+        result.put("stops", stops);
+        result.put("trips", trips);
+        return result;
+    }
+
+    public void delete(String surveyorId) {
+        segmentRepository.deleteBySurveyorId(surveyorId);
+    }
+
+    /**
+     * @return null if the watermark is locked elsewhere, otherwise {watermark, surveyors, stops stored}
+     *         with surveyors = -1 once caught up
+     */
+    private long[] segmentNextBatch() {
+        Optional<Long> locked = dailySummaryRepository.lockWatermark(JOB_NAME);
+        if (locked.isEmpty()) {
+            return null;
+        }
+        long watermark = locked.get();
+        long maxId = dailySummaryRepository.findMaxLocationTrackId();
+        if (maxId <= watermark) {
+            return new long[] { watermark, -1, 0 };
+        }
+        long toId = Math.min(watermark + batchSize, maxId);
+        long fromId = Math.max(0, watermark - ID_OVERLAP);
+        Map<String, Instant> earliest = segmentRepository.findEarliestByIdRange(fromId, toId);
+        long stops = 0;
+        for (Map.Entry<String, Instant> entry : earliest.entrySet()) {
+            stops += segmentSurveyor(entry.getKey(), entry.getValue())[1];
+        }
+        dailySummaryRepository.updateWatermark(JOB_NAME, toId);
+        return new long[] { toId, earliest.size(), stops };
+    }
+
+    /**
+     * Segments one surveyor past its last stored stop, first rolling back to the last stop that
+     * ended before earliestChange if that is older. Runs inside the caller's transaction.
+     * @return {stops deleted, stops stored}
+     */
+    private int[] segmentSurveyor(String surveyorId, Instant earliestChange) {
+        Optional<Long> lastStopId = segmentRepository.lockState(surveyorId);
+        Departure resume = lastStopId.flatMap(segmentRepository::findDeparture).orElse(null);
+        int deleted = 0;
+        if (resume != null && earliestChange.isBefore(resume.getTime())) {
+            resume = segmentRepository.findLastDepartureBefore(surveyorId, earliestChange).orElse(null);
+            deleted = segmentRepository.deleteStopsAfter(surveyorId, resume != null ? resume.getTime() : null);
+        }
+
+        // Collected first and written after the stream, which keeps its cursor open meanwhile
+        List<PendingStop> found = new ArrayList<>();
+        StayPointDetector detector = newDetector(surveyorId, (stop, tripBefore, departureId, lat, lon) ->
+            found.add(new PendingStop(stop, tripBefore, departureId, lat, lon)));
+        Instant streamStart = Instant.EPOCH;
+        if (resume != null) {
+            detector.resumeAfter(resume.getTrackId(), resume.getLatitude(), resume.getLongitude(),
+                resume.getTime().toEpochMilli());
+            streamStart = resume.getTime();
+        }
+        trackArchiveService.scan(surveyorId, streamStart, Instant.now().plus(FUTURE_TOLERANCE), detector);
+
+        Long previousStopId = resume != null ? resume.getStopId() : null;
+        for (PendingStop pending : found) {
+            long stopId = segmentRepository.insertStop(pending.stop, pending.departureTrackId,
+                pending.departureLatitude, pending.departureLongitude);
+            if (pending.tripBefore != null && previousStopId != null) {
+                pending.tripBefore.setFromStopId(previousStopId);
+                pending.tripBefore.setToStopId(stopId);
+                segmentRepository.insertTrip(pending.tripBefore);
+            }
+            previousStopId = stopId;
+        }
+        segmentRepository.updateState(surveyorId, previousStopId);
+        return new int[] { deleted, found.size() };
+    }
+
+    private StayPointDetector newDetector(String surveyorId, StayPointDetector.Listener listener) {
+        return new StayPointDetector(surveyorId, stopRadiusMeters, minStopMillis, listener);
+    }
+
+    private static <T> void addIfPresent(List<T> list, T value) {
+        if (value != null) {
+            list.add(value);
+        }
+    }
+
+    private static final class PendingStop {
+        final SurveyorStop stop;
+        final SurveyorTrip tripBefore;
+        final long departureTrackId;
+        final double departureLatitude;
+        final double departureLongitude;
+
+        PendingStop(SurveyorStop stop, SurveyorTrip tripBefore, long departureTrackId,
+                    double departureLatitude, double departureLongitude) {
+            this.stop = stop;
+            this.tripBefore = tripBefore;
+            this.departureTrackId = departureTrackId;
+            this.departureLatitude = departureLatitude;
+            this.departureLongitude = departureLongitude;
+        }
+    }
+}
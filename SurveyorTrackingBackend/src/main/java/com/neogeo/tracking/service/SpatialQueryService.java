@@ -0,0 +1,115 @@
+package com.neogeo.tracking.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.dto.NearbySurveyor;
+import com.neogeo.tracking.dto.SurveyorSpatialMatch;
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.repository.SpatialQueryRepository;
+
+/**
+ * Validates spatial searches and bounds their cost before they reach PostGIS.
+ * Invalid arguments are reported with IllegalArgumentException.
+ */
+@Service
+public class SpatialQueryService {
+
+    private static final double MAX_RADIUS_METERS = 100_000;
+    private static final Duration MAX_WINDOW = Duration.ofDays(31);
+    private static final int MAX_POINTS = 10_000;
+    private static final int MAX_NEAREST = 100;
+
+    private final SpatialQueryRepository spatialQueryRepository;
+    private final PresenceService presenceService;
+
+    public SpatialQueryService(SpatialQueryRepository spatialQueryRepository, PresenceService presenceService) {
+        this.spatialQueryRepository = spatialQueryRepository;
+        this.presenceService = presenceService;
+    }
+
+    public List<LocationTrack> findPointsWithinRadius(double latitude, double longitude, double radiusMeters,
+                                                      Instant start, Instant end, String surveyorId, int limit) {
+        validatePoint(latitude, longitude);
+        validateRadius(radiusMeters);
+        validateWindow(start, end);
+        validateLimit(limit, MAX_POINTS);
+        return spatialQueryRepository.findPointsWithinRadius(latitude, longitude, radiusMeters,
+            start, end, surveyorId, limit);
+    }
+
+    public List<LocationTrack> findPointsWithinBbox(double minLatitude, double minLongitude, double maxLatitude,
+                                                    double maxLongitude, Instant start, Instant end,
+                                                    String surveyorId, int limit) {
+        validateBbox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+        validateWindow(start, end);
+        validateLimit(limit, MAX_POINTS);
+        return spatialQueryRepository.findPointsWithinBbox(minLatitude, minLongitude, maxLatitude, maxLongitude,
+            start, end, surveyorId, limit);
+    }
+
+    public List<SurveyorSpatialMatch> findSurveyorsWithinRadius(double latitude, double longitude,
+                                                                double radiusMeters, Instant start, Instant end) {
+        validatePoint(latitude, longitude);
+        validateRadius(radiusMeters);
+        validateWindow(start, end);
+        return spatialQueryRepository.findSurveyorsWithinRadius(latitude, longitude, radiusMeters, start, end);
+    }
+
+    public List<SurveyorSpatialMatch> findSurveyorsWithinBbox(double minLatitude, double minLongitude,
+                                                              double maxLatitude, double maxLongitude,
+                                                              Instant start, Instant end) {
+        validateBbox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+        validateWindow(start, end);
+        return spatialQueryRepository.findSurveyorsWithinBbox(minLatitude, minLongitude, maxLatitude, maxLongitude,
+            start, end);
+    }
+
+    /**
+     * Nearest surveyors by their latest stored position, with online status from the presence index.
+     */
+    public List<NearbySurveyor> findNearestSurveyors(double latitude, double longitude, int limit,
+                                                     String city, String project, Instant since) {
+        validatePoint(latitude, longitude);
+        validateLimit(limit, MAX_NEAREST);
+        List<NearbySurveyor> nearest = spatialQueryRepository.findNearestSurveyors(latitude, longitude, limit,
+            city, project, since);
+        nearest.forEach(surveyor -> surveyor.setOnline(presenceService.isOnline(surveyor.getSurveyorId())));
+        return nearest;
+    }
+
+    private static void validatePoint(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Coordinates out of range");
+        }
+    }
+
+    private static void validateRadius(double radiusMeters) {
+        if (!(radiusMeters > 0) || radiusMeters > MAX_RADIUS_METERS) {
+            throw new IllegalArgumentException("radiusMeters must be between 0 and " + (long) MAX_RADIUS_METERS);
+        }
+    }
+
+    private static void validateBbox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        validatePoint(minLatitude, minLongitude);
+        validatePoint(maxLatitude, maxLongitude);
+        if (minLatitude > maxLatitude || minLongitude > maxLongitude) {
+            throw new IllegalArgumentException("Bounding box minimum must not exceed maximum");
+        }
+    }
+
+    private static void validateWindow(Instant start, Instant end) {
+        if (start.isAfter(end) || Duration.between(start, end).compareTo(MAX_WINDOW) > 0) {
+            throw new IllegalArgumentException("Time window must be ordered and at most " + MAX_WINDOW.toDays() + " days");
+        }
+    }
+
+    private static void validateLimit(int limit, int max) {
+        if (limit < 1 || limit > max) {
+            throw new IllegalArgumentException("limit must be between 1 and " + max);
+        }
+    }
+}
@@ -4,9 +4,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
 import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 
 import com.neogeo.tracking.model.Surveyor;
 import com.neogeo.tracking.repository.SurveyorRepository;
@@ -16,14 +24,47 @@ import com.neogeo.tracking.repository.LocationTrackRepository;
 public class SurveyorService {
     private final SurveyorRepository repository;
     private final LocationTrackRepository locationTrackRepository;
+    private final PresenceService presenceService;
+    private final LatestLocationService latestLocationService;
+    private final DistanceService distanceService;
+    private final DailyRollupService dailyRollupService;
+    private final LiveLocationIndexService liveLocationIndexService;
+    private final GeofenceService geofenceService;
+    private final SegmentationService segmentationService;
+    private final GpsFilterService gpsFilterService;
+    private final CompressionService compressionService;
+    private final TrackArchiveService trackArchiveService;
+    private final WriteAheadLogService writeAheadLogService;
+    private final Duration credentialCacheTtl;
     private final Map<String, Instant> lastActivityMap = new ConcurrentHashMap<>();
+    // Username -> the last credentials the database confirmed
+    private final Map<String, VerifiedCredentials> verifiedCredentials = new ConcurrentHashMap<>();
     // Consider a surveyor online if they've been active in the last 12 minutes
     // This matches the requirement: if last timestamp <= 12 minutes ago → Online
     private static final long ONLINE_TIMEOUT_SECONDS = 720; // 12 minutes (720 seconds)
 
-    public SurveyorService(SurveyorRepository repository, LocationTrackRepository locationTrackRepository) {
+    public SurveyorService(SurveyorRepository repository, LocationTrackRepository locationTrackRepository,
+                           PresenceService presenceService, LatestLocationService latestLocationService,
+                           DistanceService distanceService, DailyRollupService dailyRollupService,
+                           LiveLocationIndexService liveLocationIndexService, GeofenceService geofenceService,
+                           SegmentationService segmentationService, GpsFilterService gpsFilterService,
+                           CompressionService compressionService, TrackArchiveService trackArchiveService,
+                           WriteAheadLogService writeAheadLogService,
+                           @Value("${tracking.wal.credential-cache-seconds:900}") long credentialCacheSeconds) {
         this.repository = repository;
         this.locationTrackRepository = locationTrackRepository;
+        this.presenceService = presenceService;
+        this.latestLocationService = latestLocationService;
+        this.distanceService = distanceService;
+        this.dailyRollupService = dailyRollupService;
+        this.liveLocationIndexService = liveLocationIndexService;
+        this.geofenceService = geofenceService;
+        this.segmentationService = segmentationService;
+        this.gpsFilterService = gpsFilterService;
+        this.compressionService = compressionService;
+        this.trackArchiveService = trackArchiveService;
+        this.writeAheadLogService = writeAheadLogService;
+        this.credentialCacheTtl = Duration.ofSeconds(credentialCacheSeconds);
     }
 
     public List<Surveyor> listAll() {
@@ -44,7 +85,11 @@ public class SurveyorService {
     }
 
     public Surveyor save(Surveyor surveyor) {
-        return repository.save(surveyor);
+        forgetStoredCredentials(surveyor.getId());
+        Surveyor saved = repository.save(surveyor);
+        liveLocationIndexService.updateSurveyor(saved);
+        forgetCredentials(saved.getUsername());
+        return saved;
     }
 
     /**
@@ -56,7 +101,11 @@ public class SurveyorService {
     public Surveyor saveOrUpdateSurveyor(Surveyor surveyor) {
         // You can add additional logic here such as password hashing
         // before saving the surveyor
-        return repository.save(surveyor);
+        forgetStoredCredentials(surveyor.getId());
+        Surveyor saved = repository.save(surveyor);
+        liveLocationIndexService.updateSurveyor(saved);
+        forgetCredentials(saved.getUsername());
+        return saved;
     }
 
     public List<Surveyor> filter(String city, String project) {
@@ -70,14 +119,70 @@ public class SurveyorService {
         return repository.findByUsername(username).orElse(null);
     }
     
+    /**
+     * Checks credentials against the database. With the write-ahead log enabled, credentials
+     * this instance verified within credential-cache-seconds are still accepted while the
+     * database is unreachable, so devices can keep reporting into the log. Changes made
+     * through other instances only reach this cache when the entry expires.
+     */
     public boolean authenticateSurveyor(String username, String password) {
-        Surveyor surveyor = repository.findByUsername(username).orElse(null);
-        if (surveyor != null) {
-            return password.equals(surveyor.getPassword());
+        Surveyor surveyor;
+        try {
+            surveyor = repository.findByUsername(username).orElse(null);
+        } catch (DataAccessException | TransactionException e) {
+            VerifiedCredentials cached = verifiedCredentials.get(username);
+            if (cached != null && cached.verifiedAt.isAfter(Instant.now().minus(credentialCacheTtl)) &&
+                credentialDigest(username, password).equals(cached.digest)) {
+                return true;
+            }
+            throw e;
+        }
+        if (surveyor != null && password.equals(surveyor.getPassword())) {
+            if (writeAheadLogService.isEnabled() && !credentialCacheTtl.isZero()) {
+                verifiedCredentials.put(username,
+                    new VerifiedCredentials(credentialDigest(username, password), Instant.now()));
+            }
+            return true;
         }
+        forgetCredentials(username);
         return false;
     }
 
+    private void forgetCredentials(String username) {
+        if (username != null) {
+            verifiedCredentials.remove(username);
+        }
+    }
+
+    /**
+     * Forgets the credentials cached under the username a surveyor has before an update,
+     * which a rename would otherwise leave behind.
+     */
+    private void forgetStoredCredentials(String surveyorId) {
+        if (surveyorId != null && !verifiedCredentials.isEmpty()) {
+            repository.findById(surveyorId).ifPresent(existing -> forgetCredentials(existing.getUsername()));
+        }
+    }
+
+    private static final class VerifiedCredentials {
+        final String digest;
+        final Instant verifiedAt;
+
+        VerifiedCredentials(String digest, Instant verifiedAt) {
+            this.digest = digest;
+            this.verifiedAt = verifiedAt;
+        }
+    }
+
+    private static String credentialDigest(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest((username + ":" + password).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Authenticates a surveyor and returns a response with status and details
      * Updates activity status (used for mobile app login)
@@ -127,6 +232,7 @@ public class SurveyorService {
      */
     public void updateSurveyorActivity(String surveyorId) {
         lastActivityMap.put(surveyorId, Instant.now());
+        presenceService.recordActivity(surveyorId, Instant.now());
         // Also persist last activity timestamp in DB
         Surveyor surveyor = repository.findById(surveyorId).orElse(null);
         if (surveyor != null) {
@@ -141,13 +247,12 @@ public class SurveyorService {
      * @return true if the surveyor has been active recently, false otherwise
      */
     public boolean isSurveyorOnline(String surveyorId) {
-        // Check the latest GPS timestamp from location_track table
+        // Check the latest GPS timestamp from the surveyor_latest_location table
         // This is the most accurate way to determine if a surveyor is online
-        java.util.Optional<com.neogeo.tracking.model.LocationTrack> latestLocation = 
-            locationTrackRepository.findTopBySurveyorIdOrderByTimestampDesc(surveyorId);
+        com.neogeo.tracking.model.LocationTrack latestLocation = latestLocationService.getLatest(surveyorId);
         
-        if (latestLocation.isPresent()) {
-            Instant lastGpsTimestamp = latestLocation.get().getTimestamp();
+        if (latestLocation != null) {
+            Instant lastGpsTimestamp = latestLocation.getTimestamp();
             long secondsSinceLastGps = Instant.now().getEpochSecond() - lastGpsTimestamp.getEpochSecond();
             return secondsSinceLastGps <= ONLINE_TIMEOUT_SECONDS;
         }
@@ -193,6 +298,16 @@ public class SurveyorService {
         if (repository.existsById(id)) {
             // Also delete associated location tracks
             locationTrackRepository.deleteBySurveyorId(id);
+            trackArchiveService.delete(id);
+            latestLocationService.delete(id);
+            distanceService.delete(id);
+            dailyRollupService.delete(id);
+            segmentationService.delete(id);
+            gpsFilterService.forget(id);
+            compressionService.forget(id);
+            liveLocationIndexService.remove(id);
+            geofenceService.removeSurveyor(id);
+            repository.findById(id).ifPresent(surveyor -> forgetCredentials(surveyor.getUsername()));
             repository.deleteById(id);
             return true;
         }
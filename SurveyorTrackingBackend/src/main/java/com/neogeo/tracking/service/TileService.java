@@ -0,0 +1,145 @@
+package com.neogeo.tracking.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.repository.TileRepository;
+import com.neogeo.tracking.util.TimeWindowCache;
+
+/**
+ * Vector tiles of historical tracks. The layer set depends on the zoom (coverage below
+ * trackMinZoom, tracks from it, tracks plus points from pointMinZoom). Tiles of closed
+ * windows, i.e. windows ending more than closedAfter ago, do not change except through
+ * late uploads, so they are kept in an LRU cache bounded in bytes; a late point drops
+ * the cached tiles whose window contains it.
+ */
+@Service
+public class TileService {
+
+    private static final int MAX_ZOOM = 22;
+    private static final Duration MAX_WINDOW = Duration.ofDays(31);
+
+    private final TileRepository tileRepository;
+    private final int trackMinZoom;
+    private final int pointMinZoom;
+    private final Duration closedAfter;
+    private final long maxGapSeconds;
+    private final TimeWindowCache<TileKey, byte[]> cache;
+
+    public TileService(TileRepository tileRepository,
+                       @Value("${tracking.tiles.track-min-zoom:12}") int trackMinZoom,
+                       @Value("${tracking.tiles.point-min-zoom:16}") int pointMinZoom,
+                       @Value("${tracking.tiles.closed-after-seconds:3600}") long closedAfterSeconds,
+                       @Value("${tracking.tiles.cache-max-bytes:67108864}") long cacheMaxBytes,
+                       @Value("${tracking.analytics.max-active-gap-seconds:300}") long maxGapSeconds) {
+        this.tileRepository = tileRepository;
+        this.trackMinZoom = trackMinZoom;
+        this.pointMinZoom = pointMinZoom;
+        this.closedAfter = Duration.ofSeconds(closedAfterSeconds);
+        this.maxGapSeconds = maxGapSeconds;
+        this.cache = new TimeWindowCache<>(cacheMaxBytes, tile -> tile.length);
+    }
+
+    /**
+     * @return The encoded tile, empty when nothing falls inside it
+     * @throws IllegalArgumentException for tile coordinates outside the zoom level or an invalid window
+     */
+    public byte[] getTile(int z, int x, int y, Instant start, Instant end, String project, String surveyorId) {
+        if (z < 0 || z > MAX_ZOOM || x < 0 || y < 0 || x >= (1L << z) || y >= (1L << z)) {
+            throw new IllegalArgumentException("Tile " + z + "/" + x + "/" + y + " does not exist");
+        }
+        if (start.isAfter(end) || Duration.between(start, end).compareTo(MAX_WINDOW) > 0) {
+            throw new IllegalArgumentException("Time window must be ordered and at most " + MAX_WINDOW.toDays() + " days");
+        }
+
+        boolean cacheable = isClosed(end);
+        TileKey key = new TileKey(z, x, y, start, end, project, surveyorId);
+        long generation = cache.generation();
+        if (cacheable) {
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        byte[] tile;
+        if (z < trackMinZoom) {
+            tile = tileRepository.coverageTile(z, x, y, start, end, project, surveyorId);
+        } else {
+            tile = tileRepository.trackTile(z, x, y, start, end, project, surveyorId, maxGapSeconds, z >= pointMinZoom);
+        }
+        if (cacheable) {
+            cache.put(key, start, end, tile, generation);
+        }
+        return tile;
+    }
+
+    /**
+     * Windows that ended more than closedAfter ago; their tiles may be cached by clients too.
+     */
+    public boolean isClosed(Instant end) {
+        return end.isBefore(Instant.now().minus(closedAfter));
+    }
+
+    /**
+     * Drops cached tiles whose window contains a point that was stored late. Points inside the
+     * open part of the timeline never match a cached window, so ingest only pays for late uploads.
+     */
+    public void onPointStored(Instant timestamp) {
+        if (!isClosed(timestamp)) {
+            return;
+        }
+        int removed = cache.invalidate(timestamp);
+        if (removed > 0) {
+            System.out.printf("Invalidated %d cached tiles for late point at %s%n", removed, timestamp);
+        }
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return cache.stats();
+    }
+
+    private static final class TileKey {
+        final int z;
+        final int x;
+        final int y;
+        final Instant start;
+        final Instant end;
+        final String project;
+        final String surveyorId;
+
+        TileKey(int z, int x, int y, Instant start, Instant end, String project, String surveyorId) {
+            this.z = z;
+            this.x = x;
+            this.y = y;
+            this.start = start;
+            this.end = end;
+            this.project = project;
+            this.surveyorId = surveyorId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) o;
+            return z == other.z && x == other.x && y == other.y && start.equals(other.start) &&
+                   end.equals(other.end) && Objects.equals(project, other.project) &&
+                   Objects.equals(surveyorId, other.surveyorId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(z, x, y, start, end, project, surveyorId);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.neogeo.tracking.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.dto.SurveyorLocationSummary;
+import com.neogeo.tracking.dto.TrackSummary;
+import com.neogeo.tracking.repository.SurveyorLocationRepository;
+import com.neogeo.tracking.repository.TrackAnalyticsRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Distance, active time, point count and bounding box for time windows. Each surveyor's
+ * window is one aggregate query; project-wide requests run those queries concurrently
+ * on a small shared pool so the database connection pool is not exhausted.
+ */
+@Service
+public class TrackAnalyticsService {
+
+    private final TrackAnalyticsRepository trackAnalyticsRepository;
+    private final SurveyorLocationRepository surveyorLocationRepository;
+    private final long maxActiveGapSeconds;
+    private final ExecutorService executor;
+
+    public TrackAnalyticsService(TrackAnalyticsRepository trackAnalyticsRepository,
+                                 SurveyorLocationRepository surveyorLocationRepository,
+                                 @Value("${tracking.analytics.max-active-gap-seconds:300}") long maxActiveGapSeconds,
+                                 @Value("${tracking.analytics.parallelism:4}") int parallelism) {
+        this.trackAnalyticsRepository = trackAnalyticsRepository;
+        this.surveyorLocationRepository = surveyorLocationRepository;
+        this.maxActiveGapSeconds = maxActiveGapSeconds;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+    }
+
+    public TrackSummary summarize(String surveyorId, Instant start, Instant end) {
+        return trackAnalyticsRepository.summarize(surveyorId, start, end, maxActiveGapSeconds);
+    }
+
+    /**
+     * Summaries for every non-admin surveyor matching city/project (null means no filter),
+     * in the same order as the surveyor list.
+     */
+    public List<TrackSummary> summarizeSurveyors(String city, String project, Instant start, Instant end) {
+        List<SurveyorLocationSummary> surveyors = surveyorLocationRepository.findWithLatestLocation(city, project);
+
+        List<CompletableFuture<TrackSummary>> futures = new ArrayList<>();
+        for (SurveyorLocationSummary surveyor : surveyors) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                TrackSummary summary = summarize(surveyor.getId(), start, end);
+                summary.setName(surveyor.getName());
+                summary.setCity(surveyor.getCity());
+                summary.setProjectName(surveyor.getProjectName());
+                return summary;
+            }, executor));
+        }
+
+        List<TrackSummary> summaries = new ArrayList<>(futures.size());
+        futures.forEach(future -> summaries.add(future.join()));
+        System.out.printf("Summarized %d surveyors (city=%s, project=%s) for %s - %s%n",
+            summaries.size(), city, project, start, end);
+        return summaries;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,494 @@
+package com.neogeo.tracking.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.repository.DailySummaryRepository;
+import com.neogeo.tracking.repository.LocationTrackRepository;
+import com.neogeo.tracking.repository.TrackArchiveRepository;
+import com.neogeo.tracking.repository.TrackArchiveRepository.ArchivedBlock;
+import com.neogeo.tracking.repository.TrackArchiveRepository.SurveyorDay;
+import com.neogeo.tracking.store.TrackStore;
+import com.neogeo.tracking.track.TrackBlock;
+import com.neogeo.tracking.track.TrackBlockCodec;
+import com.neogeo.tracking.track.TrackPointHandler;
+
+/**
+ * Cold tier for location_track. The archiver packs each surveyor's UTC day older than
+ * after-days into one TrackBlockCodec block in location_track_archive and deletes the rows
+ * in the same transaction; rows uploaded later into an archived day are merged into its
+ * block on the next run. Track history reads that touch archived days merge the decoded
+ * blocks with the remaining rows in (timestamp, id) order; reports, tiles, heatmaps and
+ * spatial queries only see location_track.
+ */
+@Service
+public class TrackArchiveService {
+
+    // The archiver holds this rollup_watermark row while it works, so instances take turns
+    private static final String JOB_NAME = "location_track_archive";
+    private static final int HOT_CHUNK = 1000;
+    // Blocks fetched at a time while looking for an archived neighbour
+    private static final int NEIGHBOUR_BLOCKS = 4;
+
+    // Bounds for history reads without a start or end
+    public static final Instant OPEN_START = Instant.EPOCH;
+    public static final Instant OPEN_END = Instant.parse("9999-12-31T23:59:59Z");
+
+    private final TrackArchiveRepository archiveRepository;
+    private final DailySummaryRepository dailySummaryRepository;
+    private final LocationTrackRepository locationTrackRepository;
+    private final TrackStore trackStore;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final boolean enabled;
+    private final int afterDays;
+    private final int batchDays;
+
+    public TrackArchiveService(TrackArchiveRepository archiveRepository,
+                               DailySummaryRepository dailySummaryRepository,
+                               LocationTrackRepository locationTrackRepository,
+                               TrackStore trackStore,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${tracking.archive.enabled:false}") boolean enabled,
+                               @Value("${tracking.archive.after-days:28}") int afterDays,
+                               @Value("${tracking.archive.batch-days:5000}") int batchDays) {
+        if (afterDays < 1) {
+            throw new IllegalArgumentException("tracking.archive.after-days must be at least 1");
+        }
+        this.archiveRepository = archiveRepository;
+        this.dailySummaryRepository = dailySummaryRepository;
+        this.locationTrackRepository = locationTrackRepository;
+        this.trackStore = trackStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Blocks and rows are read from one snapshot, so a day archived mid-read is seen
+        // either as rows or as a block, never both or neither
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.afterDays = afterDays;
+        this.batchDays = batchDays;
+    }
+
+    @Scheduled(cron = "${tracking.archive.cron:0 30 2 * * *}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archive();
+        } catch (Exception e) {
+            System.err.println("Scheduled track archiving failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Archives up to batch-days surveyor-days older than the cutoff, one transaction each.
+     * @return Summary with days archived, rows moved, block bytes written and elapsed time
+     */
+    public Map<String, Object> archive() {
+        long startTime = System.currentTimeMillis();
+        Instant cutoff = LocalDate.now(ZoneOffset.UTC).minusDays(afterDays).atStartOfDay(ZoneOffset.UTC).toInstant();
+        List<SurveyorDay> days = archiveRepository.findArchivableDays(cutoff, batchDays);
+
+        int archived = 0;
+        long rows = 0;
+        long bytes = 0;
+        boolean skipped = false;
+        for (SurveyorDay day : days) {
+            long[] result = transactionTemplate.execute(status -> archiveDay(day));
+            if (result == null) {
+                skipped = true;
+                break;
+            }
+            if (result[0] > 0) {
+                archived++;
+                rows += result[0];
+                bytes += result[1];
+            }
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("cutoff", cutoff);
+        summary.put("surveyorDays", archived);
+        summary.put("rows", rows);
+        summary.put("blockBytes", bytes);
+        summary.put("bytesPerPoint", rows == 0 ? 0.0 : (double) bytes / rows);
+        summary.put("skipped", skipped);
+        summary.put("durationMs", System.currentTimeMillis() - startTime);
+        if (archived > 0 || skipped) {
+            System.out.printf("Track archive: %s%n", summary);
+        }
+        return summary;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(archiveRepository.summarize());
+        stats.put("enabled", enabled);
+        stats.put("afterDays", afterDays);
+        return stats;
+    }
+
+    /**
+     * Whether [start, end] touches archived days; reads that do not skip the merge.
+     */
+    public boolean overlapsArchive(String surveyorId, Instant start, Instant end) {
+        return archiveRepository.hasBlocks(surveyorId, start, end);
+    }
+
+    /**
+     * Every point in [start, end]; rejected ones only with includeRejected, like the history queries.
+     */
+    public List<LocationTrack> readRange(String surveyorId, Instant start, Instant end, boolean includeRejected) {
+        List<LocationTrack> points = new ArrayList<>();
+        snapshotTransaction.executeWithoutResult(status ->
+            merge(surveyorId, start, end, start, 0, includeRejected, points::add));
+        return points;
+    }
+
+    /**
+     * Offset page over the merged range. Skipping to a page walks the points before it.
+     */
+    public Page<LocationTrack> readPage(String surveyorId, Instant start, Instant end, Pageable pageable,
+                                        boolean includeRejected) {
+        List<LocationTrack> content = new ArrayList<>(pageable.getPageSize());
+        long[] total = new long[1];
+        snapshotTransaction.executeWithoutResult(status -> {
+            long[] skip = { pageable.getOffset() };
+            merge(surveyorId, start, end, start, 0, includeRejected, point -> {
+                if (skip[0] > 0) {
+                    skip[0]--;
+                    return true;
+                }
+                content.add(point);
+                return content.size() < pageable.getPageSize();
+            });
+            total[0] = count(surveyorId, start, end, includeRejected);
+        });
+        return new PageImpl<>(content, pageable, total[0]);
+    }
+
+    /**
+     * Keyset page: up to limit points strictly after (afterTimestamp, afterId) and not after end.
+     */
+    public List<LocationTrack> readAfter(String surveyorId, Instant afterTimestamp, long afterId, Instant end,
+                                         int limit, boolean includeRejected) {
+        List<LocationTrack> points = new ArrayList<>(limit);
+        snapshotTransaction.executeWithoutResult(status ->
+            merge(surveyorId, afterTimestamp, end, afterTimestamp, afterId, includeRejected, point -> {
+                points.add(point);
+                return points.size() < limit;
+            }));
+        return points;
+    }
+
+    /**
+     * Number of points in [start, end]; rejected ones only with includeRejected.
+     */
+    public long count(String surveyorId, Instant start, Instant end, boolean includeRejected) {
+        Long count = snapshotTransaction.execute(status -> {
+            long total = locationTrackRepository.countHistory(surveyorId, start, end, includeRejected);
+            for (ArchivedBlock block : archiveRepository.findBlocks(surveyorId, start, end)) {
+                if (includeRejected && !block.getFirstTime().isBefore(start) && !block.getLastTime().isAfter(end)) {
+                    total += block.getPointCount();
+                } else {
+                    ColdCursor cold = new ColdCursor(surveyorId, List.of(block), start, end, start, 0, includeRejected);
+                    while (cold.hasNext()) {
+                        total++;
+                        cold.advance();
+                    }
+                }
+            }
+            return total;
+        });
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Streams the merged range in time order like TrackStore.scan,
+     * rejected points left out. One decoded block is held in memory at a time.
+     * @throws UncheckedIOException if the handler fails to write
+     */
+    public long streamRange(String surveyorId, Instant start, Instant end, TrackPointHandler handler) {
+        Long count = snapshotTransaction.execute(status -> {
+            ColdCursor cold = new ColdCursor(surveyorId, archiveRepository.findBlocks(surveyorId, start, end),
+                start, end, start, 0, false);
+            long[] coldPoints = new long[1];
+            long hotPoints = trackStore.scan(surveyorId, start, end, (id, lat, lon, time) -> {
+                while (cold.hasNext() && before(cold.time(), cold.id(), time, id)) {
+                    coldPoints[0]++;
+                    cold.emit(handler);
+                }
+                handler.onPoint(id, lat, lon, time);
+            });
+            try {
+                while (cold.hasNext()) {
+                    coldPoints[0]++;
+                    cold.emit(handler);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return hotPoints + coldPoints[0];
+        });
+        return count != null ? count : 0;
+    }
+
+    /**
+     * TrackStore.scan over the whole track: archived days are merged in when [start, end]
+     * reaches them, otherwise the hot store is read directly. Recomputations use this so
+     * they never see only the late rows of an archived day.
+     */
+    public long scan(String surveyorId, Instant start, Instant end, TrackPointHandler handler) {
+        return overlapsArchive(surveyorId, start, end) ?
+            streamRange(surveyorId, start, end, handler) :
+            trackStore.scan(surveyorId, start, end, handler);
+    }
+
+    /**
+     * Nearest archived point strictly before (timestamp, id), rejected ones left out.
+     */
+    public Optional<LocationTrack> findArchivedBefore(String surveyorId, Instant timestamp, long id) {
+        long time = timestamp.toEpochMilli();
+        LocalDate beforeDay = timestamp.atZone(ZoneOffset.UTC).toLocalDate().plusDays(1);
+        while (true) {
+            List<ArchivedBlock> blocks = archiveRepository.findBlocksBefore(surveyorId, timestamp, beforeDay,
+                NEIGHBOUR_BLOCKS);
+            for (ArchivedBlock archived : blocks) {
+                TrackBlock block = TrackBlockCodec.decode(archived.getData());
+                for (int i = block.size() - 1; i >= 0; i--) {
+                    if (before(block.time(i), block.id(i), time, id) &&
+                        block.qualityFlag(i) != LocationTrack.QUALITY_REJECTED) {
+                        return Optional.of(block.toLocationTrack(i, surveyorId));
+                    }
+                }
+                beforeDay = archived.getDay();
+            }
+            if (blocks.size() < NEIGHBOUR_BLOCKS) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Nearest archived point strictly after (timestamp, id), rejected ones left out.
+     */
+    public Optional<LocationTrack> findArchivedAfter(String surveyorId, Instant timestamp, long id) {
+        long time = timestamp.toEpochMilli();
+        LocalDate afterDay = timestamp.atZone(ZoneOffset.UTC).toLocalDate().minusDays(1);
+        while (true) {
+            List<ArchivedBlock> blocks = archiveRepository.findBlocksAfter(surveyorId, timestamp, afterDay,
+                NEIGHBOUR_BLOCKS);
+            for (ArchivedBlock archived : blocks) {
+                TrackBlock block = TrackBlockCodec.decode(archived.getData());
+                for (int i = 0; i < block.size(); i++) {
+                    if (before(time, id, block.time(i), block.id(i)) &&
+                        block.qualityFlag(i) != LocationTrack.QUALITY_REJECTED) {
+                        return Optional.of(block.toLocationTrack(i, surveyorId));
+                    }
+                }
+                afterDay = archived.getDay();
+            }
+            if (blocks.size() < NEIGHBOUR_BLOCKS) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    public void delete(String surveyorId) {
+        archiveRepository.deleteBySurveyorId(surveyorId);
+    }
+
+    /**
+     * Drops archived days before the given day, for partition retention.
+     */
+    public int deleteBefore(LocalDate day) {
+        return archiveRepository.deleteBefore(day);
+    }
+
+    /**
+     * @return null if another instance is archiving, otherwise {rows archived, block bytes}
+     */
+    private long[] archiveDay(SurveyorDay surveyorDay) {
+        if (dailySummaryRepository.lockWatermark(JOB_NAME).isEmpty()) {
+            return null;
+        }
+        String surveyorId = surveyorDay.getSurveyorId();
+        Instant from = surveyorDay.getDay().atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant to = from.plus(Duration.ofDays(1));
+
+        byte[] existing = archiveRepository.lockBlock(surveyorId, surveyorDay.getDay());
+        TrackBlock rows = archiveRepository.loadRows(surveyorId, from, to);
+        if (rows.size() == 0) {
+            return new long[] { 0, 0 };
+        }
+        TrackBlock block = existing != null ? TrackBlockCodec.decode(existing).merge(rows) : rows;
+        byte[] data = TrackBlockCodec.encode(block);
+        archiveRepository.upsertBlock(surveyorId, surveyorDay.getDay(), block, data);
+
+        long[] ids = new long[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rows.id(i);
+        }
+        archiveRepository.deleteRows(surveyorId, from, to, ids);
+        return new long[] { rows.size(), data.length };
+    }
+
+    /**
+     * Walks location_track rows (in keyset chunks) and archived points together in
+     * (timestamp, id) order, starting strictly after (afterTimestamp, afterId) and within
+     * [start, end], until the consumer returns false.
+     */
+    private void merge(String surveyorId, Instant start, Instant end, Instant afterTimestamp, long afterId,
+                       boolean includeRejected, Predicate<LocationTrack> consumer) {
+        ColdCursor cold = new ColdCursor(surveyorId, archiveRepository.findBlocks(surveyorId, start, end),
+            start, end, afterTimestamp, afterId, includeRejected);
+        Instant hotAfter = afterTimestamp;
+        long hotAfterId = afterId;
+        List<LocationTrack> hot = List.of();
+        int hotIndex = 0;
+        boolean hotExhausted = false;
+
+        while (true) {
+            if (hotIndex == hot.size() && !hotExhausted) {
+                hot = locationTrackRepository.findPageAfter(surveyorId, hotAfter, hotAfterId, end,
+                    includeRejected, PageRequest.of(0, HOT_CHUNK));
+                hotIndex = 0;
+                hotExhausted = hot.size() < HOT_CHUNK;
+                if (!hot.isEmpty()) {
+                    LocationTrack last = hot.get(hot.size() - 1);
+                    hotAfter = last.getTimestamp();
+                    hotAfterId = last.getId();
+                }
+            }
+            LocationTrack next;
+            if (hotIndex < hot.size()) {
+                LocationTrack candidate = hot.get(hotIndex);
+                if (cold.hasNext() && before(cold.time(), cold.id(),
+                        candidate.getTimestamp().toEpochMilli(), candidate.getId())) {
+                    next = cold.take();
+                } else {
+                    next = candidate;
+                    hotIndex++;
+                }
+            } else if (cold.hasNext()) {
+                next = cold.take();
+            } else {
+                return;
+            }
+            if (!consumer.test(next)) {
+                return;
+            }
+        }
+    }
+
+    private static boolean before(long time, long id, long otherTime, long otherId) {
+        return time < otherTime || (time == otherTime && id < otherId);
+    }
+
+    /**
+     * Archived points of one surveyor in order, decoding one block at a time and skipping
+     * points outside [start, end], at or before the (afterTime, afterId) position and,
+     * unless includeRejected, rejected ones.
+     */
+    private static final class ColdCursor {
+        private final String surveyorId;
+        private final List<ArchivedBlock> blocks;
+        private final long startMillis;
+        private final long endMillis;
+        private final long afterMillis;
+        private final long afterId;
+        private final boolean includeRejected;
+        private int blockIndex;
+        private TrackBlock block;
+        private int index;
+        private boolean exhausted;
+
+        ColdCursor(String surveyorId, List<ArchivedBlock> blocks, Instant start, Instant end,
+                   Instant after, long afterId, boolean includeRejected) {
+            this.surveyorId = surveyorId;
+            this.blocks = blocks;
+            this.startMillis = start.toEpochMilli();
+            this.endMillis = end.toEpochMilli();
+            this.afterMillis = after.toEpochMilli();
+            this.afterId = afterId;
+            this.includeRejected = includeRejected;
+            seek();
+        }
+
+        boolean hasNext() {
+            return !exhausted;
+        }
+
+        long time() {
+            return block.time(index);
+        }
+
+        long id() {
+            return block.id(index);
+        }
+
+        LocationTrack take() {
+            LocationTrack point = block.toLocationTrack(index, surveyorId);
+            advance();
+            return point;
+        }
+
+        void emit(TrackPointHandler handler) throws IOException {
+            handler.onPoint(block.id(index), block.latitude(index), block.longitude(index), block.time(index));
+            advance();
+        }
+
+        void advance() {
+            index++;
+            seek();
+        }
+
+        private void seek() {
+            while (true) {
+                if (block == null || index == block.size()) {
+                    if (blockIndex == blocks.size()) {
+                        exhausted = true;
+                        return;
+                    }
+                    block = TrackBlockCodec.decode(blocks.get(blockIndex++).getData());
+                    index = 0;
+                    continue;
+                }
+                long time = block.time(index);
+                if (time > endMillis) {
+                    exhausted = true;
+                    return;
+                }
+                if (time < startMillis || !before(afterMillis, afterId, time, block.id(index)) ||
+                    (!includeRejected && block.qualityFlag(index) == LocationTrack.QUALITY_REJECTED)) {
+                    index++;
+                    continue;
+                }
+                return;
+            }
+        }
+    }
+}
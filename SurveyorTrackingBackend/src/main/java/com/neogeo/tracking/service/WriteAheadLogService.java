@@ -0,0 +1,264 @@
+package com.neogeo.tracking.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.neogeo.tracking.wal.FsyncPolicy;
+import com.neogeo.tracking.wal.LocationWal;
+import com.neogeo.tracking.wal.WalRecord;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the local write-ahead log of accepted fixes and tracks which of its records are
+ * committed to location_track, so segments can be truncated behind them.
+ *
+ * Normally each fix is logged and then stored inline (a direct record). After a failed
+ * store the log enters backlog mode: new fixes are only logged and acknowledged, and
+ * LocationIngestService replays the log in order until it catches up. On startup the log
+ * is in backlog mode whenever it holds records past the last checkpoint.
+ *
+ * Records whose fix a compressor still holds in memory are held here as well. They are
+ * committed but not stored, so checkpoints stay below them and a restart replays them.
+ */
+@Service
+public class WriteAheadLogService {
+
+    private final LocationWal wal;
+    // Direct records whose store has not finished yet
+    private final NavigableSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    // Records whose fix is held in memory by a compressor
+    private final NavigableSet<Long> held = new ConcurrentSkipListSet<>();
+    // Every record up to here is committed (or was dropped as invalid)
+    private long committedThrough;
+    private boolean backlog;
+
+    public WriteAheadLogService(@Value("${tracking.wal.enabled:false}") boolean enabled,
+                                @Value("${tracking.wal.dir:data/wal}") String directory,
+                                @Value("${tracking.wal.segment-bytes:16777216}") int segmentBytes,
+                                @Value("${tracking.wal.fsync:INTERVAL}") String fsync) {
+        if (!enabled) {
+            this.wal = null;
+            return;
+        }
+        try {
+            this.wal = new LocationWal(Path.of(directory), segmentBytes, FsyncPolicy.fromParam(fsync));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open WAL in " + directory, e);
+        }
+        this.committedThrough = wal.getCheckpoint();
+        this.backlog = wal.getLastSequence() > committedThrough;
+        System.out.printf("WAL opened in %s (fsync %s): checkpoint %d, last sequence %d%n",
+            directory, wal.getFsyncPolicy(), committedThrough, wal.getLastSequence());
+    }
+
+    public boolean isEnabled() {
+        return wal != null;
+    }
+
+    /**
+     * Logs an accepted fix.
+     * @return The record's ticket; direct tickets must be stored by the caller and reported
+     *         through committed or failed, queued ones are left to replay
+     */
+    public synchronized Ticket append(String surveyorId, double latitude, double longitude, Instant timestamp,
+                                      boolean finalFix) {
+        try {
+            long sequence = wal.append(surveyorId, latitude, longitude, timestamp, finalFix);
+            if (!backlog) {
+                inFlight.add(sequence);
+            }
+            return new Ticket(sequence, !backlog);
+        } catch (IOException e) {
+            throw new UncheckedIOException("WAL append failed", e);
+        }
+    }
+
+    /**
+     * A direct record is stored, or was dropped for a reason replay would hit again.
+     */
+    public void committed(long sequence) {
+        inFlight.remove(sequence);
+    }
+
+    /**
+     * A compressor holds this record's fix back; truncation keeps the record until it is
+     * released.
+     */
+    public void hold(long sequence) {
+        if (wal != null && sequence > 0) {
+            held.add(sequence);
+        }
+    }
+
+    /**
+     * The held fix was stored, or its compressor no longer needs it.
+     */
+    public void release(long sequence) {
+        held.remove(sequence);
+    }
+
+    /**
+     * Storing a direct record failed; it and everything after it go through replay.
+     */
+    public synchronized void failed(long sequence) {
+        if (!backlog) {
+            committedThrough = Math.max(committedThrough, Math.min(sequence, firstInFlight()) - 1);
+            backlog = true;
+            System.err.printf("WAL entering backlog mode at sequence %d%n", sequence);
+        }
+        inFlight.remove(sequence);
+    }
+
+    /**
+     * Hands backlog records to the handler in order, stopping at a record whose direct store
+     * is still running or when the handler returns false. The handler returns true once the
+     * record is committed. Leaves backlog mode when everything logged has been replayed.
+     * @return Records replayed
+     */
+    public long replay(Predicate<WalRecord> handler) {
+        long start;
+        synchronized (this) {
+            if (wal == null || !backlog) {
+                return 0;
+            }
+            start = committedThrough;
+        }
+        long[] replayed = new long[1];
+        try {
+            wal.replay(start, record -> {
+                if (inFlight.contains(record.getSequence()) || !handler.test(record)) {
+                    return false;
+                }
+                synchronized (this) {
+                    committedThrough = record.getSequence();
+                }
+                replayed[0]++;
+                return true;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("WAL replay failed", e);
+        }
+        synchronized (this) {
+            if (committedThrough == wal.getLastSequence() && inFlight.isEmpty()) {
+                backlog = false;
+                System.out.printf("WAL backlog drained at sequence %d%n", committedThrough);
+            }
+        }
+        return replayed[0];
+    }
+
+    public synchronized boolean isBacklogged() {
+        return backlog;
+    }
+
+    /**
+     * Forces recent appends to disk under FsyncPolicy.INTERVAL.
+     */
+    @Scheduled(fixedDelayString = "${tracking.wal.fsync-interval-ms:100}")
+    public void scheduledSync() {
+        if (wal != null && wal.getFsyncPolicy() == FsyncPolicy.INTERVAL) {
+            wal.sync();
+        }
+    }
+
+    /**
+     * Checkpoints the committed sequence, kept below held records, and deletes segments
+     * behind it.
+     */
+    @Scheduled(initialDelayString = "${tracking.wal.truncate-interval-ms:10000}",
+               fixedDelayString = "${tracking.wal.truncate-interval-ms:10000}")
+    public void truncate() {
+        if (wal == null) {
+            return;
+        }
+        try {
+            int deleted = wal.truncate(checkpointSequence());
+            if (deleted > 0) {
+                System.out.printf("WAL truncated %d segments through sequence %d%n", deleted, wal.getCheckpoint());
+            }
+        } catch (Exception e) {
+            System.err.println("WAL truncation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Highest sequence below which every record is committed.
+     */
+    public synchronized long committedSequence() {
+        if (!backlog) {
+            committedThrough = Math.max(committedThrough,
+                inFlight.isEmpty() ? wal.getLastSequence() : inFlight.first() - 1);
+        }
+        return committedThrough;
+    }
+
+    /**
+     * Highest sequence that may be checkpointed: committed and below every held record.
+     */
+    public long checkpointSequence() {
+        long committed = committedSequence();
+        Long lowestHeld = held.ceiling(0L);
+        return lowestHeld != null ? Math.min(committed, lowestHeld - 1) : committed;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", wal != null);
+        if (wal != null) {
+            stats.put("fsyncPolicy", wal.getFsyncPolicy().name());
+            stats.put("lastSequence", wal.getLastSequence());
+            stats.put("committedSequence", committedSequence());
+            stats.put("checkpoint", wal.getCheckpoint());
+            stats.put("segments", wal.getSegmentCount());
+            stats.put("backlog", isBacklogged());
+            stats.put("inFlight", inFlight.size());
+            stats.put("held", held.size());
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (wal != null) {
+            wal.truncate(checkpointSequence());
+            wal.close();
+        }
+    }
+
+    private long firstInFlight() {
+        return inFlight.isEmpty() ? Long.MAX_VALUE : inFlight.first();
+    }
+
+    /**
+     * A logged fix: its sequence and whether the caller stores it inline.
+     */
+    public static class Ticket {
+        private final long sequence;
+        private final boolean direct;
+
+        Ticket(long sequence, boolean direct) {
+            this.sequence = sequence;
+            this.direct = direct;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public boolean isDirect() {
+            return direct;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.neogeo.tracking.spatial;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+
+/**
+ * Converts between API polygons, lists of [longitude, latitude] vertices in GeoJSON
+ * order, and JTS polygons in WGS84 (x = longitude, y = latitude).
+ */
+public final class GeoPolygons {
+
+    public static final int MAX_VERTICES = 1000;
+
+    private static final GeometryFactory FACTORY = new GeometryFactory(new PrecisionModel(), 4326);
+
+    private GeoPolygons() {
+    }
+
+    public static GeometryFactory factory() {
+        return FACTORY;
+    }
+
+    /**
+     * Builds a valid polygon, closing the ring if needed.
+     * @throws IllegalArgumentException if the vertices are out of range or do not form a valid polygon
+     */
+    public static Polygon fromVertices(List<double[]> vertices) {
+        if (vertices == null || vertices.size() < 3 || vertices.size() > MAX_VERTICES) {
+            throw new IllegalArgumentException("Polygon needs between 3 and " + MAX_VERTICES + " vertices");
+        }
+        List<Coordinate> coordinates = new ArrayList<>(vertices.size() + 1);
+        for (double[] vertex : vertices) {
+            if (vertex == null || vertex.length != 2 ||
+                vertex[0] < -180 || vertex[0] > 180 || vertex[1] < -90 || vertex[1] > 90) {
+                throw new IllegalArgumentException("Each vertex must be [longitude, latitude] within range");
+            }
+            coordinates.add(new Coordinate(vertex[0], vertex[1]));
+        }
+        if (!coordinates.get(0).equals2D(coordinates.get(coordinates.size() - 1))) {
+            coordinates.add(new Coordinate(coordinates.get(0)));
+        }
+        if (coordinates.size() < 4) {
+            throw new IllegalArgumentException("Polygon needs at least 3 distinct vertices");
+        }
+        Polygon polygon = FACTORY.createPolygon(coordinates.toArray(new Coordinate[0]));
+        if (!polygon.isValid()) {
+            throw new IllegalArgumentException("Polygon is not valid (self-intersecting or degenerate)");
+        }
+        return polygon;
+    }
+
+    /**
+     * Exterior ring of a polygon as closed [longitude, latitude] vertices.
+     */
+    public static List<double[]> toVertices(Polygon polygon) {
+        List<double[]> vertices = new ArrayList<>();
+        for (Coordinate coordinate : polygon.getExteriorRing().getCoordinates()) {
+            vertices.add(new double[] { coordinate.getX(), coordinate.getY() });
+        }
+        return vertices;
+    }
+}
@@ -0,0 +1,101 @@
+package com.neogeo.tracking.spatial;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import com.neogeo.tracking.dto.Geofence;
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Immutable snapshot of the active geofences in an STRtree keyed by their bounding boxes.
+ * A point lookup queries the tree with the point and runs the exact test (prepared polygon
+ * or great-circle radius) only on the few fences whose boxes contain it. Fences change
+ * rarely, so edits build a new snapshot instead of updating this one.
+ */
+public class GeofenceIndex {
+
+    private static final class CompiledFence {
+        final Geofence fence;
+        final PreparedGeometry polygon;
+
+        CompiledFence(Geofence fence, PreparedGeometry polygon) {
+            this.fence = fence;
+            this.polygon = polygon;
+        }
+
+        boolean contains(double latitude, double longitude, Point point) {
+            if (polygon != null) {
+                return polygon.covers(point);
+            }
+            return GeoUtils.distanceMeters(fence.getCenterLatitude(), fence.getCenterLongitude(),
+                latitude, longitude) <= fence.getRadiusMeters();
+        }
+    }
+
+    private final STRtree tree = new STRtree();
+    private final Map<Long, Geofence> fences = new HashMap<>();
+
+    public GeofenceIndex(Collection<Geofence> activeFences) {
+        for (Geofence fence : activeFences) {
+            CompiledFence compiled;
+            Envelope envelope;
+            if (Geofence.CIRCLE.equals(fence.getType())) {
+                compiled = new CompiledFence(fence, null);
+                double degrees = GeoUtils.boundingDegrees(fence.getCenterLatitude(), fence.getRadiusMeters());
+                envelope = new Envelope(fence.getCenterLongitude() - degrees, fence.getCenterLongitude() + degrees,
+                    fence.getCenterLatitude() - degrees, fence.getCenterLatitude() + degrees);
+            } else {
+                PreparedGeometry polygon = PreparedGeometryFactory.prepare(GeoPolygons.fromVertices(fence.getCoordinates()));
+                compiled = new CompiledFence(fence, polygon);
+                envelope = polygon.getGeometry().getEnvelopeInternal();
+            }
+            tree.insert(envelope, compiled);
+            fences.put(fence.getId(), fence);
+        }
+        // Built eagerly so concurrent queries never trigger the lazy build
+        tree.build();
+    }
+
+    public static GeofenceIndex empty() {
+        return new GeofenceIndex(new ArrayList<>());
+    }
+
+    /**
+     * Fences containing the point (edges included) that apply to the given project;
+     * fences without a project apply to everyone.
+     */
+    public List<Geofence> containing(double latitude, double longitude, String projectName) {
+        List<Geofence> result = new ArrayList<>();
+        if (fences.isEmpty()) {
+            return result;
+        }
+        Point point = GeoPolygons.factory().createPoint(new Coordinate(longitude, latitude));
+        for (Object item : tree.query(new Envelope(longitude, longitude, latitude, latitude))) {
+            CompiledFence compiled = (CompiledFence) item;
+            String fenceProject = compiled.fence.getProjectName();
+            if ((fenceProject == null || fenceProject.equals(projectName)) &&
+                compiled.contains(latitude, longitude, point)) {
+                result.add(compiled.fence);
+            }
+        }
+        return result;
+    }
+
+    public Geofence get(long geofenceId) {
+        return fences.get(geofenceId);
+    }
+
+    public int size() {
+        return fences.size();
+    }
+}
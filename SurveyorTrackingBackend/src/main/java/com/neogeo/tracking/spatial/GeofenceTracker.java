@@ -0,0 +1,125 @@
+package com.neogeo.tracking.spatial;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.neogeo.tracking.dto.Geofence;
+import com.neogeo.tracking.dto.GeofenceEvent;
+
+/**
+ * Per-surveyor inside/outside state for every fence. Each point is compared with the
+ * fences the surveyor was inside before: newly containing fences emit ENTER, fences
+ * left behind emit EXIT, and staying in a fence with dwellSeconds set emits one DWELL
+ * once that long has passed since ENTER. Points older than the last evaluated point for
+ * the surveyor are ignored so batch uploads cannot replay transitions out of order.
+ */
+public class GeofenceTracker {
+
+    private static final class Membership {
+        final long enteredAtMillis;
+        boolean dwellEmitted;
+
+        Membership(long enteredAtMillis, boolean dwellEmitted) {
+            this.enteredAtMillis = enteredAtMillis;
+            this.dwellEmitted = dwellEmitted;
+        }
+    }
+
+    private static final class SurveyorState {
+        long lastEpochMillis = Long.MIN_VALUE;
+        // Mutated under the states lock for this surveyor, read without it by surveyorsInside
+        final Map<Long, Membership> inside = new ConcurrentHashMap<>();
+    }
+
+    private final Map<String, SurveyorState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Applies one accepted point and returns the transitions it caused, in order.
+     */
+    public List<GeofenceEvent> evaluate(GeofenceIndex index, String surveyorId, String projectName,
+                                        double latitude, double longitude, Instant timestamp) {
+        long now = timestamp.toEpochMilli();
+        List<GeofenceEvent> events = new ArrayList<>();
+        states.compute(surveyorId, (id, state) -> {
+            if (state == null) {
+                state = new SurveyorState();
+            }
+            if (now < state.lastEpochMillis) {
+                return state;
+            }
+            state.lastEpochMillis = now;
+
+            Set<Long> containing = new HashSet<>();
+            for (Geofence fence : index.containing(latitude, longitude, projectName)) {
+                containing.add(fence.getId());
+                Membership membership = state.inside.get(fence.getId());
+                if (membership == null) {
+                    state.inside.put(fence.getId(), new Membership(now, false));
+                    events.add(event(fence, id, GeofenceEvent.ENTER, timestamp, latitude, longitude));
+                } else if (!membership.dwellEmitted && fence.getDwellSeconds() != null &&
+                           now - membership.enteredAtMillis >= fence.getDwellSeconds() * 1000L) {
+                    membership.dwellEmitted = true;
+                    events.add(event(fence, id, GeofenceEvent.DWELL, timestamp, latitude, longitude));
+                }
+            }
+
+            Iterator<Map.Entry<Long, Membership>> iterator = state.inside.entrySet().iterator();
+            while (iterator.hasNext()) {
+                long geofenceId = iterator.next().getKey();
+                if (containing.contains(geofenceId)) {
+                    continue;
+                }
+                iterator.remove();
+                // Fences deleted or deactivated since ENTER are forgotten without an EXIT
+                Geofence fence = index.get(geofenceId);
+                if (fence != null) {
+                    events.add(event(fence, id, GeofenceEvent.EXIT, timestamp, latitude, longitude));
+                }
+            }
+            return state;
+        });
+        return events;
+    }
+
+    /**
+     * Marks a surveyor as inside a fence without emitting events (state restored at startup).
+     */
+    public void restore(String surveyorId, long geofenceId, Instant enteredAt, boolean dwellEmitted) {
+        states.compute(surveyorId, (id, state) -> {
+            if (state == null) {
+                state = new SurveyorState();
+            }
+            state.inside.put(geofenceId, new Membership(enteredAt.toEpochMilli(), dwellEmitted));
+            state.lastEpochMillis = Math.max(state.lastEpochMillis, enteredAt.toEpochMilli());
+            return state;
+        });
+    }
+
+    /**
+     * Surveyors currently inside the fence.
+     */
+    public List<String> surveyorsInside(long geofenceId) {
+        List<String> result = new ArrayList<>();
+        states.forEach((surveyorId, state) -> {
+            if (state.inside.containsKey(geofenceId)) {
+                result.add(surveyorId);
+            }
+        });
+        return result;
+    }
+
+    public void removeSurveyor(String surveyorId) {
+        states.remove(surveyorId);
+    }
+
+    private static GeofenceEvent event(Geofence fence, String surveyorId, String type, Instant timestamp,
+                                       double latitude, double longitude) {
+        return new GeofenceEvent(fence.getId(), fence.getName(), surveyorId, type, timestamp, latitude, longitude);
+    }
+}
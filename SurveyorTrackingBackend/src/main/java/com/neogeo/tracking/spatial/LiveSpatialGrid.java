@@ -0,0 +1,319 @@
+package com.neogeo.tracking.spatial;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * One position per id, bucketed into a uniform latitude/longitude grid so that
+ * nearest, radius and box searches only visit cells around the query instead of
+ * every entry. Updates are incremental and thread-safe; when a search would visit
+ * more cells than there are entries it scans the entries directly instead.
+ * Cells do not wrap at the antimeridian.
+ */
+public class LiveSpatialGrid {
+
+    /**
+     * A search result: the entry's position and its distance from the query point in meters.
+     */
+    public static final class Neighbor {
+        private final String id;
+        private final double latitude;
+        private final double longitude;
+        private final long epochMillis;
+        private final double distanceMeters;
+
+        Neighbor(String id, Position position, double distanceMeters) {
+            this.id = id;
+            this.latitude = position.latitude;
+            this.longitude = position.longitude;
+            this.epochMillis = position.epochMillis;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public long getEpochMillis() {
+            return epochMillis;
+        }
+
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+    }
+
+    private static final class Position {
+        final double latitude;
+        final double longitude;
+        final long epochMillis;
+        final long cell;
+
+        Position(double latitude, double longitude, long epochMillis, long cell) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.epochMillis = epochMillis;
+            this.cell = cell;
+        }
+    }
+
+    private static final Comparator<Neighbor> BY_DISTANCE = Comparator.comparingDouble(Neighbor::getDistanceMeters);
+
+    private final double cellDegrees;
+    private final Map<String, Position> positions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> cells = new ConcurrentHashMap<>();
+
+    public LiveSpatialGrid(double cellDegrees) {
+        if (!(cellDegrees > 0) || cellDegrees > 90) {
+            throw new IllegalArgumentException("cellDegrees must be between 0 and 90");
+        }
+        this.cellDegrees = cellDegrees;
+    }
+
+    /**
+     * Moves an entry to a new position. Positions older than the stored one are ignored,
+     * so late batch uploads never move a surveyor backwards.
+     * @return true if the position was applied
+     */
+    public boolean update(String id, double latitude, double longitude, long epochMillis) {
+        long cell = cellOf(latitude, longitude);
+        boolean[] applied = new boolean[1];
+        positions.compute(id, (key, current) -> {
+            if (current != null && current.epochMillis > epochMillis) {
+                return current;
+            }
+            if (current == null || current.cell != cell) {
+                if (current != null) {
+                    removeFromCell(current.cell, key);
+                }
+                cells.compute(cell, (c, members) -> {
+                    Set<String> set = members != null ? members : ConcurrentHashMap.newKeySet();
+                    set.add(key);
+                    return set;
+                });
+            }
+            applied[0] = true;
+            return new Position(latitude, longitude, epochMillis, cell);
+        });
+        return applied[0];
+    }
+
+    public void remove(String id) {
+        positions.computeIfPresent(id, (key, current) -> {
+            removeFromCell(current.cell, key);
+            return null;
+        });
+    }
+
+    public boolean contains(String id) {
+        return positions.containsKey(id);
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Up to k entries accepted by the filter, closest first. Cells are visited in square
+     * rings around the query cell until no unvisited cell can hold anything closer than
+     * the k-th result.
+     */
+    public List<Neighbor> nearest(double latitude, double longitude, int k, Predicate<String> filter) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Neighbor> best = new PriorityQueue<>(BY_DISTANCE.reversed());
+        Set<String> seen = new HashSet<>();
+        int row = row(latitude);
+        int column = column(longitude);
+        int maxRing = (int) Math.ceil(360 / cellDegrees);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // A ring has 8 * ring cells; past the entry count a plain scan is cheaper
+            if (8L * ring > positions.size()) {
+                return scan(latitude, longitude, k, filter);
+            }
+            for (long cell : ringCells(row, column, ring)) {
+                Set<String> members = cells.get(cell);
+                if (members != null) {
+                    for (String id : members) {
+                        offer(best, seen, id, latitude, longitude, k, filter);
+                    }
+                }
+            }
+            if (best.size() == k && best.peek().getDistanceMeters() <= minDistanceBeyondRing(latitude, ring)) {
+                break;
+            }
+        }
+        return sorted(best);
+    }
+
+    /**
+     * Entries accepted by the filter within the radius, closest first.
+     */
+    public List<Neighbor> withinRadius(double latitude, double longitude, double radiusMeters, Predicate<String> filter) {
+        double degrees = GeoUtils.boundingDegrees(latitude, radiusMeters);
+        List<Neighbor> result = new ArrayList<>();
+        for (String id : candidates(latitude - degrees, longitude - degrees, latitude + degrees, longitude + degrees)) {
+            Position position = positions.get(id);
+            if (position == null || !filter.test(id)) {
+                continue;
+            }
+            double distance = GeoUtils.distanceMeters(latitude, longitude, position.latitude, position.longitude);
+            if (distance <= radiusMeters) {
+                result.add(new Neighbor(id, position, distance));
+            }
+        }
+        result.sort(BY_DISTANCE);
+        return result;
+    }
+
+    /**
+     * Entries accepted by the filter inside the box (edges included), with distances
+     * measured from the given reference point.
+     */
+    public List<Neighbor> withinBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                                    double referenceLatitude, double referenceLongitude, Predicate<String> filter) {
+        List<Neighbor> result = new ArrayList<>();
+        for (String id : candidates(minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+            Position position = positions.get(id);
+            if (position == null || position.latitude < minLatitude || position.latitude > maxLatitude ||
+                position.longitude < minLongitude || position.longitude > maxLongitude || !filter.test(id)) {
+                continue;
+            }
+            result.add(new Neighbor(id, position, GeoUtils.distanceMeters(referenceLatitude, referenceLongitude,
+                position.latitude, position.longitude)));
+        }
+        result.sort(BY_DISTANCE);
+        return result;
+    }
+
+    private Set<String> candidates(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        int minRow = row(Math.max(minLatitude, -90));
+        int maxRow = row(Math.min(maxLatitude, 90));
+        int minColumn = column(Math.max(minLongitude, -180));
+        int maxColumn = column(Math.min(maxLongitude, 180));
+        long cellCount = (long) (maxRow - minRow + 1) * (maxColumn - minColumn + 1);
+        if (cellCount > positions.size()) {
+            return new HashSet<>(positions.keySet());
+        }
+        Set<String> result = new HashSet<>();
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minColumn; c <= maxColumn; c++) {
+                Set<String> members = cells.get(key(r, c));
+                if (members != null) {
+                    result.addAll(members);
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<Neighbor> scan(double latitude, double longitude, int k, Predicate<String> filter) {
+        PriorityQueue<Neighbor> best = new PriorityQueue<>(BY_DISTANCE.reversed());
+        Set<String> seen = new HashSet<>();
+        for (String id : positions.keySet()) {
+            offer(best, seen, id, latitude, longitude, k, filter);
+        }
+        return sorted(best);
+    }
+
+    private void offer(PriorityQueue<Neighbor> best, Set<String> seen, String id,
+                       double latitude, double longitude, int k, Predicate<String> filter) {
+        // An entry that moved during the search can show up in two cells
+        if (!seen.add(id)) {
+            return;
+        }
+        Position position = positions.get(id);
+        if (position == null || !filter.test(id)) {
+            return;
+        }
+        double distance = GeoUtils.distanceMeters(latitude, longitude, position.latitude, position.longitude);
+        if (best.size() < k) {
+            best.add(new Neighbor(id, position, distance));
+        } else if (distance < best.peek().getDistanceMeters()) {
+            best.poll();
+            best.add(new Neighbor(id, position, distance));
+        }
+    }
+
+    /**
+     * Lower bound on the distance from the query point to anything outside rings 0..ring:
+     * such a point is at least ring cells away in latitude or in longitude.
+     */
+    private double minDistanceBeyondRing(double latitude, int ring) {
+        double gap = Math.toRadians(ring * cellDegrees);
+        double radius = GeoUtils.EARTH_RADIUS_KM * 1000;
+        double latitudeBound = radius * gap;
+        if (gap >= Math.PI) {
+            return latitudeBound;
+        }
+        // Longitude degrees are narrowest at the highest latitude the next ring reaches
+        double maxLatitude = Math.min(Math.abs(latitude) + (ring + 1) * cellDegrees, 90);
+        double longitudeBound = 2 * radius * Math.asin(Math.cos(Math.toRadians(maxLatitude)) * Math.sin(gap / 2));
+        return Math.min(latitudeBound, longitudeBound);
+    }
+
+    private List<Long> ringCells(int row, int column, int ring) {
+        List<Long> result = new ArrayList<>();
+        int minRow = row(-90);
+        int maxRow = row(90);
+        for (int r = row - ring; r <= row + ring; r++) {
+            if (r < minRow || r > maxRow) {
+                continue;
+            }
+            boolean edgeRow = r == row - ring || r == row + ring;
+            int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+            for (int c = column - ring; c <= column + ring; c += step) {
+                result.add(key(r, c));
+            }
+        }
+        return result;
+    }
+
+    private void removeFromCell(long cell, String id) {
+        cells.computeIfPresent(cell, (c, members) -> {
+            members.remove(id);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private long cellOf(double latitude, double longitude) {
+        return key(row(latitude), column(longitude));
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    private static List<Neighbor> sorted(PriorityQueue<Neighbor> best) {
+        List<Neighbor> result = new ArrayList<>(best);
+        result.sort(BY_DISTANCE);
+        return result;
+    }
+}
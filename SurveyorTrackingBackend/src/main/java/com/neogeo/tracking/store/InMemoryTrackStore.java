@@ -0,0 +1,122 @@
+package com.neogeo.tracking.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.track.TrackPointHandler;
+
+/**
+ * Keeps every point in process memory, one sorted set per surveyor. Nothing survives a
+ * restart and nothing else (reports, tiles, repairs) sees these points, so it is only meant
+ * for tests and for benchmarking the layers above the store.
+ */
+public class InMemoryTrackStore implements TrackStore {
+
+    private static final Comparator<LocationTrack> TIME_ORDER =
+        Comparator.comparing(LocationTrack::getTimestamp).thenComparing(LocationTrack::getId);
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<String, NavigableSet<LocationTrack>> tracks = new ConcurrentHashMap<>();
+
+    @Override
+    public LocationTrack append(LocationTrack point) {
+        point.setId(nextId.getAndIncrement());
+        NavigableSet<LocationTrack> track = tracks.computeIfAbsent(point.getSurveyorId(),
+            id -> new TreeSet<>(TIME_ORDER));
+        synchronized (track) {
+            track.add(copy(point));
+        }
+        return point;
+    }
+
+    @Override
+    public List<LocationTrack> appendBatch(List<LocationTrack> points) {
+        points.forEach(this::append);
+        return points;
+    }
+
+    @Override
+    public Optional<LocationTrack> latest(String surveyorId) {
+        NavigableSet<LocationTrack> track = tracks.get(surveyorId);
+        if (track == null) {
+            return Optional.empty();
+        }
+        synchronized (track) {
+            for (LocationTrack point : track.descendingSet()) {
+                if (point.getQualityFlag() != LocationTrack.QUALITY_REJECTED) {
+                    return Optional.of(copy(point));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public long scan(String surveyorId, Instant start, Instant end, TrackPointHandler handler) {
+        NavigableSet<LocationTrack> track = tracks.get(surveyorId);
+        if (track == null || start.isAfter(end)) {
+            return 0;
+        }
+        LocationTrack[] range;
+        synchronized (track) {
+            // Copied out so a slow handler does not block appends
+            range = track.subSet(probe(start, Long.MIN_VALUE), true, probe(end, Long.MAX_VALUE), true)
+                .toArray(new LocationTrack[0]);
+        }
+        long count = 0;
+        try {
+            for (LocationTrack point : range) {
+                if (point.getQualityFlag() != LocationTrack.QUALITY_REJECTED) {
+                    handler.onPoint(point.getId(), point.getLatitude(), point.getLongitude(),
+                        point.getTimestamp().toEpochMilli());
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
+    @Override
+    public long count(String surveyorId) {
+        NavigableSet<LocationTrack> track = tracks.get(surveyorId);
+        if (track == null) {
+            return 0;
+        }
+        synchronized (track) {
+            return track.size();
+        }
+    }
+
+    @Override
+    public TrackStoreEngine getEngine() {
+        return TrackStoreEngine.MEMORY;
+    }
+
+    private static LocationTrack probe(Instant timestamp, long id) {
+        LocationTrack probe = new LocationTrack(null, 0, 0, timestamp, null);
+        probe.setId(id);
+        return probe;
+    }
+
+    private static LocationTrack copy(LocationTrack point) {
+        LocationTrack copy = new LocationTrack(point.getSurveyorId(), point.getLatitude(), point.getLongitude(),
+            point.getTimestamp(), null);
+        copy.setId(point.getId());
+        copy.setQualityFlag(point.getQualityFlag());
+        copy.setRawLatitude(point.getRawLatitude());
+        copy.setRawLongitude(point.getRawLongitude());
+        return copy;
+    }
+}
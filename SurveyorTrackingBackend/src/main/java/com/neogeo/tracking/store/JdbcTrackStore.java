@@ -0,0 +1,137 @@
+package com.neogeo.tracking.store;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.repository.LocationTrackStreamRepository;
+import com.neogeo.tracking.track.TrackPointHandler;
+
+/**
+ * Stores points with plain JDBC: no entity state, and a batch goes out as JDBC batches of
+ * up to BATCH_SIZE inserts, reading the generated ids back from each batch. Joins the
+ * surrounding Spring transaction like the JdbcTemplate repositories do.
+ */
+public class JdbcTrackStore implements TrackStore {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO location_track (surveyor_id, latitude, longitude, timestamp, quality_flag, " +
+        "raw_latitude, raw_longitude) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String LATEST_SQL =
+        "SELECT id, surveyor_id, latitude, longitude, timestamp, quality_flag, raw_latitude, raw_longitude " +
+        "FROM location_track WHERE surveyor_id = ? AND quality_flag <> " + LocationTrack.QUALITY_REJECTED + " " +
+        "ORDER BY timestamp DESC, id DESC LIMIT 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LocationTrackStreamRepository streamRepository;
+
+    public JdbcTrackStore(DataSource dataSource, LocationTrackStreamRepository streamRepository) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamRepository = streamRepository;
+    }
+
+    @Override
+    public LocationTrack append(LocationTrack point) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_SQL, new String[] { "id" });
+            bind(statement, point);
+            return statement;
+        }, keyHolder);
+        point.setId(keyHolder.getKeyAs(Long.class));
+        return point;
+    }
+
+    @Override
+    public List<LocationTrack> appendBatch(List<LocationTrack> points) {
+        if (points.isEmpty()) {
+            return points;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, new String[] { "id" })) {
+                for (int from = 0; from < points.size(); from += BATCH_SIZE) {
+                    List<LocationTrack> chunk = points.subList(from, Math.min(from + BATCH_SIZE, points.size()));
+                    for (LocationTrack point : chunk) {
+                        bind(statement, point);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (LocationTrack point : chunk) {
+                            if (!keys.next()) {
+                                throw new SQLException("Missing generated id in batch insert");
+                            }
+                            point.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+        return points;
+    }
+
+    @Override
+    public Optional<LocationTrack> latest(String surveyorId) {
+        return jdbcTemplate.query(LATEST_SQL, (rs, rowNum) -> {
+            LocationTrack track = new LocationTrack(rs.getString(2), rs.getDouble(3), rs.getDouble(4),
+                rs.getTimestamp(5).toInstant(), null);
+            track.setId(rs.getLong(1));
+            track.setQualityFlag(rs.getShort(6));
+            track.setRawLatitude(rs.getObject(7, Double.class));
+            track.setRawLongitude(rs.getObject(8, Double.class));
+            return track;
+        }, surveyorId).stream().findFirst();
+    }
+
+    @Override
+    public long scan(String surveyorId, Instant start, Instant end, TrackPointHandler handler) {
+        return streamRepository.streamRange(surveyorId, start, end, handler);
+    }
+
+    @Override
+    public long count(String surveyorId) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM location_track WHERE surveyor_id = ?",
+            Long.class, surveyorId);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public TrackStoreEngine getEngine() {
+        return TrackStoreEngine.JDBC;
+    }
+
+    private static void bind(PreparedStatement statement, LocationTrack point) throws SQLException {
+        statement.setString(1, point.getSurveyorId());
+        statement.setDouble(2, point.getLatitude());
+        statement.setDouble(3, point.getLongitude());
+        statement.setTimestamp(4, Timestamp.from(point.getTimestamp()));
+        statement.setShort(5, point.getQualityFlag());
+        setNullableDouble(statement, 6, point.getRawLatitude());
+        setNullableDouble(statement, 7, point.getRawLongitude());
+    }
+
+    private static void setNullableDouble(PreparedStatement statement, int index, Double value) throws SQLException {
+        if (value != null) {
+            statement.setDouble(index, value);
+        } else {
+            statement.setNull(index, Types.DOUBLE);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.neogeo.tracking.store;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.repository.LocationTrackRepository;
+import com.neogeo.tracking.repository.LocationTrackStreamRepository;
+import com.neogeo.tracking.track.TrackPointHandler;
+
+/**
+ * Stores points as managed entities through LocationTrackRepository. Identity ids keep
+ * Hibernate from batching inserts, so a batch is one INSERT round trip per point. Range
+ * scans use the JDBC cursor reader.
+ */
+public class JpaTrackStore implements TrackStore {
+
+    private final LocationTrackRepository repository;
+    private final LocationTrackStreamRepository streamRepository;
+
+    public JpaTrackStore(LocationTrackRepository repository, LocationTrackStreamRepository streamRepository) {
+        this.repository = repository;
+        this.streamRepository = streamRepository;
+    }
+
+    @Override
+    public LocationTrack append(LocationTrack point) {
+        LocationTrack saved = repository.save(point);
+        point.setId(saved.getId());
+        return point;
+    }
+
+    @Override
+    public List<LocationTrack> appendBatch(List<LocationTrack> points) {
+        List<LocationTrack> saved = repository.saveAll(points);
+        for (int i = 0; i < points.size(); i++) {
+            points.get(i).setId(saved.get(i).getId());
+        }
+        return points;
+    }
+
+    @Override
+    public Optional<LocationTrack> latest(String surveyorId) {
+        return repository.findTopBySurveyorIdAndQualityFlagNotOrderByTimestampDescIdDesc(surveyorId,
+            LocationTrack.QUALITY_REJECTED);
+    }
+
+    @Override
+    public long scan(String surveyorId, Instant start, Instant end, TrackPointHandler handler) {
+        return streamRepository.streamRange(surveyorId, start, end, handler);
+    }
+
+    @Override
+    public long count(String surveyorId) {
+        return repository.countBySurveyorId(surveyorId);
+    }
+
+    @Override
+    public TrackStoreEngine getEngine() {
+        return TrackStoreEngine.JPA;
+    }
+}
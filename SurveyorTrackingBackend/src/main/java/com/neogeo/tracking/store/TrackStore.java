@@ -0,0 +1,51 @@
+package com.neogeo.tracking.store;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.track.TrackPointHandler;
+
+/**
+ * Write path and hot reads of location_track, behind one interface so storage engines can be
+ * swapped (tracking.store.engine) and benchmarked against each other. Every engine must pass
+ * TrackStoreConformanceTests.
+ *
+ * Ordering is by (timestamp, id) throughout; ids are assigned by the store and increase with
+ * every append. Rejected fixes (LocationTrack.QUALITY_REJECTED) are stored and counted, but
+ * never returned by latest or scan.
+ */
+public interface TrackStore {
+
+    /**
+     * Stores one point and sets its id.
+     * @return The same point
+     */
+    LocationTrack append(LocationTrack point);
+
+    /**
+     * Stores points in the given order and sets their ids.
+     * @return The same points, in the same order
+     */
+    List<LocationTrack> appendBatch(List<LocationTrack> points);
+
+    /**
+     * The surveyor's latest fix that is not rejected.
+     */
+    Optional<LocationTrack> latest(String surveyorId);
+
+    /**
+     * Streams the surveyor's fixes in [start, end] in time order, without materializing the range.
+     * @return Number of points handed to the handler
+     * @throws java.io.UncheckedIOException if the handler fails to write
+     */
+    long scan(String surveyorId, Instant start, Instant end, TrackPointHandler handler);
+
+    /**
+     * Number of points stored for the surveyor, rejected ones included.
+     */
+    long count(String surveyorId);
+
+    TrackStoreEngine getEngine();
+}
@@ -0,0 +1,26 @@
+package com.neogeo.tracking.store;
+
+/**
+ * TrackStore implementations, selected with tracking.store.engine.
+ */
+public enum TrackStoreEngine {
+    // Spring Data repository and managed LocationTrack entities (the original path)
+    JPA,
+    // Plain JDBC with batched inserts
+    JDBC,
+    // Process memory only; for tests and benchmarks
+    MEMORY;
+
+    /**
+     * Resolves a property value (case-insensitive).
+     * @throws IllegalArgumentException for unknown values
+     */
+    public static TrackStoreEngine fromParam(String value) {
+        for (TrackStoreEngine engine : values()) {
+            if (engine.name().equalsIgnoreCase(value)) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("Unknown track store engine: " + value);
+    }
+}
@@ -0,0 +1,56 @@
+package com.neogeo.tracking.track;
+
+/**
+ * Reads the bit fields written by BitWriter.
+ */
+final class BitReader {
+
+    private final byte[] bytes;
+    private long position;
+
+    BitReader(byte[] bytes, int offset) {
+        this.bytes = bytes;
+        this.position = (long) offset << 3;
+    }
+
+    boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    /**
+     * Reads width bits (1..64) as an unsigned value.
+     * @throws IllegalArgumentException past the end of the data
+     */
+    long readBits(int width) {
+        if (position + width > (long) bytes.length << 3) {
+            throw new IllegalArgumentException("Truncated track block");
+        }
+        long value = 0;
+        for (int i = 0; i < width; i++) {
+            int bit = (bytes[(int) (position >>> 3)] >>> (7 - (position & 7))) & 1;
+            value = (value << 1) | bit;
+            position++;
+        }
+        return value;
+    }
+
+    long readSigned() {
+        if (!readBit()) {
+            return 0;
+        }
+        if (!readBit()) {
+            return signExtend(readBits(7), 7);
+        }
+        if (!readBit()) {
+            return signExtend(readBits(12), 12);
+        }
+        if (!readBit()) {
+            return signExtend(readBits(20), 20);
+        }
+        return readBits(64);
+    }
+
+    private static long signExtend(long value, int width) {
+        return (value << (64 - width)) >> (64 - width);
+    }
+}
@@ -0,0 +1,63 @@
+package com.neogeo.tracking.track;
+
+import java.util.Arrays;
+
+/**
+ * Appends bit fields, most significant bit first, to a growable byte array.
+ */
+final class BitWriter {
+
+    private byte[] bytes = new byte[256];
+    private long bitCount;
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Writes the low width bits of value (width 1..64).
+     */
+    void writeBits(long value, int width) {
+        for (int i = width - 1; i >= 0; i--) {
+            int index = (int) (bitCount >>> 3);
+            if (index == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            if (((value >>> i) & 1) != 0) {
+                bytes[index] |= (byte) (0x80 >>> (bitCount & 7));
+            }
+            bitCount++;
+        }
+    }
+
+    /**
+     * Gorilla-style variable-width signed value: a short prefix selects 0, 7, 12, 20 or 64
+     * bits, so the zero and small deltas of a regular track take one to fifteen bits.
+     */
+    void writeSigned(long value) {
+        if (value == 0) {
+            writeBits(0b0, 1);
+        } else if (fits(value, 7)) {
+            writeBits(0b10, 2);
+            writeBits(value, 7);
+        } else if (fits(value, 12)) {
+            writeBits(0b110, 3);
+            writeBits(value, 12);
+        } else if (fits(value, 20)) {
+            writeBits(0b1110, 4);
+            writeBits(value, 20);
+        } else {
+            writeBits(0b1111, 4);
+            writeBits(value, 64);
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, (int) ((bitCount + 7) >>> 3));
+    }
+
+    private static boolean fits(long value, int width) {
+        long limit = 1L << (width - 1);
+        return value >= -limit && value < limit;
+    }
+}
@@ -0,0 +1,71 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Columnar delta JSON. Latitudes and longitudes are scaled to integers
+ * (precision 1e6, about 11 cm) and every column is stored as deltas from the
+ * previous row, the first entry being the absolute value:
+ * {"surveyorId":..,"scale":1000000,"time":[..],"lat":[..],"lon":[..]}.
+ * The time column is written as rows arrive; lat/lon deltas are held in
+ * primitive arrays until the stream ends.
+ */
+public class ColumnarTrackWriter implements TrackWriter {
+
+    private static final long SCALE = 1_000_000;
+
+    private final JsonGenerator generator;
+    private final String surveyorId;
+
+    private long[] latDeltas = new long[1024];
+    private long[] lonDeltas = new long[1024];
+    private int size;
+    private long previousLat;
+    private long previousLon;
+    private long previousTime;
+
+    public ColumnarTrackWriter(JsonGenerator generator, String surveyorId) {
+        this.generator = generator;
+        this.surveyorId = surveyorId;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("surveyorId", surveyorId);
+        generator.writeNumberField("scale", SCALE);
+        generator.writeArrayFieldStart("time");
+    }
+
+    @Override
+    public void onPoint(long id, double latitude, double longitude, long epochMillis) throws IOException {
+        if (size == latDeltas.length) {
+            latDeltas = Arrays.copyOf(latDeltas, size * 2);
+            lonDeltas = Arrays.copyOf(lonDeltas, size * 2);
+        }
+        long lat = Math.round(latitude * SCALE);
+        long lon = Math.round(longitude * SCALE);
+        latDeltas[size] = lat - previousLat;
+        lonDeltas[size] = lon - previousLon;
+        size++;
+        generator.writeNumber(epochMillis - previousTime);
+        previousLat = lat;
+        previousLon = lon;
+        previousTime = epochMillis;
+    }
+
+    @Override
+    public void end() throws IOException {
+        generator.writeEndArray();
+        generator.writeFieldName("lat");
+        generator.writeArray(latDeltas, 0, size);
+        generator.writeFieldName("lon");
+        generator.writeArray(lonDeltas, 0, size);
+        generator.writeNumberField("pointCount", size);
+        generator.writeEndObject();
+        generator.flush();
+    }
+}
@@ -0,0 +1,42 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+
+/**
+ * How incoming fixes are thinned before they are stored.
+ */
+public enum CompressionMode {
+
+    // Every accepted fix is stored
+    NONE,
+    // A fix within both one minute and 10 meters of the previous stored one is skipped
+    LEGACY,
+    // A fix is stored only when the path predicted from the stored fixes deviates by more than the tolerance
+    DEAD_RECKONING;
+
+    public TrackCompressor newCompressor(double toleranceMeters) {
+        switch (this) {
+            case LEGACY:
+                return new MinimumChangeCompressor(60_000, 10);
+            case DEAD_RECKONING:
+                return new DeadReckoningCompressor(toleranceMeters);
+            default:
+                return new TrackCompressor() {
+                    @Override
+                    public void offer(long id, double latitude, double longitude, long epochMillis,
+                                      TrackPointHandler out) throws IOException {
+                        out.onPoint(id, latitude, longitude, epochMillis);
+                    }
+
+                    @Override
+                    public void flush(TrackPointHandler out) {
+                    }
+
+                    @Override
+                    public long heldId() {
+                        return NONE;
+                    }
+                };
+        }
+    }
+}
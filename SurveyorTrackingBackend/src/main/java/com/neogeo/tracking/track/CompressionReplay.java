@@ -0,0 +1,70 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Replays a recorded track through a compressor and measures what would have been stored
+ * against how well the stored fixes reproduce the original: each original fix is compared
+ * with the position interpolated in time between the stored fixes around it.
+ */
+public final class CompressionReplay {
+
+    private CompressionReplay() {
+    }
+
+    /**
+     * @param original Fixes in time order
+     * @return storedPoints, savedPercent and mean/p95/max reconstruction error in meters
+     */
+    public static Map<String, Object> run(TrackBuffer original, TrackCompressor compressor) {
+        TrackBuffer stored = new TrackBuffer();
+        try {
+            original.replay((id, lat, lon, time) -> compressor.offer(id, lat, lon, time, stored), null);
+            compressor.flush(stored);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int size = original.size();
+        double[] errors = new double[size];
+        double sum = 0;
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            long time = original.time(i);
+            while (next < stored.size() && stored.time(next) <= time) {
+                next++;
+            }
+            double lat;
+            double lon;
+            if (next == 0 || next == stored.size()) {
+                // Before the first or after the last stored fix the nearest one is all there is
+                int nearest = next == 0 ? 0 : stored.size() - 1;
+                lat = stored.latitude(nearest);
+                lon = stored.longitude(nearest);
+            } else {
+                int before = next - 1;
+                double f = (double) (time - stored.time(before)) / (stored.time(next) - stored.time(before));
+                lat = stored.latitude(before) + (stored.latitude(next) - stored.latitude(before)) * f;
+                lon = stored.longitude(before) + (stored.longitude(next) - stored.longitude(before)) * f;
+            }
+            errors[i] = GeoUtils.distanceMeters(lat, lon, original.latitude(i), original.longitude(i));
+            sum += errors[i];
+        }
+        Arrays.sort(errors);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("originalPoints", size);
+        result.put("storedPoints", stored.size());
+        result.put("savedPercent", size == 0 ? 0.0 : 100.0 * (size - stored.size()) / size);
+        result.put("meanErrorMeters", size == 0 ? 0.0 : sum / size);
+        result.put("p95ErrorMeters", size == 0 ? 0.0 : errors[Math.min(size - 1, (int) Math.ceil(size * 0.95) - 1)]);
+        result.put("maxErrorMeters", size == 0 ? 0.0 : errors[size - 1]);
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Dead-reckoning compression. The velocity between the last two stored fixes predicts
+ * where the surveyor should be at the time of each new fix; fixes within toleranceMeters
+ * of the prediction are held back, only the latest one kept. When a fix breaks the
+ * prediction, the held fix (the end of the straight run or of a dwell) is stored first
+ * and the fix is tested again against the updated velocity, so a stationary period
+ * collapses to its first and last fix and a straight drive to its corners.
+ *
+ * Fixes older than the latest offered one (late batch points) are passed on unchanged.
+ */
+public class DeadReckoningCompressor implements TrackCompressor {
+
+    private final double toleranceMeters;
+
+    private boolean hasStored;
+    private double storedLat;
+    private double storedLon;
+    private long storedTime;
+    // Degrees per millisecond between the last two stored fixes
+    private double velocityLat;
+    private double velocityLon;
+
+    private long heldId = NONE;
+    private double heldLat;
+    private double heldLon;
+    private long heldTime;
+
+    public DeadReckoningCompressor(double toleranceMeters) {
+        this.toleranceMeters = toleranceMeters;
+    }
+
+    @Override
+    public void offer(long id, double latitude, double longitude, long epochMillis, TrackPointHandler out)
+            throws IOException {
+        if (!hasStored) {
+            store(id, latitude, longitude, epochMillis, out);
+            return;
+        }
+        if (epochMillis < (heldId != NONE ? heldTime : storedTime)) {
+            out.onPoint(id, latitude, longitude, epochMillis);
+            return;
+        }
+        if (!deviates(latitude, longitude, epochMillis)) {
+            hold(id, latitude, longitude, epochMillis);
+            return;
+        }
+        if (heldId != NONE) {
+            store(heldId, heldLat, heldLon, heldTime, out);
+            if (!deviates(latitude, longitude, epochMillis)) {
+                hold(id, latitude, longitude, epochMillis);
+                return;
+            }
+        }
+        store(id, latitude, longitude, epochMillis, out);
+    }
+
+    @Override
+    public void flush(TrackPointHandler out) throws IOException {
+        if (heldId != NONE) {
+            store(heldId, heldLat, heldLon, heldTime, out);
+        }
+    }
+
+    @Override
+    public long heldId() {
+        return heldId;
+    }
+
+    private boolean deviates(double latitude, double longitude, long epochMillis) {
+        long elapsed = epochMillis - storedTime;
+        double predictedLat = storedLat + velocityLat * elapsed;
+        double predictedLon = storedLon + velocityLon * elapsed;
+        return GeoUtils.distanceMeters(predictedLat, predictedLon, latitude, longitude) > toleranceMeters;
+    }
+
+    private void hold(long id, double latitude, double longitude, long epochMillis) {
+        heldId = id;
+        heldLat = latitude;
+        heldLon = longitude;
+        heldTime = epochMillis;
+    }
+
+    private void store(long id, double latitude, double longitude, long epochMillis, TrackPointHandler out)
+            throws IOException {
+        if (hasStored && epochMillis > storedTime) {
+            velocityLat = (latitude - storedLat) / (epochMillis - storedTime);
+            velocityLon = (longitude - storedLon) / (epochMillis - storedTime);
+        }
+        hasStored = true;
+        storedLat = latitude;
+        storedLon = longitude;
+        storedTime = epochMillis;
+        heldId = NONE;
+        out.onPoint(id, latitude, longitude, epochMillis);
+    }
+}
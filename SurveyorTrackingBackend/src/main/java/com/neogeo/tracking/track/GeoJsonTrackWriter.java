@@ -0,0 +1,98 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * GeoJSON output in one of two shapes:
+ * a FeatureCollection of Point features (one per fix, with its timestamp), or
+ * a single LineString Feature whose coordinates are written as rows arrive.
+ * GeoJSON coordinates are [longitude, latitude].
+ */
+public class GeoJsonTrackWriter implements TrackWriter {
+
+    private final JsonGenerator generator;
+    private final String surveyorId;
+    private final boolean lineString;
+
+    private long pointCount;
+    private long firstMillis;
+    private long lastMillis;
+
+    public GeoJsonTrackWriter(JsonGenerator generator, String surveyorId, boolean lineString) {
+        this.generator = generator;
+        this.surveyorId = surveyorId;
+        this.lineString = lineString;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        if (lineString) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "Feature");
+            generator.writeObjectFieldStart("geometry");
+            generator.writeStringField("type", "LineString");
+            generator.writeArrayFieldStart("coordinates");
+        } else {
+            generator.writeStartObject();
+            generator.writeStringField("type", "FeatureCollection");
+            generator.writeArrayFieldStart("features");
+        }
+    }
+
+    @Override
+    public void onPoint(long id, double latitude, double longitude, long epochMillis) throws IOException {
+        if (pointCount == 0) {
+            firstMillis = epochMillis;
+        }
+        lastMillis = epochMillis;
+        pointCount++;
+
+        if (lineString) {
+            writeCoordinate(latitude, longitude);
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeStringField("type", "Feature");
+        generator.writeObjectFieldStart("geometry");
+        generator.writeStringField("type", "Point");
+        generator.writeFieldName("coordinates");
+        writeCoordinate(latitude, longitude);
+        generator.writeEndObject();
+        generator.writeObjectFieldStart("properties");
+        if (id != SYNTHETIC_ID) {
+            generator.writeNumberField("id", id);
+        }
+        generator.writeStringField("surveyorId", surveyorId);
+        generator.writeStringField("timestamp", Instant.ofEpochMilli(epochMillis).toString());
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void end() throws IOException {
+        generator.writeEndArray();
+        if (lineString) {
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("properties");
+            generator.writeStringField("surveyorId", surveyorId);
+            generator.writeNumberField("pointCount", pointCount);
+            if (pointCount > 0) {
+                generator.writeStringField("start", Instant.ofEpochMilli(firstMillis).toString());
+                generator.writeStringField("end", Instant.ofEpochMilli(lastMillis).toString());
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private void writeCoordinate(double latitude, double longitude) throws IOException {
+        generator.writeStartArray();
+        generator.writeNumber(longitude);
+        generator.writeNumber(latitude);
+        generator.writeEndArray();
+    }
+}
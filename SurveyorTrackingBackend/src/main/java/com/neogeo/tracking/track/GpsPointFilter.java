@@ -0,0 +1,131 @@
+package com.neogeo.tracking.track;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Per-surveyor streaming filter for incoming fixes, using only the state of the previous
+ * accepted fix.
+ *
+ * Speed plausibility: a fix further from the previous accepted fix than maxSpeed allows
+ * (plus the GPS noise of both fixes) is rejected. If that keeps happening for more than
+ * maxConsecutiveRejects fixes in a row, the previous fix was the outlier (or the device
+ * really relocated), so the filter re-anchors on the current fix.
+ *
+ * Smoothing (optional): a constant-position Kalman filter per axis in meters. Uncertainty
+ * grows with processNoise^2 per second between fixes, and each fix with measurement noise
+ * pulls the estimate by the resulting gain, which flattens indoor jitter clouds while a
+ * moving surveyor (long gaps or large moves) is followed closely.
+ *
+ * Fixes older than the previous accepted one (batch uploads arriving late) cannot be
+ * judged against this state and pass through unchanged.
+ */
+public class GpsPointFilter {
+
+    /**
+     * Filter state of one surveyor. Not thread-safe; callers serialize access per surveyor.
+     */
+    public static class State {
+        private boolean initialized;
+        private double latitude;
+        private double longitude;
+        private long epochMillis;
+        private double estimateLatitude;
+        private double estimateLongitude;
+        private double varianceMeters2;
+        private int rejectedInRow;
+    }
+
+    /**
+     * Filter outcome: the position to store and its LocationTrack quality flag.
+     */
+    public static class Result {
+        private final short qualityFlag;
+        private final double latitude;
+        private final double longitude;
+
+        Result(short qualityFlag, double latitude, double longitude) {
+            this.qualityFlag = qualityFlag;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public short getQualityFlag() {
+            return qualityFlag;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    private final double maxSpeedMps;
+    private final int maxConsecutiveRejects;
+    private final boolean smoothing;
+    private final double measurementNoiseMeters;
+    private final double processNoiseMps;
+
+    public GpsPointFilter(double maxSpeedMps, int maxConsecutiveRejects, boolean smoothing,
+                          double measurementNoiseMeters, double processNoiseMps) {
+        this.maxSpeedMps = maxSpeedMps;
+        this.maxConsecutiveRejects = maxConsecutiveRejects;
+        this.smoothing = smoothing;
+        this.measurementNoiseMeters = measurementNoiseMeters;
+        this.processNoiseMps = processNoiseMps;
+    }
+
+    public Result apply(State state, double latitude, double longitude, long epochMillis) {
+        if (!state.initialized) {
+            reset(state, latitude, longitude, epochMillis);
+            return raw(latitude, longitude);
+        }
+        if (epochMillis < state.epochMillis) {
+            return raw(latitude, longitude);
+        }
+
+        double seconds = (epochMillis - state.epochMillis) / 1000.0;
+        double meters = GeoUtils.distanceMeters(state.latitude, state.longitude, latitude, longitude);
+        if (meters > maxSpeedMps * seconds + 2 * measurementNoiseMeters) {
+            state.rejectedInRow++;
+            if (state.rejectedInRow <= maxConsecutiveRejects) {
+                return new Result(LocationTrack.QUALITY_REJECTED, latitude, longitude);
+            }
+            reset(state, latitude, longitude, epochMillis);
+            return raw(latitude, longitude);
+        }
+
+        state.rejectedInRow = 0;
+        state.latitude = latitude;
+        state.longitude = longitude;
+        state.epochMillis = epochMillis;
+        if (!smoothing) {
+            return raw(latitude, longitude);
+        }
+
+        double variance = state.varianceMeters2 + seconds * processNoiseMps * processNoiseMps;
+        double gain = variance / (variance + measurementNoiseMeters * measurementNoiseMeters);
+        state.estimateLatitude += gain * (latitude - state.estimateLatitude);
+        state.estimateLongitude += gain * (longitude - state.estimateLongitude);
+        state.varianceMeters2 = (1 - gain) * variance;
+        return new Result(LocationTrack.QUALITY_SMOOTHED, state.estimateLatitude, state.estimateLongitude);
+    }
+
+    private void reset(State state, double latitude, double longitude, long epochMillis) {
+        state.initialized = true;
+        state.latitude = latitude;
+        state.longitude = longitude;
+        state.epochMillis = epochMillis;
+        state.estimateLatitude = latitude;
+        state.estimateLongitude = longitude;
+        state.varianceMeters2 = measurementNoiseMeters * measurementNoiseMeters;
+        state.rejectedInRow = 0;
+    }
+
+    private static Result raw(double latitude, double longitude) {
+        return new Result(LocationTrack.QUALITY_RAW, latitude, longitude);
+    }
+}
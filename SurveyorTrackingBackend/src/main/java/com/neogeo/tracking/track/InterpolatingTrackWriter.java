@@ -0,0 +1,135 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Interpolation engine for enhanced tracks. Sits between the cursor stream and a
+ * format writer and emits synthetic points as each recorded fix arrives, so the
+ * enhanced track is never materialized. Only the previous fix is kept, as primitives.
+ * Synthetic points are emitted with id {@link TrackPointHandler#SYNTHETIC_ID}.
+ */
+public class InterpolatingTrackWriter implements TrackWriter {
+
+    private final TrackWriter delegate;
+    private final InterpolationSettings settings;
+
+    private boolean hasPrevious;
+    private long previousId;
+    private double previousLat;
+    private double previousLon;
+    private long previousTime;
+
+    // RESAMPLE state
+    private long nextSampleTime;
+    private boolean previousEmitted;
+
+    public InterpolatingTrackWriter(TrackWriter delegate, InterpolationSettings settings) {
+        this.delegate = delegate;
+        this.settings = settings;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        delegate.begin();
+    }
+
+    @Override
+    public void onPoint(long id, double latitude, double longitude, long epochMillis) throws IOException {
+        if (!hasPrevious) {
+            delegate.onPoint(id, latitude, longitude, epochMillis);
+            nextSampleTime = epochMillis + settings.getStepMillis();
+            previousEmitted = true;
+        } else if (settings.getStrategy() == InterpolationStrategy.RESAMPLE) {
+            resample(id, latitude, longitude, epochMillis);
+        } else {
+            fillGap(latitude, longitude, epochMillis);
+            delegate.onPoint(id, latitude, longitude, epochMillis);
+        }
+        hasPrevious = true;
+        previousId = id;
+        previousLat = latitude;
+        previousLon = longitude;
+        previousTime = epochMillis;
+    }
+
+    @Override
+    public void end() throws IOException {
+        // Resampling keeps the last recorded fix exactly, like the other strategies
+        if (hasPrevious && !previousEmitted) {
+            delegate.onPoint(previousId, previousLat, previousLon, previousTime);
+        }
+        delegate.end();
+    }
+
+    private void fillGap(double latitude, double longitude, long epochMillis) throws IOException {
+        long gap = epochMillis - previousTime;
+        if (gap < settings.getMinGapMillis()) {
+            return;
+        }
+        if (GeoUtils.distanceMeters(previousLat, previousLon, latitude, longitude) <= settings.getMinDistanceMeters()) {
+            return;
+        }
+        int points = (int) Math.min(gap / settings.getStepMillis(), settings.getMaxPointsPerGap());
+        if (points <= 0) {
+            return;
+        }
+
+        if (settings.getStrategy() == InterpolationStrategy.GREAT_CIRCLE) {
+            emitGreatCircle(latitude, longitude, gap, points);
+            return;
+        }
+        double dLat = latitude - previousLat;
+        double dLon = longitude - previousLon;
+        for (int j = 1; j <= points; j++) {
+            double factor = (double) j / (points + 1);
+            delegate.onPoint(SYNTHETIC_ID, previousLat + factor * dLat, previousLon + factor * dLon,
+                previousTime + (long) (factor * gap));
+        }
+    }
+
+    private void emitGreatCircle(double latitude, double longitude, long gap, int points) throws IOException {
+        double lat1 = Math.toRadians(previousLat);
+        double lon1 = Math.toRadians(previousLon);
+        double lat2 = Math.toRadians(latitude);
+        double lon2 = Math.toRadians(longitude);
+        double x1 = Math.cos(lat1) * Math.cos(lon1), y1 = Math.cos(lat1) * Math.sin(lon1), z1 = Math.sin(lat1);
+        double x2 = Math.cos(lat2) * Math.cos(lon2), y2 = Math.cos(lat2) * Math.sin(lon2), z2 = Math.sin(lat2);
+        double angle = Math.acos(Math.max(-1, Math.min(1, x1 * x2 + y1 * y2 + z1 * z2)));
+        double sinAngle = Math.sin(angle);
+
+        for (int j = 1; j <= points; j++) {
+            double factor = (double) j / (points + 1);
+            double a = sinAngle < 1e-12 ? 1 - factor : Math.sin((1 - factor) * angle) / sinAngle;
+            double b = sinAngle < 1e-12 ? factor : Math.sin(factor * angle) / sinAngle;
+            double x = a * x1 + b * x2;
+            double y = a * y1 + b * y2;
+            double z = a * z1 + b * z2;
+            delegate.onPoint(SYNTHETIC_ID,
+                Math.toDegrees(Math.atan2(z, Math.sqrt(x * x + y * y))),
+                Math.toDegrees(Math.atan2(y, x)),
+                previousTime + (long) (factor * gap));
+        }
+    }
+
+    private void resample(long id, double latitude, double longitude, long epochMillis) throws IOException {
+        long gap = epochMillis - previousTime;
+        if (gap <= 0) {
+            return;
+        }
+        previousEmitted = false;
+        double dLat = latitude - previousLat;
+        double dLon = longitude - previousLon;
+        while (nextSampleTime < epochMillis) {
+            double factor = (double) (nextSampleTime - previousTime) / gap;
+            delegate.onPoint(SYNTHETIC_ID, previousLat + factor * dLat, previousLon + factor * dLon, nextSampleTime);
+            nextSampleTime += settings.getStepMillis();
+        }
+        if (nextSampleTime == epochMillis) {
+            delegate.onPoint(id, latitude, longitude, epochMillis);
+            nextSampleTime += settings.getStepMillis();
+            previousEmitted = true;
+        }
+    }
+}
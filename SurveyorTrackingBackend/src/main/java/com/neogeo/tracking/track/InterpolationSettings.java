@@ -0,0 +1,59 @@
+package com.neogeo.tracking.track;
+
+/**
+ * Parameters for InterpolatingTrackWriter. The defaults reproduce the original
+ * enhanced-track rule: gaps of 2+ minutes and more than 20 m get one point per
+ * minute, at most 20 per gap.
+ */
+public class InterpolationSettings {
+
+    private final InterpolationStrategy strategy;
+    private final long minGapMillis;
+    private final double minDistanceMeters;
+    private final long stepMillis;
+    private final int maxPointsPerGap;
+
+    public InterpolationSettings(InterpolationStrategy strategy, long minGapSeconds, double minDistanceMeters,
+                                 long stepSeconds, int maxPointsPerGap) {
+        if (stepSeconds <= 0) {
+            throw new IllegalArgumentException("Interpolation step must be positive");
+        }
+        this.strategy = strategy;
+        this.minGapMillis = minGapSeconds * 1000;
+        this.minDistanceMeters = minDistanceMeters;
+        this.stepMillis = stepSeconds * 1000;
+        this.maxPointsPerGap = maxPointsPerGap;
+    }
+
+    public static InterpolationSettings defaults() {
+        return new InterpolationSettings(InterpolationStrategy.LINEAR, 120, 20, 60, 20);
+    }
+
+    public InterpolationSettings withStrategy(InterpolationStrategy strategy) {
+        return new InterpolationSettings(strategy, minGapMillis / 1000, minDistanceMeters, stepMillis / 1000, maxPointsPerGap);
+    }
+
+    public InterpolationSettings withStepSeconds(long stepSeconds) {
+        return new InterpolationSettings(strategy, minGapMillis / 1000, minDistanceMeters, stepSeconds, maxPointsPerGap);
+    }
+
+    public InterpolationStrategy getStrategy() {
+        return strategy;
+    }
+
+    public long getMinGapMillis() {
+        return minGapMillis;
+    }
+
+    public double getMinDistanceMeters() {
+        return minDistanceMeters;
+    }
+
+    public long getStepMillis() {
+        return stepMillis;
+    }
+
+    public int getMaxPointsPerGap() {
+        return maxPointsPerGap;
+    }
+}
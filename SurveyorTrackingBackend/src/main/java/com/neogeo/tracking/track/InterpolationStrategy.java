@@ -0,0 +1,20 @@
+package com.neogeo.tracking.track;
+
+/**
+ * How InterpolatingTrackWriter fills the space between recorded fixes.
+ */
+public enum InterpolationStrategy {
+    /** Straight line in lat/lon between fixes across large gaps (the original enhanced-track behaviour) */
+    LINEAR,
+    /** Points along the great circle between fixes across large gaps */
+    GREAT_CIRCLE,
+    /** Replaces the track with samples every N seconds, linearly interpolated between bracketing fixes */
+    RESAMPLE;
+
+    /**
+     * @throws IllegalArgumentException if the value is not a known strategy
+     */
+    public static InterpolationStrategy fromParam(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,45 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Plain JSON array with the same shape as a serialized List<LocationTrack>,
+ * for endpoints that used to return one.
+ */
+public class JsonArrayTrackWriter implements TrackWriter {
+
+    private final JsonGenerator generator;
+    private final String surveyorId;
+
+    public JsonArrayTrackWriter(JsonGenerator generator, String surveyorId) {
+        this.generator = generator;
+        this.surveyorId = surveyorId;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        generator.writeStartArray();
+    }
+
+    @Override
+    public void onPoint(long id, double latitude, double longitude, long epochMillis) throws IOException {
+        generator.writeStartObject();
+        if (id != SYNTHETIC_ID) {
+            generator.writeNumberField("id", id);
+        }
+        generator.writeStringField("surveyorId", surveyorId);
+        generator.writeNumberField("latitude", latitude);
+        generator.writeNumberField("longitude", longitude);
+        generator.writeStringField("timestamp", Instant.ofEpochMilli(epochMillis).toString());
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void end() throws IOException {
+        generator.writeEndArray();
+        generator.flush();
+    }
+}
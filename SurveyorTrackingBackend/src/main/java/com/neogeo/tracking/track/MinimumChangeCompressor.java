@@ -0,0 +1,47 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * The original ingest rule: a fix is skipped when it is within both minMillis and
+ * minMeters of the previous stored fix. Used to replay LEGACY mode on stored traces.
+ */
+public class MinimumChangeCompressor implements TrackCompressor {
+
+    private final long minMillis;
+    private final double minMeters;
+    private boolean hasStored;
+    private double storedLat;
+    private double storedLon;
+    private long storedTime;
+
+    public MinimumChangeCompressor(long minMillis, double minMeters) {
+        this.minMillis = minMillis;
+        this.minMeters = minMeters;
+    }
+
+    @Override
+    public void offer(long id, double latitude, double longitude, long epochMillis, TrackPointHandler out)
+            throws IOException {
+        if (hasStored && epochMillis - storedTime < minMillis &&
+            GeoUtils.distanceMeters(storedLat, storedLon, latitude, longitude) < minMeters) {
+            return;
+        }
+        hasStored = true;
+        storedLat = latitude;
+        storedLon = longitude;
+        storedTime = epochMillis;
+        out.onPoint(id, latitude, longitude, epochMillis);
+    }
+
+    @Override
+    public void flush(TrackPointHandler out) {
+    }
+
+    @Override
+    public long heldId() {
+        return NONE;
+    }
+}
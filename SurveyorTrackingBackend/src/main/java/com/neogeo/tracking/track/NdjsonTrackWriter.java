@@ -0,0 +1,45 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * One JSON object per line with the same field names as LocationTrack.
+ */
+public class NdjsonTrackWriter implements TrackWriter {
+
+    private final JsonGenerator generator;
+    private final String surveyorId;
+
+    public NdjsonTrackWriter(JsonGenerator generator, String surveyorId) {
+        this.generator = generator;
+        this.generator.setRootValueSeparator(null);
+        this.surveyorId = surveyorId;
+    }
+
+    @Override
+    public void begin() {
+        // NDJSON has no envelope
+    }
+
+    @Override
+    public void onPoint(long id, double latitude, double longitude, long epochMillis) throws IOException {
+        generator.writeStartObject();
+        if (id != SYNTHETIC_ID) {
+            generator.writeNumberField("id", id);
+        }
+        generator.writeStringField("surveyorId", surveyorId);
+        generator.writeNumberField("latitude", latitude);
+        generator.writeNumberField("longitude", longitude);
+        generator.writeStringField("timestamp", Instant.ofEpochMilli(epochMillis).toString());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void end() throws IOException {
+        generator.flush();
+    }
+}
@@ -0,0 +1,73 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Google encoded polyline (precision 1e5) plus delta-encoded timestamps:
+ * {"surveyorId":..,"timeDeltas":[ms,...],"pointCount":n,"polyline":"..."}.
+ * The first time delta is the absolute epoch millis of the first point.
+ * Time deltas are written to the generator as rows arrive; the polyline is
+ * built in a StringBuilder (a few bytes per point) and written at the end.
+ */
+public class PolylineTrackWriter implements TrackWriter {
+
+    private static final double PRECISION = 1e5;
+
+    private final JsonGenerator generator;
+    private final String surveyorId;
+    private final StringBuilder polyline = new StringBuilder();
+
+    private long previousLat;
+    private long previousLon;
+    private long previousTime;
+    private long pointCount;
+
+    public PolylineTrackWriter(JsonGenerator generator, String surveyorId) {
+        this.generator = generator;
+        this.surveyorId = surveyorId;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("surveyorId", surveyorId);
+        generator.writeArrayFieldStart("timeDeltas");
+    }
+
+    @Override
+    public void onPoint(long id, double latitude, double longitude, long epochMillis) throws IOException {
+        long lat = Math.round(latitude * PRECISION);
+        long lon = Math.round(longitude * PRECISION);
+        encodeSigned(lat - previousLat, polyline);
+        encodeSigned(lon - previousLon, polyline);
+        // The first delta is relative to 0, i.e. the absolute start time
+        generator.writeNumber(epochMillis - previousTime);
+        previousLat = lat;
+        previousLon = lon;
+        previousTime = epochMillis;
+        pointCount++;
+    }
+
+    @Override
+    public void end() throws IOException {
+        generator.writeEndArray();
+        generator.writeNumberField("pointCount", pointCount);
+        generator.writeStringField("polyline", polyline.toString());
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    static void encodeSigned(long value, StringBuilder out) {
+        long shifted = value << 1;
+        if (value < 0) {
+            shifted = ~shifted;
+        }
+        while (shifted >= 0x20) {
+            out.append((char) ((0x20 | (shifted & 0x1f)) + 63));
+            shifted >>= 5;
+        }
+        out.append((char) (shifted + 63));
+    }
+}
@@ -0,0 +1,52 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+
+/**
+ * Buffers the streamed points into primitive arrays, simplifies them when the
+ * stream ends and forwards the surviving points to another writer.
+ */
+public class SimplifyingTrackWriter implements TrackWriter {
+
+    private final TrackWriter delegate;
+    private final Double toleranceMeters;
+    private final Integer zoom;
+    private final TrackBuffer buffer = new TrackBuffer();
+
+    private SimplifyingTrackWriter(TrackWriter delegate, Double toleranceMeters, Integer zoom) {
+        this.delegate = delegate;
+        this.toleranceMeters = toleranceMeters;
+        this.zoom = zoom;
+    }
+
+    public static SimplifyingTrackWriter withTolerance(TrackWriter delegate, double toleranceMeters) {
+        return new SimplifyingTrackWriter(delegate, toleranceMeters, null);
+    }
+
+    public static SimplifyingTrackWriter forZoom(TrackWriter delegate, int zoom) {
+        return new SimplifyingTrackWriter(delegate, null, zoom);
+    }
+
+    @Override
+    public void begin() throws IOException {
+        delegate.begin();
+    }
+
+    @Override
+    public void onPoint(long id, double latitude, double longitude, long epochMillis) {
+        buffer.onPoint(id, latitude, longitude, epochMillis);
+    }
+
+    @Override
+    public void end() throws IOException {
+        int size = buffer.size();
+        if (size > 0) {
+            double tolerance = toleranceMeters != null
+                ? toleranceMeters
+                : TrackSimplifier.toleranceForZoom(zoom, buffer.latitude(0));
+            boolean[] keep = TrackSimplifier.douglasPeucker(buffer.latitudes(), buffer.longitudes(), size, tolerance);
+            buffer.replay(delegate, keep);
+        }
+        delegate.end();
+    }
+}
@@ -0,0 +1,250 @@
+package com.neogeo.tracking.track;
+
+import java.time.Instant;
+
+import com.neogeo.tracking.dto.SurveyorStop;
+import com.neogeo.tracking.dto.SurveyorTrip;
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Streaming stay-point detection over one surveyor's points in time order. A stop starts
+ * at an anchor fix and lasts while later fixes stay within stopRadius of it; it counts once
+ * it spans at least minStop. An anchor whose window ends earlier becomes part of the trip
+ * and the next fix is tried as anchor. Only the unconfirmed window (under minStop of fixes)
+ * is buffered, so memory does not grow with the range.
+ *
+ * Each stop is reported when the first fix outside it arrives, together with the trip that
+ * led to it from the previous stop. Trips before the first known stop have no origin and
+ * are not reported. ids on the reported objects are left for the caller to assign.
+ */
+public class StayPointDetector implements TrackPointHandler {
+
+    public interface Listener {
+        /**
+         * Called when a stop ends. The departure fix is the stop's last fix, where the next trip
+         * starts and where a later run can resume.
+         * @param tripBefore Trip from the previous stop's departure to this stop's arrival, null if unknown
+         */
+        void onStop(SurveyorStop stop, SurveyorTrip tripBefore, long departureId,
+                    double departureLatitude, double departureLongitude);
+    }
+
+    private final String surveyorId;
+    private final double stopRadiusMeters;
+    private final long minStopMillis;
+    private final Listener listener;
+
+    // Candidate stop: window[head..] starting at the anchor window[head]
+    private final TrackBuffer window = new TrackBuffer();
+    private int head;
+
+    // Confirmed stop still in progress
+    private boolean confirmed;
+    private double anchorLat;
+    private double anchorLon;
+    private long arrivalTime;
+    private double sumLat;
+    private double sumLon;
+    private int stopPoints;
+    private long lastId;
+    private double lastLat;
+    private double lastLon;
+    private long lastTime;
+    private SurveyorTrip tripToStop;
+
+    // Departure fix of the last closed stop; the current trip starts there
+    private boolean hasOrigin;
+    private long originId;
+    private double originLat;
+    private double originLon;
+    private long originTime;
+
+    // Trip in progress: fixes that left the candidate window
+    private double tripKm;
+    private int tripPoints;
+    private double tripLat;
+    private double tripLon;
+    private long tripTime;
+
+    public StayPointDetector(String surveyorId, double stopRadiusMeters, long minStopMillis, Listener listener) {
+        this.surveyorId = surveyorId;
+        this.stopRadiusMeters = stopRadiusMeters;
+        this.minStopMillis = minStopMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * Continues after a stop found earlier: the next trip starts at its departure fix, and
+     * fixes at or before that fix (by time, then id) are ignored.
+     */
+    public void resumeAfter(long id, double latitude, double longitude, long epochMillis) {
+        hasOrigin = true;
+        originId = id;
+        originLat = latitude;
+        originLon = longitude;
+        originTime = epochMillis;
+        startTrip();
+    }
+
+    @Override
+    public void onPoint(long id, double latitude, double longitude, long epochMillis) {
+        if (hasOrigin && (epochMillis < originTime || (epochMillis == originTime && id <= originId))) {
+            return;
+        }
+        if (confirmed) {
+            if (GeoUtils.distanceMeters(anchorLat, anchorLon, latitude, longitude) <= stopRadiusMeters) {
+                addToStop(id, latitude, longitude, epochMillis);
+                return;
+            }
+            closeStop();
+        }
+        window.onPoint(id, latitude, longitude, epochMillis);
+        settleWindow();
+    }
+
+    /**
+     * The stop in progress, if the latest fixes already span minStop; not reported yet.
+     */
+    public SurveyorStop openStop() {
+        return confirmed ? buildStop(true) : null;
+    }
+
+    /**
+     * The trip leading to the stop in progress, or the movement since the last stop's
+     * departure when no stop is in progress; null before the first stop.
+     */
+    public SurveyorTrip openTrip() {
+        if (!hasOrigin) {
+            return null;
+        }
+        if (confirmed) {
+            return tripToStop == null ? null : buildTrip(anchorLat, anchorLon, arrivalTime,
+                tripToStop.getDistanceKm(), tripToStop.getPointCount(), true);
+        }
+        if (window.size() == head) {
+            return tripPoints > 0 ? buildTrip(tripLat, tripLon, tripTime, tripKm, tripPoints, true) : null;
+        }
+        // Window fixes are still undecided; count them as movement for the open view
+        double km = tripKm;
+        double lat = tripLat;
+        double lon = tripLon;
+        for (int i = head; i < window.size(); i++) {
+            km += GeoUtils.distanceKm(lat, lon, window.latitude(i), window.longitude(i));
+            lat = window.latitude(i);
+            lon = window.longitude(i);
+        }
+        return buildTrip(lat, lon, window.time(window.size() - 1), km, tripPoints + window.size() - head, true);
+    }
+
+    /**
+     * Drops anchors that cannot start a stop until the window is a single candidate, and
+     * confirms it once it spans minStop.
+     */
+    private void settleWindow() {
+        while (true) {
+            double lat = window.latitude(head);
+            double lon = window.longitude(head);
+            int end = head + 1;
+            while (end < window.size() &&
+                   GeoUtils.distanceMeters(lat, lon, window.latitude(end), window.longitude(end)) <= stopRadiusMeters) {
+                end++;
+            }
+            if (end == window.size()) {
+                if (window.time(end - 1) - window.time(head) >= minStopMillis) {
+                    confirmStop();
+                }
+                return;
+            }
+            // The anchor's window closed before reaching minStop, so the anchor was passed through
+            moveToTrip(window.latitude(head), window.longitude(head));
+            head++;
+            if (head > window.size() / 2) {
+                window.discardFirst(head);
+                head = 0;
+            }
+        }
+    }
+
+    private void confirmStop() {
+        confirmed = true;
+        anchorLat = window.latitude(head);
+        anchorLon = window.longitude(head);
+        arrivalTime = window.time(head);
+        sumLat = 0;
+        sumLon = 0;
+        stopPoints = 0;
+        for (int i = head; i < window.size(); i++) {
+            addToStop(window.id(i), window.latitude(i), window.longitude(i), window.time(i));
+        }
+        tripToStop = hasOrigin
+            ? buildTrip(anchorLat, anchorLon, arrivalTime,
+                tripKm + GeoUtils.distanceKm(tripLat, tripLon, anchorLat, anchorLon), tripPoints + 1, false)
+            : null;
+        window.clear();
+        head = 0;
+    }
+
+    private void addToStop(long id, double latitude, double longitude, long epochMillis) {
+        sumLat += latitude;
+        sumLon += longitude;
+        stopPoints++;
+        lastId = id;
+        lastLat = latitude;
+        lastLon = longitude;
+        lastTime = epochMillis;
+    }
+
+    private void closeStop() {
+        SurveyorStop stop = buildStop(false);
+        SurveyorTrip tripBefore = tripToStop;
+        confirmed = false;
+        tripToStop = null;
+        resumeAfter(lastId, lastLat, lastLon, lastTime);
+        listener.onStop(stop, tripBefore, lastId, lastLat, lastLon);
+    }
+
+    private void startTrip() {
+        tripKm = 0;
+        tripPoints = 0;
+        tripLat = originLat;
+        tripLon = originLon;
+        tripTime = originTime;
+    }
+
+    private void moveToTrip(double latitude, double longitude) {
+        tripKm += GeoUtils.distanceKm(tripLat, tripLon, latitude, longitude);
+        tripLat = latitude;
+        tripLon = longitude;
+        tripPoints++;
+        tripTime = window.time(head);
+    }
+
+    private SurveyorStop buildStop(boolean open) {
+        SurveyorStop stop = new SurveyorStop();
+        stop.setSurveyorId(surveyorId);
+        stop.setArrivalTime(Instant.ofEpochMilli(arrivalTime));
+        stop.setDepartureTime(Instant.ofEpochMilli(lastTime));
+        stop.setLatitude(sumLat / stopPoints);
+        stop.setLongitude(sumLon / stopPoints);
+        stop.setPointCount(stopPoints);
+        stop.setDurationMinutes((lastTime - arrivalTime) / 60000.0);
+        stop.setOpen(open);
+        return stop;
+    }
+
+    private SurveyorTrip buildTrip(double endLat, double endLon, long endTime, double km, int points, boolean open) {
+        SurveyorTrip trip = new SurveyorTrip();
+        trip.setSurveyorId(surveyorId);
+        trip.setStartTime(Instant.ofEpochMilli(originTime));
+        trip.setEndTime(Instant.ofEpochMilli(endTime));
+        trip.setStartLatitude(originLat);
+        trip.setStartLongitude(originLon);
+        trip.setEndLatitude(endLat);
+        trip.setEndLongitude(endLon);
+        trip.setDistanceKm(km);
+        trip.setPointCount(points);
+        trip.setDurationMinutes((endTime - originTime) / 60000.0);
+        trip.setOpen(open);
+        return trip;
+    }
+}
@@ -0,0 +1,129 @@
+package com.neogeo.tracking.track;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import com.neogeo.tracking.model.LocationTrack;
+
+/**
+ * All stored columns of a run of location_track rows as primitive arrays, in
+ * (timestamp, id) order: the unit TrackBlockCodec packs into one archive block.
+ * Raw coordinates are NaN for points that were not smoothed.
+ */
+public class TrackBlock {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] times = new long[INITIAL_CAPACITY];
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    private short[] qualityFlags = new short[INITIAL_CAPACITY];
+    private double[] rawLatitudes = new double[INITIAL_CAPACITY];
+    private double[] rawLongitudes = new double[INITIAL_CAPACITY];
+    private int size;
+
+    public void add(long id, long epochMillis, double latitude, double longitude, short qualityFlag,
+                    double rawLatitude, double rawLongitude) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            times = Arrays.copyOf(times, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            qualityFlags = Arrays.copyOf(qualityFlags, capacity);
+            rawLatitudes = Arrays.copyOf(rawLatitudes, capacity);
+            rawLongitudes = Arrays.copyOf(rawLongitudes, capacity);
+        }
+        ids[size] = id;
+        times[size] = epochMillis;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        qualityFlags[size] = qualityFlag;
+        rawLatitudes[size] = rawLatitude;
+        rawLongitudes[size] = rawLongitude;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public long time(int index) {
+        return times[index];
+    }
+
+    public double latitude(int index) {
+        return latitudes[index];
+    }
+
+    public double longitude(int index) {
+        return longitudes[index];
+    }
+
+    public short qualityFlag(int index) {
+        return qualityFlags[index];
+    }
+
+    public boolean hasRaw(int index) {
+        return !Double.isNaN(rawLatitudes[index]);
+    }
+
+    public double rawLatitude(int index) {
+        return rawLatitudes[index];
+    }
+
+    public double rawLongitude(int index) {
+        return rawLongitudes[index];
+    }
+
+    public LocationTrack toLocationTrack(int index, String surveyorId) {
+        LocationTrack point = new LocationTrack(surveyorId, latitudes[index], longitudes[index],
+            Instant.ofEpochMilli(times[index]), null);
+        point.setId(ids[index]);
+        point.setQualityFlag(qualityFlags[index]);
+        if (hasRaw(index)) {
+            point.setRawLatitude(rawLatitudes[index]);
+            point.setRawLongitude(rawLongitudes[index]);
+        }
+        return point;
+    }
+
+    /**
+     * Combines two blocks into a new one in (timestamp, id) order. A point present in
+     * both (same id) is taken from other.
+     */
+    public TrackBlock merge(TrackBlock other) {
+        TrackBlock merged = new TrackBlock();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            boolean takeThis;
+            if (i == size) {
+                takeThis = false;
+            } else if (j == other.size) {
+                takeThis = true;
+            } else if (ids[i] == other.ids[j]) {
+                i++;
+                continue;
+            } else {
+                takeThis = times[i] < other.times[j] || (times[i] == other.times[j] && ids[i] < other.ids[j]);
+            }
+            if (takeThis) {
+                merged.copy(this, i++);
+            } else {
+                merged.copy(other, j++);
+            }
+        }
+        return merged;
+    }
+
+    private void copy(TrackBlock from, int index) {
+        add(from.ids[index], from.times[index], from.latitudes[index], from.longitudes[index],
+            from.qualityFlags[index], from.rawLatitudes[index], from.rawLongitudes[index]);
+    }
+}
@@ -0,0 +1,156 @@
+package com.neogeo.tracking.track;
+
+import com.neogeo.tracking.model.LocationTrack;
+
+/**
+ * Gorilla-style columnar encoding of a TrackBlock. After a version byte, a bit stream holds
+ * the point count and then one column after another:
+ * <ul>
+ * <li>timestamps (epoch millis): first value, first delta, then delta-of-delta, which is 0
+ * for a fixed reporting interval;</li>
+ * <li>ids: first value, then deltas;</li>
+ * <li>latitude and longitude scaled to integers of 1e-7 degrees (about 1 cm): first value,
+ * first delta, then delta-of-delta, near 0 both when standing still and at constant
+ * velocity;</li>
+ * <li>quality flags: one bit per point when unchanged from the previous point;</li>
+ * <li>raw coordinates of smoothed points, as offsets from the stored position.</li>
+ * </ul>
+ * Every value after the first is a BitWriter variable-width signed field. Timestamps keep
+ * millisecond precision and coordinates 1e-7 degrees; everything else round-trips exactly.
+ */
+public final class TrackBlockCodec {
+
+    private static final byte VERSION = 1;
+    private static final double SCALE = 1e7;
+
+    private TrackBlockCodec() {
+    }
+
+    public static byte[] encode(TrackBlock block) {
+        int size = block.size();
+        long[] times = new long[size];
+        long[] ids = new long[size];
+        long[] latitudes = new long[size];
+        long[] longitudes = new long[size];
+        for (int i = 0; i < size; i++) {
+            times[i] = block.time(i);
+            ids[i] = block.id(i);
+            latitudes[i] = scale(block.latitude(i));
+            longitudes[i] = scale(block.longitude(i));
+        }
+
+        BitWriter writer = new BitWriter();
+        writer.writeBits(VERSION, 8);
+        writer.writeBits(size, 32);
+        writeDeltaOfDelta(writer, times);
+        writeDelta(writer, ids);
+        writeDeltaOfDelta(writer, latitudes);
+        writeDeltaOfDelta(writer, longitudes);
+
+        short previousFlag = LocationTrack.QUALITY_RAW;
+        for (int i = 0; i < size; i++) {
+            short flag = block.qualityFlag(i);
+            if (flag == previousFlag) {
+                writer.writeBit(false);
+            } else {
+                writer.writeBit(true);
+                writer.writeBits(flag, 2);
+                previousFlag = flag;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (block.qualityFlag(i) == LocationTrack.QUALITY_SMOOTHED) {
+                writer.writeBit(block.hasRaw(i));
+                if (block.hasRaw(i)) {
+                    writer.writeSigned(scale(block.rawLatitude(i)) - latitudes[i]);
+                    writer.writeSigned(scale(block.rawLongitude(i)) - longitudes[i]);
+                }
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown version or truncated data
+     */
+    public static TrackBlock decode(byte[] data) {
+        if (data.length == 0 || data[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported track block version");
+        }
+        BitReader reader = new BitReader(data, 1);
+        int size = (int) reader.readBits(32);
+        long[] times = readDeltaOfDelta(reader, size);
+        long[] ids = readDelta(reader, size);
+        long[] latitudes = readDeltaOfDelta(reader, size);
+        long[] longitudes = readDeltaOfDelta(reader, size);
+
+        short[] flags = new short[size];
+        short previousFlag = LocationTrack.QUALITY_RAW;
+        for (int i = 0; i < size; i++) {
+            if (reader.readBit()) {
+                previousFlag = (short) reader.readBits(2);
+            }
+            flags[i] = previousFlag;
+        }
+
+        TrackBlock block = new TrackBlock();
+        for (int i = 0; i < size; i++) {
+            double rawLatitude = Double.NaN;
+            double rawLongitude = Double.NaN;
+            if (flags[i] == LocationTrack.QUALITY_SMOOTHED && reader.readBit()) {
+                rawLatitude = (latitudes[i] + reader.readSigned()) / SCALE;
+                rawLongitude = (longitudes[i] + reader.readSigned()) / SCALE;
+            }
+            block.add(ids[i], times[i], latitudes[i] / SCALE, longitudes[i] / SCALE, flags[i],
+                rawLatitude, rawLongitude);
+        }
+        return block;
+    }
+
+    private static long scale(double degrees) {
+        return Math.round(degrees * SCALE);
+    }
+
+    private static void writeDelta(BitWriter writer, long[] values) {
+        long previous = 0;
+        for (long value : values) {
+            writer.writeSigned(value - previous);
+            previous = value;
+        }
+    }
+
+    private static long[] readDelta(BitReader reader, int size) {
+        long[] values = new long[size];
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += reader.readSigned();
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static void writeDeltaOfDelta(BitWriter writer, long[] values) {
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < values.length; i++) {
+            long delta = values[i] - previous;
+            // The first value is written as is and the second as a plain delta
+            writer.writeSigned(i < 2 ? delta : delta - previousDelta);
+            previous = values[i];
+            previousDelta = i == 0 ? 0 : delta;
+        }
+    }
+
+    private static long[] readDeltaOfDelta(BitReader reader, int size) {
+        long[] values = new long[size];
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < size; i++) {
+            long delta = i < 2 ? reader.readSigned() : previousDelta + reader.readSigned();
+            values[i] = previous + delta;
+            previous = values[i];
+            previousDelta = i == 0 ? 0 : delta;
+        }
+        return values;
+    }
+}
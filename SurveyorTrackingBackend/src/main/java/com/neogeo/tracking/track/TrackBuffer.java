@@ -0,0 +1,96 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Growable primitive arrays holding a track in time order. Roughly 32 bytes per
+ * point, against several hundred for a managed LocationTrack entity.
+ */
+public class TrackBuffer implements TrackPointHandler {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    private long[] times = new long[INITIAL_CAPACITY];
+    private int size;
+
+    @Override
+    public void onPoint(long id, double latitude, double longitude, long epochMillis) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            times = Arrays.copyOf(times, capacity);
+        }
+        ids[size] = id;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        times[size] = epochMillis;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Keeps the allocated arrays for reuse
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Removes the first count points, shifting the rest to the front.
+     */
+    public void discardFirst(int count) {
+        int remaining = size - count;
+        System.arraycopy(ids, count, ids, 0, remaining);
+        System.arraycopy(latitudes, count, latitudes, 0, remaining);
+        System.arraycopy(longitudes, count, longitudes, 0, remaining);
+        System.arraycopy(times, count, times, 0, remaining);
+        size = remaining;
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public double latitude(int index) {
+        return latitudes[index];
+    }
+
+    public double longitude(int index) {
+        return longitudes[index];
+    }
+
+    public long time(int index) {
+        return times[index];
+    }
+
+    // Backing arrays; only the first size() entries are valid
+    public double[] latitudes() {
+        return latitudes;
+    }
+
+    public double[] longitudes() {
+        return longitudes;
+    }
+
+    public long[] times() {
+        return times;
+    }
+
+    /**
+     * Sends every point (or only those flagged in keep, when not null) to a handler in order.
+     */
+    public void replay(TrackPointHandler handler, boolean[] keep) throws IOException {
+        for (int i = 0; i < size; i++) {
+            if (keep == null || keep[i]) {
+                handler.onPoint(ids[i], latitudes[i], longitudes[i], times[i]);
+            }
+        }
+    }
+}
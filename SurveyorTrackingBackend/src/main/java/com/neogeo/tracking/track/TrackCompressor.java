@@ -0,0 +1,27 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+
+/**
+ * Online compression of one surveyor's fixes: each offered fix is either passed on to be
+ * stored or held back. A compressor may hold the most recent fix and store it later, when
+ * a following fix shows it was the last one of a straight run or a dwell.
+ */
+public interface TrackCompressor {
+
+    // heldId() when no fix is held
+    long NONE = -1;
+
+    /**
+     * Offers the next fix; fixes to store are sent to out in time order, possibly the held
+     * fix before this one.
+     */
+    void offer(long id, double latitude, double longitude, long epochMillis, TrackPointHandler out) throws IOException;
+
+    /**
+     * Sends the held fix, if any, e.g. when tracking stops.
+     */
+    void flush(TrackPointHandler out) throws IOException;
+
+    long heldId();
+}
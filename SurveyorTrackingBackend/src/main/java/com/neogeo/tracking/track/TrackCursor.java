@@ -0,0 +1,49 @@
+package com.neogeo.tracking.track;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination over (timestamp, id).
+ * Encoded as URL-safe Base64 of "epochSecond.nanos:id".
+ */
+public final class TrackCursor {
+
+    private final Instant timestamp;
+    private final long id;
+
+    public TrackCursor(Instant timestamp, long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = timestamp.getEpochSecond() + "." + timestamp.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by encode()
+     */
+    public static TrackCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int dot = raw.indexOf('.');
+            int colon = raw.indexOf(':');
+            Instant timestamp = Instant.ofEpochSecond(
+                Long.parseLong(raw.substring(0, dot)), Long.parseLong(raw.substring(dot + 1, colon)));
+            return new TrackCursor(timestamp, Long.parseLong(raw.substring(colon + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Output formats for streamed track responses.
+ */
+public enum TrackFormat {
+    JSON("json", "application/json"),
+    NDJSON("ndjson", "application/x-ndjson"),
+    GEOJSON("geojson", "application/geo+json"),
+    GEOJSON_LINE("geojson-line", "application/geo+json"),
+    POLYLINE("polyline", "application/json"),
+    COLUMNAR("columnar", "application/json");
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String param;
+    private final String contentType;
+
+    TrackFormat(String param, String contentType) {
+        this.param = param;
+        this.contentType = contentType;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Resolves the value of a format request parameter (case-insensitive)
+     * @throws IllegalArgumentException if the value is not a known format
+     */
+    public static TrackFormat fromParam(String value) {
+        for (TrackFormat format : values()) {
+            if (format.param.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported track format: " + value);
+    }
+
+    public TrackWriter newWriter(OutputStream out, String surveyorId) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+        switch (this) {
+            case JSON:
+                return new JsonArrayTrackWriter(generator, surveyorId);
+            case NDJSON:
+                return new NdjsonTrackWriter(generator, surveyorId);
+            case GEOJSON:
+                return new GeoJsonTrackWriter(generator, surveyorId, false);
+            case GEOJSON_LINE:
+                return new GeoJsonTrackWriter(generator, surveyorId, true);
+            case POLYLINE:
+                return new PolylineTrackWriter(generator, surveyorId);
+            default:
+                return new ColumnarTrackWriter(generator, surveyorId);
+        }
+    }
+}
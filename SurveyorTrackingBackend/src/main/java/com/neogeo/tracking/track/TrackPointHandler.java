@@ -0,0 +1,16 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+
+/**
+ * Receives track points one at a time as primitives, so long ranges can be
+ * processed without materializing LocationTrack entities.
+ */
+@FunctionalInterface
+public interface TrackPointHandler {
+
+    // id used for points that were generated rather than read from location_track
+    long SYNTHETIC_ID = 0;
+
+    void onPoint(long id, double latitude, double longitude, long epochMillis) throws IOException;
+}
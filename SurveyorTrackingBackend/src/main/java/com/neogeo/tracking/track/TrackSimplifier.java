@@ -0,0 +1,100 @@
+package com.neogeo.tracking.track;
+
+import java.util.Arrays;
+
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Douglas-Peucker line simplification over primitive coordinate arrays.
+ * Coordinates are projected once to a local equirectangular plane in meters,
+ * which is accurate enough at track scale, and the recursion is replaced by an
+ * explicit stack so 100k+ point tracks cannot overflow the call stack.
+ * The first and last points are always kept.
+ */
+public final class TrackSimplifier {
+
+    // Web Mercator ground resolution at zoom 0 on the equator (meters per 256px tile pixel)
+    private static final double METERS_PER_PIXEL_ZOOM_0 = 156543.03392;
+
+    // Deviation, in screen pixels, below which a vertex is not worth drawing
+    private static final double PIXEL_TOLERANCE = 1.0;
+
+    private TrackSimplifier() {
+    }
+
+    /**
+     * Tolerance in meters that corresponds to about one pixel at a map zoom level
+     */
+    public static double toleranceForZoom(int zoom, double latitude) {
+        int clamped = Math.max(0, Math.min(zoom, 24));
+        return METERS_PER_PIXEL_ZOOM_0 * Math.cos(Math.toRadians(latitude)) / (1L << clamped) * PIXEL_TOLERANCE;
+    }
+
+    /**
+     * @param size Number of valid entries in the arrays
+     * @param toleranceMeters Maximum perpendicular distance of a dropped point from the simplified line
+     * @return keep[i] is true for points that remain in the simplified track
+     */
+    public static boolean[] douglasPeucker(double[] latitudes, double[] longitudes, int size, double toleranceMeters) {
+        boolean[] keep = new boolean[size];
+        if (size <= 2 || toleranceMeters <= 0) {
+            Arrays.fill(keep, true);
+            return keep;
+        }
+
+        double[] x = new double[size];
+        double[] y = new double[size];
+        double metersPerDegreeLat = Math.toRadians(1) * GeoUtils.EARTH_RADIUS_KM * 1000;
+        double metersPerDegreeLon = metersPerDegreeLat * Math.cos(Math.toRadians(latitudes[0]));
+        for (int i = 0; i < size; i++) {
+            x[i] = (longitudes[i] - longitudes[0]) * metersPerDegreeLon;
+            y[i] = (latitudes[i] - latitudes[0]) * metersPerDegreeLat;
+        }
+
+        double toleranceSquared = toleranceMeters * toleranceMeters;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = size - 1;
+        keep[0] = true;
+        keep[size - 1] = true;
+
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+
+            double maxDistance = 0;
+            int index = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distance = segmentDistanceSquared(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    index = i;
+                }
+            }
+
+            if (index != -1 && maxDistance > toleranceSquared) {
+                keep[index] = true;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+        return keep;
+    }
+
+    private static double segmentDistanceSquared(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+}
@@ -0,0 +1,14 @@
+package com.neogeo.tracking.track;
+
+import java.io.IOException;
+
+/**
+ * Serializes a stream of track points directly to a response body.
+ * Callers invoke begin(), then onPoint() for each row in time order, then end().
+ */
+public interface TrackWriter extends TrackPointHandler {
+
+    void begin() throws IOException;
+
+    void end() throws IOException;
+}
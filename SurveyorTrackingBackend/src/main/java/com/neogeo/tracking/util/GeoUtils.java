@@ -0,0 +1,45 @@
+package com.neogeo.tracking.util;
+
+/**
+ * Shared great-circle helpers. All coordinates are WGS84 degrees.
+ */
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_KM = 6371;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Calculates distance between two points in kilometers
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat/2) * Math.sin(dLat/2) +
+                  Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                  Math.sin(dLon/2) * Math.sin(dLon/2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Calculates distance between two points in meters
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        return distanceKm(lat1, lon1, lat2, lon2) * 1000;
+    }
+
+    /**
+     * Half-width in degrees of a square around the given latitude that contains every point
+     * within the given distance (longitude degrees shrink towards the poles). Used as a
+     * cheap bounding-box prefilter before an exact distance check.
+     */
+    public static double boundingDegrees(double latitude, double meters) {
+        // 1% margin covers the difference between this sphere and PostGIS's spheroid distances
+        double latDegrees = Math.toDegrees(meters * 1.01 / (EARTH_RADIUS_KM * 1000));
+        double cosLat = Math.cos(Math.toRadians(Math.min(Math.abs(latitude) + latDegrees, 90)));
+        double lonDegrees = cosLat < 1e-6 ? 180 : latDegrees / cosLat;
+        return Math.min(Math.max(latDegrees, lonDegrees), 180);
+    }
+}
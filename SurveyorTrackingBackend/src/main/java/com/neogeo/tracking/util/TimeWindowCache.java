@@ -0,0 +1,104 @@
+package com.neogeo.tracking.util;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * LRU cache for results computed over a closed time window, bounded by total weight
+ * (bytes, rows, ...). A point stored late into a window drops every entry whose window
+ * contains it. Callers read generation() before computing a value and pass it to put(),
+ * so a value computed while an invalidation happened is never cached.
+ */
+public class TimeWindowCache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+        final Instant start;
+        final Instant end;
+
+        Entry(V value, long weight, Instant start, Instant end) {
+            this.value = value;
+            this.weight = weight;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+    private long generation;
+    private long hits;
+    private long misses;
+
+    public TimeWindowCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches a value unless it is heavier than the whole cache or an invalidation happened
+     * since the given generation; evicts least recently used entries to stay within bounds.
+     */
+    public synchronized void put(K key, Instant start, Instant end, V value, long computedAtGeneration) {
+        long valueWeight = weigher.applyAsLong(value);
+        if (computedAtGeneration != generation || valueWeight > maxWeight) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, valueWeight, start, end));
+        weight += valueWeight - (previous != null ? previous.weight : 0);
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Drops entries whose window contains the timestamp.
+     * @return Number of entries removed
+     */
+    public synchronized int invalidate(Instant timestamp) {
+        generation++;
+        int removed = 0;
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            if (!timestamp.isBefore(entry.start) && !timestamp.isAfter(entry.end)) {
+                weight -= entry.weight;
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("weight", weight);
+        stats.put("maxWeight", maxWeight);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        return stats;
+    }
+}
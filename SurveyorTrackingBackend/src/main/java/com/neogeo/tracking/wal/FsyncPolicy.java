@@ -0,0 +1,28 @@
+package com.neogeo.tracking.wal;
+
+/**
+ * When appended WAL records are forced from the page cache to disk. Records survive a
+ * JVM crash under every policy, since the mapped pages belong to the kernel; the policy
+ * decides what a power loss or kernel crash can take.
+ */
+public enum FsyncPolicy {
+    // Forced before append returns
+    ALWAYS,
+    // Forced by LocationWal.sync, called on a fixed schedule
+    INTERVAL,
+    // Left to the operating system
+    NEVER;
+
+    /**
+     * Resolves a property value (case-insensitive).
+     * @throws IllegalArgumentException for unknown values
+     */
+    public static FsyncPolicy fromParam(String value) {
+        for (FsyncPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(value)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown WAL fsync policy: " + value);
+    }
+}
@@ -0,0 +1,366 @@
+package com.neogeo.tracking.wal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of accepted location fixes in memory-mapped segment files.
+ *
+ * Segments are preallocated files named wal-{first sequence}.log holding an 8-byte header
+ * and then records framed as [payload length][CRC32 of payload][payload], the payload being
+ * sequence, epoch second, nanos, latitude, longitude, flags and the UTF-8 surveyor id. A
+ * zero length marks the end of the written part; a record whose checksum does not match
+ * (torn by a crash mid-write) ends the log, and the next append overwrites it.
+ *
+ * Sequence numbers are contiguous across segments. truncate(committed) records the
+ * committed sequence in the checkpoint file and deletes segments holding nothing newer.
+ * A lock file keeps a second process from opening the same directory.
+ */
+public class LocationWal implements Closeable {
+
+    private static final int MAGIC = 0x5357414C;   // "SWAL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FRAME_BYTES = 8;
+    private static final int FIXED_PAYLOAD_BYTES = 8 + 8 + 4 + 8 + 8 + 1 + 2;
+    private static final int MAX_ID_BYTES = 1024;
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+    private static final byte FLAG_FINAL = 1;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String LOCK_FILE = "lock";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    // First sequence -> segment file
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private MappedByteBuffer active;
+    private int syncedPosition;
+    private long lastSequence;
+    private long checkpoint;
+
+    /**
+     * Opens or creates the log in directory, recovering the end of the last segment.
+     * @throws IllegalStateException if another process has the directory open
+     */
+    public LocationWal(Path directory, int segmentBytes, FsyncPolicy fsyncPolicy) throws IOException {
+        if (segmentBytes < MIN_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("WAL segments must be at least " + MIN_SEGMENT_BYTES + " bytes");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsyncPolicy = fsyncPolicy;
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("WAL directory " + directory + " is in use by another process");
+        }
+
+        checkpoint = readCheckpoint();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Long first = firstSequence(file);
+                if (first != null) {
+                    segments.put(first, file);
+                }
+            });
+        }
+
+        if (segments.isEmpty()) {
+            lastSequence = checkpoint;
+            active = createSegment(checkpoint + 1);
+        } else {
+            Map.Entry<Long, Path> last = segments.lastEntry();
+            active = map(last.getValue(), FileChannel.MapMode.READ_WRITE);
+            lastSequence = Math.max(checkpoint, last.getKey() - 1);
+            int position = HEADER_BYTES;
+            WalRecord record;
+            while ((record = read(active, position)) != null) {
+                lastSequence = record.getSequence();
+                position += recordBytes(record);
+            }
+            // Clear whatever a torn write left behind, so it cannot be mistaken for a record later
+            for (int i = position; i < active.capacity(); i++) {
+                active.put(i, (byte) 0);
+            }
+            active.position(position);
+            active.force();
+        }
+        syncedPosition = active.position();
+    }
+
+    /**
+     * Appends a fix and, under FsyncPolicy.ALWAYS, forces it to disk.
+     * @return Its sequence number
+     */
+    public synchronized long append(String surveyorId, double latitude, double longitude, Instant timestamp,
+                                    boolean finalFix) throws IOException {
+        byte[] id = surveyorId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("Surveyor id too long for the WAL");
+        }
+        int payloadBytes = FIXED_PAYLOAD_BYTES + id.length;
+        if (active.position() + FRAME_BYTES + payloadBytes > active.capacity()) {
+            roll();
+        }
+
+        long sequence = lastSequence + 1;
+        int start = active.position();
+        ByteBuffer payload = active.duplicate();
+        payload.position(start + FRAME_BYTES);
+        payload.putLong(sequence);
+        payload.putLong(timestamp.getEpochSecond());
+        payload.putInt(timestamp.getNano());
+        payload.putDouble(latitude);
+        payload.putDouble(longitude);
+        payload.put(finalFix ? FLAG_FINAL : 0);
+        payload.putShort((short) id.length);
+        payload.put(id);
+
+        active.putInt(start + 4, checksum(active, start + FRAME_BYTES, payloadBytes));
+        active.putInt(start, payloadBytes);
+        active.position(start + FRAME_BYTES + payloadBytes);
+        lastSequence = sequence;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            sync();
+        }
+        return sequence;
+    }
+
+    /**
+     * Forces records appended since the last sync to disk.
+     */
+    public synchronized void sync() {
+        int position = active.position();
+        if (position > syncedPosition) {
+            active.force(syncedPosition, position - syncedPosition);
+            syncedPosition = position;
+        }
+    }
+
+    /**
+     * Reads records after afterSequence in order until the handler returns false. Records
+     * appended while replaying are included up to the last sequence at the start.
+     * @return Number of records handed to the handler
+     */
+    public long replay(long afterSequence, Predicate<WalRecord> handler) throws IOException {
+        List<Map.Entry<Long, Path>> files;
+        long through;
+        synchronized (this) {
+            files = new ArrayList<>(segments.entrySet());
+            through = lastSequence;
+        }
+        long count = 0;
+        for (int i = 0; i < files.size(); i++) {
+            long next = i + 1 < files.size() ? files.get(i + 1).getKey() : Long.MAX_VALUE;
+            if (next - 1 <= afterSequence) {
+                continue;
+            }
+            MappedByteBuffer buffer;
+            try {
+                buffer = map(files.get(i).getValue(), FileChannel.MapMode.READ_ONLY);
+            } catch (java.nio.file.NoSuchFileException e) {
+                // Truncated meanwhile, so everything in it was committed
+                continue;
+            }
+            int position = HEADER_BYTES;
+            WalRecord record;
+            while ((record = read(buffer, position)) != null && record.getSequence() <= through) {
+                position += recordBytes(record);
+                if (record.getSequence() > afterSequence) {
+                    count++;
+                    if (!handler.test(record)) {
+                        return count;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Records that everything up to committedSequence is stored and deletes the segments
+     * that hold nothing newer. The active segment is always kept.
+     * @return Number of segments deleted
+     */
+    public synchronized int truncate(long committedSequence) throws IOException {
+        long committed = Math.min(committedSequence, lastSequence);
+        if (committed > checkpoint) {
+            writeCheckpoint(committed);
+            checkpoint = committed;
+        }
+        int deleted = 0;
+        while (segments.size() > 1) {
+            Map.Entry<Long, Path> oldest = segments.firstEntry();
+            long nextFirst = segments.higherKey(oldest.getKey());
+            if (nextFirst - 1 > checkpoint) {
+                break;
+            }
+            Files.deleteIfExists(oldest.getValue());
+            segments.remove(oldest.getKey());
+            deleted++;
+        }
+        return deleted;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        active.force();
+        lock.release();
+        lockChannel.close();
+    }
+
+    private void roll() throws IOException {
+        active.force();
+        active = createSegment(lastSequence + 1);
+        syncedPosition = active.position();
+    }
+
+    private MappedByteBuffer createSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.force();
+        segments.put(firstSequence, file);
+        return buffer;
+    }
+
+    private static MappedByteBuffer map(Path file, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY ?
+            new StandardOpenOption[] { StandardOpenOption.READ } :
+            new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE };
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            buffer = channel.map(mode, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a WAL segment: " + file);
+        }
+        return buffer;
+    }
+
+    /**
+     * The record at position, or null at the end of the log.
+     */
+    private static WalRecord read(ByteBuffer buffer, int position) {
+        if (position + FRAME_BYTES > buffer.capacity()) {
+            return null;
+        }
+        int payloadBytes = buffer.getInt(position);
+        if (payloadBytes < FIXED_PAYLOAD_BYTES || payloadBytes > FIXED_PAYLOAD_BYTES + MAX_ID_BYTES ||
+            position + FRAME_BYTES + payloadBytes > buffer.capacity() ||
+            buffer.getInt(position + 4) != checksum(buffer, position + FRAME_BYTES, payloadBytes)) {
+            return null;
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(position + FRAME_BYTES);
+        long sequence = payload.getLong();
+        Instant timestamp = Instant.ofEpochSecond(payload.getLong(), payload.getInt());
+        double latitude = payload.getDouble();
+        double longitude = payload.getDouble();
+        boolean finalFix = (payload.get() & FLAG_FINAL) != 0;
+        byte[] id = new byte[payload.getShort()];
+        if (id.length != payloadBytes - FIXED_PAYLOAD_BYTES) {
+            return null;
+        }
+        payload.get(id);
+        return new WalRecord(sequence, new String(id, StandardCharsets.UTF_8), latitude, longitude,
+            timestamp, finalFix);
+    }
+
+    private static int recordBytes(WalRecord record) {
+        return FRAME_BYTES + FIXED_PAYLOAD_BYTES + record.getSurveyorId().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset);
+        slice.limit(offset + length);
+        CRC32 crc = new CRC32();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    private static Long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (data.capacity() != 12 || data.getInt(8) != checksum(data, 0, 8)) {
+            throw new IOException("Corrupt WAL checkpoint " + file);
+        }
+        return data.getLong(0);
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(12);
+        data.putLong(0, sequence);
+        data.putInt(8, checksum(data, 0, 8));
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(data);
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(CHECKPOINT_FILE),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
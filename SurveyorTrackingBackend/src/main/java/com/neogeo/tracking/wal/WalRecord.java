@@ -0,0 +1,50 @@
+package com.neogeo.tracking.wal;
+
+import java.time.Instant;
+
+/**
+ * One accepted location fix as read back from the WAL.
+ */
+public class WalRecord {
+
+    private final long sequence;
+    private final String surveyorId;
+    private final double latitude;
+    private final double longitude;
+    private final Instant timestamp;
+    private final boolean finalFix;
+
+    public WalRecord(long sequence, String surveyorId, double latitude, double longitude, Instant timestamp,
+                     boolean finalFix) {
+        this.sequence = sequence;
+        this.surveyorId = surveyorId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+        this.finalFix = finalFix;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getSurveyorId() {
+        return surveyorId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isFinalFix() {
+        return finalFix;
+    }
+}
@@ -0,0 +1,20 @@
+-- Base tables as originally created by Hibernate, so an empty database can be built by
+-- migrations alone. Existing databases are baselined above this version and skip it.
+CREATE EXTENSION IF NOT EXISTS postgis;
+
+CREATE TABLE IF NOT EXISTS surveyor (
+    id VARCHAR(255) PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    city VARCHAR(255),
+    project_name VARCHAR(255),
+    last_activity_timestamp TIMESTAMP WITH TIME ZONE
+);
+
+CREATE TABLE IF NOT EXISTS location_track (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    surveyor_id VARCHAR(255) NOT NULL,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    timestamp TIMESTAMP WITH TIME ZONE NOT NULL,
+    geom geometry(Point, 4326)
+);
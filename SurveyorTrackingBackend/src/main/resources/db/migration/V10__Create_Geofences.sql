@@ -0,0 +1,40 @@
+-- Geofences evaluated against every accepted point by GeofenceService. A fence is either a
+-- polygon (geom) or a circle (center + radius_meters); project_name NULL applies to all projects.
+CREATE TABLE IF NOT EXISTS geofence (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    project_name VARCHAR(255),
+    fence_type VARCHAR(16) NOT NULL CHECK (fence_type IN ('POLYGON', 'CIRCLE')),
+    geom geometry(Polygon, 4326),
+    center_latitude DOUBLE PRECISION,
+    center_longitude DOUBLE PRECISION,
+    radius_meters DOUBLE PRECISION,
+    -- Seconds inside before a DWELL event; NULL disables dwell events for the fence
+    dwell_seconds INTEGER,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    CHECK ((fence_type = 'POLYGON' AND geom IS NOT NULL) OR
+           (fence_type = 'CIRCLE' AND center_latitude IS NOT NULL AND center_longitude IS NOT NULL
+            AND radius_meters > 0))
+);
+
+CREATE INDEX IF NOT EXISTS idx_geofence_project ON geofence (project_name);
+
+-- ENTER / EXIT / DWELL transitions, appended in batches
+CREATE TABLE IF NOT EXISTS geofence_event (
+    id BIGSERIAL PRIMARY KEY,
+    geofence_id BIGINT NOT NULL,
+    surveyor_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(8) NOT NULL,
+    event_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_geofence_event_fence_time
+    ON geofence_event (geofence_id, event_time);
+
+-- Per-surveyor history, and the last event per (surveyor, fence) used to restore state at startup
+CREATE INDEX IF NOT EXISTS idx_geofence_event_surveyor_fence_time
+    ON geofence_event (surveyor_id, geofence_id, event_time DESC);
@@ -0,0 +1,43 @@
+-- Stay points and the trips between them, appended by SegmentationService as points arrive.
+-- latitude/longitude is the centroid of the stop's fixes; departure_* is its last fix, where
+-- the following trip starts and where segmentation resumes.
+CREATE TABLE IF NOT EXISTS surveyor_stop (
+    id BIGSERIAL PRIMARY KEY,
+    surveyor_id VARCHAR(255) NOT NULL,
+    arrival_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    departure_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    point_count INTEGER NOT NULL,
+    departure_track_id BIGINT NOT NULL,
+    departure_latitude DOUBLE PRECISION NOT NULL,
+    departure_longitude DOUBLE PRECISION NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_surveyor_stop_surveyor_arrival
+    ON surveyor_stop (surveyor_id, arrival_time);
+
+CREATE TABLE IF NOT EXISTS surveyor_trip (
+    id BIGSERIAL PRIMARY KEY,
+    surveyor_id VARCHAR(255) NOT NULL,
+    from_stop_id BIGINT NOT NULL REFERENCES surveyor_stop (id) ON DELETE CASCADE,
+    to_stop_id BIGINT NOT NULL REFERENCES surveyor_stop (id) ON DELETE CASCADE,
+    start_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    end_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    start_latitude DOUBLE PRECISION NOT NULL,
+    start_longitude DOUBLE PRECISION NOT NULL,
+    end_latitude DOUBLE PRECISION NOT NULL,
+    end_longitude DOUBLE PRECISION NOT NULL,
+    distance_km DOUBLE PRECISION NOT NULL,
+    point_count INTEGER NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_surveyor_trip_surveyor_start
+    ON surveyor_trip (surveyor_id, start_time);
+
+-- One row per segmented surveyor: the last stored stop, locked while a surveyor is segmented
+CREATE TABLE IF NOT EXISTS surveyor_segmentation_state (
+    surveyor_id VARCHAR(255) PRIMARY KEY,
+    last_stop_id BIGINT,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
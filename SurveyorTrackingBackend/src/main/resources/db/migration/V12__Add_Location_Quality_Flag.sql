@@ -0,0 +1,32 @@
+-- Outcome of the ingest filter for each point (see GpsFilterService):
+-- 0 = stored as reported, 1 = smoothed (raw_* keeps the reported fix), 2 = rejected as implausible.
+-- Rejected points are kept for audit but left out of distances and derived tables.
+-- A constant default only touches the catalog, so existing partitions are not rewritten.
+ALTER TABLE location_track ADD COLUMN IF NOT EXISTS quality_flag SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE location_track ADD COLUMN IF NOT EXISTS raw_latitude DOUBLE PRECISION;
+ALTER TABLE location_track ADD COLUMN IF NOT EXISTS raw_longitude DOUBLE PRECISION;
+
+-- Rows moved out of the default partition must keep their flag and raw fix
+CREATE OR REPLACE FUNCTION create_location_track_partition(month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    from_ts TIMESTAMP WITH TIME ZONE := date_trunc('month', month_start::timestamp) AT TIME ZONE 'UTC';
+    to_ts TIMESTAMP WITH TIME ZONE := (date_trunc('month', month_start::timestamp) + INTERVAL '1 month') AT TIME ZONE 'UTC';
+    partition_name TEXT := 'location_track_p' || to_char(month_start, 'YYYYMM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN partition_name;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE location_track INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED)',
+                   partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM location_track_default WHERE timestamp >= %L AND timestamp < %L '
+                   'RETURNING id, surveyor_id, latitude, longitude, timestamp, quality_flag, raw_latitude, raw_longitude) '
+                   'INSERT INTO %I (id, surveyor_id, latitude, longitude, timestamp, quality_flag, raw_latitude, raw_longitude) '
+                   'SELECT * FROM moved',
+                   from_ts, to_ts, partition_name);
+    EXECUTE format('ALTER TABLE location_track ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, from_ts, to_ts);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,8 @@
+-- Per-project ingest compression (see CompressionService). Projects without a row use
+-- tracking.compression.default-mode / default-tolerance-meters.
+CREATE TABLE IF NOT EXISTS project_compression (
+    project_name VARCHAR(255) PRIMARY KEY,
+    mode VARCHAR(32) NOT NULL CHECK (mode IN ('NONE', 'LEGACY', 'DEAD_RECKONING')),
+    tolerance_meters DOUBLE PRECISION NOT NULL CHECK (tolerance_meters > 0),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
@@ -0,0 +1,16 @@
+-- Cold tier for old tracks: one compressed block per surveyor and UTC day, written by
+-- TrackArchiveService, which deletes the archived rows from location_track in the same
+-- transaction. The block format is described in TrackBlockCodec.
+CREATE TABLE IF NOT EXISTS location_track_archive (
+    surveyor_id VARCHAR(255) NOT NULL,
+    day DATE NOT NULL,
+    point_count INTEGER NOT NULL,
+    first_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    block BYTEA NOT NULL,
+    archived_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    PRIMARY KEY (surveyor_id, day)
+);
+
+-- Blocks are already compressed; skip TOAST's pglz pass
+ALTER TABLE location_track_archive ALTER COLUMN block SET STORAGE EXTERNAL;
@@ -0,0 +1,8 @@
+-- History reads leave out rejected points (quality_flag <> 2, V12). Include the flag in the
+-- covering index so range streams, counts and rollups stay index-only scans instead of
+-- fetching every row from the heap to check it. Built under a new name first, so reads
+-- keep an index until the old one is dropped.
+CREATE INDEX IF NOT EXISTS idx_location_track_surveyor_time_quality
+    ON location_track (surveyor_id, timestamp DESC, id DESC) INCLUDE (latitude, longitude, quality_flag);
+DROP INDEX IF EXISTS idx_location_track_surveyor_time_covering;
+ALTER INDEX idx_location_track_surveyor_time_quality RENAME TO idx_location_track_surveyor_time_covering;
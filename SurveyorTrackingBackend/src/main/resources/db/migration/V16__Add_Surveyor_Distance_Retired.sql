@@ -0,0 +1,8 @@
+-- Distance of history removed by partition retention (see PartitionMaintenanceService).
+-- retired_km sums the hops between the surveyor's points before retired_before, and
+-- retired_latitude/longitude is the last of those points, so verification can add the
+-- hop to the first kept point. total_km is unchanged by retention.
+ALTER TABLE surveyor_distance ADD COLUMN IF NOT EXISTS retired_km DOUBLE PRECISION NOT NULL DEFAULT 0;
+ALTER TABLE surveyor_distance ADD COLUMN IF NOT EXISTS retired_before TIMESTAMP WITH TIME ZONE;
+ALTER TABLE surveyor_distance ADD COLUMN IF NOT EXISTS retired_latitude DOUBLE PRECISION;
+ALTER TABLE surveyor_distance ADD COLUMN IF NOT EXISTS retired_longitude DOUBLE PRECISION;
@@ -0,0 +1,13 @@
+-- Online/Offline transitions emitted by the presence index
+CREATE TABLE IF NOT EXISTS surveyor_presence_history (
+    id BIGSERIAL PRIMARY KEY,
+    surveyor_id VARCHAR(255) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    previous_status VARCHAR(16),
+    transition_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_seen TIMESTAMP WITH TIME ZONE
+);
+
+-- Uptime reports read one surveyor's transitions over a time window
+CREATE INDEX IF NOT EXISTS idx_presence_history_surveyor_time
+    ON surveyor_presence_history (surveyor_id, transition_time);
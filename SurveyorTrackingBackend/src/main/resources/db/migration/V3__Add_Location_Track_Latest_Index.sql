@@ -0,0 +1,4 @@
+-- Supports the per-surveyor "latest fix" probe used by /api/surveyors/with-locations
+-- and findTopBySurveyorIdOrderByTimestampDesc
+CREATE INDEX IF NOT EXISTS idx_location_track_surveyor_time_desc
+    ON location_track (surveyor_id, timestamp DESC);
@@ -0,0 +1,16 @@
+-- One row per surveyor with its newest accepted fix, maintained by upsert on ingest
+CREATE TABLE IF NOT EXISTS surveyor_latest_location (
+    surveyor_id VARCHAR(255) PRIMARY KEY,
+    location_track_id BIGINT,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    timestamp TIMESTAMP WITH TIME ZONE NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+-- Initial fill from existing history
+INSERT INTO surveyor_latest_location (surveyor_id, location_track_id, latitude, longitude, timestamp)
+SELECT DISTINCT ON (surveyor_id) surveyor_id, id, latitude, longitude, timestamp
+FROM location_track
+ORDER BY surveyor_id, timestamp DESC, id DESC
+ON CONFLICT (surveyor_id) DO NOTHING;
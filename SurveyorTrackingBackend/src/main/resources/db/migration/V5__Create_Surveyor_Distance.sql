@@ -0,0 +1,35 @@
+-- Running all-time distance per surveyor, maintained on ingest.
+-- last_* is the newest accounted point, so in-order fixes only need this row.
+CREATE TABLE IF NOT EXISTS surveyor_distance (
+    surveyor_id VARCHAR(255) PRIMARY KEY,
+    total_km DOUBLE PRECISION NOT NULL DEFAULT 0,
+    last_location_track_id BIGINT,
+    last_latitude DOUBLE PRECISION,
+    last_longitude DOUBLE PRECISION,
+    last_timestamp TIMESTAMP WITH TIME ZONE,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+-- Initial fill from existing history (haversine over consecutive points, R = 6371 km)
+INSERT INTO surveyor_distance (surveyor_id, total_km, last_location_track_id, last_latitude, last_longitude, last_timestamp)
+SELECT d.surveyor_id, d.total_km, l.id, l.latitude, l.longitude, l.timestamp
+FROM (
+    SELECT surveyor_id,
+           COALESCE(SUM(2 * 6371 * ASIN(LEAST(1, SQRT(
+               POWER(SIN(RADIANS(latitude - prev_lat) / 2), 2) +
+               COS(RADIANS(prev_lat)) * COS(RADIANS(latitude)) *
+               POWER(SIN(RADIANS(longitude - prev_lon) / 2), 2))))), 0) AS total_km
+    FROM (
+        SELECT surveyor_id, latitude, longitude,
+               LAG(latitude) OVER w AS prev_lat, LAG(longitude) OVER w AS prev_lon
+        FROM location_track
+        WINDOW w AS (PARTITION BY surveyor_id ORDER BY timestamp, id)
+    ) steps
+    GROUP BY surveyor_id
+) d
+JOIN (
+    SELECT DISTINCT ON (surveyor_id) surveyor_id, id, latitude, longitude, timestamp
+    FROM location_track
+    ORDER BY surveyor_id, timestamp DESC, id DESC
+) l ON l.surveyor_id = d.surveyor_id
+ON CONFLICT (surveyor_id) DO NOTHING;
@@ -0,0 +1,25 @@
+-- Per-surveyor, per-day rollup of location_track, maintained by DailyRollupService.
+-- day is the calendar day in tracking.rollup.zone; city/project are copied from surveyor at rollup time.
+CREATE TABLE IF NOT EXISTS surveyor_daily_summary (
+    surveyor_id VARCHAR(255) NOT NULL,
+    day DATE NOT NULL,
+    city VARCHAR(255),
+    project_name VARCHAR(255),
+    point_count BIGINT NOT NULL,
+    distance_km DOUBLE PRECISION NOT NULL,
+    first_fix TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_fix TIMESTAMP WITH TIME ZONE NOT NULL,
+    active_seconds DOUBLE PRECISION NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    PRIMARY KEY (surveyor_id, day)
+);
+
+CREATE INDEX IF NOT EXISTS idx_surveyor_daily_summary_day
+    ON surveyor_daily_summary (day);
+
+-- Highest location_track id folded into a rollup, one row per job
+CREATE TABLE IF NOT EXISTS rollup_watermark (
+    job_name VARCHAR(100) PRIMARY KEY,
+    last_location_track_id BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
@@ -0,0 +1,83 @@
+-- Range-partition location_track by month on timestamp (UTC month boundaries).
+-- Partitions are named location_track_pYYYYMM; rows outside every partition land in
+-- location_track_default. Old months are removed by detaching/dropping their partition
+-- (PartitionMaintenanceService) instead of DELETE.
+
+-- 1. Move the existing heap table out of the way, freeing its constraint, index and sequence names
+ALTER TABLE location_track RENAME TO location_track_unpartitioned;
+ALTER TABLE location_track_unpartitioned RENAME CONSTRAINT location_track_pkey TO location_track_unpartitioned_pkey;
+DROP INDEX IF EXISTS idx_location_track_surveyor_time_desc;
+ALTER TABLE location_track_unpartitioned ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE location_track_unpartitioned ALTER COLUMN id DROP IDENTITY IF EXISTS;
+DROP SEQUENCE IF EXISTS location_track_id_seq;
+
+-- 2. Partitioned parent. Partitioned tables cannot have identity columns before
+-- PostgreSQL 17, so ids come from a plain sequence; the primary key must contain the partition key.
+CREATE SEQUENCE location_track_id_seq;
+
+CREATE TABLE location_track (
+    id BIGINT NOT NULL DEFAULT nextval('location_track_id_seq'),
+    surveyor_id VARCHAR(255) NOT NULL,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    timestamp TIMESTAMP WITH TIME ZONE NOT NULL,
+    geom geometry(Point, 4326),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE location_track_id_seq OWNED BY location_track.id;
+
+CREATE INDEX IF NOT EXISTS idx_location_track_surveyor_time_desc
+    ON location_track (surveyor_id, timestamp DESC);
+
+CREATE TABLE location_track_default PARTITION OF location_track DEFAULT;
+
+-- 3. Creates the partition for the month containing month_start if it does not exist.
+-- The table is built standalone, rows already sitting in the default partition for that
+-- month are moved into it, then it is attached, so this also works after out-of-range inserts.
+CREATE OR REPLACE FUNCTION create_location_track_partition(month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    from_ts TIMESTAMP WITH TIME ZONE := date_trunc('month', month_start::timestamp) AT TIME ZONE 'UTC';
+    to_ts TIMESTAMP WITH TIME ZONE := (date_trunc('month', month_start::timestamp) + INTERVAL '1 month') AT TIME ZONE 'UTC';
+    partition_name TEXT := 'location_track_p' || to_char(month_start, 'YYYYMM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN partition_name;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE location_track INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM location_track_default WHERE timestamp >= %L AND timestamp < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM moved', from_ts, to_ts, partition_name);
+    EXECUTE format('ALTER TABLE location_track ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, from_ts, to_ts);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 4. Partitions for every month with data, through three months ahead
+DO $$
+DECLARE
+    current_month DATE;
+    last_month DATE := (date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '3 months')::date;
+BEGIN
+    SELECT date_trunc('month', MIN(timestamp) AT TIME ZONE 'UTC')::date INTO current_month
+    FROM location_track_unpartitioned;
+    IF current_month IS NULL OR current_month > last_month THEN
+        current_month := date_trunc('month', now() AT TIME ZONE 'UTC')::date;
+    END IF;
+    WHILE current_month <= last_month LOOP
+        PERFORM create_location_track_partition(current_month);
+        current_month := (current_month + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+-- 5. Copy existing rows (routed to their partitions) and continue the id sequence after them
+INSERT INTO location_track (id, surveyor_id, latitude, longitude, timestamp, geom)
+SELECT id, surveyor_id, latitude, longitude, timestamp, geom FROM location_track_unpartitioned;
+
+SELECT setval('location_track_id_seq', COALESCE((SELECT MAX(id) FROM location_track), 0) + 1, false);
+
+DROP TABLE location_track_unpartitioned;
+
+ANALYZE location_track;
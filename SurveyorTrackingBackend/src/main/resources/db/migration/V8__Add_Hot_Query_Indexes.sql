@@ -0,0 +1,24 @@
+-- Indexes for the hot location_track and surveyor queries. HotQueryPlanTests checks
+-- with EXPLAIN that none of those queries falls back to a sequential scan.
+
+-- Per-surveyor latest fix, time ranges in either direction and keyset pages ordered by
+-- (timestamp, id). latitude/longitude are included so range streams, counts and the
+-- latest-location rebuild are answered from the index alone. Replaces the V3/V7 index.
+CREATE INDEX IF NOT EXISTS idx_location_track_surveyor_time_covering
+    ON location_track (surveyor_id, timestamp DESC, id DESC) INCLUDE (latitude, longitude);
+DROP INDEX IF EXISTS idx_location_track_surveyor_time_desc;
+
+-- Time-only scans (rollup backfill, cross-surveyor windows). Rows arrive roughly in time
+-- order, so a BRIN index stays tiny and still skips most blocks.
+CREATE INDEX IF NOT EXISTS idx_location_track_timestamp_brin
+    ON location_track USING BRIN (timestamp) WITH (pages_per_range = 32);
+
+-- City/project filters and cascading filter lists
+CREATE INDEX IF NOT EXISTS idx_surveyor_city_project
+    ON surveyor (city, project_name);
+CREATE INDEX IF NOT EXISTS idx_surveyor_project_city
+    ON surveyor (project_name, city);
+
+-- Daily reports filtered by project over a date range
+CREATE INDEX IF NOT EXISTS idx_surveyor_daily_summary_project_day
+    ON surveyor_daily_summary (project_name, day);
@@ -0,0 +1,43 @@
+-- geom was declared but never written. It becomes a stored generated column, so every
+-- point gets its geometry from latitude/longitude in the database and the JVM never
+-- builds JTS objects. Rewrites location_track once.
+ALTER TABLE location_track DROP COLUMN IF EXISTS geom;
+ALTER TABLE location_track ADD COLUMN geom geometry(Point, 4326)
+    GENERATED ALWAYS AS (ST_SetSRID(ST_MakePoint(longitude, latitude), 4326)) STORED;
+
+-- Radius and bounding-box searches (geom && envelope, then an exact geography check)
+CREATE INDEX IF NOT EXISTS idx_location_track_geom_gist
+    ON location_track USING GIST (geom);
+
+-- Nearest-surveyor searches run on the one-row-per-surveyor latest table; geography so
+-- the KNN operator (<->) orders by distance on the sphere rather than in degrees
+ALTER TABLE surveyor_latest_location ADD COLUMN IF NOT EXISTS geog geography(Point, 4326)
+    GENERATED ALWAYS AS (ST_SetSRID(ST_MakePoint(longitude, latitude), 4326)::geography) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_surveyor_latest_location_geog_gist
+    ON surveyor_latest_location USING GIST (geog);
+
+-- New monthly partitions must carry the generated column, and rows moved out of the
+-- default partition are inserted without it (generated columns cannot be written)
+CREATE OR REPLACE FUNCTION create_location_track_partition(month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    from_ts TIMESTAMP WITH TIME ZONE := date_trunc('month', month_start::timestamp) AT TIME ZONE 'UTC';
+    to_ts TIMESTAMP WITH TIME ZONE := (date_trunc('month', month_start::timestamp) + INTERVAL '1 month') AT TIME ZONE 'UTC';
+    partition_name TEXT := 'location_track_p' || to_char(month_start, 'YYYYMM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN partition_name;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE location_track INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING GENERATED)',
+                   partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM location_track_default WHERE timestamp >= %L AND timestamp < %L '
+                   'RETURNING id, surveyor_id, latitude, longitude, timestamp) '
+                   'INSERT INTO %I (id, surveyor_id, latitude, longitude, timestamp) SELECT * FROM moved',
+                   from_ts, to_ts, partition_name);
+    EXECUTE format('ALTER TABLE location_track ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, from_ts, to_ts);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,55 @@
+package com.neogeo.tracking.repository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection and EXPLAIN helpers for the plan tests. They run against the migrated
+ * PostgreSQL database given by TRACKING_TEST_DB_URL, TRACKING_TEST_DB_USER and
+ * TRACKING_TEST_DB_PASSWORD and are skipped when the URL is not set.
+ */
+final class ExplainSupport {
+
+    static final String DB_URL_VARIABLE = "TRACKING_TEST_DB_URL";
+
+    private ExplainSupport() {
+    }
+
+    static Connection connect() throws SQLException {
+        return DriverManager.getConnection(System.getenv(DB_URL_VARIABLE),
+            System.getenv("TRACKING_TEST_DB_USER"), System.getenv("TRACKING_TEST_DB_PASSWORD"));
+    }
+
+    static String explain(Connection connection, String sql) throws SQLException {
+        return plan(connection, "EXPLAIN (COSTS OFF) " + sql);
+    }
+
+    /**
+     * Runs the query and returns the plan with actual row and loop counts per node
+     */
+    static String explainAnalyze(Connection connection, String sql) throws SQLException {
+        return plan(connection, "EXPLAIN (ANALYZE, COSTS OFF, TIMING OFF, SUMMARY OFF) " + sql);
+    }
+
+    private static String plan(Connection connection, String explainSql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(explainSql)) {
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    static String queryString(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.neogeo.tracking.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * Fails if one of the hot queries can only be answered by a sequential scan, i.e. the
+ * index it relies on is missing. Sequential scans are disabled for the session, so the
+ * planner picks any usable index even on a small test database and only falls back to
+ * a Seq Scan when there is none. The keyset and range queries are also run with
+ * EXPLAIN ANALYZE against a seeded track to check that the surveyor and time bounds are
+ * index conditions and that the scan reads only the rows it returns; the range stream must
+ * be answered from the covering index alone. Needs a migrated
+ * database (see ExplainSupport).
+ */
+@EnabledIfEnvironmentVariable(named = ExplainSupport.DB_URL_VARIABLE, matches = ".+")
+public class HotQueryPlanTests {
+
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on \\S+");
+    private static final Pattern INDEX_SCAN =
+        Pattern.compile("Index (?:Only )?Scan .*\\(actual rows=(\\d+) loops=(\\d+)\\)");
+    // Index and Bitmap Index scans, which fetch every matching row from the heap
+    private static final Pattern HEAP_INDEX_SCAN = Pattern.compile("\\bIndex Scan ");
+    private static final Pattern RANGE_INDEX_COND =
+        Pattern.compile("Index Cond: .*surveyor_id.*timestamp\"? >= .*timestamp\"? <= ");
+
+    // Seeded inside a transaction that is rolled back: one surveyor-minute per point,
+    // interleaved with a second surveyor so the surveyor bound has something to exclude
+    private static final String SEED_SURVEYOR = "PLAN_TEST_A";
+    private static final String OTHER_SURVEYOR = "PLAN_TEST_B";
+    private static final Instant SEED_START = Instant.parse("2025-05-01T00:00:00Z");
+    private static final int SEED_POINTS = 500;
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void connect() throws SQLException {
+        connection = ExplainSupport.connect();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+        }
+    }
+
+    @AfterAll
+    static void disconnect() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void latestFixUsesIndex() throws SQLException {
+        // findTopBySurveyorIdOrderByTimestampDesc
+        assertNoSeqScan("SELECT * FROM location_track WHERE surveyor_id = 'SURV001' " +
+            "ORDER BY timestamp DESC LIMIT 1");
+    }
+
+    @Test
+    public void timeRangeUsesIndex() throws SQLException {
+        // findHistory and the export stream
+        assertNoSeqScan("SELECT id, latitude, longitude, timestamp FROM location_track " +
+            "WHERE surveyor_id = 'SURV001' AND timestamp BETWEEN now() - interval '7 days' AND now() " +
+            "ORDER BY timestamp ASC, id ASC");
+    }
+
+    @Test
+    public void keysetPageUsesIndex() throws SQLException {
+        // findPageAfter
+        assertNoSeqScan("SELECT * FROM location_track WHERE surveyor_id = 'SURV001' " +
+            "AND timestamp >= now() - interval '1 day' AND timestamp <= now() " +
+            "AND (timestamp > now() - interval '1 day' OR (timestamp = now() - interval '1 day' AND id > 42)) " +
+            "AND quality_flag <> 2 ORDER BY timestamp ASC, id ASC LIMIT 101");
+    }
+
+    @Test
+    public void keysetPageStartsAtCursor() throws SQLException {
+        // findPageAfter from the 100th point: the scan starts at the cursor and stops at the page size
+        String plan = explainAnalyzeSeeded("SELECT * FROM location_track WHERE surveyor_id = '" + SEED_SURVEYOR + "' " +
+            "AND timestamp >= " + seedTime(100) + " AND timestamp <= " + seedTime(SEED_POINTS - 1) + " " +
+            "AND (timestamp > " + seedTime(100) + " OR (timestamp = " + seedTime(100) + " AND id > 0)) " +
+            "AND quality_flag <> 2 ORDER BY timestamp ASC, id ASC LIMIT 101");
+        assertRangeScan(plan, 101, false);
+    }
+
+    @Test
+    public void timeRangeReadsOnlyTheRange() throws SQLException {
+        // The export/range stream (LocationTrackStreamRepository) over 100 of the 500 points
+        String plan = explainAnalyzeSeeded("SELECT id, latitude, longitude, timestamp FROM location_track " +
+            "WHERE surveyor_id = '" + SEED_SURVEYOR + "' " +
+            "AND timestamp BETWEEN " + seedTime(200) + " AND " + seedTime(299) + " AND quality_flag <> 2 ORDER BY timestamp ASC, id ASC");
+        assertRangeScan(plan, 100, true);
+    }
+
+    @Test
+    public void countsUseIndex() throws SQLException {
+        // countBySurveyorId and countBySurveyorIdAndTimestampBetween
+        assertNoSeqScan("SELECT COUNT(*) FROM location_track WHERE surveyor_id = 'SURV001'");
+        assertNoSeqScan("SELECT COUNT(*) FROM location_track WHERE surveyor_id = 'SURV001' " +
+            "AND timestamp BETWEEN now() - interval '1 day' AND now()");
+    }
+
+    @Test
+    public void timeOnlyScanUsesIndex() throws SQLException {
+        // Rollup backfill: every surveyor's points for one day
+        assertNoSeqScan("SELECT DISTINCT surveyor_id FROM location_track " +
+            "WHERE timestamp >= now() - interval '1 day' AND timestamp < now()");
+    }
+
+    @Test
+    public void surveyorFiltersUseIndex() throws SQLException {
+        assertNoSeqScan("SELECT * FROM surveyor WHERE city = 'Pune' AND project_name = 'Metro'");
+        assertNoSeqScan("SELECT * FROM surveyor WHERE project_name = 'Metro'");
+        assertNoSeqScan("SELECT * FROM surveyor WHERE username = 'surveyor1'");
+    }
+
+    @Test
+    public void derivedTableLookupsUseIndex() throws SQLException {
+        assertNoSeqScan("SELECT * FROM surveyor_latest_location WHERE surveyor_id = 'SURV001'");
+        assertNoSeqScan("SELECT * FROM surveyor_distance WHERE surveyor_id = 'SURV001'");
+        assertNoSeqScan("SELECT * FROM surveyor_daily_summary WHERE project_name = 'Metro' " +
+            "AND day BETWEEN DATE '2025-05-01' AND DATE '2025-05-31'");
+    }
+
+    @Test
+    public void spatialSearchesUseGistIndexes() throws SQLException {
+        // SpatialQueryRepository: bounding-box prefilter and nearest-surveyor KNN
+        assertNoSeqScan("SELECT id FROM location_track " +
+            "WHERE geom && ST_MakeEnvelope(73.8, 18.5, 73.9, 18.6, 4326)");
+        assertNoSeqScan("SELECT surveyor_id FROM surveyor_latest_location " +
+            "ORDER BY geog <-> ST_SetSRID(ST_MakePoint(73.85, 18.52), 4326)::geography LIMIT 5");
+    }
+
+    @Test
+    public void tileQueryUsesIndex() throws SQLException {
+        // TileRepository: points of a window inside one tile envelope
+        assertNoSeqScan("SELECT id FROM location_track WHERE timestamp BETWEEN now() - interval '7 days' AND now() " +
+            "AND geom && ST_Transform(ST_TileEnvelope(14, 11552, 7586), 4326)");
+    }
+
+    /**
+     * Asserts that the surveyor and both time bounds are index conditions, that every index
+     * scan runs once, and that together they read exactly the rows the query returns.
+     * @param indexOnly Every selected column and the quality filter are in the covering index
+     */
+    private static void assertRangeScan(String plan, int expectedRows, boolean indexOnly) {
+        assertTrue(RANGE_INDEX_COND.matcher(plan).find(), "Surveyor/time range is not an Index Cond:\n" + plan);
+        assertFalse(plan.contains("Rows Removed by Filter"), "Rows filtered after the index scan:\n" + plan);
+        Matcher scan = INDEX_SCAN.matcher(plan);
+        int rows = 0;
+        boolean found = false;
+        while (scan.find()) {
+            found = true;
+            rows += Integer.parseInt(scan.group(1));
+            assertEquals("1", scan.group(2), "Index scan repeated:\n" + plan);
+        }
+        assertTrue(found, "No index scan:\n" + plan);
+        if (indexOnly) {
+            assertTrue(plan.contains("Index Only Scan"), "Not an index-only scan:\n" + plan);
+            assertFalse(HEAP_INDEX_SCAN.matcher(plan).find(), "Heap-fetching index scan:\n" + plan);
+        }
+        assertEquals(expectedRows, rows, "Rows read by the index scans:\n" + plan);
+    }
+
+    private static String explainAnalyzeSeeded(String sql) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO location_track (surveyor_id, latitude, longitude, timestamp) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < SEED_POINTS; i++) {
+                    for (String surveyorId : new String[] {SEED_SURVEYOR, OTHER_SURVEYOR}) {
+                        insert.setString(1, surveyorId);
+                        insert.setDouble(2, 18.52 + i * 1e-5);
+                        insert.setDouble(3, 73.85);
+                        insert.setTimestamp(4, Timestamp.from(SEED_START.plusSeconds(60L * i)));
+                        insert.addBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            return ExplainSupport.explainAnalyze(connection, sql);
+        } finally {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static String seedTime(int point) {
+        return "TIMESTAMPTZ '" + SEED_START.plusSeconds(60L * point) + "'";
+    }
+
+    private static void assertNoSeqScan(String sql) throws SQLException {
+        String plan = ExplainSupport.explain(connection, sql);
+        assertFalse(SEQ_SCAN.matcher(plan).find(), "Sequential scan for:\n" + sql + "\n" + plan);
+    }
+}
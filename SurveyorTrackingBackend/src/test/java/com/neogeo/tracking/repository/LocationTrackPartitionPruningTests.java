@@ -0,0 +1,105 @@
+package com.neogeo.tracking.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * Checks with EXPLAIN that the time-bounded location_track queries only touch the
+ * partition of the requested month. Needs a migrated database (see ExplainSupport).
+ */
+@EnabledIfEnvironmentVariable(named = ExplainSupport.DB_URL_VARIABLE, matches = ".+")
+public class LocationTrackPartitionPruningTests {
+
+    private static final Pattern PARTITION = Pattern.compile("location_track_(p\\d{6}|default)");
+
+    private static Connection connection;
+    private static String monthStart;
+    private static String midMonth;
+    private static String expectedPartition;
+
+    @BeforeAll
+    static void connect() throws SQLException {
+        connection = ExplainSupport.connect();
+        YearMonth month = YearMonth.now(ZoneOffset.UTC);
+        monthStart = month.atDay(1) + "T00:00:00Z";
+        midMonth = month.atDay(15) + "T00:00:00Z";
+        expectedPartition = ExplainSupport.queryString(connection,
+            "SELECT create_location_track_partition(DATE '" + month.atDay(1) + "')");
+    }
+
+    @AfterAll
+    static void disconnect() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void rangeQueryPrunesToOneMonth() throws SQLException {
+        assertOnlyExpectedPartition(explain(
+            "SELECT * FROM location_track WHERE surveyor_id = 'SURV001' " +
+            "AND timestamp BETWEEN '" + monthStart + "' AND '" + midMonth + "' ORDER BY timestamp ASC"));
+    }
+
+    @Test
+    public void countBetweenPrunesToOneMonth() throws SQLException {
+        assertOnlyExpectedPartition(explain(
+            "SELECT COUNT(*) FROM location_track WHERE surveyor_id = 'SURV001' " +
+            "AND timestamp BETWEEN '" + monthStart + "' AND '" + midMonth + "'"));
+    }
+
+    @Test
+    public void keysetPagePrunesToOneMonth() throws SQLException {
+        assertOnlyExpectedPartition(explain(
+            "SELECT * FROM location_track WHERE surveyor_id = 'SURV001' " +
+            "AND (timestamp > '" + monthStart + "' OR (timestamp = '" + monthStart + "' AND id > 0)) " +
+            "AND timestamp <= '" + midMonth + "' ORDER BY timestamp ASC, id ASC LIMIT 101"));
+    }
+
+    @Test
+    public void preparedRangeQueryPrunesAtRuntime() throws SQLException {
+        // JDBC switches to generic plans for repeated statements; those prune at executor startup
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET plan_cache_mode = force_generic_plan");
+            statement.execute("PREPARE pruning_range(varchar, timestamptz, timestamptz) AS " +
+                "SELECT id, latitude, longitude, timestamp FROM location_track " +
+                "WHERE surveyor_id = $1 AND timestamp BETWEEN $2 AND $3 ORDER BY timestamp ASC, id ASC");
+            try {
+                String plan = explain("EXECUTE pruning_range('SURV001', '" + monthStart + "', '" + midMonth + "')");
+                assertTrue(plan.contains("Subplans Removed"), plan);
+                assertOnlyExpectedPartition(plan);
+            } finally {
+                statement.execute("DEALLOCATE pruning_range");
+                statement.execute("RESET plan_cache_mode");
+            }
+        }
+    }
+
+    private static String explain(String sql) throws SQLException {
+        return ExplainSupport.explain(connection, sql);
+    }
+
+    private static void assertOnlyExpectedPartition(String plan) {
+        Set<String> scanned = new TreeSet<>();
+        Matcher matcher = PARTITION.matcher(plan);
+        while (matcher.find()) {
+            scanned.add(matcher.group());
+        }
+        assertEquals(Set.of(expectedPartition), scanned, plan);
+    }
+}
@@ -0,0 +1,169 @@
+package com.neogeo.tracking.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.track.CompressionMode;
+import com.neogeo.tracking.wal.WalRecord;
+
+/**
+ * Fixes held back by DEAD_RECKONING keep their WAL records until they are stored, so a
+ * restart replays them instead of losing them, and an idle flush that fails keeps them held.
+ */
+public class CompressionServiceTests {
+
+    private static final String SURVEYOR = "SURV_WAL";
+    private static final double LAT = 18.52;
+    private static final double LON = 73.85;
+    private static final long T0 = 1_748_592_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void heldFixSurvivesARestart() throws Exception {
+        WriteAheadLogService wal = openWal();
+        CompressionService compression = compression(wal);
+
+        // Standing still: the first fix is stored, each later one replaces the held fix
+        assertEquals(1, ingest(wal, compression, 0, LAT).size());
+        assertTrue(ingest(wal, compression, 60, LAT).isEmpty());
+        assertTrue(ingest(wal, compression, 120, LAT).isEmpty());
+
+        wal.truncate();
+        assertEquals(3, wal.committedSequence());
+        assertEquals(2, wal.checkpointSequence());
+        wal.shutdown();
+
+        WriteAheadLogService reopened = openWal();
+        try {
+            assertTrue(reopened.isBacklogged());
+            List<WalRecord> replayed = new ArrayList<>();
+            assertEquals(1, reopened.replay(replayed::add));
+            assertEquals(3, replayed.get(0).getSequence());
+            assertEquals(Instant.ofEpochSecond(T0 + 120), replayed.get(0).getTimestamp());
+            assertFalse(reopened.isBacklogged());
+        } finally {
+            reopened.shutdown();
+        }
+    }
+
+    @Test
+    public void storedHeldFixIsReleased() throws Exception {
+        WriteAheadLogService wal = openWal();
+        try {
+            CompressionService compression = compression(wal);
+            ingest(wal, compression, 0, LAT);
+            ingest(wal, compression, 60, LAT);
+            assertEquals(1, wal.checkpointSequence());
+
+            // ~550 m away: the held fix is stored first, then this one
+            List<LocationTrack> stored = ingest(wal, compression, 120, LAT + 0.005);
+            assertEquals(2, stored.size());
+            assertEquals(Instant.ofEpochSecond(T0 + 60), stored.get(0).getTimestamp());
+            assertEquals(3, wal.checkpointSequence());
+            assertEquals(0, wal.getStats().get("held"));
+        } finally {
+            wal.shutdown();
+        }
+    }
+
+    @Test
+    public void finalFixReleasesTheHeldFix() throws Exception {
+        WriteAheadLogService wal = openWal();
+        try {
+            CompressionService compression = compression(wal);
+            ingest(wal, compression, 0, LAT);
+            LocationTrack held = new LocationTrack(SURVEYOR, LAT, LON, Instant.ofEpochSecond(T0 + 60), null);
+            WriteAheadLogService.Ticket ticket = wal.append(SURVEYOR, LAT, LON, held.getTimestamp(), true);
+            List<LocationTrack> toStore = compression.compress(held, ticket.getSequence(), true);
+            assertSame(held, toStore.get(0));
+            assertEquals(1, wal.checkpointSequence());
+
+            compression.stored(toStore);
+            wal.committed(ticket.getSequence());
+            assertEquals(2, wal.checkpointSequence());
+        } finally {
+            wal.shutdown();
+        }
+    }
+
+    @Test
+    public void failedIdleFlushKeepsTheFixHeld() throws Exception {
+        WriteAheadLogService wal = openWal();
+        try {
+            CompressionService compression = compression(wal);
+            ingest(wal, compression, 0, LAT);
+            ingest(wal, compression, 60, LAT);
+            ingest(wal, compression, "SURV_OTHER", 0, LAT);
+            ingest(wal, compression, "SURV_OTHER", 60, LAT);
+            assertEquals(1, wal.checkpointSequence());
+            Thread.sleep(10);
+
+            // The database is down for SURVEYOR only: the other surveyor is still flushed
+            List<LocationTrack> stored = new ArrayList<>();
+            assertEquals(1, compression.flushIdle(point -> {
+                if (SURVEYOR.equals(point.getSurveyorId())) {
+                    throw new DataAccessResourceFailureException("database down");
+                }
+                stored.add(point);
+            }));
+            assertEquals(List.of("SURV_OTHER"), surveyors(stored));
+            assertEquals(1, wal.checkpointSequence());
+
+            stored.clear();
+            assertEquals(1, compression.flushIdle(stored::add));
+            assertEquals(List.of(SURVEYOR), surveyors(stored));
+            assertEquals(Instant.ofEpochSecond(T0 + 60), stored.get(0).getTimestamp());
+            assertEquals(4, wal.checkpointSequence());
+            assertEquals(0, compression.flushIdle(stored::add));
+        } finally {
+            wal.shutdown();
+        }
+    }
+
+    private WriteAheadLogService openWal() {
+        return new WriteAheadLogService(true, directory.toString(), 64 * 1024, "ALWAYS");
+    }
+
+    private static CompressionService compression(WriteAheadLogService wal) {
+        LiveLocationIndexService liveIndex = new LiveLocationIndexService(null, null, null, 0.01);
+        return new CompressionService(null, liveIndex, null, wal, CompressionMode.DEAD_RECKONING, 10, 0);
+    }
+
+    /**
+     * The direct path of LocationIngestService, with the database insert left out.
+     */
+    private static List<LocationTrack> ingest(WriteAheadLogService wal, CompressionService compression,
+                                              long seconds, double latitude) {
+        return ingest(wal, compression, SURVEYOR, seconds, latitude);
+    }
+
+    private static List<LocationTrack> ingest(WriteAheadLogService wal, CompressionService compression,
+                                              String surveyorId, long seconds, double latitude) {
+        Instant timestamp = Instant.ofEpochSecond(T0 + seconds);
+        WriteAheadLogService.Ticket ticket = wal.append(surveyorId, latitude, LON, timestamp, false);
+        List<LocationTrack> toStore = compression.compress(
+            new LocationTrack(surveyorId, latitude, LON, timestamp, null), ticket.getSequence(), false);
+        compression.stored(toStore);
+        wal.committed(ticket.getSequence());
+        return toStore;
+    }
+
+    private static List<String> surveyors(List<LocationTrack> points) {
+        return points.stream().map(LocationTrack::getSurveyorId).collect(Collectors.toList());
+    }
+}
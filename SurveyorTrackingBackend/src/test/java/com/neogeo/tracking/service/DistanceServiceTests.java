@@ -0,0 +1,145 @@
+package com.neogeo.tracking.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.repository.DailySummaryRepository;
+import com.neogeo.tracking.repository.LocationTrackRepository;
+import com.neogeo.tracking.repository.LocationTrackStreamRepository;
+import com.neogeo.tracking.repository.SurveyorDistanceRepository;
+import com.neogeo.tracking.repository.TrackArchiveRepository;
+import com.neogeo.tracking.store.JdbcTrackStore;
+import com.neogeo.tracking.store.TrackStore;
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * The incrementally kept distance against one recomputed from history, on the migrated
+ * PostgreSQL database given by TRACKING_TEST_DB_URL, TRACKING_TEST_DB_USER and
+ * TRACKING_TEST_DB_PASSWORD; skipped when the URL is not set. Every test rolls back.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({LocationTrackStreamRepository.class, SurveyorDistanceRepository.class,
+    TrackArchiveRepository.class, DailySummaryRepository.class})
+@TestPropertySource(properties = {
+    "spring.datasource.url=${TRACKING_TEST_DB_URL}",
+    "spring.datasource.username=${TRACKING_TEST_DB_USER:}",
+    "spring.datasource.password=${TRACKING_TEST_DB_PASSWORD:}",
+    "spring.flyway.enabled=false"
+})
+@EnabledIfEnvironmentVariable(named = "TRACKING_TEST_DB_URL", matches = ".+")
+public class DistanceServiceTests {
+
+    private static final Instant T0 = Instant.parse("2025-05-30T08:00:00Z");
+    private static final double TOLERANCE_KM = 1e-6;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LocationTrackRepository locationTrackRepository;
+
+    @Autowired
+    private LocationTrackStreamRepository streamRepository;
+
+    @Autowired
+    private SurveyorDistanceRepository distanceRepository;
+
+    @Autowired
+    private TrackArchiveRepository archiveRepository;
+
+    @Autowired
+    private DailySummaryRepository dailySummaryRepository;
+
+    private DistanceService distanceService;
+    private String surveyorId;
+
+    @BeforeEach
+    void setUp() {
+        TrackStore trackStore = new JdbcTrackStore(dataSource, streamRepository);
+        TrackArchiveService archiveService = new TrackArchiveService(archiveRepository, dailySummaryRepository,
+            locationTrackRepository, trackStore, transactionManager, false, 28, 5000);
+        distanceService = new DistanceService(distanceRepository, locationTrackRepository, trackStore,
+            archiveService, transactionManager);
+        surveyorId = "DIST-" + UUID.randomUUID();
+    }
+
+    @Test
+    public void outOfOrderPointsSpliceIntoTheTotal() {
+        distanceService.saveAndRecord(point(0, 18.5200, 73.8500));
+        distanceService.saveAndRecord(point(20, 18.5220, 73.8520));
+        distanceService.saveAndRecord(point(40, 18.5240, 73.8500));
+        // Late upload between two points, and one before the first point
+        distanceService.saveAndRecord(point(10, 18.5300, 73.8600));
+        distanceService.saveAndRecord(point(-10, 18.5100, 73.8400));
+        // A batch that does not extend the track is spliced point by point
+        distanceService.saveAndRecordAll(List.of(point(30, 18.5150, 73.8550), point(50, 18.5260, 73.8520)));
+
+        assertMatchesHistory();
+        assertTrue(distanceService.getTotalKm(surveyorId) >
+            GeoUtils.distanceKm(18.5100, 73.8400, 18.5260, 73.8520));
+    }
+
+    @Test
+    public void equalTimestampsAreOrderedById() {
+        distanceService.saveAndRecord(point(0, 18.5200, 73.8500));
+        distanceService.saveAndRecord(point(0, 18.5210, 73.8510));
+        distanceService.saveAndRecord(point(20, 18.5230, 73.8530));
+        // Same time as the first two, higher id: lands between them and the t=20 point
+        distanceService.saveAndRecord(point(0, 18.5300, 73.8400));
+        distanceService.saveAndRecordAll(List.of(point(20, 18.5240, 73.8540), point(20, 18.5250, 73.8550)));
+
+        assertMatchesHistory();
+    }
+
+    @Test
+    public void rejectedPointsAreLeftOut() {
+        distanceService.saveAndRecord(point(0, 18.5200, 73.8500));
+        distanceService.saveAndRecord(rejected(10, 19.0000, 74.0000));
+        distanceService.saveAndRecord(point(20, 18.5220, 73.8520));
+        // Late rejected point and a mixed batch
+        distanceService.saveAndRecord(rejected(5, 17.0000, 72.0000));
+        distanceService.saveAndRecordAll(List.of(point(30, 18.5240, 73.8540), rejected(40, 20.0000, 75.0000),
+            point(50, 18.5260, 73.8560)));
+        // A late accepted point whose stored neighbour on one side is rejected
+        distanceService.saveAndRecord(point(15, 18.5210, 73.8530));
+
+        assertMatchesHistory();
+        assertTrue(distanceService.getTotalKm(surveyorId) < 1.0);
+    }
+
+    private void assertMatchesHistory() {
+        assertEquals(distanceRepository.computeFromHistory(surveyorId), distanceService.getTotalKm(surveyorId),
+            TOLERANCE_KM);
+    }
+
+    private LocationTrack point(long seconds, double latitude, double longitude) {
+        return new LocationTrack(surveyorId, latitude, longitude, T0.plusSeconds(seconds), null);
+    }
+
+    private LocationTrack rejected(long seconds, double latitude, double longitude) {
+        LocationTrack track = point(seconds, latitude, longitude);
+        track.setQualityFlag(LocationTrack.QUALITY_REJECTED);
+        return track;
+    }
+}
@@ -0,0 +1,172 @@
+package com.neogeo.tracking.spatial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.neogeo.tracking.dto.Geofence;
+import com.neogeo.tracking.dto.GeofenceEvent;
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * State machine transitions, the fence index against a brute-force scan, and (opt-in) the
+ * per-point cost of evaluating thousands of fences.
+ */
+public class GeofenceTrackerTests {
+
+    private static final Instant T0 = Instant.parse("2025-05-30T08:00:00Z");
+
+    @Test
+    public void emitsEnterDwellAndExit() {
+        Geofence site = square(1L, "Site", null, 18.52, 73.85, 0.01);
+        site.setDwellSeconds(300);
+        GeofenceIndex index = new GeofenceIndex(List.of(site));
+        GeofenceTracker tracker = new GeofenceTracker();
+
+        assertEquals(List.of(), types(tracker.evaluate(index, "S1", null, 18.50, 73.80, T0)));
+        assertEquals(List.of("ENTER"), types(tracker.evaluate(index, "S1", null, 18.525, 73.855, T0.plusSeconds(60))));
+        assertEquals(List.of(), types(tracker.evaluate(index, "S1", null, 18.526, 73.856, T0.plusSeconds(120))));
+        assertEquals(List.of("DWELL"), types(tracker.evaluate(index, "S1", null, 18.526, 73.856, T0.plusSeconds(360))));
+        assertEquals(List.of(), types(tracker.evaluate(index, "S1", null, 18.526, 73.856, T0.plusSeconds(900))));
+        assertEquals(List.of("S1"), tracker.surveyorsInside(1L));
+
+        // An older batch point outside the fence must not produce an EXIT
+        assertEquals(List.of(), types(tracker.evaluate(index, "S1", null, 18.40, 73.70, T0.plusSeconds(200))));
+        assertEquals(List.of("EXIT"), types(tracker.evaluate(index, "S1", null, 18.40, 73.70, T0.plusSeconds(960))));
+        assertTrue(tracker.surveyorsInside(1L).isEmpty());
+    }
+
+    @Test
+    public void circlesAndProjectsAreRespected() {
+        Geofence circle = new Geofence();
+        circle.setId(2L);
+        circle.setName("Depot");
+        circle.setType(Geofence.CIRCLE);
+        circle.setProjectName("Metro");
+        circle.setCenterLatitude(18.52);
+        circle.setCenterLongitude(73.85);
+        circle.setRadiusMeters(200.0);
+        GeofenceIndex index = new GeofenceIndex(List.of(circle));
+
+        assertEquals(1, index.containing(18.521, 73.851, "Metro").size());
+        assertEquals(0, index.containing(18.521, 73.851, "Roads").size());
+        assertEquals(0, index.containing(18.53, 73.85, "Metro").size());
+    }
+
+    @Test
+    public void restoredMembershipDoesNotReplayEnter() {
+        GeofenceIndex index = new GeofenceIndex(List.of(square(1L, "Site", null, 18.52, 73.85, 0.01)));
+        GeofenceTracker tracker = new GeofenceTracker();
+        tracker.restore("S1", 1L, T0, false);
+
+        assertEquals(List.of(), types(tracker.evaluate(index, "S1", null, 18.525, 73.855, T0.plusSeconds(60))));
+        assertEquals(List.of("EXIT"), types(tracker.evaluate(index, "S1", null, 18.40, 73.70, T0.plusSeconds(120))));
+    }
+
+    @Test
+    public void indexMatchesABruteForceScan() {
+        Random random = new Random(7);
+        List<Geofence> fences = cityFences(random);
+        GeofenceIndex index = new GeofenceIndex(fences);
+
+        for (int i = 0; i < 500; i++) {
+            double lat = 18.3 + random.nextDouble() * 0.5;
+            double lon = 73.6 + random.nextDouble() * 0.5;
+            List<Long> expected = fences.stream().filter(fence -> bruteForceContains(fence, lat, lon))
+                .map(Geofence::getId).sorted().collect(Collectors.toList());
+            List<Long> actual = index.containing(lat, lon, null).stream()
+                .map(Geofence::getId).sorted().collect(Collectors.toList());
+            assertEquals(expected, actual);
+        }
+    }
+
+    /**
+     * Stands in for a benchmark: 5000 fences over a city, evaluated for a stream of points.
+     * Prints the average per-point cost; run with -Dtracking.benchmarks=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "tracking.benchmarks", matches = "true")
+    public void perPointCostWithThousandsOfFences() {
+        Random random = new Random(7);
+        List<Geofence> fences = cityFences(random);
+        GeofenceIndex index = new GeofenceIndex(fences);
+        GeofenceTracker tracker = new GeofenceTracker();
+
+        int points = 200_000;
+        double[][] track = new double[points][2];
+        for (int i = 0; i < points; i++) {
+            track[i][0] = 18.3 + random.nextDouble() * 0.5;
+            track[i][1] = 73.6 + random.nextDouble() * 0.5;
+        }
+
+        long events = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < points; i++) {
+            events += tracker.evaluate(index, "S" + (i % 1000), null, track[i][0], track[i][1],
+                T0.plusSeconds(i)).size();
+        }
+        long elapsed = System.nanoTime() - startTime;
+        System.out.printf("Geofence evaluation: %d fences, %d points, %d events, %.2f us/point%n",
+            fences.size(), points, events, elapsed / 1000.0 / points);
+        assertTrue(events > 0);
+    }
+
+    /**
+     * 5000 squares and circles of 100 m to 1 km scattered over a 0.5 degree city.
+     */
+    private static List<Geofence> cityFences(Random random) {
+        List<Geofence> fences = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            double lat = 18.3 + random.nextDouble() * 0.5;
+            double lon = 73.6 + random.nextDouble() * 0.5;
+            if (id % 2 == 0) {
+                fences.add(square(id, "F" + id, null, lat, lon, 0.002 + random.nextDouble() * 0.01));
+            } else {
+                Geofence circle = new Geofence();
+                circle.setId(id);
+                circle.setName("F" + id);
+                circle.setType(Geofence.CIRCLE);
+                circle.setCenterLatitude(lat);
+                circle.setCenterLongitude(lon);
+                circle.setRadiusMeters(100 + random.nextDouble() * 900);
+                fences.add(circle);
+            }
+        }
+        return fences;
+    }
+
+    private static boolean bruteForceContains(Geofence fence, double lat, double lon) {
+        if (Geofence.CIRCLE.equals(fence.getType())) {
+            return GeoUtils.distanceMeters(fence.getCenterLatitude(), fence.getCenterLongitude(), lat, lon)
+                <= fence.getRadiusMeters();
+        }
+        List<double[]> ring = fence.getCoordinates();
+        return lon >= ring.get(0)[0] && lon <= ring.get(2)[0] && lat >= ring.get(0)[1] && lat <= ring.get(2)[1];
+    }
+
+    private static Geofence square(long id, String name, String project, double lat, double lon, double size) {
+        Geofence fence = new Geofence();
+        fence.setId(id);
+        fence.setName(name);
+        fence.setProjectName(project);
+        fence.setType(Geofence.POLYGON);
+        fence.setCoordinates(List.of(
+            new double[] { lon, lat },
+            new double[] { lon + size, lat },
+            new double[] { lon + size, lat + size },
+            new double[] { lon, lat + size }));
+        return fence;
+    }
+
+    private static List<String> types(List<GeofenceEvent> events) {
+        return events.stream().map(GeofenceEvent::getEventType).collect(Collectors.toList());
+    }
+}
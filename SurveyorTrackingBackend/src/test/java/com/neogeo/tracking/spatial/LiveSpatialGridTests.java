@@ -0,0 +1,84 @@
+package com.neogeo.tracking.spatial;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Checks grid searches against a brute-force scan over the same positions.
+ */
+public class LiveSpatialGridTests {
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        Random random = new Random(42);
+        LiveSpatialGrid grid = new LiveSpatialGrid(0.01);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // Mostly clustered around one city, with a few far away
+            double lat = i % 50 == 0 ? -60 + random.nextDouble() * 130 : 18.4 + random.nextDouble() * 0.3;
+            double lon = i % 50 == 0 ? -170 + random.nextDouble() * 340 : 73.7 + random.nextDouble() * 0.3;
+            points.add(new double[] { lat, lon });
+            grid.update("S" + i, lat, lon, i);
+        }
+
+        for (int q = 0; q < 50; q++) {
+            double lat = q % 10 == 0 ? 40 : 18.4 + random.nextDouble() * 0.3;
+            double lon = q % 10 == 0 ? 10 : 73.7 + random.nextDouble() * 0.3;
+            List<String> expected = bruteForce(points, lat, lon, 7);
+            List<String> actual = grid.nearest(lat, lon, 7, id -> true).stream()
+                .map(LiveSpatialGrid.Neighbor::getId).collect(Collectors.toList());
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void radiusAndBoxReturnOnlyMatchingEntries() {
+        LiveSpatialGrid grid = new LiveSpatialGrid(0.01);
+        grid.update("A", 18.5204, 73.8567, 1);
+        grid.update("B", 18.5250, 73.8600, 1);
+        grid.update("C", 18.6000, 73.9000, 1);
+
+        List<String> inRadius = grid.withinRadius(18.5204, 73.8567, 1000, id -> true).stream()
+            .map(LiveSpatialGrid.Neighbor::getId).collect(Collectors.toList());
+        assertEquals(List.of("A", "B"), inRadius);
+
+        List<String> inBox = grid.withinBox(18.52, 73.85, 18.53, 73.87, 18.52, 73.85, id -> !id.equals("A")).stream()
+            .map(LiveSpatialGrid.Neighbor::getId).collect(Collectors.toList());
+        assertEquals(List.of("B"), inBox);
+    }
+
+    @Test
+    public void olderPositionsAreIgnoredAndMovesChangeCells() {
+        LiveSpatialGrid grid = new LiveSpatialGrid(0.01);
+        assertTrue(grid.update("A", 18.52, 73.85, 2000));
+        assertFalse(grid.update("A", 10.0, 10.0, 1000));
+        assertTrue(grid.update("A", 19.07, 72.87, 3000));
+
+        assertTrue(grid.withinRadius(18.52, 73.85, 500, id -> true).isEmpty());
+        assertEquals(1, grid.withinRadius(19.07, 72.87, 500, id -> true).size());
+
+        grid.remove("A");
+        assertEquals(0, grid.size());
+        assertTrue(grid.nearest(19.07, 72.87, 1, id -> true).isEmpty());
+    }
+
+    private static List<String> bruteForce(List<double[]> points, double lat, double lon, int k) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            indexes.add(i);
+        }
+        indexes.sort(Comparator.comparingDouble(i -> GeoUtils.distanceMeters(lat, lon, points.get(i)[0], points.get(i)[1])));
+        return indexes.subList(0, k).stream().map(i -> "S" + i).collect(Collectors.toList());
+    }
+}
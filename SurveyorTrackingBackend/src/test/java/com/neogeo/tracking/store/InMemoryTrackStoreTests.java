@@ -0,0 +1,12 @@
+package com.neogeo.tracking.store;
+
+/**
+ * Conformance of the in-memory engine.
+ */
+public class InMemoryTrackStoreTests extends TrackStoreConformanceTests {
+
+    @Override
+    protected TrackStore createStore() {
+        return new InMemoryTrackStore();
+    }
+}
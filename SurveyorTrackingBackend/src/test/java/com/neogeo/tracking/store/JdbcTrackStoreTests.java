@@ -0,0 +1,41 @@
+package com.neogeo.tracking.store;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import com.neogeo.tracking.repository.LocationTrackStreamRepository;
+
+/**
+ * Conformance of the JDBC engine against the migrated PostgreSQL database given by
+ * TRACKING_TEST_DB_URL, TRACKING_TEST_DB_USER and TRACKING_TEST_DB_PASSWORD; skipped when the
+ * URL is not set. Every test rolls back.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(LocationTrackStreamRepository.class)
+@TestPropertySource(properties = {
+    "spring.datasource.url=${TRACKING_TEST_DB_URL}",
+    "spring.datasource.username=${TRACKING_TEST_DB_USER:}",
+    "spring.datasource.password=${TRACKING_TEST_DB_PASSWORD:}",
+    "spring.flyway.enabled=false"
+})
+@EnabledIfEnvironmentVariable(named = "TRACKING_TEST_DB_URL", matches = ".+")
+public class JdbcTrackStoreTests extends TrackStoreConformanceTests {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private LocationTrackStreamRepository streamRepository;
+
+    @Override
+    protected TrackStore createStore() {
+        return new JdbcTrackStore(dataSource, streamRepository);
+    }
+}
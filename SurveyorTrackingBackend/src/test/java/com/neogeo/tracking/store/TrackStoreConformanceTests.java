@@ -0,0 +1,174 @@
+package com.neogeo.tracking.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.neogeo.tracking.model.LocationTrack;
+
+/**
+ * Behaviour every TrackStore engine must share. Subclasses only supply the store; surveyor
+ * ids are unique per test, so the suite also runs against a database holding other data.
+ */
+public abstract class TrackStoreConformanceTests {
+
+    private static final Instant T0 = Instant.parse("2025-05-30T08:00:00Z");
+
+    protected TrackStore store;
+    private String surveyorId;
+    private String otherSurveyorId;
+
+    protected abstract TrackStore createStore();
+
+    @BeforeEach
+    void setUpStore() {
+        store = createStore();
+        surveyorId = "STORE-" + UUID.randomUUID();
+        otherSurveyorId = "STORE-" + UUID.randomUUID();
+    }
+
+    @Test
+    public void appendAssignsIncreasingIdsAndCounts() {
+        LocationTrack first = point(surveyorId, 10, 18.52, 73.85);
+        LocationTrack second = point(surveyorId, 5, 18.53, 73.86);
+
+        assertSame(first, store.append(first));
+        store.append(second);
+        store.append(point(otherSurveyorId, 10, 18.52, 73.85));
+
+        assertNotNull(first.getId());
+        assertTrue(second.getId() > first.getId());
+        assertEquals(2, store.count(surveyorId));
+        assertEquals(1, store.count(otherSurveyorId));
+        assertEquals(0, store.count("STORE-" + UUID.randomUUID()));
+    }
+
+    @Test
+    public void appendBatchKeepsOrderAndSetsIds() {
+        List<LocationTrack> batch = new ArrayList<>();
+        for (int i = 0; i < 1_200; i++) {
+            batch.add(point(surveyorId, i, 18.52 + i * 1e-5, 73.85));
+        }
+
+        List<LocationTrack> saved = store.appendBatch(batch);
+
+        assertEquals(batch.size(), saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            assertSame(batch.get(i), saved.get(i));
+            assertNotNull(saved.get(i).getId());
+            if (i > 0) {
+                assertTrue(saved.get(i).getId() > saved.get(i - 1).getId());
+            }
+        }
+        assertEquals(1_200, store.count(surveyorId));
+        assertTrue(store.appendBatch(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void latestIsTheNewestFixThatIsNotRejected() {
+        assertFalse(store.latest(surveyorId).isPresent());
+
+        store.append(point(surveyorId, 30, 18.50, 73.80));
+        // Uploaded late: older than what is already stored
+        store.append(point(surveyorId, 10, 18.51, 73.81));
+        LocationTrack rejected = point(surveyorId, 40, 19.90, 75.00);
+        rejected.setQualityFlag(LocationTrack.QUALITY_REJECTED);
+        store.append(rejected);
+
+        LocationTrack latest = store.latest(surveyorId).orElseThrow();
+        assertEquals(T0.plusSeconds(30), latest.getTimestamp());
+        assertEquals(18.50, latest.getLatitude(), 1e-9);
+        assertEquals(surveyorId, latest.getSurveyorId());
+        assertEquals(3, store.count(surveyorId));
+    }
+
+    @Test
+    public void latestBreaksTimestampTiesById() {
+        store.append(point(surveyorId, 10, 18.50, 73.80));
+        LocationTrack second = store.append(point(surveyorId, 10, 18.60, 73.90));
+
+        assertEquals(second.getId(), store.latest(surveyorId).orElseThrow().getId());
+    }
+
+    @Test
+    public void keepsQualityFlagAndRawPosition() {
+        LocationTrack smoothed = point(surveyorId, 10, 18.5201, 73.8501);
+        smoothed.setQualityFlag(LocationTrack.QUALITY_SMOOTHED);
+        smoothed.setRawLatitude(18.5203);
+        smoothed.setRawLongitude(73.8499);
+        store.append(smoothed);
+
+        LocationTrack latest = store.latest(surveyorId).orElseThrow();
+        assertEquals(LocationTrack.QUALITY_SMOOTHED, latest.getQualityFlag());
+        assertEquals(18.5203, latest.getRawLatitude(), 1e-9);
+        assertEquals(73.8499, latest.getRawLongitude(), 1e-9);
+
+        store.append(point(surveyorId, 20, 18.52, 73.85));
+        latest = store.latest(surveyorId).orElseThrow();
+        assertEquals(LocationTrack.QUALITY_RAW, latest.getQualityFlag());
+        assertNull(latest.getRawLatitude());
+    }
+
+    @Test
+    public void scanStreamsAnInclusiveRangeInTimeOrder() {
+        store.append(point(surveyorId, 0, 18.50, 73.80));                   // before the range
+        LocationTrack atStart = store.append(point(surveyorId, 10, 18.51, 73.81));
+        LocationTrack late = store.append(point(surveyorId, 30, 18.53, 73.83));
+        LocationTrack tieFirst = store.append(point(surveyorId, 20, 18.52, 73.82));
+        LocationTrack tieSecond = store.append(point(surveyorId, 20, 18.525, 73.825));
+        LocationTrack rejected = point(surveyorId, 25, 19.90, 75.00);
+        rejected.setQualityFlag(LocationTrack.QUALITY_REJECTED);
+        store.append(rejected);
+        store.append(point(surveyorId, 41, 18.54, 73.84));                  // after the range
+        store.append(point(otherSurveyorId, 20, 18.52, 73.82));
+
+        List<long[]> ids = new ArrayList<>();
+        List<double[]> positions = new ArrayList<>();
+        long count = store.scan(surveyorId, T0.plusSeconds(10), T0.plusSeconds(30), (id, lat, lon, millis) -> {
+            ids.add(new long[] { id, millis });
+            positions.add(new double[] { lat, lon });
+        });
+
+        assertEquals(4, count);
+        assertEquals(4, ids.size());
+        assertEquals(atStart.getId(), ids.get(0)[0]);
+        assertEquals(tieFirst.getId(), ids.get(1)[0]);
+        assertEquals(tieSecond.getId(), ids.get(2)[0]);
+        assertEquals(late.getId(), ids.get(3)[0]);
+        assertEquals(T0.plusSeconds(10).toEpochMilli(), ids.get(0)[1]);
+        assertEquals(18.525, positions.get(2)[0], 1e-9);
+        assertEquals(73.825, positions.get(2)[1], 1e-9);
+
+        assertEquals(0, store.scan(surveyorId, T0.plusSeconds(100), T0.plusSeconds(200), (id, lat, lon, millis) -> {
+            throw new AssertionError("no points expected");
+        }));
+    }
+
+    @Test
+    public void scanReportsHandlerFailures() {
+        store.append(point(surveyorId, 10, 18.51, 73.81));
+
+        assertThrows(UncheckedIOException.class, () -> store.scan(surveyorId, T0, T0.plusSeconds(60),
+            (id, lat, lon, millis) -> {
+                throw new IOException("client went away");
+            }));
+    }
+
+    private static LocationTrack point(String surveyorId, long seconds, double latitude, double longitude) {
+        return new LocationTrack(surveyorId, latitude, longitude, T0.plusSeconds(seconds), null);
+    }
+}
@@ -0,0 +1,85 @@
+package com.neogeo.tracking.track;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Round trip: summing the delta columns gives back every point within the 1e-6 scale.
+ */
+public class ColumnarTrackWriterTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void deltasDecodeToTheOriginalPoints() throws IOException {
+        // More points than the initial 1024-entry buffers, crossing the equator and the antimeridian
+        int size = 3000;
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        long[] times = new long[size];
+        Random random = new Random(11);
+        double lat = -0.01;
+        double lon = 179.99;
+        long time = 1_748_592_000_000L;
+        for (int i = 0; i < size; i++) {
+            lat += random.nextDouble() * 1e-4;
+            lon += random.nextDouble() * 1e-4;
+            if (lon > 180) {
+                lon -= 360;
+            }
+            time += 1_000 + random.nextInt(5_000);
+            latitudes[i] = lat;
+            longitudes[i] = lon;
+            times[i] = time;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackWriter writer = TrackFormat.COLUMNAR.newWriter(out, "SURV001");
+        writer.begin();
+        for (int i = 0; i < size; i++) {
+            writer.onPoint(i + 1, latitudes[i], longitudes[i], times[i]);
+        }
+        writer.end();
+
+        JsonNode json = MAPPER.readTree(out.toByteArray());
+        double scale = json.get("scale").asDouble();
+        assertEquals(size, json.get("pointCount").asInt());
+        assertEquals(size, json.get("time").size());
+        assertEquals(size, json.get("lat").size());
+        assertEquals(size, json.get("lon").size());
+
+        long decodedTime = 0;
+        long decodedLat = 0;
+        long decodedLon = 0;
+        for (int i = 0; i < size; i++) {
+            decodedTime += json.get("time").get(i).asLong();
+            decodedLat += json.get("lat").get(i).asLong();
+            decodedLon += json.get("lon").get(i).asLong();
+            assertEquals(times[i], decodedTime);
+            assertEquals(latitudes[i], decodedLat / scale, 0.5 / scale);
+            assertEquals(longitudes[i], decodedLon / scale, 0.5 / scale);
+        }
+    }
+
+    @Test
+    public void emptyTrackHasEmptyColumns() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackWriter writer = TrackFormat.COLUMNAR.newWriter(out, "SURV001");
+        writer.begin();
+        writer.end();
+
+        JsonNode json = MAPPER.readTree(out.toByteArray());
+        assertEquals(0, json.get("pointCount").asInt());
+        assertEquals(0, json.get("time").size());
+        assertEquals(0, json.get("lat").size());
+        assertEquals(0, json.get("lon").size());
+    }
+}
@@ -0,0 +1,105 @@
+package com.neogeo.tracking.track;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Dwell collapsing, straight-run thinning and a replay comparison against the legacy rule
+ * on synthetic tracks sampled every 5 seconds.
+ */
+public class DeadReckoningCompressorTests {
+
+    private static final long T0 = 1_748_592_000_000L;
+    private static final long STEP = 5_000;
+    // About 1.1 m per 0.00001 degree near 18.5 N
+    private static final double JITTER_DEGREES = 0.00002;
+
+    private final Random random = new Random(7);
+    private long nextId = 1;
+
+    @Test
+    public void collapsesADwellToItsFirstAndLastFix() throws IOException {
+        TrackBuffer track = new TrackBuffer();
+        stay(track, 18.5200, 73.8500, 120);
+
+        TrackBuffer stored = new TrackBuffer();
+        DeadReckoningCompressor compressor = new DeadReckoningCompressor(10);
+        track.replay((id, lat, lon, time) -> compressor.offer(id, lat, lon, time, stored), null);
+        assertEquals(1, stored.size());
+        assertEquals(120, compressor.heldId());
+
+        compressor.flush(stored);
+        assertEquals(2, stored.size());
+        assertEquals(1, stored.id(0));
+        assertEquals(120, stored.id(1));
+        assertEquals(TrackCompressor.NONE, compressor.heldId());
+    }
+
+    @Test
+    public void keepsTheCornersOfAStraightDrive() {
+        TrackBuffer track = new TrackBuffer();
+        // 10 m/s north, then east, then north again
+        move(track, 18.5200, 73.8500, 18.5380, 73.8500, 40);
+        move(track, 18.5380, 73.8500, 18.5380, 73.8690, 40);
+        move(track, 18.5380, 73.8690, 18.5560, 73.8690, 40);
+
+        Map<String, Object> result = CompressionReplay.run(track, new DeadReckoningCompressor(10));
+        assertTrue((int) result.get("storedPoints") <= 8, result.toString());
+        assertTrue((double) result.get("maxErrorMeters") <= 10, result.toString());
+    }
+
+    @Test
+    public void storesLessThanTheLegacyRuleWithinTolerance() {
+        TrackBuffer track = new TrackBuffer();
+        stay(track, 18.5200, 73.8500, 240);                        // 20 min on site
+        move(track, 18.5200, 73.8500, 18.5380, 73.8500, 40);
+        stay(track, 18.5380, 73.8500, 120);
+        move(track, 18.5380, 73.8500, 18.5380, 73.8690, 40);
+
+        Map<String, Object> legacy = CompressionReplay.run(track, CompressionMode.LEGACY.newCompressor(10));
+        Map<String, Object> deadReckoning = CompressionReplay.run(track, CompressionMode.DEAD_RECKONING.newCompressor(10));
+        Map<String, Object> none = CompressionReplay.run(track, CompressionMode.NONE.newCompressor(10));
+
+        assertEquals(track.size(), none.get("storedPoints"));
+        assertEquals(0.0, (double) none.get("maxErrorMeters"), 1e-9);
+        assertTrue((int) deadReckoning.get("storedPoints") * 5 < (int) legacy.get("storedPoints"),
+            "dead reckoning " + deadReckoning + " vs legacy " + legacy);
+        assertTrue((double) deadReckoning.get("p95ErrorMeters") <= 10, deadReckoning.toString());
+    }
+
+    @Test
+    public void passesLateFixesThrough() throws IOException {
+        TrackBuffer stored = new TrackBuffer();
+        DeadReckoningCompressor compressor = new DeadReckoningCompressor(10);
+        compressor.offer(1, 18.5200, 73.8500, T0, stored);
+        compressor.offer(2, 18.5200, 73.8500, T0 + STEP, stored);
+        compressor.offer(3, 18.6000, 73.9000, T0 - STEP, stored);
+
+        assertEquals(2, stored.size());
+        assertEquals(3, stored.id(1));
+        assertEquals(2, compressor.heldId());
+    }
+
+    private void stay(TrackBuffer track, double lat, double lon, int fixes) {
+        for (int i = 0; i < fixes; i++) {
+            track.onPoint(nextId, lat + (random.nextDouble() - 0.5) * JITTER_DEGREES,
+                lon + (random.nextDouble() - 0.5) * JITTER_DEGREES, T0 + (nextId - 1) * STEP);
+            nextId++;
+        }
+    }
+
+    private void move(TrackBuffer track, double fromLat, double fromLon, double toLat, double toLon, int fixes) {
+        for (int i = 1; i <= fixes; i++) {
+            double f = (double) i / fixes;
+            track.onPoint(nextId, fromLat + (toLat - fromLat) * f, fromLon + (toLon - fromLon) * f,
+                T0 + (nextId - 1) * STEP);
+            nextId++;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.neogeo.tracking.track;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.neogeo.tracking.model.LocationTrack;
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Teleport rejection, recovery after a real relocation, and jitter reduction by the smoother.
+ */
+public class GpsPointFilterTests {
+
+    private static final long T0 = 1_748_592_000_000L;
+
+    @Test
+    public void rejectsTeleportsAndKeepsFollowingTheTrack() {
+        GpsPointFilter filter = new GpsPointFilter(70, 3, false, 15, 3);
+        GpsPointFilter.State state = new GpsPointFilter.State();
+
+        assertEquals(LocationTrack.QUALITY_RAW, filter.apply(state, 18.5200, 73.8500, T0).getQualityFlag());
+        // 5 km in 10 seconds
+        assertEquals(LocationTrack.QUALITY_REJECTED, filter.apply(state, 18.5650, 73.8500, T0 + 10_000).getQualityFlag());
+        // Walking on from the last accepted fix is fine
+        assertEquals(LocationTrack.QUALITY_RAW, filter.apply(state, 18.5203, 73.8500, T0 + 20_000).getQualityFlag());
+        // Late batch point older than the state passes unchecked
+        assertEquals(LocationTrack.QUALITY_RAW, filter.apply(state, 10.0, 10.0, T0 + 5_000).getQualityFlag());
+    }
+
+    @Test
+    public void reanchorsAfterRepeatedRejections() {
+        GpsPointFilter filter = new GpsPointFilter(70, 3, false, 15, 3);
+        GpsPointFilter.State state = new GpsPointFilter.State();
+
+        // First fix was a bad cell-tower position far from the real track
+        filter.apply(state, 19.0000, 73.8500, T0);
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(LocationTrack.QUALITY_REJECTED,
+                filter.apply(state, 18.5200, 73.8500, T0 + i * 10_000).getQualityFlag());
+        }
+        assertEquals(LocationTrack.QUALITY_RAW, filter.apply(state, 18.5200, 73.8500, T0 + 40_000).getQualityFlag());
+        assertEquals(LocationTrack.QUALITY_RAW, filter.apply(state, 18.5201, 73.8500, T0 + 50_000).getQualityFlag());
+    }
+
+    @Test
+    public void smoothingShrinksAStationaryJitterCloud() {
+        GpsPointFilter filter = new GpsPointFilter(70, 3, true, 15, 3);
+        GpsPointFilter.State state = new GpsPointFilter.State();
+        Random random = new Random(3);
+        double lat = 18.5200;
+        double lon = 73.8500;
+
+        double rawError = 0;
+        double smoothedError = 0;
+        int points = 200;
+        for (int i = 0; i < points; i++) {
+            // About 20 m of noise per axis
+            double rawLat = lat + random.nextGaussian() * 0.00018;
+            double rawLon = lon + random.nextGaussian() * 0.00019;
+            GpsPointFilter.Result result = filter.apply(state, rawLat, rawLon, T0 + i * 5_000L);
+            if (i > 0) {
+                assertEquals(LocationTrack.QUALITY_SMOOTHED, result.getQualityFlag());
+            }
+            rawError += GeoUtils.distanceMeters(lat, lon, rawLat, rawLon);
+            smoothedError += GeoUtils.distanceMeters(lat, lon, result.getLatitude(), result.getLongitude());
+        }
+        assertTrue(smoothedError < rawError * 0.6,
+            String.format("smoothed %.1f m vs raw %.1f m average error", smoothedError / points, rawError / points));
+    }
+}
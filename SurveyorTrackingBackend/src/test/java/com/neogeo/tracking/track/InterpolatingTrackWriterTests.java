@@ -0,0 +1,181 @@
+package com.neogeo.tracking.track;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.neogeo.tracking.util.GeoUtils;
+
+/**
+ * Linear output against the list-based rule it replaced, great-circle geometry, and
+ * resampling including the last recorded fix at the end of the track.
+ */
+public class InterpolatingTrackWriterTests {
+
+    private static final long T0 = 1_748_592_000_000L;
+
+    @Test
+    public void linearMatchesTheOriginalEnhancedTrackRule() throws IOException {
+        // Gaps from 10 s to 40 min, steps from standing still to ~2 km
+        Random random = new Random(5);
+        List<Point> recorded = new ArrayList<>();
+        double lat = 18.52;
+        double lon = 73.85;
+        long time = T0;
+        for (int i = 0; i < 2000; i++) {
+            recorded.add(new Point(i + 1, lat, lon, time));
+            time += 10_000 + (long) (random.nextDouble() * random.nextDouble() * 2_400_000);
+            double step = random.nextInt(4) == 0 ? 0 : random.nextDouble() * 0.02;
+            lat += (random.nextDouble() - 0.5) * step;
+            lon += (random.nextDouble() - 0.5) * step;
+        }
+
+        List<Point> expected = ensureCompleteRoute(recorded);
+        List<Point> actual = run(InterpolationSettings.defaults(), recorded);
+
+        assertTrue(expected.size() > recorded.size() + 1000, "Too few gaps were filled");
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), "Point " + i);
+        }
+    }
+
+    @Test
+    public void greatCircleFollowsTheGeodesic() throws IOException {
+        // 60°N from 30°W to 30°E: the geodesic bends towards the pole, the linear path does not
+        InterpolationSettings settings = InterpolationSettings.defaults().withStrategy(InterpolationStrategy.GREAT_CIRCLE);
+        List<Point> output = run(settings, List.of(
+            new Point(1, 60, -30, T0),
+            new Point(2, 60, 30, T0 + 660_000)));
+
+        // 11 minute gap, one point per minute: 11 synthetic points, evenly spaced between the two fixes
+        assertEquals(13, output.size());
+        assertEquals(new Point(1, 60, -30, T0), output.get(0));
+        assertEquals(new Point(2, 60, 30, T0 + 660_000), output.get(12));
+
+        double total = GeoUtils.distanceMeters(60, -30, 60, 30);
+        for (int j = 1; j <= 11; j++) {
+            Point point = output.get(j);
+            assertEquals(TrackPointHandler.SYNTHETIC_ID, point.id);
+            assertEquals(T0 + j * 55_000, point.time);
+            // On the geodesic: no detour, and evenly spaced along it
+            assertEquals(total * j / 12, GeoUtils.distanceMeters(60, -30, point.lat, point.lon), 1);
+            assertEquals(total, GeoUtils.distanceMeters(60, -30, point.lat, point.lon) +
+                GeoUtils.distanceMeters(point.lat, point.lon, 60, 30), 1);
+        }
+        Point middle = output.get(6);
+        assertEquals(0, middle.lon, 1e-9);
+        assertTrue(middle.lat > 63, "Midpoint latitude " + middle.lat);
+    }
+
+    @Test
+    public void resampleEmitsTheLastFixWhenItIsOffTheGrid() throws IOException {
+        InterpolationSettings settings = new InterpolationSettings(InterpolationStrategy.RESAMPLE, 120, 20, 60, 20);
+        List<Point> output = run(settings, List.of(
+            new Point(1, 18.5200, 73.85, T0),
+            new Point(2, 18.5209, 73.85, T0 + 90_000),
+            new Point(3, 18.5215, 73.85, T0 + 150_000)));
+
+        assertEquals(4, output.size());
+        assertEquals(new Point(1, 18.5200, 73.85, T0), output.get(0));
+        assertEquals(TrackPointHandler.SYNTHETIC_ID, output.get(1).id);
+        assertEquals(T0 + 60_000, output.get(1).time);
+        assertEquals(18.5206, output.get(1).lat, 1e-9);
+        assertEquals(T0 + 120_000, output.get(2).time);
+        assertEquals(18.5212, output.get(2).lat, 1e-9);
+        // Recorded end of the track, not a sample
+        assertEquals(new Point(3, 18.5215, 73.85, T0 + 150_000), output.get(3));
+    }
+
+    @Test
+    public void resampleDoesNotRepeatALastFixOnTheGrid() throws IOException {
+        InterpolationSettings settings = new InterpolationSettings(InterpolationStrategy.RESAMPLE, 120, 20, 60, 20);
+        List<Point> output = run(settings, List.of(
+            new Point(1, 18.5200, 73.85, T0),
+            new Point(2, 18.5212, 73.85, T0 + 120_000),
+            // Same timestamp again is ignored
+            new Point(3, 18.5299, 73.85, T0 + 120_000)));
+
+        assertEquals(3, output.size());
+        assertEquals(TrackPointHandler.SYNTHETIC_ID, output.get(1).id);
+        assertEquals(18.5206, output.get(1).lat, 1e-9);
+        assertEquals(new Point(2, 18.5212, 73.85, T0 + 120_000), output.get(2));
+    }
+
+    @Test
+    public void singlePointAndEmptyTracksPassThrough() throws IOException {
+        InterpolationSettings settings = InterpolationSettings.defaults().withStrategy(InterpolationStrategy.RESAMPLE);
+        assertEquals(List.of(new Point(1, 18.52, 73.85, T0)), run(settings, List.of(new Point(1, 18.52, 73.85, T0))));
+        assertEquals(List.of(), run(settings, List.of()));
+    }
+
+    private static List<Point> run(InterpolationSettings settings, List<Point> recorded) throws IOException {
+        RecordingWriter sink = new RecordingWriter();
+        InterpolatingTrackWriter writer = new InterpolatingTrackWriter(sink, settings);
+        writer.begin();
+        for (Point point : recorded) {
+            writer.onPoint(point.id, point.lat, point.lon, point.time);
+        }
+        writer.end();
+        assertTrue(sink.ended);
+        return sink.points;
+    }
+
+    /**
+     * The list-based rule from LocationTrackService before the streaming engine: gaps over
+     * one whole minute and 20 m get one point per minute, at most 20, spaced evenly.
+     */
+    private static List<Point> ensureCompleteRoute(List<Point> tracks) {
+        List<Point> enhanced = new ArrayList<>();
+        enhanced.add(tracks.get(0));
+        for (int i = 1; i < tracks.size(); i++) {
+            Point prev = tracks.get(i - 1);
+            Point curr = tracks.get(i);
+            long timeDiffMinutes = (curr.time - prev.time) / 60_000;
+            if (timeDiffMinutes > 1) {
+                double distance = GeoUtils.distanceKm(prev.lat, prev.lon, curr.lat, curr.lon);
+                if (distance > 0.02) {
+                    int pointsToAdd = Math.min((int) timeDiffMinutes, 20);
+                    for (int j = 1; j <= pointsToAdd; j++) {
+                        double factor = (double) j / (pointsToAdd + 1);
+                        enhanced.add(new Point(TrackPointHandler.SYNTHETIC_ID,
+                            prev.lat + factor * (curr.lat - prev.lat),
+                            prev.lon + factor * (curr.lon - prev.lon),
+                            prev.time + (long) (factor * (curr.time - prev.time))));
+                    }
+                }
+            }
+            enhanced.add(curr);
+        }
+        return enhanced;
+    }
+
+    private static final class RecordingWriter implements TrackWriter {
+
+        private final List<Point> points = new ArrayList<>();
+        private boolean ended;
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void onPoint(long id, double latitude, double longitude, long epochMillis) {
+            points.add(new Point(id, latitude, longitude, epochMillis));
+        }
+
+        @Override
+        public void end() {
+            ended = true;
+        }
+    }
+
+    private record Point(long id, double lat, double lon, long time) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.neogeo.tracking.track;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Output checked against the reference vector of Google's encoded polyline algorithm.
+ */
+public class PolylineTrackWriterTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void encodesSignedValuesLikeTheReference() {
+        StringBuilder out = new StringBuilder();
+        PolylineTrackWriter.encodeSigned(-17998321, out);
+        assertEquals("`~oia@", out.toString());
+
+        out.setLength(0);
+        PolylineTrackWriter.encodeSigned(0, out);
+        PolylineTrackWriter.encodeSigned(1, out);
+        PolylineTrackWriter.encodeSigned(-1, out);
+        assertEquals("?A@", out.toString());
+    }
+
+    @Test
+    public void encodesTheReferencePolyline() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackWriter writer = TrackFormat.POLYLINE.newWriter(out, "SURV001");
+        writer.begin();
+        writer.onPoint(1, 38.5, -120.2, 1_000_000);
+        writer.onPoint(2, 40.7, -120.95, 1_000_500);
+        writer.onPoint(3, 43.252, -126.453, 1_002_000);
+        writer.end();
+
+        JsonNode json = MAPPER.readTree(out.toByteArray());
+        assertEquals("SURV001", json.get("surveyorId").asText());
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", json.get("polyline").asText());
+        assertEquals(3, json.get("pointCount").asLong());
+        assertEquals(1_000_000, json.get("timeDeltas").get(0).asLong());
+        assertEquals(500, json.get("timeDeltas").get(1).asLong());
+        assertEquals(1_500, json.get("timeDeltas").get(2).asLong());
+    }
+}
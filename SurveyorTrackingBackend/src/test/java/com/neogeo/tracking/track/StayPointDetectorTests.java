@@ -0,0 +1,145 @@
+package com.neogeo.tracking.track;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.neogeo.tracking.dto.SurveyorStop;
+import com.neogeo.tracking.dto.SurveyorTrip;
+
+/**
+ * Stops and trips found on synthetic tracks sampled every 30 seconds.
+ */
+public class StayPointDetectorTests {
+
+    private static final long T0 = Instant.parse("2025-05-30T08:00:00Z").toEpochMilli();
+    private static final long STEP = 30_000;
+
+    private final List<SurveyorStop> stops = new ArrayList<>();
+    private final List<SurveyorTrip> trips = new ArrayList<>();
+    private final List<long[]> departures = new ArrayList<>();
+
+    @Test
+    public void findsStopsAndTheTripBetweenThem() {
+        TrackBuffer track = new TrackBuffer();
+        int next = stay(track, 0, 18.5200, 73.8500, 20);         // 10 min at home
+        next = move(track, next, 18.5200, 73.8500, 18.5380, 73.8500, 20);   // 2 km north
+        next = stay(track, next, 18.5380, 73.8500, 40);          // 20 min at the office
+        move(track, next, 18.5380, 73.8500, 18.5500, 73.8500, 10);
+
+        StayPointDetector detector = detector();
+        replay(track, detector);
+
+        assertEquals(2, stops.size());
+        assertEquals(T0, stops.get(0).getArrivalTime().toEpochMilli());
+        assertEquals(18.5200, stops.get(0).getLatitude(), 1e-4);
+        assertEquals(18.5380, stops.get(1).getLatitude(), 1e-4);
+        assertTrue(stops.get(1).getDurationMinutes() >= 19);
+
+        // Nothing before the first stop, then home -> office
+        assertEquals(1, trips.size());
+        SurveyorTrip trip = trips.get(0);
+        assertEquals(stops.get(0).getDepartureTime(), trip.getStartTime());
+        assertEquals(stops.get(1).getArrivalTime(), trip.getEndTime());
+        assertEquals(2.0, trip.getDistanceKm(), 0.1);
+
+        assertNull(detector.openStop());
+        SurveyorTrip open = detector.openTrip();
+        assertNotNull(open);
+        assertTrue(open.isOpen());
+        assertEquals(stops.get(1).getDepartureTime(), open.getStartTime());
+    }
+
+    @Test
+    public void shortPausesAreNotStops() {
+        TrackBuffer track = new TrackBuffer();
+        int next = stay(track, 0, 18.5200, 73.8500, 20);
+        next = move(track, next, 18.5200, 73.8500, 18.5300, 73.8500, 10);
+        next = stay(track, next, 18.5300, 73.8500, 4);           // 2 min at a junction
+        next = move(track, next, 18.5300, 73.8500, 18.5400, 73.8500, 10);
+        stay(track, next, 18.5400, 73.8500, 12);
+
+        StayPointDetector detector = detector();
+        replay(track, detector);
+
+        assertEquals(1, stops.size());
+        SurveyorStop open = detector.openStop();
+        assertNotNull(open);
+        assertTrue(open.isOpen());
+        assertEquals(18.5400, open.getLatitude(), 1e-4);
+        assertEquals(2.2, detector.openTrip().getDistanceKm(), 0.1);
+    }
+
+    @Test
+    public void resumingAfterAStoredStopGivesTheSameResult() {
+        TrackBuffer track = new TrackBuffer();
+        int next = stay(track, 0, 18.5200, 73.8500, 20);
+        next = move(track, next, 18.5200, 73.8500, 18.5200, 73.8700, 15);
+        next = stay(track, next, 18.5200, 73.8700, 30);
+        next = move(track, next, 18.5200, 73.8700, 18.5100, 73.8700, 15);
+        stay(track, next, 18.5100, 73.8700, 30);
+        move(track, track.size(), 18.5100, 73.8700, 18.5000, 73.8700, 5);
+
+        replay(track, detector());
+        List<SurveyorStop> fullStops = new ArrayList<>(stops);
+        List<SurveyorTrip> fullTrips = new ArrayList<>(trips);
+        assertEquals(3, fullStops.size());
+
+        // Resume after the first stop, as the scheduled job does, and replay the whole track
+        long[] departure = departures.get(0);
+        stops.clear();
+        trips.clear();
+        StayPointDetector resumed = detector();
+        resumed.resumeAfter(departure[0], track.latitude((int) departure[1]), track.longitude((int) departure[1]),
+            track.time((int) departure[1]));
+        replay(track, resumed);
+
+        assertEquals(fullStops.subList(1, 3).size(), stops.size());
+        for (int i = 0; i < stops.size(); i++) {
+            assertEquals(fullStops.get(i + 1).getArrivalTime(), stops.get(i).getArrivalTime());
+            assertEquals(fullStops.get(i + 1).getDepartureTime(), stops.get(i).getDepartureTime());
+            assertEquals(fullTrips.get(i).getDistanceKm(), trips.get(i).getDistanceKm(), 1e-9);
+        }
+    }
+
+    private StayPointDetector detector() {
+        return new StayPointDetector("S1", 100, 300_000, (stop, tripBefore, departureId, lat, lon) -> {
+            stops.add(stop);
+            if (tripBefore != null) {
+                trips.add(tripBefore);
+            }
+            departures.add(new long[] { departureId, departureId - 1 });
+        });
+    }
+
+    private static void replay(TrackBuffer track, StayPointDetector detector) {
+        for (int i = 0; i < track.size(); i++) {
+            detector.onPoint(track.id(i), track.latitude(i), track.longitude(i), track.time(i));
+        }
+    }
+
+    // Fixes scattered a few meters around one place; ids are index + 1
+    private static int stay(TrackBuffer track, int index, double lat, double lon, int count) {
+        for (int i = 0; i < count; i++, index++) {
+            double jitter = ((i * 7) % 5 - 2) * 0.00005;
+            track.onPoint(index + 1, lat + jitter, lon - jitter, T0 + index * STEP);
+        }
+        return index;
+    }
+
+    private static int move(TrackBuffer track, int index, double fromLat, double fromLon,
+                            double toLat, double toLon, int count) {
+        for (int i = 1; i <= count; i++, index++) {
+            double f = (double) i / count;
+            track.onPoint(index + 1, fromLat + (toLat - fromLat) * f, fromLon + (toLon - fromLon) * f, T0 + index * STEP);
+        }
+        return index;
+    }
+}
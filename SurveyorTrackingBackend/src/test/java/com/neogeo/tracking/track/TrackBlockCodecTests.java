@@ -0,0 +1,103 @@
+package com.neogeo.tracking.track;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.neogeo.tracking.model.LocationTrack;
+
+/**
+ * Round trips of archive blocks, their size on a regular track, and block merging.
+ */
+public class TrackBlockCodecTests {
+
+    private static final long T0 = 1_748_592_000_000L;
+
+    @Test
+    public void roundTripsEveryColumn() {
+        TrackBlock block = new TrackBlock();
+        block.add(100, T0, 18.5200001, 73.8500009, LocationTrack.QUALITY_RAW, Double.NaN, Double.NaN);
+        block.add(140, T0 + 5_000, 18.5201234, 73.8501234, LocationTrack.QUALITY_SMOOTHED, 18.5203, 73.8499);
+        block.add(141, T0 + 5_000, -33.8688197, 151.2092955, LocationTrack.QUALITY_REJECTED, Double.NaN, Double.NaN);
+        block.add(90, T0 + 7_123, 18.5202, 73.8502, LocationTrack.QUALITY_SMOOTHED, Double.NaN, Double.NaN);
+        block.add(5_000_000_000L, T0 + 86_000_000, 18.5202, 73.8502, LocationTrack.QUALITY_RAW, Double.NaN, Double.NaN);
+
+        TrackBlock decoded = TrackBlockCodec.decode(TrackBlockCodec.encode(block));
+
+        assertEquals(block.size(), decoded.size());
+        for (int i = 0; i < block.size(); i++) {
+            assertEquals(block.id(i), decoded.id(i));
+            assertEquals(block.time(i), decoded.time(i));
+            assertEquals(block.latitude(i), decoded.latitude(i), 1e-7);
+            assertEquals(block.longitude(i), decoded.longitude(i), 1e-7);
+            assertEquals(block.qualityFlag(i), decoded.qualityFlag(i));
+            assertEquals(block.hasRaw(i), decoded.hasRaw(i));
+        }
+        assertEquals(18.5203, decoded.rawLatitude(1), 1e-7);
+        assertEquals(73.8499, decoded.rawLongitude(1), 1e-7);
+    }
+
+    @Test
+    public void packsARegularTrackIntoAFewBytesPerPoint() {
+        TrackBlock block = new TrackBlock();
+        Random random = new Random(11);
+        double lat = 18.5200;
+        double lon = 73.8500;
+        long id = 1_000_000;
+        int points = 17_280;   // one day at 5 seconds
+        for (int i = 0; i < points; i++) {
+            // Driving or standing still, with a few meters of GPS noise and occasional late fixes
+            if ((i / 720) % 2 == 1) {
+                lat += 0.00009;
+            }
+            id += 1 + random.nextInt(50);
+            long time = T0 + i * 5_000L + (random.nextInt(20) == 0 ? 1_000 : 0);
+            block.add(id, time, lat + random.nextGaussian() * 0.00002, lon + random.nextGaussian() * 0.00002,
+                LocationTrack.QUALITY_RAW, Double.NaN, Double.NaN);
+        }
+
+        byte[] data = TrackBlockCodec.encode(block);
+        // A location_track row costs well over 60 bytes before indexes
+        assertTrue(data.length < points * 12, data.length + " bytes for " + points + " points");
+        TrackBlock decoded = TrackBlockCodec.decode(data);
+        assertEquals(block.id(points - 1), decoded.id(points - 1));
+        assertEquals(block.latitude(points - 1), decoded.latitude(points - 1), 1e-7);
+    }
+
+    @Test
+    public void encodesAnEmptyBlockAndRejectsUnknownData() {
+        assertEquals(0, TrackBlockCodec.decode(TrackBlockCodec.encode(new TrackBlock())).size());
+        assertThrows(IllegalArgumentException.class, () -> TrackBlockCodec.decode(new byte[] { 9, 0, 0 }));
+
+        TrackBlock block = new TrackBlock();
+        block.add(1, T0, 18.52, 73.85, LocationTrack.QUALITY_RAW, Double.NaN, Double.NaN);
+        byte[] data = TrackBlockCodec.encode(block);
+        assertThrows(IllegalArgumentException.class,
+            () -> TrackBlockCodec.decode(Arrays.copyOf(data, data.length - 4)));
+    }
+
+    @Test
+    public void mergesLateRowsIntoAnArchivedBlock() {
+        TrackBlock archived = new TrackBlock();
+        archived.add(1, T0, 18.52, 73.85, LocationTrack.QUALITY_RAW, Double.NaN, Double.NaN);
+        archived.add(3, T0 + 10_000, 18.53, 73.85, LocationTrack.QUALITY_RAW, Double.NaN, Double.NaN);
+        TrackBlock late = new TrackBlock();
+        late.add(9, T0 + 5_000, 18.525, 73.85, LocationTrack.QUALITY_RAW, Double.NaN, Double.NaN);
+        late.add(3, T0 + 10_000, 18.53, 73.85, LocationTrack.QUALITY_REJECTED, Double.NaN, Double.NaN);
+
+        TrackBlock merged = archived.merge(late);
+
+        assertEquals(3, merged.size());
+        assertEquals(1, merged.id(0));
+        assertEquals(9, merged.id(1));
+        assertEquals(3, merged.id(2));
+        assertEquals(LocationTrack.QUALITY_REJECTED, merged.qualityFlag(2));
+        assertFalse(merged.hasRaw(0));
+    }
+}
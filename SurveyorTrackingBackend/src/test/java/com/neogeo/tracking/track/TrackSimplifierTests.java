@@ -0,0 +1,127 @@
+package com.neogeo.tracking.track;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Endpoints, collinear and L-shaped tracks, the degenerate inputs, a 100k point track
+ * on the explicit stack and the zoom tolerance.
+ */
+public class TrackSimplifierTests {
+
+    // ~1.1 m of latitude
+    private static final double STEP = 1e-5;
+
+    @Test
+    public void keepsFirstAndLastPoints() {
+        double[] latitudes = {18.52, 18.5201, 18.5202, 18.5203};
+        double[] longitudes = {73.85, 73.85, 73.85, 73.85};
+
+        boolean[] keep = TrackSimplifier.douglasPeucker(latitudes, longitudes, 4, 1_000_000);
+
+        assertArrayEquals(new boolean[] {true, false, false, true}, keep);
+    }
+
+    @Test
+    public void dropsCollinearPoints() {
+        int size = 50;
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = 18.52 + i * STEP;
+            longitudes[i] = 73.85 + i * STEP;
+        }
+
+        boolean[] keep = TrackSimplifier.douglasPeucker(latitudes, longitudes, size, 0.01);
+
+        assertEquals(2, countKept(keep));
+        assertTrue(keep[0]);
+        assertTrue(keep[size - 1]);
+    }
+
+    @Test
+    public void keepsCornersAboveTheTolerance() {
+        // L-shaped walk: 20 m north, then 20 m east, with a point every ~1 m
+        int size = 41;
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = 18.52 + Math.min(i, 20) * 10 * STEP;
+            longitudes[i] = 73.85 + Math.max(0, i - 20) * 10 * STEP;
+        }
+
+        boolean[] keep = TrackSimplifier.douglasPeucker(latitudes, longitudes, size, 1);
+
+        assertEquals(3, countKept(keep));
+        assertTrue(keep[20]);
+    }
+
+    @Test
+    public void zeroToleranceAndShortTracksKeepEverything() {
+        double[] latitudes = {18.52, 18.5201, 18.5202, 18.5203};
+        double[] longitudes = {73.85, 73.85, 73.85, 73.85};
+
+        assertArrayEquals(new boolean[] {true, true, true, true},
+            TrackSimplifier.douglasPeucker(latitudes, longitudes, 4, 0));
+        assertArrayEquals(new boolean[] {true, true},
+            TrackSimplifier.douglasPeucker(latitudes, longitudes, 2, 1_000));
+        assertArrayEquals(new boolean[] {true},
+            TrackSimplifier.douglasPeucker(latitudes, longitudes, 1, 1_000));
+        assertEquals(0, TrackSimplifier.douglasPeucker(latitudes, longitudes, 0, 1_000).length);
+    }
+
+    @Test
+    public void simplifiesAHundredThousandPointTrack() {
+        // Random walk of ~1 m steps; the pending segments outgrow the initial 64-entry stack many times over
+        int size = 100_000;
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        Random random = new Random(7);
+        double heading = 0;
+        latitudes[0] = 18.52;
+        longitudes[0] = 73.85;
+        for (int i = 1; i < size; i++) {
+            heading += random.nextGaussian() * 0.5;
+            latitudes[i] = latitudes[i - 1] + Math.cos(heading) * STEP;
+            longitudes[i] = longitudes[i - 1] + Math.sin(heading) * STEP;
+        }
+
+        boolean[] fine = TrackSimplifier.douglasPeucker(latitudes, longitudes, size, 0.1);
+        boolean[] coarse = TrackSimplifier.douglasPeucker(latitudes, longitudes, size, 10);
+
+        assertEquals(size, fine.length);
+        assertTrue(fine[0] && fine[size - 1]);
+        assertTrue(coarse[0] && coarse[size - 1]);
+        assertTrue(countKept(fine) > size / 10, "kept " + countKept(fine));
+        assertTrue(countKept(coarse) < countKept(fine));
+    }
+
+    @Test
+    public void toleranceHalvesWithEachZoomLevel() {
+        double zoom10 = TrackSimplifier.toleranceForZoom(10, 0);
+        assertEquals(156543.03392 / 1024, zoom10, 1e-6);
+        assertEquals(zoom10 / 2, TrackSimplifier.toleranceForZoom(11, 0), 1e-9);
+        // Shrinks with the cosine of the latitude
+        assertEquals(zoom10 * 0.5, TrackSimplifier.toleranceForZoom(10, 60), 1e-6);
+        // Zoom is clamped to 0..24
+        assertEquals(TrackSimplifier.toleranceForZoom(0, 0), TrackSimplifier.toleranceForZoom(-3, 0));
+        assertEquals(TrackSimplifier.toleranceForZoom(24, 0), TrackSimplifier.toleranceForZoom(30, 0));
+        assertFalse(TrackSimplifier.toleranceForZoom(24, 0) <= 0);
+    }
+
+    private static int countKept(boolean[] keep) {
+        int kept = 0;
+        for (boolean k : keep) {
+            if (k) {
+                kept++;
+            }
+        }
+        return kept;
+    }
+}
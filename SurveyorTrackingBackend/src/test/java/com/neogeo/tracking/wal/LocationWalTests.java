@@ -0,0 +1,165 @@
+package com.neogeo.tracking.wal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Crash recovery, torn records, segment rolling and truncation of the location WAL.
+ */
+public class LocationWalTests {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+    private static final long T0 = 1_748_592_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void recoversEveryAcknowledgedRecordAfterTheJvmIsKilled() throws Exception {
+        Process writer = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                Writer.class.getName(), directory.toString())
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+
+        long acknowledged = 0;
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(writer.getInputStream(), StandardCharsets.UTF_8))) {
+            // Past a few segment rolls, then kill while the writer is still appending
+            while (acknowledged < 5_000) {
+                String line = out.readLine();
+                assertTrue(line != null, "writer exited early");
+                acknowledged = Long.parseLong(line);
+            }
+            writer.destroyForcibly();
+            assertTrue(writer.waitFor(30, TimeUnit.SECONDS));
+        } finally {
+            writer.destroyForcibly();
+        }
+
+        try (LocationWal wal = new LocationWal(directory, SEGMENT_BYTES, FsyncPolicy.NEVER)) {
+            assertTrue(wal.getLastSequence() >= acknowledged);
+            List<WalRecord> records = new ArrayList<>();
+            wal.replay(0, records::add);
+            assertEquals(wal.getLastSequence(), records.size());
+            for (int i = 0; i < records.size(); i++) {
+                assertRecord(i + 1, records.get(i));
+            }
+
+            long next = append(wal, wal.getLastSequence() + 1);
+            assertEquals(records.size() + 1, next);
+        }
+    }
+
+    @Test
+    public void ignoresATornRecordAndOverwritesIt() throws Exception {
+        try (LocationWal wal = new LocationWal(directory, SEGMENT_BYTES, FsyncPolicy.ALWAYS)) {
+            for (long seq = 1; seq <= 10; seq++) {
+                append(wal, seq);
+            }
+        }
+        // Damage the payload of the last record, as an interrupted write would
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long end = 8;
+            for (int i = 0; i < 10; i++) {
+                file.seek(end);
+                end += 8 + file.readInt();
+            }
+            file.seek(end - 3);
+            file.write(0x7F);
+        }
+
+        try (LocationWal wal = new LocationWal(directory, SEGMENT_BYTES, FsyncPolicy.ALWAYS)) {
+            assertEquals(9, wal.getLastSequence());
+            assertEquals(10, append(wal, 10));
+            List<WalRecord> records = new ArrayList<>();
+            wal.replay(0, records::add);
+            assertEquals(10, records.size());
+            assertRecord(10, records.get(9));
+        }
+    }
+
+    @Test
+    public void truncatesCommittedSegmentsAndKeepsTheCheckpoint() throws Exception {
+        try (LocationWal wal = new LocationWal(directory, SEGMENT_BYTES, FsyncPolicy.INTERVAL)) {
+            for (long seq = 1; seq <= 5_000; seq++) {
+                append(wal, seq);
+            }
+            int segments = wal.getSegmentCount();
+            assertTrue(segments > 3, segments + " segments");
+
+            assertTrue(wal.truncate(3_000) > 0);
+            assertEquals(3_000, wal.getCheckpoint());
+            assertTrue(wal.getSegmentCount() < segments);
+
+            List<WalRecord> records = new ArrayList<>();
+            wal.replay(3_000, records::add);
+            assertEquals(2_000, records.size());
+            assertRecord(3_001, records.get(0));
+        }
+
+        try (LocationWal wal = new LocationWal(directory, SEGMENT_BYTES, FsyncPolicy.INTERVAL)) {
+            assertEquals(3_000, wal.getCheckpoint());
+            assertEquals(5_000, wal.getLastSequence());
+            // Everything committed: only the active segment stays
+            wal.truncate(5_000);
+            assertEquals(1, wal.getSegmentCount());
+            List<WalRecord> records = new ArrayList<>();
+            wal.replay(wal.getCheckpoint(), records::add);
+            assertEquals(0, records.size());
+            assertEquals(5_001, append(wal, 5_001));
+        }
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-")).sorted().toList();
+        }
+    }
+
+    private static long append(LocationWal wal, long seq) throws Exception {
+        return wal.append("SURV" + (seq % 7), 18.52 + seq * 1e-6, 73.85 - seq * 1e-6,
+            Instant.ofEpochSecond(T0 + seq * 5, seq % 1000), seq % 100 == 0);
+    }
+
+    private static void assertRecord(long seq, WalRecord record) {
+        assertEquals(seq, record.getSequence());
+        assertEquals("SURV" + (seq % 7), record.getSurveyorId());
+        assertEquals(18.52 + seq * 1e-6, record.getLatitude());
+        assertEquals(73.85 - seq * 1e-6, record.getLongitude());
+        assertEquals(Instant.ofEpochSecond(T0 + seq * 5, seq % 1000), record.getTimestamp());
+        assertEquals(seq % 100 == 0, record.isFinalFix());
+    }
+
+    /**
+     * Appends until killed, printing each sequence once append has returned.
+     */
+    public static class Writer {
+        public static void main(String[] args) throws Exception {
+            try (LocationWal wal = new LocationWal(new File(args[0]).toPath(), SEGMENT_BYTES, FsyncPolicy.NEVER)) {
+                for (long seq = 1; ; seq++) {
+                    System.out.println(append(wal, seq));
+                    System.out.flush();
+                }
+            }
+        }
+    }
+}